@@ -0,0 +1,52 @@
+package com.parkit.parkingsystem.benchmark;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.integration.config.EmbeddedDataBaseConfig;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+//claims per second of gates sharing one DAO: they all race for the lowest free spots. Each claimed spot is given
+//back so that the lot never fills up
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(8)
+public class ClaimNextSlotBenchmark {
+
+    private ParkingSpotDAO parkingSpotDAO;
+
+    @Setup
+    public void setUp() throws Exception {
+        EmbeddedDataBaseConfig dataBaseConfig = new EmbeddedDataBaseConfig("claim_benchmark");
+        dataBaseConfig.createSchema(1000, 1000);
+        dataBaseConfig.warmUp();
+        parkingSpotDAO = new ParkingSpotDAO();
+        parkingSpotDAO.dataBaseConfig = dataBaseConfig;
+        parkingSpotDAO.getSpotInventory().reload();
+    }
+
+    @Benchmark
+    public boolean claimUnderContention() {
+        int parkingNumber = parkingSpotDAO.claimNextSlot(ParkingType.CAR);
+        if (parkingNumber <= 0) {
+            return false;
+        }
+        return parkingSpotDAO.updateParking(new ParkingSpot(parkingNumber, ParkingType.CAR, true));
+    }
+}
@@ -0,0 +1,54 @@
+package com.parkit.parkingsystem.benchmark;
+
+import com.parkit.parkingsystem.integration.config.EmbeddedDataBaseConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+public class ConnectionPoolBenchmark {
+
+    private EmbeddedDataBaseConfig dataBaseConfig;
+
+    @Setup
+    public void setUp() throws Exception {
+        dataBaseConfig = new EmbeddedDataBaseConfig("pool_benchmark");
+        dataBaseConfig.createSchema(1, 1);
+        dataBaseConfig.warmUp();
+    }
+
+    @Benchmark
+    public boolean pooledConnection() throws Exception {
+        Connection con = dataBaseConfig.getConnection();
+        boolean autoCommit = con.getAutoCommit();
+        dataBaseConfig.closeConnection(con);
+        return autoCommit;
+    }
+
+    @Benchmark
+    public boolean unpooledConnection() throws SQLException {
+        Connection con = DriverManager.getConnection("jdbc:h2:mem:pool_benchmark;MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "");
+        boolean autoCommit = con.getAutoCommit();
+        con.close();
+        return autoCommit;
+    }
+}
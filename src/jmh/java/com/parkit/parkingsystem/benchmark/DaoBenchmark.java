@@ -0,0 +1,80 @@
+package com.parkit.parkingsystem.benchmark;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.integration.config.EmbeddedDataBaseConfig;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class DaoBenchmark {
+
+    private ParkingSpotDAO parkingSpotDAO;
+    private TicketDAO ticketDAO;
+    private Ticket parkedTicket;
+
+    @Setup
+    public void setUp() throws Exception {
+        EmbeddedDataBaseConfig dataBaseConfig = new EmbeddedDataBaseConfig("dao_benchmark");
+        dataBaseConfig.createSchema(1000, 1000);
+        parkingSpotDAO = new ParkingSpotDAO();
+        parkingSpotDAO.dataBaseConfig = dataBaseConfig;
+        ticketDAO = new TicketDAO();
+        ticketDAO.dataBaseConfig = dataBaseConfig;
+        parkingSpotDAO.getSpotInventory().reload();
+
+        parkedTicket = new Ticket();
+        parkedTicket.setParkingSpot(new ParkingSpot(parkingSpotDAO.claimNextSlot(ParkingType.CAR), ParkingType.CAR, false));
+        parkedTicket.setVehicleRegNumber("PARKED");
+        parkedTicket.setInTime(new Date());
+        ticketDAO.saveTicket(parkedTicket);
+    }
+
+    @Benchmark
+    public boolean claimAndReleaseSpot() {
+        ParkingSpot parkingSpot = new ParkingSpot(parkingSpotDAO.claimNextSlot(ParkingType.CAR), ParkingType.CAR, false);
+        parkingSpot.setAvailable(true);
+        return parkingSpotDAO.updateParking(parkingSpot);
+    }
+
+    @Benchmark
+    public boolean saveAndCloseTicket() {
+        Ticket ticket = new Ticket();
+        ticket.setParkingSpot(new ParkingSpot(2, ParkingType.CAR, false));
+        ticket.setVehicleRegNumber("BENCH");
+        ticket.setInTime(new Date());
+        ticketDAO.saveTicket(ticket);
+        ticket.setOutTime(new Date());
+        return ticketDAO.updateTicket(ticket);
+    }
+
+    @Benchmark
+    public Ticket getTicketFromCache() {
+        return ticketDAO.getTicket("PARKED");
+    }
+
+    @Benchmark
+    public Ticket getTicketFromDataBase() {
+        ticketDAO.getOpenTicketCache().remove("PARKED");
+        return ticketDAO.getTicket("PARKED");
+    }
+}
@@ -0,0 +1,55 @@
+package com.parkit.parkingsystem.benchmark;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.FareCalculatorService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class FareCalculatorBenchmark {
+
+    private FareCalculatorService fareCalculatorService;
+    private Ticket ticket;
+    private long inTime;
+    private long outTime;
+
+    @Setup
+    public void setUp() {
+        fareCalculatorService = new FareCalculatorService();
+        outTime = System.currentTimeMillis();
+        inTime = outTime - (3 * 60 * 60 * 1000 + 17 * 60 * 1000);
+        ticket = new Ticket();
+        ticket.setParkingSpot(new ParkingSpot(1, ParkingType.CAR, false));
+        ticket.setInTime(new Date(inTime));
+        ticket.setOutTime(new Date(outTime));
+    }
+
+    @Benchmark
+    public long fareFromEpochMillis() {
+        return fareCalculatorService.calculateFare(inTime, outTime, ParkingType.CAR);
+    }
+
+    @Benchmark
+    public double fareFromTicket() {
+        fareCalculatorService.calculateFare(ticket);
+        return ticket.getPrice();
+    }
+}
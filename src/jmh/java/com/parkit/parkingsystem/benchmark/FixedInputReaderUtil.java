@@ -0,0 +1,24 @@
+package com.parkit.parkingsystem.benchmark;
+
+import com.parkit.parkingsystem.util.InputReaderUtil;
+
+public class FixedInputReaderUtil extends InputReaderUtil {
+
+    private final int selection;
+    private final String vehicleRegNumber;
+
+    public FixedInputReaderUtil(int selection, String vehicleRegNumber) {
+        this.selection = selection;
+        this.vehicleRegNumber = vehicleRegNumber;
+    }
+
+    @Override
+    public int readSelection() {
+        return selection;
+    }
+
+    @Override
+    public String readVehicleRegistrationNumber() {
+        return vehicleRegNumber;
+    }
+}
@@ -0,0 +1,63 @@
+package com.parkit.parkingsystem.benchmark;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.event.GateEventRing;
+import com.parkit.parkingsystem.event.WaitStrategies;
+import com.parkit.parkingsystem.model.EntryResult;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+//time a gate spends handing an event to the ring, the handler doing nothing
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class GateEventRingBenchmark {
+
+    @Param({"SLEEPING", "BLOCKING"})
+    private String waitStrategy;
+
+    private GateEventRing ring;
+    private EntryResult parked;
+    private long timeMillis;
+
+    @Setup
+    public void setUp() {
+        ring = new GateEventRing(1 << 16, GateEventRing.ProducerType.SINGLE, WaitStrategies.named(waitStrategy), 1000);
+        ring.addHandler("noop", (event, sequence, endOfBatch) -> { });
+        ring.start();
+        Ticket ticket = new Ticket();
+        ticket.setId(7);
+        ticket.setParkingSpot(new ParkingSpot(2, ParkingType.CAR, false));
+        ticket.setVehicleRegNumber("ABCDEF");
+        ticket.setInTime(new Date());
+        parked = new EntryResult(EntryResult.Status.PARKED, ticket);
+    }
+
+    @TearDown
+    public void tearDown() {
+        ring.close();
+    }
+
+    @Benchmark
+    public boolean publishEntry() {
+        return ring.publishEntry("ABCDEF", ParkingType.CAR, parked, timeMillis++);
+    }
+}
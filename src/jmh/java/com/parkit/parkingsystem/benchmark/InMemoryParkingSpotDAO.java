@@ -0,0 +1,47 @@
+package com.parkit.parkingsystem.benchmark;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.SpotInventory;
+import com.parkit.parkingsystem.model.ParkingSpot;
+
+//stands in for the DB so that only the service code is measured
+public class InMemoryParkingSpotDAO extends ParkingSpotDAO {
+
+    private final SpotInventory spotInventory = new SpotInventory(new DataBaseConfig());
+
+    public InMemoryParkingSpotDAO(int carSpots, int bikeSpots) {
+        int spots = carSpots + bikeSpots;
+        int[] numbers = new int[spots];
+        ParkingType[] types = new ParkingType[spots];
+        boolean[] available = new boolean[spots];
+        for (int i = 0; i < spots; i++) {
+            numbers[i] = i + 1;
+            types[i] = i < carSpots ? ParkingType.CAR : ParkingType.BIKE;
+            available[i] = true;
+        }
+        spotInventory.load(numbers, types, available);
+    }
+
+    @Override
+    public SpotInventory getSpotInventory() {
+        return spotInventory;
+    }
+
+    @Override
+    public int getNextAvailableSlot(ParkingType parkingType) {
+        return spotInventory.getNextAvailableSlot(parkingType);
+    }
+
+    @Override
+    public int claimNextSlot(ParkingType parkingType) {
+        return spotInventory.claimNextAvailableSlot(parkingType);
+    }
+
+    @Override
+    public boolean updateParking(ParkingSpot parkingSpot) {
+        spotInventory.setAvailable(parkingSpot.getId(), parkingSpot.isAvailable());
+        return true;
+    }
+}
@@ -0,0 +1,31 @@
+package com.parkit.parkingsystem.benchmark;
+
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.model.Ticket;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+//stands in for the DB so that only the service code is measured
+public class InMemoryTicketDAO extends TicketDAO {
+
+    private final ConcurrentHashMap<String, Ticket> openTickets = new ConcurrentHashMap<>();
+    private final AtomicInteger ticketIds = new AtomicInteger();
+
+    @Override
+    public boolean saveTicket(Ticket ticket) {
+        ticket.setId(ticketIds.incrementAndGet());
+        openTickets.put(ticket.getVehicleRegNumber(), ticket);
+        return true;
+    }
+
+    @Override
+    public Ticket getTicket(String vehicleRegNumber) {
+        return openTickets.get(vehicleRegNumber);
+    }
+
+    @Override
+    public boolean updateTicket(Ticket ticket) {
+        return openTickets.remove(ticket.getVehicleRegNumber(), ticket);
+    }
+}
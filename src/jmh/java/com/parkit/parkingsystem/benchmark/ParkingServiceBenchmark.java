@@ -0,0 +1,54 @@
+package com.parkit.parkingsystem.benchmark;
+
+import com.parkit.parkingsystem.service.ParkingService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ParkingServiceBenchmark {
+
+    private PrintStream console;
+    private ParkingService parkingService;
+
+    @Setup
+    public void setUp() {
+        //the console output of the service is not what we are measuring
+        console = System.out;
+        System.setOut(new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+        }));
+        parkingService = new ParkingService(new FixedInputReaderUtil(1, "BENCH"),
+                new InMemoryParkingSpotDAO(100, 100), new InMemoryTicketDAO());
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.setOut(console);
+    }
+
+    @Benchmark
+    public void incomingThenExitingVehicle() {
+        parkingService.processIncomingVehicle();
+        parkingService.processExitingVehicle();
+    }
+}
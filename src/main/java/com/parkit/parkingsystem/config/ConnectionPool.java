@@ -0,0 +1,266 @@
+package com.parkit.parkingsystem.config;
+
+import com.parkit.parkingsystem.metrics.LatencyHistogram;
+import com.parkit.parkingsystem.metrics.Metrics;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+public class ConnectionPool {
+
+    private static final Logger logger = LogManager.getLogger("ConnectionPool");
+
+    private static final LatencyHistogram ACQUIRE_LATENCY = Metrics.histogram("connectionPool.acquire");
+
+    public static final int DEFAULT_STATEMENT_CACHE_SIZE = 32;
+
+    public interface ConnectionFactory {
+        Connection create() throws SQLException;
+    }
+
+    private final String name;
+    private final ConnectionFactory connectionFactory;
+    private final int minSize;
+    private final int maxSize;
+    private final long acquireTimeoutMillis;
+    private final int validationTimeoutSeconds;
+    private final int statementCacheSize;
+
+    //most recently released connections are handed out first, so the warm ones stay in use
+    private final LinkedBlockingDeque<Connection> idleConnections = new LinkedBlockingDeque<>();
+    private final Semaphore permits;
+    private final AtomicInteger activeCount = new AtomicInteger();
+    //connections handed out and not released yet, so that a second release of one is ignored
+    private final Set<Connection> checkedOut = ConcurrentHashMap.newKeySet();
+    private volatile boolean closed;
+
+    private final ConcurrentMap<Connection, StatementCache> statementCaches = new ConcurrentHashMap<>();
+    private final Set<PreparedStatement> cachedStatements = ConcurrentHashMap.newKeySet();
+    //hits and misses of the caches of connections already discarded
+    private final LongAdder retiredStatementHits = new LongAdder();
+    private final LongAdder retiredStatementMisses = new LongAdder();
+
+    private final LongAdder acquireCount = new LongAdder();
+    private final LongAdder timeoutCount = new LongAdder();
+    private final LongAdder createdCount = new LongAdder();
+    private final LongAdder discardedCount = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    public ConnectionPool(String name, ConnectionFactory connectionFactory, int minSize, int maxSize,
+                          long acquireTimeoutMillis, int validationTimeoutSeconds) {
+        this(name, connectionFactory, minSize, maxSize, acquireTimeoutMillis, validationTimeoutSeconds,
+                DEFAULT_STATEMENT_CACHE_SIZE);
+    }
+
+    public ConnectionPool(String name, ConnectionFactory connectionFactory, int minSize, int maxSize,
+                          long acquireTimeoutMillis, int validationTimeoutSeconds, int statementCacheSize) {
+        if (minSize < 0 || maxSize < 1 || minSize > maxSize) {
+            throw new IllegalArgumentException("Invalid pool size: min=" + minSize + ", max=" + maxSize);
+        }
+        this.name = name;
+        this.connectionFactory = connectionFactory;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+        this.validationTimeoutSeconds = validationTimeoutSeconds;
+        this.statementCacheSize = statementCacheSize;
+        this.permits = new Semaphore(maxSize, true);
+    }
+
+    public void warmUp() throws SQLException {
+        while (!closed && getTotalCount() < minSize) {
+            if (!permits.tryAcquire()) {
+                return;
+            }
+            try {
+                idleConnections.offerLast(createConnection());
+            } finally {
+                permits.release();
+            }
+        }
+        logger.info("Connection pool " + name + " warmed up with " + idleConnections.size() + " connections");
+    }
+
+    public Connection acquire() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool " + name + " is closed");
+        }
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                timeoutCount.increment();
+                throw new SQLTimeoutException("Timed out after " + acquireTimeoutMillis
+                        + " ms waiting for a connection from pool " + name);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a connection from pool " + name, e);
+        }
+        try {
+            Connection con = borrowValidConnection();
+            checkedOut.add(con);
+            activeCount.incrementAndGet();
+            recordWait(System.nanoTime() - start);
+            return con;
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    public void release(Connection con) {
+        if (con == null) {
+            return;
+        }
+        if (!checkedOut.remove(con)) {
+            logger.warn("Ignoring release of a connection not checked out from pool " + name);
+            return;
+        }
+        activeCount.decrementAndGet();
+        try {
+            if (closed || con.isClosed()) {
+                discard(con);
+                return;
+            }
+            if (!con.getAutoCommit()) {
+                con.rollback();
+                con.setAutoCommit(true);
+            }
+            idleConnections.offerFirst(con);
+        } catch (SQLException e) {
+            logger.error("Error while returning connection to pool " + name, e);
+            discard(con);
+        } finally {
+            permits.release();
+        }
+    }
+
+    //the connection must be one acquired from this pool; a size of 0 disables caching
+    public PreparedStatement prepareStatement(Connection con, String sql, int autoGeneratedKeys) throws SQLException {
+        if (statementCacheSize <= 0) {
+            return autoGeneratedKeys == Statement.RETURN_GENERATED_KEYS
+                    ? con.prepareStatement(sql, autoGeneratedKeys) : con.prepareStatement(sql);
+        }
+        return statementCaches.computeIfAbsent(con, c -> new StatementCache(c, statementCacheSize, cachedStatements))
+                .prepare(sql, autoGeneratedKeys);
+    }
+
+    //returns false when the statement is not cached and should be closed by the caller
+    public boolean releaseStatement(PreparedStatement ps) {
+        //parameters and batch are cleared when the cache hands the statement out again
+        return cachedStatements.contains(ps);
+    }
+
+    public void close() {
+        closed = true;
+        Connection con;
+        while ((con = idleConnections.pollFirst()) != null) {
+            discard(con);
+        }
+        logger.info("Connection pool " + name + " closed");
+    }
+
+    public PoolStats getStats() {
+        long acquired = acquireCount.sum();
+        long statementHits = retiredStatementHits.sum();
+        long statementMisses = retiredStatementMisses.sum();
+        for (StatementCache statementCache : statementCaches.values()) {
+            statementHits += statementCache.getHitCount();
+            statementMisses += statementCache.getMissCount();
+        }
+        return new PoolStats(activeCount.get(), idleConnections.size(), maxSize, acquired,
+                timeoutCount.sum(), createdCount.sum(), discardedCount.sum(),
+                acquired == 0 ? 0 : totalWaitNanos.sum() / acquired, maxWaitNanos.get(),
+                statementHits, statementMisses);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getMinSize() {
+        return minSize;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public int getStatementCacheSize() {
+        return statementCacheSize;
+    }
+
+    private int getTotalCount() {
+        return activeCount.get() + idleConnections.size();
+    }
+
+    private Connection borrowValidConnection() throws SQLException {
+        Connection con;
+        while ((con = idleConnections.pollFirst()) != null) {
+            if (isValid(con)) {
+                return con;
+            }
+            logger.warn("Discarding invalid connection from pool " + name);
+            discard(con);
+        }
+        return createConnection();
+    }
+
+    private boolean isValid(Connection con) {
+        try {
+            return con.isValid(validationTimeoutSeconds);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private Connection createConnection() throws SQLException {
+        logger.debug("Create DB connection for pool " + name);
+        Connection con = connectionFactory.create();
+        createdCount.increment();
+        return con;
+    }
+
+    private void discard(Connection con) {
+        discardedCount.increment();
+        //the statements die with their connection, close them first so the driver frees them
+        StatementCache statementCache = statementCaches.remove(con);
+        if (statementCache != null) {
+            retiredStatementHits.add(statementCache.getHitCount());
+            retiredStatementMisses.add(statementCache.getMissCount());
+            statementCache.close();
+        }
+        try {
+            con.close();
+        } catch (SQLException e) {
+            logger.error("Error while closing connection", e);
+        }
+    }
+
+    private void recordWait(long waitNanos) {
+        ACQUIRE_LATENCY.record(waitNanos);
+        acquireCount.increment();
+        totalWaitNanos.add(waitNanos);
+        long max;
+        while (waitNanos > (max = maxWaitNanos.get())) {
+            if (maxWaitNanos.compareAndSet(max, waitNanos)) {
+                break;
+            }
+        }
+    }
+}
@@ -4,48 +4,160 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.sql.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 public class DataBaseConfig {
 
     private static final Logger logger = LogManager.getLogger("DataBaseConfig");
 
+    //one pool per database url, shared by every DAO pointing at that database
+    private static final ConcurrentMap<String, ConnectionPool> pools = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<String, JdbcExecutor> jdbcExecutors = new ConcurrentHashMap<>();
+
+    protected String getDriverClassName() {
+        return "com.mysql.cj.jdbc.Driver";
+    }
+
+    protected String getUrl() {
+        return "jdbc:mysql://localhost:3306/prod";
+    }
+
+    protected String getUser() {
+        return "root";
+    }
+
+    protected String getPassword() {
+        return "rootroot";
+    }
+
+    protected int getPoolMinSize() {
+        return Integer.getInteger("parkit.db.pool.minSize", 2);
+    }
+
+    protected int getPoolMaxSize() {
+        return Integer.getInteger("parkit.db.pool.maxSize", 10);
+    }
+
+    protected long getPoolAcquireTimeoutMillis() {
+        return Long.getLong("parkit.db.pool.acquireTimeoutMillis", 5000L);
+    }
+
+    protected int getPoolValidationTimeoutSeconds() {
+        return Integer.getInteger("parkit.db.pool.validationTimeoutSeconds", 2);
+    }
+
+    protected int getStatementCacheSize() {
+        return Integer.getInteger("parkit.db.statementCacheSize", ConnectionPool.DEFAULT_STATEMENT_CACHE_SIZE);
+    }
+
+    protected int getJdbcExecutorQueueCapacity() {
+        return Integer.getInteger("parkit.db.executor.queueCapacity", 64);
+    }
+
+    //fetch size for large forward-only reads: MySQL Connector/J only streams rows with Integer.MIN_VALUE
+    public int getStreamingFetchSize() {
+        return Integer.MIN_VALUE;
+    }
+
+    public ConnectionPool getPool() throws ClassNotFoundException {
+        ConnectionPool pool = pools.get(getUrl());
+        if (pool == null) {
+            Class.forName(getDriverClassName());
+            pool = pools.computeIfAbsent(getUrl(), url -> new ConnectionPool(url,
+                    () -> DriverManager.getConnection(url, getUser(), getPassword()),
+                    getPoolMinSize(), getPoolMaxSize(),
+                    getPoolAcquireTimeoutMillis(), getPoolValidationTimeoutSeconds(), getStatementCacheSize()));
+        }
+        return pool;
+    }
+
+    //async DAO calls run here, with as many threads as the pool has connections
+    public JdbcExecutor getJdbcExecutor() {
+        return jdbcExecutors.computeIfAbsent(getUrl(),
+                url -> new JdbcExecutor(url, getPoolMaxSize(), getJdbcExecutorQueueCapacity()));
+    }
+
+    public void warmUp() throws ClassNotFoundException, SQLException {
+        getPool().warmUp();
+    }
+
+    public PoolStats getPoolStats() throws ClassNotFoundException {
+        return getPool().getStats();
+    }
+
     public Connection getConnection() throws ClassNotFoundException, SQLException {
-        logger.info("Create DB connection");
-        Class.forName("com.mysql.cj.jdbc.Driver");
-        return DriverManager.getConnection(
-                "jdbc:mysql://localhost:3306/prod","root","rootroot");
+        return getPool().acquire();
     }
 
     public void closeConnection(Connection con){
         if(con!=null){
             try {
-                con.close();
-                logger.info("Closing DB connection");
-            } catch (SQLException e) {
+                getPool().release(con);
+                logger.debug("Released DB connection");
+            } catch (ClassNotFoundException e) {
                 logger.error("Error while closing connection",e);
             }
         }
     }
 
+    //statements of fixed SQL come from the connection's cache; release them with closePreparedStatement
+    public PreparedStatement prepareStatement(Connection con, String sql) throws ClassNotFoundException, SQLException {
+        return getPool().prepareStatement(con, sql, Statement.NO_GENERATED_KEYS);
+    }
+
+    public PreparedStatement prepareStatement(Connection con, String sql, int autoGeneratedKeys)
+            throws ClassNotFoundException, SQLException {
+        return getPool().prepareStatement(con, sql, autoGeneratedKeys);
+    }
+
     public void closePreparedStatement(PreparedStatement ps) {
         if(ps!=null){
             try {
+                if (getPool().releaseStatement(ps)) {
+                    logger.debug("Returned Prepared Statement to cache");
+                    return;
+                }
                 ps.close();
-                logger.info("Closing Prepared Statement");
-            } catch (SQLException e) {
+                logger.debug("Closing Prepared Statement");
+            } catch (ClassNotFoundException | SQLException e) {
                 logger.error("Error while closing prepared statement",e);
             }
         }
     }
 
+    public void closeStatement(Statement statement) {
+        if(statement!=null){
+            try {
+                statement.close();
+                logger.debug("Closing Statement");
+            } catch (SQLException e) {
+                logger.error("Error while closing statement",e);
+            }
+        }
+    }
+
     public void closeResultSet(ResultSet rs) {
         if(rs!=null){
             try {
                 rs.close();
-                logger.info("Closing Result Set");
+                logger.debug("Closing Result Set");
             } catch (SQLException e) {
                 logger.error("Error while closing result set",e);
             }
         }
     }
+
+    public static void shutdown() {
+        //queued async work still needs its connections
+        for (JdbcExecutor jdbcExecutor : jdbcExecutors.values()) {
+            jdbcExecutor.shutdown();
+        }
+        jdbcExecutors.clear();
+        for (ConnectionPool pool : pools.values()) {
+            logger.info("Closing connection pool " + pool.getName() + ": " + pool.getStats());
+            pool.close();
+        }
+        pools.clear();
+    }
 }
@@ -0,0 +1,93 @@
+package com.parkit.parkingsystem.config;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+public class PoolStats {
+    private final int active;
+    private final int idle;
+    private final int maxSize;
+    private final long acquireCount;
+    private final long timeoutCount;
+    private final long createdCount;
+    private final long discardedCount;
+    private final long averageWaitNanos;
+    private final long maxWaitNanos;
+    private final long statementCacheHits;
+    private final long statementCacheMisses;
+
+    public PoolStats(int active, int idle, int maxSize, long acquireCount, long timeoutCount, long createdCount,
+                     long discardedCount, long averageWaitNanos, long maxWaitNanos,
+                     long statementCacheHits, long statementCacheMisses) {
+        this.active = active;
+        this.idle = idle;
+        this.maxSize = maxSize;
+        this.acquireCount = acquireCount;
+        this.timeoutCount = timeoutCount;
+        this.createdCount = createdCount;
+        this.discardedCount = discardedCount;
+        this.averageWaitNanos = averageWaitNanos;
+        this.maxWaitNanos = maxWaitNanos;
+        this.statementCacheHits = statementCacheHits;
+        this.statementCacheMisses = statementCacheMisses;
+    }
+
+    public int getActive() {
+        return active;
+    }
+
+    public int getIdle() {
+        return idle;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public long getAcquireCount() {
+        return acquireCount;
+    }
+
+    public long getTimeoutCount() {
+        return timeoutCount;
+    }
+
+    public long getCreatedCount() {
+        return createdCount;
+    }
+
+    public long getDiscardedCount() {
+        return discardedCount;
+    }
+
+    public long getAverageWaitNanos() {
+        return averageWaitNanos;
+    }
+
+    public long getMaxWaitNanos() {
+        return maxWaitNanos;
+    }
+
+    public long getStatementCacheHits() {
+        return statementCacheHits;
+    }
+
+    public long getStatementCacheMisses() {
+        return statementCacheMisses;
+    }
+
+    public double getStatementCacheHitRatio() {
+        long lookups = statementCacheHits + statementCacheMisses;
+        return lookups == 0 ? 0 : (double) statementCacheHits / lookups;
+    }
+
+    @Override
+    public String toString() {
+        return "active=" + active + ", idle=" + idle + ", max=" + maxSize
+                + ", acquired=" + acquireCount + ", timeouts=" + timeoutCount
+                + ", created=" + createdCount + ", discarded=" + discardedCount
+                + ", avgWait=" + TimeUnit.NANOSECONDS.toMicros(averageWaitNanos) + "us"
+                + ", maxWait=" + TimeUnit.NANOSECONDS.toMicros(maxWaitNanos) + "us"
+                + ", statementCacheHitRatio=" + String.format(Locale.ROOT, "%.3f", getStatementCacheHitRatio());
+    }
+}
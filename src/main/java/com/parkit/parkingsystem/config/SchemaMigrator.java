@@ -0,0 +1,255 @@
+package com.parkit.parkingsystem.config;
+
+import com.parkit.parkingsystem.constants.DBConstants;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+//applies the numbered scripts listed in <location>/migrations.list that are not yet recorded in schema_version
+public class SchemaMigrator {
+
+    private static final Logger logger = LogManager.getLogger("SchemaMigrator");
+
+    public static final String DEFAULT_LOCATION = "db/migration/";
+
+    private static final Pattern MIGRATION_NAME = Pattern.compile("V(\\d+)__(\\w+)\\.sql");
+
+    public static final class Migration {
+        private final int version;
+        private final String description;
+        private final long checksum;
+        private final List<String> statements;
+
+        private Migration(int version, String description, long checksum, List<String> statements) {
+            this.version = version;
+            this.description = description;
+            this.checksum = checksum;
+            this.statements = statements;
+        }
+
+        public int getVersion() {
+            return version;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+
+        public long getChecksum() {
+            return checksum;
+        }
+
+        public List<String> getStatements() {
+            return statements;
+        }
+    }
+
+    private final DataBaseConfig dataBaseConfig;
+    private final String location;
+
+    public SchemaMigrator(DataBaseConfig dataBaseConfig) {
+        this(dataBaseConfig, DEFAULT_LOCATION);
+    }
+
+    public SchemaMigrator(DataBaseConfig dataBaseConfig, String location) {
+        this.dataBaseConfig = dataBaseConfig;
+        this.location = location;
+    }
+
+    //returns the number of migrations applied
+    public synchronized int migrate() throws ClassNotFoundException, SQLException, IOException {
+        List<Migration> migrations = getMigrations();
+        Connection con = null;
+        int applied = 0;
+        try {
+            con = dataBaseConfig.getConnection();
+            Statement statement = con.createStatement();
+            statement.execute(DBConstants.CREATE_SCHEMA_VERSION);
+            dataBaseConfig.closeStatement(statement);
+            Map<Integer, Long> appliedChecksums = getAppliedChecksums(con);
+            for (Migration migration : migrations) {
+                Long appliedChecksum = appliedChecksums.get(migration.version);
+                if (appliedChecksum == null) {
+                    apply(con, migration);
+                    applied++;
+                } else if (appliedChecksum != migration.checksum) {
+                    throw new IllegalStateException("Migration V" + migration.version + "__" + migration.description
+                            + " was changed after it was applied");
+                }
+            }
+        } finally {
+            dataBaseConfig.closeConnection(con);
+        }
+        logger.info("Schema is at version " + (migrations.isEmpty() ? 0 : migrations.get(migrations.size() - 1).version)
+                + ", " + applied + " migrations applied");
+        return applied;
+    }
+
+    public List<Migration> getMigrations() throws IOException {
+        List<Migration> migrations = new ArrayList<>();
+        for (String fileName : readLines(location + "migrations.list")) {
+            Matcher matcher = MIGRATION_NAME.matcher(fileName);
+            if (!matcher.matches()) {
+                throw new IllegalStateException("Invalid migration file name: " + fileName);
+            }
+            String script = readScript(location + fileName);
+            migrations.add(new Migration(Integer.parseInt(matcher.group(1)), matcher.group(2), checksum(script),
+                    Collections.unmodifiableList(splitStatements(script))));
+        }
+        migrations.sort((a, b) -> Integer.compare(a.version, b.version));
+        for (int i = 1; i < migrations.size(); i++) {
+            if (migrations.get(i).version == migrations.get(i - 1).version) {
+                throw new IllegalStateException("Duplicate migration version " + migrations.get(i).version);
+            }
+        }
+        return migrations;
+    }
+
+    private Map<Integer, Long> getAppliedChecksums(Connection con) throws SQLException {
+        Map<Integer, Long> checksums = new HashMap<>();
+        PreparedStatement ps = con.prepareStatement(DBConstants.GET_SCHEMA_VERSIONS);
+        ResultSet rs = ps.executeQuery();
+        while (rs.next()) {
+            checksums.put(rs.getInt(1), rs.getLong(2));
+        }
+        dataBaseConfig.closeResultSet(rs);
+        dataBaseConfig.closePreparedStatement(ps);
+        return checksums;
+    }
+
+    //DDL commits implicitly in MySQL, so the version is only recorded once every statement went through
+    private void apply(Connection con, Migration migration) throws SQLException {
+        logger.info("Applying migration V" + migration.version + "__" + migration.description);
+        Statement statement = con.createStatement();
+        try {
+            for (String sql : migration.statements) {
+                statement.execute(sql);
+            }
+        } finally {
+            dataBaseConfig.closeStatement(statement);
+        }
+        PreparedStatement ps = con.prepareStatement(DBConstants.SAVE_SCHEMA_VERSION);
+        ps.setInt(1, migration.version);
+        ps.setString(2, migration.description);
+        ps.setLong(3, migration.checksum);
+        ps.setTimestamp(4, new Timestamp(System.currentTimeMillis()));
+        ps.executeUpdate();
+        dataBaseConfig.closePreparedStatement(ps);
+    }
+
+    //over the whole script, comments and whitespace included, so that any edit of an applied migration is detected;
+    //line endings are normalized when the script is read, so a checkout with CRLF gives the same checksum
+    public static long checksum(String script) {
+        CRC32 crc = new CRC32();
+        crc.update(script.getBytes(StandardCharsets.UTF_8));
+        return crc.getValue();
+    }
+
+    //splits on the semicolons outside quoted text and comments. Line comments are dropped; block comments are kept,
+    //since MySQL runs the versioned ones (/*!50100 ... */)
+    public static List<String> splitStatements(String script) {
+        List<String> statements = new ArrayList<>();
+        StringBuilder sql = new StringBuilder();
+        int length = script.length();
+        int i = 0;
+        while (i < length) {
+            char c = script.charAt(i);
+            if (c == '\'' || c == '"' || c == '`') {
+                int end = endOfQuoted(script, i, c);
+                sql.append(script, i, end);
+                i = end;
+            } else if (c == '/' && script.startsWith("/*", i)) {
+                int end = script.indexOf("*/", i + 2);
+                end = (end < 0) ? length : end + 2;
+                sql.append(script, i, end);
+                i = end;
+            } else if (c == '#' || isDashComment(script, i)) {
+                int end = script.indexOf('\n', i);
+                i = (end < 0) ? length : end;
+            } else if (c == ';') {
+                addStatement(statements, sql);
+                i++;
+            } else {
+                sql.append(c);
+                i++;
+            }
+        }
+        addStatement(statements, sql);
+        return statements;
+    }
+
+    //MySQL reads "--" as a comment only when a space or the end of the line follows it
+    private static boolean isDashComment(String script, int i) {
+        return script.startsWith("--", i)
+                && (i + 2 == script.length() || Character.isWhitespace(script.charAt(i + 2)));
+    }
+
+    //index after the closing quote; a doubled quote reads as a closed then reopened text, and backslash escapes
+    //apply in strings but not in backtick identifiers
+    private static int endOfQuoted(String script, int start, char quote) {
+        int i = start + 1;
+        while (i < script.length()) {
+            char c = script.charAt(i);
+            if (c == '\\' && quote != '`') {
+                i += 2;
+            } else if (c == quote) {
+                return i + 1;
+            } else {
+                i++;
+            }
+        }
+        return script.length();
+    }
+
+    private static void addStatement(List<String> statements, StringBuilder sql) {
+        String statement = sql.toString().trim();
+        if (!statement.isEmpty()) {
+            statements.add(statement);
+        }
+        sql.setLength(0);
+    }
+
+    private static List<String> readLines(String resource) throws IOException {
+        List<String> lines = new ArrayList<>();
+        for (String line : readScript(resource).split("\n")) {
+            if (!line.trim().isEmpty()) {
+                lines.add(line.trim());
+            }
+        }
+        return lines;
+    }
+
+    private static String readScript(String resource) throws IOException {
+        InputStream in = SchemaMigrator.class.getClassLoader().getResourceAsStream(resource);
+        if (in == null) {
+            throw new IOException("Migration resource not found: " + resource);
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (InputStream script = in) {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = script.read(buffer)) > 0) {
+                bytes.write(buffer, 0, read);
+            }
+        }
+        return new String(bytes.toByteArray(), StandardCharsets.UTF_8).replace("\r\n", "\n").replace('\r', '\n');
+    }
+}
@@ -0,0 +1,62 @@
+package com.parkit.parkingsystem.config;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+//maps every lot to the database holding its spots and tickets; pools are per database URL, so each shard
+//gets its own connection pool, statement caches and JDBC executor
+public class ShardRouter {
+
+    private final Map<Integer, DataBaseConfig> dataBaseConfigs;
+
+    public ShardRouter(Map<Integer, DataBaseConfig> dataBaseConfigs) {
+        if (dataBaseConfigs.isEmpty()) {
+            throw new IllegalArgumentException("No shard configured");
+        }
+        this.dataBaseConfigs = Collections.unmodifiableMap(new TreeMap<>(dataBaseConfigs));
+    }
+
+    //"lotId=jdbcUrl" pairs separated by commas, e.g. 1=jdbc:mysql://db1:3306/prod,2=jdbc:mysql://db2:3306/prod
+    public static ShardRouter parse(String shards) {
+        Map<Integer, DataBaseConfig> dataBaseConfigs = new TreeMap<>();
+        for (String shard : shards.split(",")) {
+            int separator = shard.indexOf('=');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("Invalid shard " + shard + ", expected lotId=jdbcUrl");
+            }
+            int lotId = Integer.parseInt(shard.substring(0, separator).trim());
+            if (dataBaseConfigs.put(lotId, new ShardDataBaseConfig(shard.substring(separator + 1).trim())) != null) {
+                throw new IllegalArgumentException("Lot " + lotId + " is mapped twice");
+            }
+        }
+        return new ShardRouter(dataBaseConfigs);
+    }
+
+    public DataBaseConfig getDataBaseConfig(int lotId) {
+        DataBaseConfig dataBaseConfig = dataBaseConfigs.get(lotId);
+        if (dataBaseConfig == null) {
+            throw new IllegalArgumentException("No shard for lot " + lotId);
+        }
+        return dataBaseConfig;
+    }
+
+    //in ascending order
+    public Set<Integer> getLotIds() {
+        return dataBaseConfigs.keySet();
+    }
+
+    private static final class ShardDataBaseConfig extends DataBaseConfig {
+        private final String url;
+
+        private ShardDataBaseConfig(String url) {
+            this.url = url;
+        }
+
+        @Override
+        protected String getUrl() {
+            return url;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.parkit.parkingsystem.config;
+
+import com.parkit.parkingsystem.metrics.Counter;
+import com.parkit.parkingsystem.metrics.Metrics;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+//prepared statements of one pooled connection, least recently used first, keyed by SQL text
+class StatementCache {
+
+    private static final Logger logger = LogManager.getLogger("StatementCache");
+
+    private static final Counter HITS = Metrics.counter("statementCache.hits");
+    private static final Counter MISSES = Metrics.counter("statementCache.misses");
+    private static final Counter EVICTIONS = Metrics.counter("statementCache.evictions");
+
+    //generated keys change how the statement is prepared, so those statements get their own entries
+    private static final String GENERATED_KEYS_PREFIX = "/*keys*/";
+
+    private final Connection connection;
+    private final int capacity;
+    //statements of every cache of the pool, so a release can tell a cached statement from a plain one
+    private final Set<PreparedStatement> registry;
+    private final LinkedHashMap<String, PreparedStatement> statements;
+    private long hitCount;
+    private long missCount;
+
+    StatementCache(Connection connection, int capacity, Set<PreparedStatement> registry) {
+        this.connection = connection;
+        this.capacity = capacity;
+        this.registry = registry;
+        this.statements = new LinkedHashMap<>(capacity * 4 / 3 + 1, 0.75f, true);
+    }
+
+    synchronized PreparedStatement prepare(String sql, int autoGeneratedKeys) throws SQLException {
+        String key = autoGeneratedKeys == Statement.RETURN_GENERATED_KEYS ? GENERATED_KEYS_PREFIX + sql : sql;
+        PreparedStatement ps = statements.get(key);
+        if (ps != null && !ps.isClosed()) {
+            hitCount++;
+            HITS.increment();
+            //cleared here rather than on release, so that a failed batch or a statement never released cannot
+            //leak into the next use
+            ps.clearParameters();
+            ps.clearBatch();
+            return ps;
+        }
+        missCount++;
+        MISSES.increment();
+        if (ps != null) {
+            //closed behind our back, e.g. by the driver after an error
+            statements.remove(key);
+            registry.remove(ps);
+        }
+        ps = autoGeneratedKeys == Statement.RETURN_GENERATED_KEYS
+                ? connection.prepareStatement(sql, autoGeneratedKeys) : connection.prepareStatement(sql);
+        statements.put(key, ps);
+        registry.add(ps);
+        evictOverflow();
+        return ps;
+    }
+
+    //a connection only holds a handful of statements at once, far below the capacity, so the eldest is never in use
+    private void evictOverflow() {
+        Iterator<Map.Entry<String, PreparedStatement>> it = statements.entrySet().iterator();
+        while (statements.size() > capacity && it.hasNext()) {
+            PreparedStatement eldest = it.next().getValue();
+            it.remove();
+            EVICTIONS.increment();
+            close(eldest);
+        }
+    }
+
+    synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    synchronized long getMissCount() {
+        return missCount;
+    }
+
+    synchronized int size() {
+        return statements.size();
+    }
+
+    synchronized void close() {
+        List<PreparedStatement> cached = new ArrayList<>(statements.values());
+        statements.clear();
+        for (PreparedStatement ps : cached) {
+            close(ps);
+        }
+    }
+
+    private void close(PreparedStatement ps) {
+        registry.remove(ps);
+        try {
+            ps.close();
+        } catch (SQLException e) {
+            logger.error("Error while closing cached prepared statement", e);
+        }
+    }
+}
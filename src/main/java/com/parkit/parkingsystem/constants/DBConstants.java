@@ -3,9 +3,57 @@ package com.parkit.parkingsystem.constants;
 public class DBConstants {
 
     public static final String GET_NEXT_PARKING_SPOT = "select min(PARKING_NUMBER) from parking where AVAILABLE = true and TYPE = ?";
+    public static final String GET_PARKING_SPOTS = "select PARKING_NUMBER, AVAILABLE, TYPE from parking";
+    public static final String GET_PARKING_TYPE = "select TYPE from parking where PARKING_NUMBER = ?";
     public static final String UPDATE_PARKING_SPOT = "update parking set available = ? where PARKING_NUMBER = ?";
+    public static final String CLAIM_PARKING_SPOT = "update parking set available = false where PARKING_NUMBER = ? and AVAILABLE = true";
+    public static final String COUNT_PARKING_SPOTS = "select TYPE, count(*), sum(case when AVAILABLE then 1 else 0 end) from parking group by TYPE";
 
-    public static final String SAVE_TICKET = "insert into ticket(PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME) values(?,?,?,?,?)";
+    public static final String SAVE_TICKET = "insert into ticket(PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME, LOT_ID) values(?,?,?,?,?,?)";
     public static final String UPDATE_TICKET = "update ticket set PRICE=?, OUT_TIME=? where ID=?";
-    public static final String GET_TICKET = "select t.PARKING_NUMBER, t.ID, t.PRICE, t.IN_TIME, t.OUT_TIME, p.TYPE from ticket t,parking p where p.parking_number = t.parking_number and t.VEHICLE_REG_NUMBER=? order by t.IN_TIME  limit 1";
+    public static final String GET_TICKET = "select PARKING_NUMBER, ID, PRICE, IN_TIME, OUT_TIME from ticket where VEHICLE_REG_NUMBER=? order by IN_TIME desc limit 1";
+    //followed by one "?" per vehicle and a closing ")"; oldest first so that the latest open ticket of a plate wins
+    public static final String GET_OPEN_TICKETS_PREFIX = "select PARKING_NUMBER, ID, PRICE, IN_TIME, OUT_TIME, VEHICLE_REG_NUMBER from ticket where OUT_TIME is null and VEHICLE_REG_NUMBER in (";
+    public static final String GET_OPEN_TICKETS_SUFFIX = ") order by IN_TIME";
+
+    public static final String GET_VEHICLE_TICKETS = "select PARKING_NUMBER, ID, PRICE, IN_TIME, OUT_TIME from ticket where VEHICLE_REG_NUMBER=? order by IN_TIME desc";
+    public static final String GET_VEHICLE_HISTORY_TICKETS = "select PARKING_NUMBER, ID, PRICE, IN_TIME, OUT_TIME from ticket_history where VEHICLE_REG_NUMBER=? order by IN_TIME desc";
+
+    public static final String COUNT_VEHICLE_TICKETS = "select count(*) from ticket where VEHICLE_REG_NUMBER = ?";
+    public static final String COUNT_VEHICLE_HISTORY_TICKETS = "select count(*) from ticket_history where VEHICLE_REG_NUMBER = ?";
+    public static final String GET_VISIT_COUNTS = "select VEHICLE_REG_NUMBER, count(*) from ticket group by VEHICLE_REG_NUMBER";
+    public static final String GET_HISTORY_VISIT_COUNTS = "select VEHICLE_REG_NUMBER, count(*) from ticket_history group by VEHICLE_REG_NUMBER";
+
+    //tickets entered in [?, ?), streamed by ParkingReportEngine
+    public static final String GET_REPORT_TICKETS = "select IN_TIME, OUT_TIME, PRICE, PARKING_NUMBER from ticket where IN_TIME >= ? and IN_TIME < ?";
+    public static final String GET_REPORT_HISTORY_TICKETS = "select IN_TIME, OUT_TIME, PRICE, PARKING_NUMBER from ticket_history where IN_TIME >= ? and IN_TIME < ?";
+    //tickets entered before the report start and still parked at it
+    public static final String GET_REPORT_CARRIED_TICKETS = "select IN_TIME, OUT_TIME, PRICE, PARKING_NUMBER from ticket where IN_TIME < ? and (OUT_TIME is null or OUT_TIME >= ?)";
+    public static final String GET_REPORT_CARRIED_HISTORY_TICKETS = "select IN_TIME, OUT_TIME, PRICE, PARKING_NUMBER from ticket_history where IN_TIME < ? and OUT_TIME >= ?";
+
+    //tickets entered in [?, ?), streamed into a ColumnarTicketStore
+    public static final String GET_COLUMNAR_TICKETS = "select IN_TIME, OUT_TIME, PRICE, PARKING_NUMBER, VEHICLE_REG_NUMBER from ticket where IN_TIME >= ? and IN_TIME < ?";
+    public static final String GET_COLUMNAR_HISTORY_TICKETS = "select IN_TIME, OUT_TIME, PRICE, PARKING_NUMBER, VEHICLE_REG_NUMBER from ticket_history where IN_TIME >= ? and IN_TIME < ?";
+
+    //closed tickets older than the archive age, oldest first, locked until they are moved
+    public static final String GET_ARCHIVABLE_TICKETS = "select ID from ticket where OUT_TIME < ? order by OUT_TIME limit ? for update";
+    //followed by one "?" per ticket ID and a closing ")"
+    public static final String ARCHIVE_TICKETS_PREFIX = "insert into ticket_history(ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME, LOT_ID) select ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME, LOT_ID from ticket where ID in (";
+    public static final String DELETE_TICKETS_PREFIX = "delete from ticket where ID in (";
+    public static final String GET_TICKET_HISTORY_PARTITIONS = "select PARTITION_NAME from information_schema.PARTITIONS where TABLE_SCHEMA = database() and TABLE_NAME = 'ticket_history' and PARTITION_NAME is not null";
+    //partition name, first day of the following month
+    public static final String ADD_TICKET_HISTORY_PARTITION = "alter table ticket_history reorganize partition p_future into (partition %s values less than (to_days('%s')), partition p_future values less than maxvalue)";
+
+    //closed tickets after a keyset ID, in ID order, for TicketRerater
+    public static final String GET_RERATE_TICKETS = "select ID, PARKING_NUMBER, IN_TIME, OUT_TIME, PRICE from ticket where ID > ? and OUT_TIME >= ? and OUT_TIME < ? order by ID limit ?";
+    public static final String GET_RERATE_HISTORY_TICKETS = "select ID, PARKING_NUMBER, IN_TIME, OUT_TIME, PRICE from ticket_history where ID > ? and OUT_TIME >= ? and OUT_TIME < ? order by ID limit ?";
+    public static final String UPDATE_TICKET_PRICE = "update ticket set PRICE=? where ID=?";
+    public static final String UPDATE_TICKET_HISTORY_PRICE = "update ticket_history set PRICE=? where ID=?";
+    public static final String GET_RERATE_CHECKPOINT = "select LAST_ID, FROM_TIME, TO_TIME from rerate_checkpoint where JOB_NAME=? and SOURCE_TABLE=?";
+    public static final String SAVE_RERATE_CHECKPOINT = "insert into rerate_checkpoint(LAST_ID, RERATED, UPDATED_ON, JOB_NAME, SOURCE_TABLE, FROM_TIME, TO_TIME) values(?,?,?,?,?,?,?)";
+    public static final String UPDATE_RERATE_CHECKPOINT = "update rerate_checkpoint set LAST_ID=?, RERATED=RERATED+?, UPDATED_ON=? where JOB_NAME=? and SOURCE_TABLE=?";
+
+    public static final String CREATE_SCHEMA_VERSION = "create table if not exists schema_version(VERSION int PRIMARY KEY, DESCRIPTION varchar(200) NOT NULL, CHECKSUM bigint NOT NULL, INSTALLED_ON DATETIME NOT NULL)";
+    public static final String GET_SCHEMA_VERSIONS = "select VERSION, CHECKSUM from schema_version order by VERSION";
+    public static final String SAVE_SCHEMA_VERSION = "insert into schema_version(VERSION, DESCRIPTION, CHECKSUM, INSTALLED_ON) values(?,?,?,?)";
 }
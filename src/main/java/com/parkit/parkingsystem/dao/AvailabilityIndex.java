@@ -0,0 +1,122 @@
+package com.parkit.parkingsystem.dao;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+public class AvailabilityIndex {
+
+    //bit i of words is set when spot i is free; bit w of summary is set when words[w] may hold a free spot
+    private final AtomicLongArray words;
+    private final AtomicLongArray summary;
+    private final int capacity;
+
+    public AvailabilityIndex(int capacity) {
+        this.capacity = capacity;
+        int wordCount = Math.max(1, (capacity + 63) >>> 6);
+        this.words = new AtomicLongArray(wordCount);
+        this.summary = new AtomicLongArray(Math.max(1, (wordCount + 63) >>> 6));
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public boolean isSet(int index) {
+        return (words.get(index >>> 6) & (1L << index)) != 0;
+    }
+
+    //true when the bit was clear before, i.e. this call freed the spot
+    public boolean set(int index) {
+        checkIndex(index);
+        int wordIndex = index >>> 6;
+        long bit = 1L << index;
+        long word;
+        do {
+            word = words.get(wordIndex);
+            if ((word & bit) != 0) {
+                markWord(wordIndex);
+                return false;
+            }
+        } while (!words.compareAndSet(wordIndex, word, word | bit));
+        markWord(wordIndex);
+        return true;
+    }
+
+    public boolean clear(int index) {
+        return tryClear(index);
+    }
+
+    public boolean tryClear(int index) {
+        checkIndex(index);
+        int wordIndex = index >>> 6;
+        long bit = 1L << index;
+        long word;
+        do {
+            word = words.get(wordIndex);
+            if ((word & bit) == 0) {
+                return false;
+            }
+        } while (!words.compareAndSet(wordIndex, word, word & ~bit));
+        return true;
+    }
+
+    public int claimNextSetBit() {
+        int index;
+        while ((index = nextSetBit()) >= 0) {
+            if (tryClear(index)) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    public int nextSetBit() {
+        for (int s = 0; s < summary.length(); s++) {
+            long summaryWord;
+            while ((summaryWord = summary.get(s)) != 0) {
+                int wordIndex = (s << 6) + Long.numberOfTrailingZeros(summaryWord);
+                long word = words.get(wordIndex);
+                if (word != 0) {
+                    return (wordIndex << 6) + Long.numberOfTrailingZeros(word);
+                }
+                unmarkWord(wordIndex);
+            }
+        }
+        return -1;
+    }
+
+    public int cardinality() {
+        int count = 0;
+        for (int i = 0; i < words.length(); i++) {
+            count += Long.bitCount(words.get(i));
+        }
+        return count;
+    }
+
+    private void markWord(int wordIndex) {
+        int s = wordIndex >>> 6;
+        long bit = 1L << wordIndex;
+        long summaryWord;
+        do {
+            summaryWord = summary.get(s);
+        } while ((summaryWord & bit) == 0 && !summary.compareAndSet(s, summaryWord, summaryWord | bit));
+    }
+
+    private void unmarkWord(int wordIndex) {
+        int s = wordIndex >>> 6;
+        long bit = 1L << wordIndex;
+        long summaryWord;
+        do {
+            summaryWord = summary.get(s);
+        } while ((summaryWord & bit) != 0 && !summary.compareAndSet(s, summaryWord, summaryWord & ~bit));
+        //a concurrent set() may have landed between our read of the word and the unmark
+        if (words.get(wordIndex) != 0) {
+            markWord(wordIndex);
+        }
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= capacity) {
+            throw new IndexOutOfBoundsException("Spot index out of range: " + index);
+        }
+    }
+}
@@ -1,6 +1,9 @@
 package com.parkit.parkingsystem.dao;
 
 import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.metrics.LatencyHistogram;
+import com.parkit.parkingsystem.metrics.Metrics;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -8,31 +11,57 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
 
 public class CustomerDAO {
 
     private static final Logger logger = LogManager.getLogger("CustomerDAO");
 
+    private static final LatencyHistogram IS_RETURNING_CUSTOMER_LATENCY = Metrics.histogram("customerDAO.isReturningCustomer");
+
     private DataBaseConfig dataBaseConfig;
 
     public CustomerDAO() {
-        this.dataBaseConfig = new DataBaseConfig();
+        this(new DataBaseConfig());
+    }
+
+    public CustomerDAO(DataBaseConfig dataBaseConfig) {
+        this.dataBaseConfig = dataBaseConfig;
     }
 
     public boolean isReturningCustomer(String vehicleRegNumber) {
+        long start = System.nanoTime();
+        try {
+            return doIsReturningCustomer(vehicleRegNumber);
+        } finally {
+            IS_RETURNING_CUSTOMER_LATENCY.recordSince(start);
+        }
+    }
+
+    private boolean doIsReturningCustomer(String vehicleRegNumber) {
+        try {
+            //the current visit is counted too, so a returning customer has more than one ticket
+            return VisitCountIndex.of(dataBaseConfig).getVisitCount(vehicleRegNumber) > 1;
+        } catch (ClassNotFoundException | SQLException e) {
+            logger.error("Error loading visit count index, counting tickets in DB", e);
+        }
+        return countTickets(DBConstants.COUNT_VEHICLE_TICKETS, vehicleRegNumber)
+                + countTickets(DBConstants.COUNT_VEHICLE_HISTORY_TICKETS, vehicleRegNumber) > 1;
+    }
+
+    private int countTickets(String sql, String vehicleRegNumber) {
         Connection connection = null;
         PreparedStatement preparedStatement = null;
         ResultSet resultSet = null;
-        boolean isReturning = false;
+        int count = 0;
 
         try {
             connection = dataBaseConfig.getConnection();
-            preparedStatement = connection.prepareStatement("SELECT COUNT(*) FROM ticket WHERE VEHICLE_REG_NUMBER = ?");
+            preparedStatement = dataBaseConfig.prepareStatement(connection, sql);
             preparedStatement.setString(1, vehicleRegNumber);
             resultSet = preparedStatement.executeQuery();
             if (resultSet.next()) {
-                int count = resultSet.getInt(1);
-                isReturning = count > 1;
+                count = resultSet.getInt(1);
             }
         } catch (ClassNotFoundException | SQLException e) {
             logger.error("Error checking if customer is returning", e);
@@ -42,6 +71,10 @@ public class CustomerDAO {
             dataBaseConfig.closeConnection(connection);
         }
 
-        return isReturning;
+        return count;
+    }
+
+    public CompletableFuture<Boolean> isReturningCustomerAsync(String vehicleRegNumber) {
+        return dataBaseConfig.getJdbcExecutor().supplyAsync(() -> isReturningCustomer(vehicleRegNumber));
     }
 }
@@ -0,0 +1,68 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+//free and total spots per parking type, kept up to date by the spot inventory so that display boards
+//read them without a query or a lock
+public class OccupancyCounters {
+
+    private static final Logger logger = LogManager.getLogger("OccupancyCounters");
+
+    private final AtomicIntegerArray availableByType = new AtomicIntegerArray(ParkingType.values().length);
+    private final AtomicIntegerArray capacityByType = new AtomicIntegerArray(ParkingType.values().length);
+    private final List<OccupancyListener> listeners = new CopyOnWriteArrayList<>();
+
+    public int getAvailable(ParkingType parkingType) {
+        return availableByType.get(parkingType.ordinal());
+    }
+
+    public int getCapacity(ParkingType parkingType) {
+        return capacityByType.get(parkingType.ordinal());
+    }
+
+    public int getOccupied(ParkingType parkingType) {
+        return getCapacity(parkingType) - getAvailable(parkingType);
+    }
+
+    public void addListener(OccupancyListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(OccupancyListener listener) {
+        listeners.remove(listener);
+    }
+
+    void add(ParkingType parkingType, int delta) {
+        int available = availableByType.addAndGet(parkingType.ordinal(), delta);
+        notifyListeners(parkingType, available);
+    }
+
+    void reset(int[] capacities, int[] availables) {
+        for (ParkingType parkingType : ParkingType.values()) {
+            int i = parkingType.ordinal();
+            int previousCapacity = capacityByType.getAndSet(i, capacities[i]);
+            int previousAvailable = availableByType.getAndSet(i, availables[i]);
+            if (previousCapacity != capacities[i] || previousAvailable != availables[i]) {
+                notifyListeners(parkingType, availables[i]);
+            }
+        }
+    }
+
+    private void notifyListeners(ParkingType parkingType, int available) {
+        int capacity = capacityByType.get(parkingType.ordinal());
+        for (OccupancyListener listener : listeners) {
+            try {
+                listener.occupancyChanged(parkingType, available, capacity);
+            } catch (RuntimeException e) {
+                //a broken sign must not fail the gate that parked the vehicle
+                logger.error("Error notifying occupancy listener", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+
+//called on the thread that changed the count, so implementations must hand off anything slow
+public interface OccupancyListener {
+    void occupancyChanged(ParkingType parkingType, int available, int capacity);
+}
@@ -0,0 +1,120 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.metrics.Counter;
+import com.parkit.parkingsystem.metrics.Metrics;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+//compares the occupancy counters of the spot inventory with the parking table and reloads the inventory when they
+//drift apart, e.g. because another process changed parking or a reload raced with a gate
+public class OccupancyReconciler {
+
+    private static final Logger logger = LogManager.getLogger("OccupancyReconciler");
+
+    private static final Counter CORRECTIONS = Metrics.counter("occupancyReconciler.corrections");
+
+    private final DataBaseConfig dataBaseConfig;
+    //drift seen by the previous run, per parking type
+    private final int[] previousAvailableDrift = new int[ParkingType.values().length];
+    private final int[] previousCapacityDrift = new int[ParkingType.values().length];
+
+    private ScheduledExecutorService scheduler;
+
+    public OccupancyReconciler(DataBaseConfig dataBaseConfig) {
+        this.dataBaseConfig = dataBaseConfig;
+    }
+
+    public synchronized void start(long intervalMillis) {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "occupancy-reconciler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::reconcile, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            try {
+                scheduler.awaitTermination(30, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            scheduler = null;
+        }
+    }
+
+    //a gate between the count query and the comparison, or a write still in the write-behind queue, shows up as
+    //drift once; only the same drift seen by two runs in a row is corrected. Returns the number of types corrected
+    public int reconcile() {
+        try {
+            SpotInventory spotInventory = SpotInventory.of(dataBaseConfig);
+            OccupancyCounters counters = spotInventory.getOccupancyCounters();
+            int[][] counts = countParkingSpots();
+            int corrected = 0;
+            synchronized (this) {
+                for (ParkingType parkingType : ParkingType.values()) {
+                    int i = parkingType.ordinal();
+                    int capacityDrift = counts[0][i] - counters.getCapacity(parkingType);
+                    int availableDrift = counts[1][i] - counters.getAvailable(parkingType);
+                    if ((capacityDrift != 0 || availableDrift != 0)
+                            && capacityDrift == previousCapacityDrift[i] && availableDrift == previousAvailableDrift[i]) {
+                        logger.warn("Occupancy of " + parkingType + " drifted from parking by " + availableDrift
+                                + " free spots and " + capacityDrift + " spots, reloading the spot inventory");
+                        corrected++;
+                    }
+                    previousCapacityDrift[i] = capacityDrift;
+                    previousAvailableDrift[i] = availableDrift;
+                }
+                if (corrected > 0) {
+                    spotInventory.reload();
+                    CORRECTIONS.add(corrected);
+                    for (int i = 0; i < previousAvailableDrift.length; i++) {
+                        previousCapacityDrift[i] = 0;
+                        previousAvailableDrift[i] = 0;
+                    }
+                }
+            }
+            return corrected;
+        } catch (Exception e) {
+            logger.error("Error reconciling occupancy counters", e);
+            return 0;
+        }
+    }
+
+    //spots and free spots per parking type ordinal
+    private int[][] countParkingSpots() throws ClassNotFoundException, SQLException {
+        int[][] counts = new int[2][ParkingType.values().length];
+        Connection con = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            PreparedStatement ps = dataBaseConfig.prepareStatement(con, DBConstants.COUNT_PARKING_SPOTS);
+            ResultSet rs = ps.executeQuery();
+            while (rs.next()) {
+                int i = ParkingType.valueOf(rs.getString(1)).ordinal();
+                counts[0][i] = rs.getInt(2);
+                counts[1][i] = rs.getInt(3);
+            }
+            dataBaseConfig.closeResultSet(rs);
+            dataBaseConfig.closePreparedStatement(ps);
+        } finally {
+            dataBaseConfig.closeConnection(con);
+        }
+        return counts;
+    }
+}
@@ -0,0 +1,123 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.model.Ticket;
+
+import java.util.AbstractMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+public class OpenTicketCache {
+
+    private final int maxSize;
+    private final ConcurrentHashMap<String, Ticket> ticketsByRegNumber = new ConcurrentHashMap<>();
+    //insertion order for eviction; entries whose ticket is no longer cached are skipped and purged lazily
+    private final ConcurrentLinkedQueue<Map.Entry<String, Ticket>> insertionOrder = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger insertionOrderSize = new AtomicInteger();
+    private final ReentrantLock purgeLock = new ReentrantLock();
+
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+
+    public OpenTicketCache(int maxSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Invalid cache size: " + maxSize);
+        }
+        this.maxSize = maxSize;
+    }
+
+    //the cached instance itself, not a copy: it is only changed at exit, under the lock of the vehicle, and put
+    //back open when the exit cannot be saved. A store writing behind keeps it, closed, until the exit is committed
+    public Ticket get(String vehicleRegNumber) {
+        Ticket ticket = ticketsByRegNumber.get(vehicleRegNumber);
+        if (ticket == null) {
+            missCount.increment();
+        } else {
+            hitCount.increment();
+        }
+        return ticket;
+    }
+
+    public void put(Ticket ticket) {
+        ticketsByRegNumber.put(ticket.getVehicleRegNumber(), ticket);
+        insertionOrder.add(new AbstractMap.SimpleImmutableEntry<>(ticket.getVehicleRegNumber(), ticket));
+        insertionOrderSize.incrementAndGet();
+        while (ticketsByRegNumber.size() > maxSize) {
+            Map.Entry<String, Ticket> eldest = insertionOrder.poll();
+            if (eldest == null) {
+                break;
+            }
+            insertionOrderSize.decrementAndGet();
+            if (ticketsByRegNumber.remove(eldest.getKey(), eldest.getValue())) {
+                evictionCount.increment();
+            }
+        }
+        if (insertionOrderSize.get() > 2 * maxSize) {
+            purge();
+        }
+    }
+
+    public void remove(String vehicleRegNumber) {
+        ticketsByRegNumber.remove(vehicleRegNumber);
+    }
+
+    //only when that ticket is the one cached: a later ticket of the vehicle is kept
+    public void remove(Ticket ticket) {
+        ticketsByRegNumber.remove(ticket.getVehicleRegNumber(), ticket);
+    }
+
+    public void clear() {
+        ticketsByRegNumber.clear();
+        insertionOrder.clear();
+        insertionOrderSize.set(0);
+    }
+
+    public int size() {
+        return ticketsByRegNumber.size();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.sum();
+    }
+
+    private void purge() {
+        if (!purgeLock.tryLock()) {
+            return;
+        }
+        try {
+            Iterator<Map.Entry<String, Ticket>> iterator = insertionOrder.iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<String, Ticket> entry = iterator.next();
+                if (ticketsByRegNumber.get(entry.getKey()) != entry.getValue()) {
+                    iterator.remove();
+                    insertionOrderSize.decrementAndGet();
+                }
+            }
+        } finally {
+            purgeLock.unlock();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "size=" + size() + ", hits=" + getHitCount() + ", misses=" + getMissCount()
+                + ", evictions=" + getEvictionCount();
+    }
+}
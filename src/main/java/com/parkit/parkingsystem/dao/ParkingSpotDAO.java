@@ -3,6 +3,8 @@ package com.parkit.parkingsystem.dao;
 import com.parkit.parkingsystem.config.DataBaseConfig;
 import com.parkit.parkingsystem.constants.DBConstants;
 import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.metrics.LatencyHistogram;
+import com.parkit.parkingsystem.metrics.Metrics;
 import com.parkit.parkingsystem.model.ParkingSpot;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -10,18 +12,56 @@ import org.apache.logging.log4j.Logger;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
 
-public class ParkingSpotDAO {
+public class ParkingSpotDAO implements ParkingSpotStore {
     private static final Logger logger = LogManager.getLogger("ParkingSpotDAO");
 
+    private static final int MAX_CLAIM_ATTEMPTS = 8;
+
+    private static final LatencyHistogram GET_NEXT_AVAILABLE_SLOT_LATENCY = Metrics.histogram("parkingSpotDAO.getNextAvailableSlot");
+    private static final LatencyHistogram CLAIM_NEXT_SLOT_LATENCY = Metrics.histogram("parkingSpotDAO.claimNextSlot");
+    private static final LatencyHistogram UPDATE_PARKING_LATENCY = Metrics.histogram("parkingSpotDAO.updateParking");
+
     public DataBaseConfig dataBaseConfig = new DataBaseConfig();
 
-    public int getNextAvailableSlot(ParkingType parkingType){
+    //lot stored in that database
+    public int lotId = ParkingSpot.DEFAULT_LOT_ID;
+
+    //when set, spot availability flips are queued and group committed; claims always go straight to the DB
+    public WriteBehindQueue writeBehindQueue;
+
+    public SpotInventory getSpotInventory() throws Exception {
+        return SpotInventory.of(dataBaseConfig);
+    }
+
+    @Override
+    public int getLotId() {
+        return lotId;
+    }
+
+    @Override
+    public int getNextAvailableSlot(ParkingType parkingType) {
+        long start = System.nanoTime();
+        try {
+            return doGetNextAvailableSlot(parkingType);
+        } finally {
+            GET_NEXT_AVAILABLE_SLOT_LATENCY.recordSince(start);
+        }
+    }
+
+    private int doGetNextAvailableSlot(ParkingType parkingType) {
+        try {
+            return getSpotInventory().getNextAvailableSlot(parkingType);
+        }catch (Exception ex){
+            logger.error("Error loading spot inventory, falling back to DB lookup",ex);
+        }
         Connection con = null;
         int result=-1;
         try {
             con = dataBaseConfig.getConnection();
-            PreparedStatement ps = con.prepareStatement(DBConstants.GET_NEXT_PARKING_SPOT);
+            PreparedStatement ps = dataBaseConfig.prepareStatement(con, DBConstants.GET_NEXT_PARKING_SPOT);
             ps.setString(1, parkingType.toString());
             ResultSet rs = ps.executeQuery();
             if(rs.next()){
@@ -37,16 +77,112 @@ public class ParkingSpotDAO {
         return result;
     }
 
-    public boolean updateParking(ParkingSpot parkingSpot){
+    @Override
+    public int claimNextSlot(ParkingType parkingType) {
+        long start = System.nanoTime();
+        try {
+            return doClaimNextSlot(parkingType);
+        } finally {
+            CLAIM_NEXT_SLOT_LATENCY.recordSince(start);
+        }
+    }
+
+    private int doClaimNextSlot(ParkingType parkingType) {
+        SpotInventory spotInventory;
+        try {
+            spotInventory = getSpotInventory();
+        }catch (Exception ex){
+            logger.error("Error loading spot inventory",ex);
+            return -1;
+        }
+        for (int attempt = 0; attempt < MAX_CLAIM_ATTEMPTS; attempt++) {
+            //the in-memory claim settles races between gates of this process without a lock
+            int parkingNumber = spotInventory.claimNextAvailableSlot(parkingType);
+            if (parkingNumber <= 0) {
+                return 0;
+            }
+            int updateRowCount = claimParking(parkingNumber);
+            if (updateRowCount == 1) {
+                return parkingNumber;
+            }
+            if (updateRowCount < 0) {
+                spotInventory.setAvailable(parkingNumber, true);
+                return -1;
+            }
+            //taken by another process since the inventory was loaded: keep it unavailable and try the next one
+            logger.warn("Parking spot " + parkingNumber + " was already taken, retrying");
+        }
+        logger.error("Unable to claim a " + parkingType + " parking spot after " + MAX_CLAIM_ATTEMPTS + " attempts");
+        return -1;
+    }
+
+    private int claimParking(int parkingNumber){
+        Connection con = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            PreparedStatement ps = dataBaseConfig.prepareStatement(con, DBConstants.CLAIM_PARKING_SPOT);
+            try {
+                ps.setInt(1, parkingNumber);
+                return ps.executeUpdate();
+            } finally {
+                dataBaseConfig.closePreparedStatement(ps);
+            }
+        }catch (Exception ex){
+            logger.error("Error claiming parking spot",ex);
+            return -1;
+        }finally {
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
+    @Override
+    public boolean updateParking(ParkingSpot parkingSpot) {
+        long start = System.nanoTime();
+        try {
+            return doUpdateParking(parkingSpot);
+        } finally {
+            UPDATE_PARKING_LATENCY.recordSince(start);
+        }
+    }
+
+    private boolean doUpdateParking(ParkingSpot parkingSpot) {
         //update the availability fo that parking slot
+        if (writeBehindQueue != null) {
+            try {
+                boolean available = parkingSpot.isAvailable();
+                int parkingNumber = parkingSpot.getId();
+                SpotInventory spotInventory = getSpotInventory();
+                CompletableFuture<Void> durable = writeBehindQueue.submit(DBConstants.UPDATE_PARKING_SPOT, ps -> {
+                    ps.setBoolean(1, available);
+                    ps.setInt(2, parkingNumber);
+                });
+                if (available) {
+                    //only claimable once the row is free in the DB, or the claim would find it still taken
+                    durable.thenRun(() -> spotInventory.setAvailable(parkingNumber, true));
+                } else {
+                    spotInventory.setAvailable(parkingNumber, false);
+                }
+                return true;
+            }catch (Exception ex){
+                logger.error("Error queueing parking info",ex);
+                return false;
+            }
+        }
         Connection con = null;
         try {
             con = dataBaseConfig.getConnection();
-            PreparedStatement ps = con.prepareStatement(DBConstants.UPDATE_PARKING_SPOT);
-            ps.setBoolean(1, parkingSpot.isAvailable());
-            ps.setInt(2, parkingSpot.getId());
-            int updateRowCount = ps.executeUpdate();
-            dataBaseConfig.closePreparedStatement(ps);
+            PreparedStatement ps = dataBaseConfig.prepareStatement(con, DBConstants.UPDATE_PARKING_SPOT);
+            int updateRowCount;
+            try {
+                ps.setBoolean(1, parkingSpot.isAvailable());
+                ps.setInt(2, parkingSpot.getId());
+                updateRowCount = ps.executeUpdate();
+            } finally {
+                dataBaseConfig.closePreparedStatement(ps);
+            }
+            if (updateRowCount == 1) {
+                getSpotInventory().setAvailable(parkingSpot.getId(), parkingSpot.isAvailable());
+            }
             return (updateRowCount == 1);
         }catch (Exception ex){
             logger.error("Error updating parking info",ex);
@@ -56,4 +192,9 @@ public class ParkingSpotDAO {
         }
     }
 
+    //async variants run the blocking calls above on the JDBC executor of the database
+    @Override
+    public <T> CompletableFuture<T> supplyAsync(Supplier<T> task) {
+        return dataBaseConfig.getJdbcExecutor().supplyAsync(task);
+    }
 }
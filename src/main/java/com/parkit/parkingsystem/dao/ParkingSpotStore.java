@@ -0,0 +1,47 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.ParkingSpot;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+//storage of the parking spots, implemented over JDBC by ParkingSpotDAO and in memory by dao.memory
+public interface ParkingSpotStore {
+
+    //lowest free spot number of the type, 0 when there is none and -1 on storage error
+    int getNextAvailableSlot(ParkingType parkingType);
+
+    //like getNextAvailableSlot, but the returned spot is already marked unavailable
+    int claimNextSlot(ParkingType parkingType);
+
+    boolean updateParking(ParkingSpot parkingSpot);
+
+    //lot of the spots handed out by getNextAvailableSlot and claimNextSlot
+    default int getLotId() {
+        return ParkingSpot.DEFAULT_LOT_ID;
+    }
+
+    //runs a blocking call of this store asynchronously; stores that never block may run it in place
+    default <T> CompletableFuture<T> supplyAsync(Supplier<T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            future.complete(task.get());
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    default CompletableFuture<Integer> getNextAvailableSlotAsync(ParkingType parkingType) {
+        return supplyAsync(() -> getNextAvailableSlot(parkingType));
+    }
+
+    default CompletableFuture<Integer> claimNextSlotAsync(ParkingType parkingType) {
+        return supplyAsync(() -> claimNextSlot(parkingType));
+    }
+
+    default CompletableFuture<Boolean> updateParkingAsync(ParkingSpot parkingSpot) {
+        return supplyAsync(() -> updateParking(parkingSpot));
+    }
+}
@@ -0,0 +1,211 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.constants.ParkingType;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+public class SpotInventory {
+
+    private static final Logger logger = LogManager.getLogger("SpotInventory");
+
+    //one inventory per database, shared by every DAO pointing at it
+    private static final ConcurrentMap<String, SpotInventory> inventories = new ConcurrentHashMap<>();
+
+    private final DataBaseConfig dataBaseConfig;
+
+    private volatile Spots spots;
+    //survive reloads, so that listeners stay registered
+    private final OccupancyCounters occupancyCounters = new OccupancyCounters();
+    //types of the spots missing from the inventory, read one by one since the last load; empty when not in the table
+    private final ConcurrentMap<Integer, Optional<ParkingType>> spotsNotLoaded = new ConcurrentHashMap<>();
+
+    private static final class Spots {
+        private final ParkingType[] typeBySpot;
+        private final AvailabilityIndex[] availableByType;
+
+        private Spots(ParkingType[] typeBySpot, AvailabilityIndex[] availableByType) {
+            this.typeBySpot = typeBySpot;
+            this.availableByType = availableByType;
+        }
+    }
+
+    public SpotInventory(DataBaseConfig dataBaseConfig) {
+        this.dataBaseConfig = dataBaseConfig;
+    }
+
+    public static SpotInventory of(DataBaseConfig dataBaseConfig) throws ClassNotFoundException, SQLException {
+        SpotInventory inventory = inventories.computeIfAbsent(dataBaseConfig.getPool().getName(),
+                name -> new SpotInventory(dataBaseConfig));
+        inventory.ensureLoaded();
+        return inventory;
+    }
+
+    public boolean isLoaded() {
+        return spots != null;
+    }
+
+    public void ensureLoaded() throws ClassNotFoundException, SQLException {
+        if (!isLoaded()) {
+            synchronized (this) {
+                if (!isLoaded()) {
+                    reload();
+                }
+            }
+        }
+    }
+
+    public synchronized void reload() throws ClassNotFoundException, SQLException {
+        Connection con = null;
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+        List<int[]> rows = new ArrayList<>();
+        List<ParkingType> types = new ArrayList<>();
+        try {
+            con = dataBaseConfig.getConnection();
+            ps = dataBaseConfig.prepareStatement(con, DBConstants.GET_PARKING_SPOTS);
+            rs = ps.executeQuery();
+            while (rs.next()) {
+                rows.add(new int[]{rs.getInt(1), rs.getBoolean(2) ? 1 : 0});
+                types.add(ParkingType.valueOf(rs.getString(3)));
+            }
+        } finally {
+            dataBaseConfig.closeResultSet(rs);
+            dataBaseConfig.closePreparedStatement(ps);
+            dataBaseConfig.closeConnection(con);
+        }
+        int[] numbers = new int[rows.size()];
+        boolean[] available = new boolean[rows.size()];
+        for (int i = 0; i < rows.size(); i++) {
+            numbers[i] = rows.get(i)[0];
+            available[i] = rows.get(i)[1] == 1;
+        }
+        load(numbers, types.toArray(new ParkingType[0]), available);
+        logger.info("Loaded " + numbers.length + " parking spots into inventory");
+    }
+
+    public synchronized void load(int[] numbers, ParkingType[] types, boolean[] available) {
+        int capacity = 0;
+        for (int number : numbers) {
+            capacity = Math.max(capacity, number + 1);
+        }
+        ParkingType[] newTypeBySpot = new ParkingType[capacity];
+        AvailabilityIndex[] newAvailableByType = new AvailabilityIndex[ParkingType.values().length];
+        for (int i = 0; i < newAvailableByType.length; i++) {
+            newAvailableByType[i] = new AvailabilityIndex(capacity);
+        }
+        int[] capacities = new int[ParkingType.values().length];
+        int[] availables = new int[ParkingType.values().length];
+        for (int i = 0; i < numbers.length; i++) {
+            newTypeBySpot[numbers[i]] = types[i];
+            capacities[types[i].ordinal()]++;
+            if (available[i]) {
+                newAvailableByType[types[i].ordinal()].set(numbers[i]);
+                availables[types[i].ordinal()]++;
+            }
+        }
+        spots = new Spots(newTypeBySpot, newAvailableByType);
+        occupancyCounters.reset(capacities, availables);
+        spotsNotLoaded.clear();
+    }
+
+    public int getNextAvailableSlot(ParkingType parkingType) {
+        int number = spots.availableByType[parkingType.ordinal()].nextSetBit();
+        return number < 0 ? 0 : number;
+    }
+
+    public int claimNextAvailableSlot(ParkingType parkingType) {
+        int number = spots.availableByType[parkingType.ordinal()].claimNextSetBit();
+        if (number < 0) {
+            return 0;
+        }
+        occupancyCounters.add(parkingType, -1);
+        return number;
+    }
+
+    public ParkingType getParkingType(int number) {
+        ParkingType[] types = spots.typeBySpot;
+        return (number >= 0 && number < types.length) ? types[number] : null;
+    }
+
+    //also finds the spots added to the parking table after the load, reading only that spot: the inventory is not
+    //reloaded, which would reset the availability of every spot under the claims in flight. Null for an unknown spot
+    public ParkingType lookUpParkingType(int number) throws ClassNotFoundException, SQLException {
+        ParkingType parkingType = getParkingType(number);
+        if (parkingType != null) {
+            return parkingType;
+        }
+        Optional<ParkingType> notLoaded = spotsNotLoaded.get(number);
+        if (notLoaded == null) {
+            notLoaded = Optional.ofNullable(readParkingType(number));
+            spotsNotLoaded.putIfAbsent(number, notLoaded);
+        }
+        return notLoaded.orElse(null);
+    }
+
+    private ParkingType readParkingType(int number) throws ClassNotFoundException, SQLException {
+        Connection con = null;
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            ps = dataBaseConfig.prepareStatement(con, DBConstants.GET_PARKING_TYPE);
+            ps.setInt(1, number);
+            rs = ps.executeQuery();
+            if (!rs.next()) {
+                logger.warn("Parking spot " + number + " is not in the parking table");
+                return null;
+            }
+            return ParkingType.valueOf(rs.getString(1));
+        } finally {
+            dataBaseConfig.closeResultSet(rs);
+            dataBaseConfig.closePreparedStatement(ps);
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
+    public boolean isAvailable(int number) {
+        AvailabilityIndex index = indexOf(number);
+        return index != null && index.isSet(number);
+    }
+
+    public void setAvailable(int number, boolean available) {
+        AvailabilityIndex index = indexOf(number);
+        if (index == null) {
+            logger.warn("Parking spot " + number + " is not in the inventory");
+            return;
+        }
+        //only actual state changes move the counters, so repeated updates of a spot are harmless
+        if (available ? index.set(number) : index.clear(number)) {
+            occupancyCounters.add(getParkingType(number), available ? 1 : -1);
+        }
+    }
+
+    //counts the bitmap, see getOccupancyCounters for a constant-time read
+    public int countAvailable(ParkingType parkingType) {
+        return spots.availableByType[parkingType.ordinal()].cardinality();
+    }
+
+    public OccupancyCounters getOccupancyCounters() {
+        return occupancyCounters;
+    }
+
+    private AvailabilityIndex indexOf(int number) {
+        Spots current = spots;
+        if (number < 0 || number >= current.typeBySpot.length || current.typeBySpot[number] == null) {
+            return null;
+        }
+        return current.availableByType[current.typeBySpot[number].ordinal()];
+    }
+}
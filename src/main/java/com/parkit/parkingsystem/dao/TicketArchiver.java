@@ -0,0 +1,197 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.metrics.Counter;
+import com.parkit.parkingsystem.metrics.Metrics;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+//moves closed tickets older than the archive age from ticket to ticket_history, a small batch per transaction,
+//so that the hot table only holds the vehicles currently parked and the recent exits
+public class TicketArchiver {
+
+    private static final Logger logger = LogManager.getLogger("TicketArchiver");
+
+    private static final Counter ARCHIVED_TICKETS = Metrics.counter("ticketArchiver.archivedTickets");
+
+    //upper bound of the p_past partition created by the ticket_history migration
+    private static final YearMonth FIRST_MONTHLY_PARTITION = YearMonth.of(2020, 1);
+    private static final DateTimeFormatter PARTITION_NAME = DateTimeFormatter.ofPattern("'p'yyyyMM");
+
+    private final DataBaseConfig dataBaseConfig;
+    private final Clock clock;
+    private final long archiveAfterMillis;
+    private final int batchSize;
+    private final long pauseMillis;
+
+    private ScheduledExecutorService scheduler;
+    private volatile boolean closed;
+    private volatile boolean partitioned = true;
+
+    public TicketArchiver(DataBaseConfig dataBaseConfig, Clock clock, long archiveAfterMillis, int batchSize, long pauseMillis) {
+        this.dataBaseConfig = dataBaseConfig;
+        this.clock = clock;
+        this.archiveAfterMillis = archiveAfterMillis;
+        this.batchSize = batchSize;
+        this.pauseMillis = pauseMillis;
+    }
+
+    public synchronized void start(long intervalMillis) {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "ticket-archiver");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::archive, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void close() {
+        closed = true;
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            try {
+                scheduler.awaitTermination(30, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            scheduler = null;
+        }
+    }
+
+    //archives everything that is old enough, pausing between batches to leave the DB to the gates
+    public int archive() {
+        int archived = 0;
+        try {
+            ensureMonthlyPartitions();
+            int moved;
+            do {
+                moved = archiveBatch();
+                archived += moved;
+                if (moved == batchSize && pauseMillis > 0) {
+                    Thread.sleep(pauseMillis);
+                }
+            } while (moved == batchSize && !closed);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            logger.error("Error archiving tickets", e);
+        }
+        if (archived > 0) {
+            logger.info("Archived " + archived + " closed tickets");
+        }
+        return archived;
+    }
+
+    public int archiveBatch() throws ClassNotFoundException, SQLException {
+        Connection con = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            con.setAutoCommit(false);
+            List<Integer> ids = new ArrayList<>(batchSize);
+            PreparedStatement ps = dataBaseConfig.prepareStatement(con, DBConstants.GET_ARCHIVABLE_TICKETS);
+            ps.setTimestamp(1, new Timestamp(clock.millis() - archiveAfterMillis));
+            ps.setInt(2, batchSize);
+            ResultSet rs = ps.executeQuery();
+            while (rs.next()) {
+                ids.add(rs.getInt(1));
+            }
+            dataBaseConfig.closeResultSet(rs);
+            dataBaseConfig.closePreparedStatement(ps);
+            if (ids.isEmpty()) {
+                con.commit();
+                return 0;
+            }
+            executeForIds(con, DBConstants.ARCHIVE_TICKETS_PREFIX, ids);
+            executeForIds(con, DBConstants.DELETE_TICKETS_PREFIX, ids);
+            con.commit();
+            ARCHIVED_TICKETS.add(ids.size());
+            return ids.size();
+        } finally {
+            //an uncommitted batch is rolled back by the pool
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
+    private void executeForIds(Connection con, String prefix, List<Integer> ids) throws SQLException {
+        StringBuilder sql = new StringBuilder(prefix);
+        for (int i = 0; i < ids.size(); i++) {
+            sql.append(i == 0 ? "?" : ",?");
+        }
+        PreparedStatement ps = con.prepareStatement(sql.append(")").toString());
+        for (int i = 0; i < ids.size(); i++) {
+            ps.setInt(i + 1, ids.get(i));
+        }
+        ps.executeUpdate();
+        dataBaseConfig.closePreparedStatement(ps);
+    }
+
+    //splits p_future so that every month up to the next one has its own partition
+    private void ensureMonthlyPartitions() throws ClassNotFoundException, SQLException {
+        if (!partitioned) {
+            return;
+        }
+        Connection con = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            Set<String> partitions = new HashSet<>();
+            try {
+                PreparedStatement ps = dataBaseConfig.prepareStatement(con, DBConstants.GET_TICKET_HISTORY_PARTITIONS);
+                ResultSet rs = ps.executeQuery();
+                while (rs.next()) {
+                    partitions.add(rs.getString(1));
+                }
+                dataBaseConfig.closeResultSet(rs);
+                dataBaseConfig.closePreparedStatement(ps);
+            } catch (SQLException e) {
+                logger.info("Partitions not supported by this database, ticket_history is a plain table");
+            }
+            if (!partitions.contains("p_future")) {
+                partitioned = false;
+                return;
+            }
+            YearMonth month = null;
+            for (String partition : partitions) {
+                if (!partition.equals("p_past") && !partition.equals("p_future")) {
+                    YearMonth partitionMonth = YearMonth.parse(partition, PARTITION_NAME);
+                    month = (month == null || partitionMonth.isAfter(month)) ? partitionMonth : month;
+                }
+            }
+            //the first split starts where p_past ends, so that no month shares a partition with the ones before it
+            month = (month == null) ? FIRST_MONTHLY_PARTITION : month.plusMonths(1);
+            YearMonth lastMonth = YearMonth.now(clock).plusMonths(1);
+            Statement statement = con.createStatement();
+            try {
+                for (; !month.isAfter(lastMonth); month = month.plusMonths(1)) {
+                    statement.execute(String.format(DBConstants.ADD_TICKET_HISTORY_PARTITION,
+                            month.format(PARTITION_NAME), month.plusMonths(1).atDay(1)));
+                    logger.info("Added ticket_history partition " + month.format(PARTITION_NAME));
+                }
+            } finally {
+                dataBaseConfig.closeStatement(statement);
+            }
+        } finally {
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+}
@@ -3,6 +3,9 @@ package com.parkit.parkingsystem.dao;
 import com.parkit.parkingsystem.config.DataBaseConfig;
 import com.parkit.parkingsystem.constants.DBConstants;
 import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.metrics.Counter;
+import com.parkit.parkingsystem.metrics.LatencyHistogram;
+import com.parkit.parkingsystem.metrics.Metrics;
 import com.parkit.parkingsystem.model.ParkingSpot;
 import com.parkit.parkingsystem.model.Ticket;
 import org.apache.logging.log4j.LogManager;
@@ -11,53 +14,142 @@ import org.apache.logging.log4j.Logger;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
 import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
 
-public class TicketDAO {
+public class TicketDAO implements TicketStore {
 
     private static final Logger logger = LogManager.getLogger("TicketDAO");
 
+    private static final LatencyHistogram SAVE_TICKET_LATENCY = Metrics.histogram("ticketDAO.saveTicket");
+    private static final LatencyHistogram GET_TICKET_LATENCY = Metrics.histogram("ticketDAO.getTicket");
+    private static final LatencyHistogram UPDATE_TICKET_LATENCY = Metrics.histogram("ticketDAO.updateTicket");
+    private static final LatencyHistogram GET_OPEN_TICKETS_LATENCY = Metrics.histogram("ticketDAO.getOpenTickets");
+    private static final LatencyHistogram CLOSE_TICKETS_LATENCY = Metrics.histogram("ticketDAO.closeTickets");
+    //tickets reported closed whose queued write then failed: they are open again
+    private static final Counter FAILED_QUEUED_CLOSES = Metrics.counter("ticketDAO.failedQueuedCloses");
+
+    //plates bound to one IN (...) query
+    private static final int MAX_IN_LIST_SIZE = 500;
+
     public DataBaseConfig dataBaseConfig = new DataBaseConfig();
 
-    public boolean saveTicket(Ticket ticket){
+    //lot stored in that database, given to the spots of the tickets read
+    public int lotId = ParkingSpot.DEFAULT_LOT_ID;
+
+    //tickets of the vehicles currently parked, so that exits do not have to query the DB
+    private final OpenTicketCache openTicketCache = new OpenTicketCache(Integer.getInteger("parkit.ticketCache.maxSize", 10000));
+
+    //when set, ticket writes are queued and group committed instead of written one by one
+    public WriteBehindQueue writeBehindQueue;
+
+    public OpenTicketCache getOpenTicketCache() {
+        return openTicketCache;
+    }
+
+    @Override
+    public boolean saveTicket(Ticket ticket) {
+        long start = System.nanoTime();
+        try {
+            return doSaveTicket(ticket);
+        } finally {
+            SAVE_TICKET_LATENCY.recordSince(start);
+        }
+    }
+
+    private boolean doSaveTicket(Ticket ticket) {
+        //loaded before the insert, otherwise a first load would already count this ticket
+        VisitCountIndex visitCountIndex = getVisitCountIndex();
+        if (writeBehindQueue != null) {
+            //counted when queued and taken back if the flush fails
+            if (visitCountIndex != null) {
+                visitCountIndex.recordVisit(ticket.getVehicleRegNumber());
+            }
+            try {
+                //the ID is only known once the flusher has committed the insert
+                writeBehindQueue.submit(DBConstants.SAVE_TICKET, ps -> bindSaveTicket(ps, ticket), ticket::setId)
+                        .whenComplete((v, ex) -> {
+                            if (ex != null && visitCountIndex != null) {
+                                visitCountIndex.removeVisit(ticket.getVehicleRegNumber());
+                            }
+                        });
+                if (ticket.getOutTime() == null) {
+                    openTicketCache.put(ticket);
+                }
+                return true;
+            }catch (Exception ex){
+                logger.error("Error queueing ticket info",ex);
+                if (visitCountIndex != null) {
+                    visitCountIndex.removeVisit(ticket.getVehicleRegNumber());
+                }
+                return false;
+            }
+        }
         Connection con = null;
         try {
             con = dataBaseConfig.getConnection();
-            PreparedStatement ps = con.prepareStatement(DBConstants.SAVE_TICKET);
-            //ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME)
-            //ps.setInt(1,ticket.getId());
-            ps.setInt(1,ticket.getParkingSpot().getId());
-            ps.setString(2, ticket.getVehicleRegNumber());
-            ps.setDouble(3, ticket.getPrice());
-            ps.setTimestamp(4, new Timestamp(ticket.getInTime().getTime()));
-            ps.setTimestamp(5, (ticket.getOutTime() == null)?null: (new Timestamp(ticket.getOutTime().getTime())) );
-            return ps.execute();
+            PreparedStatement ps = dataBaseConfig.prepareStatement(con, DBConstants.SAVE_TICKET, Statement.RETURN_GENERATED_KEYS);
+            bindSaveTicket(ps, ticket);
+            ps.executeUpdate();
+            ResultSet generatedKeys = ps.getGeneratedKeys();
+            if (generatedKeys.next()) {
+                //the ID is needed to update the cached ticket when the vehicle exits
+                ticket.setId(generatedKeys.getInt(1));
+            }
+            dataBaseConfig.closeResultSet(generatedKeys);
+            dataBaseConfig.closePreparedStatement(ps);
+            if (visitCountIndex != null) {
+                visitCountIndex.recordVisit(ticket.getVehicleRegNumber());
+            }
+            if (ticket.getOutTime() == null) {
+                openTicketCache.put(ticket);
+            }
+            return true;
         }catch (Exception ex){
-            logger.error("Error fetching next available slot",ex);
+            logger.error("Error saving ticket info",ex);
         }finally {
             dataBaseConfig.closeConnection(con);
-            return false;
         }
+        return false;
     }
 
+    @Override
     public Ticket getTicket(String vehicleRegNumber) {
+        long start = System.nanoTime();
+        try {
+            return doGetTicket(vehicleRegNumber);
+        } finally {
+            GET_TICKET_LATENCY.recordSince(start);
+        }
+    }
+
+    private Ticket doGetTicket(String vehicleRegNumber) {
+        Ticket ticket = openTicketCache.get(vehicleRegNumber);
+        if (ticket != null) {
+            return ticket;
+        }
         Connection con = null;
-        Ticket ticket = null;
         try {
             con = dataBaseConfig.getConnection();
-            PreparedStatement ps = con.prepareStatement(DBConstants.GET_TICKET);
+            PreparedStatement ps = dataBaseConfig.prepareStatement(con, DBConstants.GET_TICKET);
             //ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME)
             ps.setString(1,vehicleRegNumber);
             ResultSet rs = ps.executeQuery();
             if(rs.next()){
-                ticket = new Ticket();
-                ParkingSpot parkingSpot = new ParkingSpot(rs.getInt(1), ParkingType.valueOf(rs.getString(6)),false);
-                ticket.setParkingSpot(parkingSpot);
-                ticket.setId(rs.getInt(2));
-                ticket.setVehicleRegNumber(vehicleRegNumber);
-                ticket.setPrice(rs.getDouble(3));
-                ticket.setInTime(rs.getTimestamp(4));
-                ticket.setOutTime(rs.getTimestamp(5));
+                ticket = readTicket(rs, vehicleRegNumber);
+                if (ticket.getOutTime() == null) {
+                    openTicketCache.put(ticket);
+                }
             }
             dataBaseConfig.closeResultSet(rs);
             dataBaseConfig.closePreparedStatement(ps);
@@ -69,15 +161,111 @@ public class TicketDAO {
         }
     }
 
+    //every ticket of the vehicle, latest first; archived ones are only read when asked for
+    @Override
+    public List<Ticket> getTickets(String vehicleRegNumber, boolean includeHistory) {
+        List<Ticket> tickets = new ArrayList<>();
+        Connection con = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            readTickets(con, DBConstants.GET_VEHICLE_TICKETS, vehicleRegNumber, tickets);
+            if (includeHistory) {
+                readTickets(con, DBConstants.GET_VEHICLE_HISTORY_TICKETS, vehicleRegNumber, tickets);
+            }
+            return tickets;
+        }catch (Exception ex){
+            logger.error("Error fetching tickets of vehicle",ex);
+            return null;
+        }finally {
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
+    private void readTickets(Connection con, String sql, String vehicleRegNumber, List<Ticket> tickets) throws Exception {
+        PreparedStatement ps = dataBaseConfig.prepareStatement(con, sql);
+        ps.setString(1, vehicleRegNumber);
+        ResultSet rs = ps.executeQuery();
+        while (rs.next()) {
+            tickets.add(readTicket(rs, vehicleRegNumber));
+        }
+        dataBaseConfig.closeResultSet(rs);
+        dataBaseConfig.closePreparedStatement(ps);
+    }
+
+    private VisitCountIndex getVisitCountIndex() {
+        try {
+            return VisitCountIndex.of(dataBaseConfig);
+        }catch (Exception ex){
+            logger.error("Error loading visit count index",ex);
+            return null;
+        }
+    }
+
+    private Ticket readTicket(ResultSet rs, String vehicleRegNumber) throws Exception {
+        Ticket ticket = new Ticket();
+        ParkingSpot parkingSpot = new ParkingSpot(rs.getInt(1), getParkingType(rs.getInt(1)),false, lotId);
+        ticket.setParkingSpot(parkingSpot);
+        ticket.setId(rs.getInt(2));
+        ticket.setVehicleRegNumber(vehicleRegNumber);
+        ticket.setPrice(rs.getDouble(3));
+        ticket.setInTime(rs.getTimestamp(4));
+        ticket.setOutTime(rs.getTimestamp(5));
+        return ticket;
+    }
+
+    private ParkingType getParkingType(int parkingNumber) throws Exception {
+        return SpotInventory.of(dataBaseConfig).lookUpParkingType(parkingNumber);
+    }
+
+    private static void bindSaveTicket(PreparedStatement ps, Ticket ticket) throws SQLException {
+        //ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME)
+        //ps.setInt(1,ticket.getId());
+        ps.setInt(1,ticket.getParkingSpot().getId());
+        ps.setString(2, ticket.getVehicleRegNumber());
+        ps.setDouble(3, ticket.getPrice());
+        ps.setTimestamp(4, new Timestamp(ticket.getInTime().getTime()));
+        ps.setTimestamp(5, (ticket.getOutTime() == null)?null: (new Timestamp(ticket.getOutTime().getTime())) );
+        ps.setInt(6, ticket.getParkingSpot().getLotId());
+    }
+
+    private static void bindUpdateTicket(PreparedStatement ps, Ticket ticket) throws SQLException {
+        ps.setDouble(1, ticket.getPrice());
+        ps.setTimestamp(2, new Timestamp(ticket.getOutTime().getTime()));
+        ps.setInt(3,ticket.getId());
+    }
+
+    @Override
     public boolean updateTicket(Ticket ticket) {
+        long start = System.nanoTime();
+        try {
+            return doUpdateTicket(ticket);
+        } finally {
+            UPDATE_TICKET_LATENCY.recordSince(start);
+        }
+    }
+
+    private boolean doUpdateTicket(Ticket ticket) {
+        if (writeBehindQueue != null) {
+            try {
+                //bound at flush time, after the queued insert of this ticket has set its ID
+                List<Ticket> tickets = Collections.singletonList(ticket);
+                writeBehindQueue.submit(DBConstants.UPDATE_TICKET, ps -> bindUpdateTicket(ps, ticket))
+                        .whenComplete((v, ex) -> settleQueuedClose(tickets, ex, false));
+                return true;
+            }catch (Exception ex){
+                logger.error("Error queueing ticket info",ex);
+                return false;
+            }
+        }
         Connection con = null;
         try {
             con = dataBaseConfig.getConnection();
-            PreparedStatement ps = con.prepareStatement(DBConstants.UPDATE_TICKET);
-            ps.setDouble(1, ticket.getPrice());
-            ps.setTimestamp(2, new Timestamp(ticket.getOutTime().getTime()));
-            ps.setInt(3,ticket.getId());
+            PreparedStatement ps = dataBaseConfig.prepareStatement(con, DBConstants.UPDATE_TICKET);
+            bindUpdateTicket(ps, ticket);
             ps.execute();
+            dataBaseConfig.closePreparedStatement(ps);
+            //the vehicle has left: its ticket is no longer open
+            openTicketCache.remove(ticket.getVehicleRegNumber());
             return true;
         }catch (Exception ex){
             logger.error("Error saving ticket info",ex);
@@ -86,4 +274,187 @@ public class TicketDAO {
         }
         return false;
     }
+
+    //open tickets of the given vehicles, keyed by plate: unknown plates are absent, null on DB error
+    @Override
+    public Map<String, Ticket> getOpenTickets(Collection<String> vehicleRegNumbers) {
+        long start = System.nanoTime();
+        try {
+            return doGetOpenTickets(vehicleRegNumbers);
+        } finally {
+            GET_OPEN_TICKETS_LATENCY.recordSince(start);
+        }
+    }
+
+    private Map<String, Ticket> doGetOpenTickets(Collection<String> vehicleRegNumbers) {
+        Map<String, Ticket> tickets = new HashMap<>();
+        List<String> misses = new ArrayList<>();
+        for (String vehicleRegNumber : new LinkedHashSet<>(vehicleRegNumbers)) {
+            Ticket ticket = openTicketCache.get(vehicleRegNumber);
+            if (ticket == null) {
+                misses.add(vehicleRegNumber);
+            } else if (ticket.getOutTime() == null) {
+                tickets.put(vehicleRegNumber, ticket);
+            }
+            //else closed, its write still queued: the DB would still find it open
+        }
+        if (misses.isEmpty()) {
+            return tickets;
+        }
+        Connection con = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            for (int from = 0; from < misses.size(); from += MAX_IN_LIST_SIZE) {
+                List<String> chunk = misses.subList(from, Math.min(misses.size(), from + MAX_IN_LIST_SIZE));
+                PreparedStatement ps = con.prepareStatement(openTicketsQuery(chunk.size()));
+                for (int i = 0; i < chunk.size(); i++) {
+                    ps.setString(i + 1, chunk.get(i));
+                }
+                ResultSet rs = ps.executeQuery();
+                while (rs.next()) {
+                    Ticket ticket = readTicket(rs, rs.getString(6));
+                    tickets.put(ticket.getVehicleRegNumber(), ticket);
+                    openTicketCache.put(ticket);
+                }
+                dataBaseConfig.closeResultSet(rs);
+                dataBaseConfig.closePreparedStatement(ps);
+            }
+            return tickets;
+        }catch (Exception ex){
+            logger.error("Error fetching open tickets",ex);
+            return null;
+        }finally {
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
+    private static String openTicketsQuery(int vehicleCount) {
+        StringBuilder sql = new StringBuilder(DBConstants.GET_OPEN_TICKETS_PREFIX);
+        for (int i = 0; i < vehicleCount; i++) {
+            sql.append(i == 0 ? "?" : ",?");
+        }
+        return sql.append(DBConstants.GET_OPEN_TICKETS_SUFFIX).toString();
+    }
+
+    //writes the price and out time of every ticket and frees their spots in one transaction
+    @Override
+    public boolean closeTickets(List<Ticket> tickets) {
+        long start = System.nanoTime();
+        try {
+            return doCloseTickets(tickets);
+        } finally {
+            CLOSE_TICKETS_LATENCY.recordSince(start);
+        }
+    }
+
+    private boolean doCloseTickets(List<Ticket> tickets) {
+        if (tickets.isEmpty()) {
+            return true;
+        }
+        if (writeBehindQueue != null) {
+            try {
+                //queued as one unit, in statement order so that the flusher sends them as two batches
+                List<String> sqls = new ArrayList<>(2 * tickets.size());
+                List<WriteBehindQueue.StatementBinder> binders = new ArrayList<>(2 * tickets.size());
+                for (Ticket ticket : tickets) {
+                    sqls.add(DBConstants.UPDATE_TICKET);
+                    binders.add(ps -> bindUpdateTicket(ps, ticket));
+                }
+                for (Ticket ticket : tickets) {
+                    int parkingNumber = ticket.getParkingSpot().getId();
+                    sqls.add(DBConstants.UPDATE_PARKING_SPOT);
+                    binders.add(ps -> bindFreeParkingSpot(ps, parkingNumber));
+                }
+                //the spots are only claimable once they are free in the DB, or the claim would find them still taken
+                writeBehindQueue.submitAll(sqls, binders).whenComplete((v, ex) -> settleQueuedClose(tickets, ex, true));
+                return true;
+            }catch (Exception ex){
+                logger.error("Error queueing ticket info",ex);
+                return false;
+            }
+        }
+        Connection con = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            con.setAutoCommit(false);
+            //released in finally blocks: a cached statement must not keep a batch that failed half way
+            PreparedStatement ps = dataBaseConfig.prepareStatement(con, DBConstants.UPDATE_TICKET);
+            try {
+                for (Ticket ticket : tickets) {
+                    bindUpdateTicket(ps, ticket);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            } finally {
+                dataBaseConfig.closePreparedStatement(ps);
+            }
+            ps = dataBaseConfig.prepareStatement(con, DBConstants.UPDATE_PARKING_SPOT);
+            try {
+                for (Ticket ticket : tickets) {
+                    bindFreeParkingSpot(ps, ticket.getParkingSpot().getId());
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            } finally {
+                dataBaseConfig.closePreparedStatement(ps);
+            }
+            con.commit();
+            removeClosedTickets(tickets);
+            releaseSpots(tickets);
+            return true;
+        }catch (Exception ex){
+            //the pool rolls back the uncommitted transaction when the connection is released
+            logger.error("Error closing " + tickets.size() + " tickets",ex);
+        }finally {
+            dataBaseConfig.closeConnection(con);
+        }
+        return false;
+    }
+
+    private static void bindFreeParkingSpot(PreparedStatement ps, int parkingNumber) throws SQLException {
+        ps.setBoolean(1, true);
+        ps.setInt(2, parkingNumber);
+    }
+
+    private void removeClosedTickets(List<Ticket> tickets) {
+        for (Ticket ticket : tickets) {
+            openTicketCache.remove(ticket);
+            ticket.getParkingSpot().setAvailable(true);
+        }
+    }
+
+    //the closed tickets stay cached until their queued write is committed, so that a read meanwhile does not find
+    //them open in the DB; when it fails they are put back open, as they still are in the DB
+    private void settleQueuedClose(List<Ticket> tickets, Throwable failure, boolean releaseSpots) {
+        if (failure == null) {
+            removeClosedTickets(tickets);
+            if (releaseSpots) {
+                releaseSpots(tickets);
+            }
+            return;
+        }
+        logger.error("Error writing the exit of " + tickets.size() + " tickets already reported closed, they are open again", failure);
+        FAILED_QUEUED_CLOSES.add(tickets.size());
+        for (Ticket ticket : tickets) {
+            ticket.setOutTime(null);
+            ticket.setPrice(0);
+        }
+    }
+
+    private void releaseSpots(List<Ticket> tickets) {
+        try {
+            SpotInventory spotInventory = SpotInventory.of(dataBaseConfig);
+            for (Ticket ticket : tickets) {
+                spotInventory.setAvailable(ticket.getParkingSpot().getId(), true);
+            }
+        }catch (Exception ex){
+            logger.error("Error updating spot inventory",ex);
+        }
+    }
+
+    //async variants run the blocking calls above on the JDBC executor of the database
+    @Override
+    public <T> CompletableFuture<T> supplyAsync(Supplier<T> task) {
+        return dataBaseConfig.getJdbcExecutor().supplyAsync(task);
+    }
 }
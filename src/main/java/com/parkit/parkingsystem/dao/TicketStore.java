@@ -0,0 +1,67 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.model.Ticket;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+//storage of the tickets, implemented over JDBC by TicketDAO and in memory by dao.memory
+public interface TicketStore {
+
+    //sets the ID of the saved ticket
+    boolean saveTicket(Ticket ticket);
+
+    //latest ticket of the vehicle, open or not; null when it has none
+    Ticket getTicket(String vehicleRegNumber);
+
+    //every ticket of the vehicle, latest first; archived ones are only read when asked for
+    List<Ticket> getTickets(String vehicleRegNumber, boolean includeHistory);
+
+    //writes the price and out time of the ticket with the same ID
+    boolean updateTicket(Ticket ticket);
+
+    //open tickets of the given vehicles, keyed by plate: unknown plates are absent, null on storage error
+    Map<String, Ticket> getOpenTickets(Collection<String> vehicleRegNumbers);
+
+    //writes the price and out time of every ticket and frees their spots, all or nothing; a store writing behind
+    //queues them all or none, and commits them together
+    boolean closeTickets(List<Ticket> tickets);
+
+    //runs a blocking call of this store asynchronously; stores that never block may run it in place
+    default <T> CompletableFuture<T> supplyAsync(Supplier<T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            future.complete(task.get());
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    default CompletableFuture<Boolean> saveTicketAsync(Ticket ticket) {
+        return supplyAsync(() -> saveTicket(ticket));
+    }
+
+    default CompletableFuture<Ticket> getTicketAsync(String vehicleRegNumber) {
+        return supplyAsync(() -> getTicket(vehicleRegNumber));
+    }
+
+    default CompletableFuture<Boolean> updateTicketAsync(Ticket ticket) {
+        return supplyAsync(() -> updateTicket(ticket));
+    }
+
+    default CompletableFuture<List<Ticket>> getTicketsAsync(String vehicleRegNumber, boolean includeHistory) {
+        return supplyAsync(() -> getTickets(vehicleRegNumber, includeHistory));
+    }
+
+    default CompletableFuture<Map<String, Ticket>> getOpenTicketsAsync(Collection<String> vehicleRegNumbers) {
+        return supplyAsync(() -> getOpenTickets(vehicleRegNumbers));
+    }
+
+    default CompletableFuture<Boolean> closeTicketsAsync(List<Ticket> tickets) {
+        return supplyAsync(() -> closeTickets(tickets));
+    }
+}
@@ -0,0 +1,141 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.metrics.Counter;
+import com.parkit.parkingsystem.metrics.Metrics;
+import com.parkit.parkingsystem.util.BloomFilter;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+//number of tickets per vehicle, rebuilt from the ticket table on startup and kept up to date on every saved ticket
+public class VisitCountIndex {
+
+    private static final Logger logger = LogManager.getLogger("VisitCountIndex");
+
+    private static final Counter BLOOM_FILTER_NEGATIVES = Metrics.counter("visitCountIndex.bloomFilterNegatives");
+
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+
+    //one index per database, shared by every DAO pointing at it
+    private static final ConcurrentMap<String, VisitCountIndex> indexes = new ConcurrentHashMap<>();
+
+    private final DataBaseConfig dataBaseConfig;
+    private final long expectedVehicles;
+
+    private volatile Visits visits;
+
+    private static final class Visits {
+        private final BloomFilter knownVehicles;
+        private final ConcurrentHashMap<String, Integer> countByVehicle;
+
+        private Visits(BloomFilter knownVehicles, ConcurrentHashMap<String, Integer> countByVehicle) {
+            this.knownVehicles = knownVehicles;
+            this.countByVehicle = countByVehicle;
+        }
+    }
+
+    public VisitCountIndex(DataBaseConfig dataBaseConfig) {
+        this(dataBaseConfig, Long.getLong("parkit.visitIndex.expectedVehicles", 1_000_000L));
+    }
+
+    public VisitCountIndex(DataBaseConfig dataBaseConfig, long expectedVehicles) {
+        this.dataBaseConfig = dataBaseConfig;
+        this.expectedVehicles = expectedVehicles;
+    }
+
+    public static VisitCountIndex of(DataBaseConfig dataBaseConfig) throws ClassNotFoundException, SQLException {
+        VisitCountIndex index = indexes.computeIfAbsent(dataBaseConfig.getPool().getName(),
+                name -> new VisitCountIndex(dataBaseConfig));
+        index.ensureLoaded();
+        return index;
+    }
+
+    public boolean isLoaded() {
+        return visits != null;
+    }
+
+    public void ensureLoaded() throws ClassNotFoundException, SQLException {
+        if (!isLoaded()) {
+            synchronized (this) {
+                if (!isLoaded()) {
+                    reload();
+                }
+            }
+        }
+    }
+
+    //one aggregate query per table, streamed so that the whole ticket history never sits in memory
+    public synchronized void reload() throws ClassNotFoundException, SQLException {
+        Connection con = null;
+        Map<String, Integer> visitCounts = new HashMap<>();
+        try {
+            con = dataBaseConfig.getConnection();
+            addVisitCounts(con, DBConstants.GET_VISIT_COUNTS, visitCounts);
+            addVisitCounts(con, DBConstants.GET_HISTORY_VISIT_COUNTS, visitCounts);
+        } finally {
+            dataBaseConfig.closeConnection(con);
+        }
+        load(visitCounts);
+        logger.info("Loaded visit counts of " + visitCounts.size() + " vehicles");
+    }
+
+    private void addVisitCounts(Connection con, String sql, Map<String, Integer> visitCounts) throws SQLException {
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+        try {
+            ps = con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(dataBaseConfig.getStreamingFetchSize());
+            rs = ps.executeQuery();
+            while (rs.next()) {
+                visitCounts.merge(rs.getString(1), rs.getInt(2), Integer::sum);
+            }
+        } finally {
+            dataBaseConfig.closeResultSet(rs);
+            dataBaseConfig.closePreparedStatement(ps);
+        }
+    }
+
+    public synchronized void load(Map<String, Integer> visitCounts) {
+        BloomFilter knownVehicles = new BloomFilter(Math.max(expectedVehicles, 2L * visitCounts.size()), FALSE_POSITIVE_RATE);
+        for (String vehicleRegNumber : visitCounts.keySet()) {
+            knownVehicles.put(vehicleRegNumber);
+        }
+        visits = new Visits(knownVehicles, new ConcurrentHashMap<>(visitCounts));
+    }
+
+    public int getVisitCount(String vehicleRegNumber) {
+        Visits current = visits;
+        if (!current.knownVehicles.mightContain(vehicleRegNumber)) {
+            //first-time visitor, answered without touching the map
+            BLOOM_FILTER_NEGATIVES.increment();
+            return 0;
+        }
+        return current.countByVehicle.getOrDefault(vehicleRegNumber, 0);
+    }
+
+    //the vehicle is added to the filter before its count, so a reader never misses a counted visit
+    public void recordVisit(String vehicleRegNumber) {
+        Visits current = visits;
+        current.knownVehicles.put(vehicleRegNumber);
+        current.countByVehicle.merge(vehicleRegNumber, 1, Integer::sum);
+    }
+
+    //undoes recordVisit for a ticket that could not be written
+    public void removeVisit(String vehicleRegNumber) {
+        visits.countByVehicle.computeIfPresent(vehicleRegNumber, (plate, count) -> count > 1 ? count - 1 : null);
+    }
+
+    public int getVehicleCount() {
+        return visits.countByVehicle.size();
+    }
+}
@@ -0,0 +1,324 @@
+package com.parkit.parkingsystem.dao;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntConsumer;
+
+public class WriteBehindQueue {
+
+    private static final Logger logger = LogManager.getLogger("WriteBehindQueue");
+
+    public interface StatementBinder {
+        void bind(PreparedStatement ps) throws SQLException;
+    }
+
+    public interface DurabilityListener {
+        void onDurable(int writeCount);
+
+        void onFailure(int writeCount, Exception e);
+    }
+
+    private static class PendingWrite {
+        private final String sql;
+        private final StatementBinder binder;
+        private final IntConsumer generatedKeyConsumer;
+        private final CompletableFuture<Void> durable;
+        //writes queued as one entry, in order, when this entry stands for them; null for a single write
+        private final List<PendingWrite> unit;
+        //generated by the insert, handed to the consumer once committed
+        private int generatedKey;
+        private boolean hasGeneratedKey;
+
+        private PendingWrite(String sql, StatementBinder binder, IntConsumer generatedKeyConsumer) {
+            this(sql, binder, generatedKeyConsumer, new CompletableFuture<>(), null);
+        }
+
+        private PendingWrite(String sql, StatementBinder binder, IntConsumer generatedKeyConsumer,
+                             CompletableFuture<Void> durable, List<PendingWrite> unit) {
+            this.sql = sql;
+            this.binder = binder;
+            this.generatedKeyConsumer = generatedKeyConsumer;
+            this.durable = durable;
+            this.unit = unit;
+        }
+    }
+
+    private final DataBaseConfig dataBaseConfig;
+    private final BlockingQueue<PendingWrite> pendingWrites;
+    private final int maxBatchSize;
+    private final long flushIntervalMillis;
+    private final long offerTimeoutMillis;
+    private final Thread flusher;
+    private volatile boolean closed;
+    private volatile DurabilityListener durabilityListener;
+
+    private final LongAdder flushCount = new LongAdder();
+    private final LongAdder flushedWriteCount = new LongAdder();
+    private final LongAdder failedWriteCount = new LongAdder();
+
+    public WriteBehindQueue(DataBaseConfig dataBaseConfig, int capacity, int maxBatchSize,
+                            long flushIntervalMillis, long offerTimeoutMillis) {
+        this.dataBaseConfig = dataBaseConfig;
+        this.pendingWrites = new ArrayBlockingQueue<>(capacity);
+        this.maxBatchSize = maxBatchSize;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.offerTimeoutMillis = offerTimeoutMillis;
+        this.flusher = new Thread(this::runFlusher, "write-behind-flusher");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    public void setDurabilityListener(DurabilityListener durabilityListener) {
+        this.durabilityListener = durabilityListener;
+    }
+
+    public CompletableFuture<Void> submit(String sql, StatementBinder binder) {
+        return submit(sql, binder, null);
+    }
+
+    //the consumer receives the generated key once the insert is committed
+    public CompletableFuture<Void> submit(String sql, StatementBinder binder, IntConsumer generatedKeyConsumer) {
+        return enqueue(new PendingWrite(sql, binder, generatedKeyConsumer));
+    }
+
+    //queues the i-th statement bound by the i-th binder for each i, all or none; they are committed in the same
+    //transaction and the future completes once they all are
+    public CompletableFuture<Void> submitAll(List<String> sqls, List<StatementBinder> binders) {
+        if (sqls.size() != binders.size() || sqls.isEmpty()) {
+            throw new IllegalArgumentException("Expected as many binders as statements: " + sqls.size() + ", " + binders.size());
+        }
+        CompletableFuture<Void> durable = new CompletableFuture<>();
+        List<PendingWrite> unit = new ArrayList<>(sqls.size());
+        for (int i = 0; i < sqls.size(); i++) {
+            unit.add(new PendingWrite(sqls.get(i), binders.get(i), null, durable, null));
+        }
+        return enqueue(new PendingWrite(null, null, null, durable, unit));
+    }
+
+    private CompletableFuture<Void> enqueue(PendingWrite write) {
+        if (closed) {
+            throw new RejectedExecutionException("Write-behind queue is closed");
+        }
+        try {
+            //backpressure: the gate thread waits for room rather than letting the queue grow without bound
+            if (!pendingWrites.offer(write, offerTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new RejectedExecutionException("Write-behind queue is full after waiting " + offerTimeoutMillis + " ms");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrupted while queueing write", e);
+        }
+        //closed while queueing: the flusher may already have drained the queue for the last time. If the write is
+        //still there it is taken back, otherwise the flusher has it
+        if (closed && pendingWrites.remove(write)) {
+            throw new RejectedExecutionException("Write-behind queue is closed");
+        }
+        return write.durable;
+    }
+
+    public int getPendingCount() {
+        return pendingWrites.size();
+    }
+
+    public long getFlushCount() {
+        return flushCount.sum();
+    }
+
+    public long getFlushedWriteCount() {
+        return flushedWriteCount.sum();
+    }
+
+    public long getFailedWriteCount() {
+        return failedWriteCount.sum();
+    }
+
+    public void close() {
+        closed = true;
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        logger.info("Write-behind queue drained: " + getFlushedWriteCount() + " writes in " + getFlushCount()
+                + " flushes, " + getFailedWriteCount() + " failed");
+    }
+
+    private void runFlusher() {
+        List<PendingWrite> batch = new ArrayList<>(maxBatchSize);
+        try {
+            while (!closed || !pendingWrites.isEmpty()) {
+                PendingWrite first = pendingWrites.poll(flushIntervalMillis, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                //group commit: keep collecting until the batch is full or the flush interval is over
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+                while (batch.size() < maxBatchSize && !closed) {
+                    pendingWrites.drainTo(batch, maxBatchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= maxBatchSize || remaining <= 0) {
+                        break;
+                    }
+                    PendingWrite next = pendingWrites.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next != null) {
+                        batch.add(next);
+                    }
+                }
+                pendingWrites.drainTo(batch, maxBatchSize - batch.size());
+                flush(expandUnits(batch));
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            closed = true;
+        }
+        //only left when the flusher was interrupted: fail them rather than leave their futures pending
+        pendingWrites.drainTo(batch);
+        if (!batch.isEmpty()) {
+            logger.error("Write-behind flusher interrupted, dropping " + batch.size() + " queued writes");
+            fail(expandUnits(batch), new RejectedExecutionException("Write-behind queue is closed"));
+        }
+    }
+
+    //the writes of a unit are flushed one by one, next to each other; a unit counts as one entry of the batch size
+    private static List<PendingWrite> expandUnits(List<PendingWrite> entries) {
+        List<PendingWrite> writes = null;
+        for (int i = 0; i < entries.size(); i++) {
+            PendingWrite entry = entries.get(i);
+            if (entry.unit != null && writes == null) {
+                writes = new ArrayList<>(entries.subList(0, i));
+            }
+            if (writes != null) {
+                if (entry.unit == null) {
+                    writes.add(entry);
+                } else {
+                    writes.addAll(entry.unit);
+                }
+            }
+        }
+        return writes == null ? entries : writes;
+    }
+
+    private void flush(List<PendingWrite> batch) {
+        int start = 0;
+        while (start < batch.size()) {
+            int end = transactionEnd(batch, start);
+            commit(batch.subList(start, end));
+            start = end;
+        }
+    }
+
+    //a transaction ends after a run of inserts returning keys, so that the writes queued after them (e.g. the
+    //update of a ticket just inserted) are bound once the keys are committed and handed back. Units return no
+    //keys, so they are never split
+    private static int transactionEnd(List<PendingWrite> batch, int start) {
+        int end = start;
+        while (end < batch.size()) {
+            boolean returnsGeneratedKey = batch.get(end++).generatedKeyConsumer != null;
+            if (returnsGeneratedKey && end < batch.size() && batch.get(end).generatedKeyConsumer == null) {
+                break;
+            }
+        }
+        return end;
+    }
+
+    private void commit(List<PendingWrite> batch) {
+        Connection con = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            con.setAutoCommit(false);
+            int start = 0;
+            //consecutive writes of the same statement share one JDBC batch, keeping the queue order
+            while (start < batch.size()) {
+                int end = start;
+                while (end < batch.size() && batch.get(end).sql.equals(batch.get(start).sql)) {
+                    end++;
+                }
+                executeBatch(con, batch.subList(start, end));
+                start = end;
+            }
+            con.commit();
+            flushCount.increment();
+            flushedWriteCount.add(batch.size());
+            for (PendingWrite write : batch) {
+                if (write.hasGeneratedKey) {
+                    write.generatedKeyConsumer.accept(write.generatedKey);
+                }
+                write.durable.complete(null);
+            }
+            DurabilityListener listener = durabilityListener;
+            if (listener != null) {
+                listener.onDurable(batch.size());
+            }
+        } catch (Exception ex) {
+            logger.error("Error flushing " + batch.size() + " queued writes", ex);
+            rollback(con);
+            fail(batch, ex);
+        } finally {
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
+    private void fail(List<PendingWrite> batch, Exception ex) {
+        failedWriteCount.add(batch.size());
+        for (PendingWrite write : batch) {
+            write.durable.completeExceptionally(ex);
+        }
+        DurabilityListener listener = durabilityListener;
+        if (listener != null) {
+            listener.onFailure(batch.size(), ex);
+        }
+    }
+
+    private void executeBatch(Connection con, List<PendingWrite> writes) throws ClassNotFoundException, SQLException {
+        boolean returnsGeneratedKeys = writes.get(0).generatedKeyConsumer != null;
+        PreparedStatement ps = returnsGeneratedKeys
+                ? dataBaseConfig.prepareStatement(con, writes.get(0).sql, Statement.RETURN_GENERATED_KEYS)
+                : dataBaseConfig.prepareStatement(con, writes.get(0).sql);
+        try {
+            for (PendingWrite write : writes) {
+                write.binder.bind(ps);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+            if (returnsGeneratedKeys) {
+                ResultSet generatedKeys = ps.getGeneratedKeys();
+                for (PendingWrite write : writes) {
+                    if (generatedKeys.next() && write.generatedKeyConsumer != null) {
+                        write.generatedKey = generatedKeys.getInt(1);
+                        write.hasGeneratedKey = true;
+                    }
+                }
+                dataBaseConfig.closeResultSet(generatedKeys);
+            }
+        } finally {
+            dataBaseConfig.closePreparedStatement(ps);
+        }
+    }
+
+    private void rollback(Connection con) {
+        if (con != null) {
+            try {
+                con.rollback();
+            } catch (SQLException e) {
+                logger.error("Error rolling back queued writes", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.parkit.parkingsystem.dao.memory;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotStore;
+import com.parkit.parkingsystem.dao.SpotInventory;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.Arrays;
+
+//parking spots held only in memory: the spot inventory is the storage itself, claims are single CAS operations
+public class InMemoryParkingSpotStore implements ParkingSpotStore {
+
+    private static final Logger logger = LogManager.getLogger("InMemoryParkingSpotStore");
+
+    private final SpotInventory spotInventory = new SpotInventory(null);
+    private final int[] numbers;
+
+    //every spot starts available
+    public InMemoryParkingSpotStore(int[] numbers, ParkingType[] types) {
+        if (numbers.length != types.length) {
+            throw new IllegalArgumentException("One parking type is needed per spot number");
+        }
+        this.numbers = numbers.clone();
+        boolean[] available = new boolean[numbers.length];
+        Arrays.fill(available, true);
+        spotInventory.load(numbers, types, available);
+    }
+
+    //car spots numbered from 1, then the bike spots, like the lot created by Data.sql
+    public static InMemoryParkingSpotStore withCapacity(int carSpots, int bikeSpots) {
+        int[] numbers = new int[carSpots + bikeSpots];
+        ParkingType[] types = new ParkingType[numbers.length];
+        for (int i = 0; i < numbers.length; i++) {
+            numbers[i] = i + 1;
+            types[i] = i < carSpots ? ParkingType.CAR : ParkingType.BIKE;
+        }
+        return new InMemoryParkingSpotStore(numbers, types);
+    }
+
+    public SpotInventory getSpotInventory() {
+        return spotInventory;
+    }
+
+    public int[] getSpotNumbers() {
+        return numbers.clone();
+    }
+
+    @Override
+    public int getNextAvailableSlot(ParkingType parkingType) {
+        return spotInventory.getNextAvailableSlot(parkingType);
+    }
+
+    @Override
+    public int claimNextSlot(ParkingType parkingType) {
+        return spotInventory.claimNextAvailableSlot(parkingType);
+    }
+
+    @Override
+    public boolean updateParking(ParkingSpot parkingSpot) {
+        if (spotInventory.getParkingType(parkingSpot.getId()) == null) {
+            logger.error("Unknown parking spot " + parkingSpot.getId());
+            return false;
+        }
+        spotInventory.setAvailable(parkingSpot.getId(), parkingSpot.isAvailable());
+        return true;
+    }
+}
@@ -0,0 +1,264 @@
+package com.parkit.parkingsystem.dao.memory;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotStore;
+import com.parkit.parkingsystem.dao.TicketStore;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+//tickets held only in memory, with the semantics of TicketDAO: callers get copies, never the stored rows
+public class InMemoryTicketStore implements TicketStore {
+
+    private static final Logger logger = LogManager.getLogger("InMemoryTicketStore");
+
+    //rows are found by ID in fixed size chunks, so a lookup is two array reads and no boxing
+    private static final int CHUNK_BITS = 12;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final long OPEN = -1;
+
+    private final ParkingSpotStore parkingSpotStore;
+    private final AtomicInteger lastId = new AtomicInteger();
+    private volatile AtomicReferenceArray<TicketRow>[] chunks = newChunks(16);
+    private final ConcurrentMap<String, VehicleTickets> ticketsByVehicle = new ConcurrentHashMap<>();
+
+    private static final class TicketRow {
+        private final int id;
+        private final int parkingNumber;
+        private final ParkingType parkingType;
+        private final String vehicleRegNumber;
+        private final long inTime;
+        private double price;
+        private long outTime;
+
+        private TicketRow(int id, Ticket ticket) {
+            this.id = id;
+            this.parkingNumber = ticket.getParkingSpot().getId();
+            this.parkingType = ticket.getParkingSpot().getParkingType();
+            this.vehicleRegNumber = ticket.getVehicleRegNumber();
+            this.inTime = ticket.getInTime().getTime();
+            this.price = ticket.getPrice();
+            this.outTime = ticket.getOutTime() == null ? OPEN : ticket.getOutTime().getTime();
+        }
+
+        private synchronized void close(double price, long outTime) {
+            this.price = price;
+            this.outTime = outTime;
+        }
+
+        private synchronized boolean isOpen() {
+            return outTime == OPEN;
+        }
+
+        private synchronized Ticket toTicket() {
+            Ticket ticket = new Ticket();
+            ticket.setId(id);
+            ticket.setParkingSpot(new ParkingSpot(parkingNumber, parkingType, false));
+            ticket.setVehicleRegNumber(vehicleRegNumber);
+            ticket.setPrice(price);
+            ticket.setInTime(new Date(inTime));
+            ticket.setOutTime(outTime == OPEN ? null : new Date(outTime));
+            return ticket;
+        }
+    }
+
+    //IDs of the tickets of one vehicle, in insertion order
+    private static final class VehicleTickets {
+        private int[] ids = new int[4];
+        private int size;
+
+        private synchronized void add(int id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = id;
+        }
+
+        private synchronized int[] toArray() {
+            return Arrays.copyOf(ids, size);
+        }
+    }
+
+    public InMemoryTicketStore(ParkingSpotStore parkingSpotStore) {
+        this.parkingSpotStore = parkingSpotStore;
+    }
+
+    //IDs are handed out densely from 1, so this is also the highest ID
+    public int getTicketCount() {
+        return lastId.get();
+    }
+
+    public boolean containsTicket(int id) {
+        return row(id) != null;
+    }
+
+    //stores the ticket under its own ID, replacing any ticket with that ID; used to rebuild the store
+    public void restoreTicket(Ticket ticket) {
+        int id = ticket.getId();
+        if (id <= 0) {
+            throw new IllegalArgumentException("Invalid ticket ID: " + id);
+        }
+        TicketRow row = new TicketRow(id, ticket);
+        TicketRow previous = chunkOf(id).getAndSet(id & (CHUNK_SIZE - 1), row);
+        if (previous == null) {
+            ticketsByVehicle.computeIfAbsent(row.vehicleRegNumber, plate -> new VehicleTickets()).add(id);
+        }
+        lastId.accumulateAndGet(id, Math::max);
+    }
+
+    public void forEachTicket(Consumer<Ticket> consumer) {
+        int last = lastId.get();
+        for (int id = 1; id <= last; id++) {
+            TicketRow row = row(id);
+            if (row != null) {
+                consumer.accept(row.toTicket());
+            }
+        }
+    }
+
+    @Override
+    public boolean saveTicket(Ticket ticket) {
+        if (ticket.getVehicleRegNumber() == null || ticket.getParkingSpot() == null || ticket.getInTime() == null) {
+            logger.error("Incomplete ticket for vehicle " + ticket.getVehicleRegNumber());
+            return false;
+        }
+        int id = lastId.incrementAndGet();
+        TicketRow row = new TicketRow(id, ticket);
+        chunkOf(id).set(id & (CHUNK_SIZE - 1), row);
+        ticketsByVehicle.computeIfAbsent(row.vehicleRegNumber, plate -> new VehicleTickets()).add(id);
+        ticket.setId(id);
+        return true;
+    }
+
+    @Override
+    public Ticket getTicket(String vehicleRegNumber) {
+        TicketRow latest = null;
+        for (TicketRow row : rowsOf(vehicleRegNumber)) {
+            if (latest == null || row.inTime >= latest.inTime) {
+                latest = row;
+            }
+        }
+        return latest == null ? null : latest.toTicket();
+    }
+
+    @Override
+    public List<Ticket> getTickets(String vehicleRegNumber, boolean includeHistory) {
+        //nothing is archived in memory, so the history is always included
+        List<TicketRow> rows = rowsOf(vehicleRegNumber);
+        rows.sort((a, b) -> a.inTime != b.inTime ? Long.compare(b.inTime, a.inTime) : Integer.compare(b.id, a.id));
+        List<Ticket> tickets = new ArrayList<>(rows.size());
+        for (TicketRow row : rows) {
+            tickets.add(row.toTicket());
+        }
+        return tickets;
+    }
+
+    @Override
+    public boolean updateTicket(Ticket ticket) {
+        TicketRow row = row(ticket.getId());
+        if (row == null || ticket.getOutTime() == null) {
+            logger.error("Unable to update ticket " + ticket.getId());
+            return false;
+        }
+        row.close(ticket.getPrice(), ticket.getOutTime().getTime());
+        return true;
+    }
+
+    @Override
+    public Map<String, Ticket> getOpenTickets(Collection<String> vehicleRegNumbers) {
+        Map<String, Ticket> tickets = new HashMap<>();
+        for (String vehicleRegNumber : vehicleRegNumbers) {
+            TicketRow latestOpen = null;
+            for (TicketRow row : rowsOf(vehicleRegNumber)) {
+                if (row.isOpen() && (latestOpen == null || row.inTime >= latestOpen.inTime)) {
+                    latestOpen = row;
+                }
+            }
+            if (latestOpen != null) {
+                tickets.put(vehicleRegNumber, latestOpen.toTicket());
+            }
+        }
+        return tickets;
+    }
+
+    @Override
+    public boolean closeTickets(List<Ticket> tickets) {
+        //every ticket is checked before the first write, so a bad one leaves the others untouched
+        TicketRow[] rows = new TicketRow[tickets.size()];
+        for (int i = 0; i < rows.length; i++) {
+            Ticket ticket = tickets.get(i);
+            rows[i] = row(ticket.getId());
+            if (rows[i] == null || ticket.getOutTime() == null) {
+                logger.error("Unable to close ticket " + ticket.getId());
+                return false;
+            }
+        }
+        for (int i = 0; i < rows.length; i++) {
+            Ticket ticket = tickets.get(i);
+            rows[i].close(ticket.getPrice(), ticket.getOutTime().getTime());
+            ticket.getParkingSpot().setAvailable(true);
+            parkingSpotStore.updateParking(ticket.getParkingSpot());
+        }
+        return true;
+    }
+
+    private List<TicketRow> rowsOf(String vehicleRegNumber) {
+        VehicleTickets vehicleTickets = ticketsByVehicle.get(vehicleRegNumber);
+        if (vehicleTickets == null) {
+            return new ArrayList<>();
+        }
+        int[] ids = vehicleTickets.toArray();
+        List<TicketRow> rows = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            rows.add(row(id));
+        }
+        return rows;
+    }
+
+    private TicketRow row(int id) {
+        AtomicReferenceArray<TicketRow>[] current = chunks;
+        int chunk = id >>> CHUNK_BITS;
+        if (id <= 0 || chunk >= current.length || current[chunk] == null) {
+            return null;
+        }
+        return current[chunk].get(id & (CHUNK_SIZE - 1));
+    }
+
+    private AtomicReferenceArray<TicketRow> chunkOf(int id) {
+        int chunk = id >>> CHUNK_BITS;
+        AtomicReferenceArray<TicketRow>[] current = chunks;
+        if (chunk < current.length && current[chunk] != null) {
+            return current[chunk];
+        }
+        synchronized (this) {
+            current = chunks;
+            if (chunk >= current.length) {
+                current = Arrays.copyOf(current, Math.max(current.length * 2, chunk + 1));
+            }
+            if (current[chunk] == null) {
+                current[chunk] = new AtomicReferenceArray<>(CHUNK_SIZE);
+            }
+            chunks = current;
+            return current[chunk];
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static AtomicReferenceArray<TicketRow>[] newChunks(int length) {
+        return new AtomicReferenceArray[length];
+    }
+}
@@ -0,0 +1,73 @@
+package com.parkit.parkingsystem.dao.shard;
+
+import com.parkit.parkingsystem.config.ShardRouter;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.ParkingSpotStore;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+//spots of every lot, each on the database its shard router maps it to; the gates of this store hand out spots of
+//their own lot, while a spot given back is routed to the lot it belongs to
+public class ShardedParkingSpotStore implements ParkingSpotStore {
+
+    private static final Logger logger = LogManager.getLogger("ShardedParkingSpotStore");
+
+    private final int lotId;
+    private final Map<Integer, ParkingSpotDAO> parkingSpotDAOs = new HashMap<>();
+    private final ParkingSpotDAO home;
+
+    public ShardedParkingSpotStore(ShardRouter shardRouter, int lotId) {
+        this.lotId = lotId;
+        for (int shardLotId : shardRouter.getLotIds()) {
+            ParkingSpotDAO parkingSpotDAO = new ParkingSpotDAO();
+            parkingSpotDAO.dataBaseConfig = shardRouter.getDataBaseConfig(shardLotId);
+            parkingSpotDAO.lotId = shardLotId;
+            parkingSpotDAOs.put(shardLotId, parkingSpotDAO);
+        }
+        this.home = parkingSpotDAOs.get(lotId);
+        if (home == null) {
+            throw new IllegalArgumentException("No shard for lot " + lotId);
+        }
+    }
+
+    public ParkingSpotDAO getParkingSpotDAO(int lotId) {
+        return parkingSpotDAOs.get(lotId);
+    }
+
+    @Override
+    public int getLotId() {
+        return lotId;
+    }
+
+    @Override
+    public int getNextAvailableSlot(ParkingType parkingType) {
+        return home.getNextAvailableSlot(parkingType);
+    }
+
+    @Override
+    public int claimNextSlot(ParkingType parkingType) {
+        return home.claimNextSlot(parkingType);
+    }
+
+    @Override
+    public boolean updateParking(ParkingSpot parkingSpot) {
+        ParkingSpotDAO parkingSpotDAO = parkingSpotDAOs.get(parkingSpot.getLotId());
+        if (parkingSpotDAO == null) {
+            logger.error("No shard for lot " + parkingSpot.getLotId() + " of parking spot " + parkingSpot.getId());
+            return false;
+        }
+        return parkingSpotDAO.updateParking(parkingSpot);
+    }
+
+    @Override
+    public <T> CompletableFuture<T> supplyAsync(Supplier<T> task) {
+        return home.supplyAsync(task);
+    }
+}
@@ -0,0 +1,138 @@
+package com.parkit.parkingsystem.dao.shard;
+
+import com.parkit.parkingsystem.config.ShardRouter;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.dao.TicketStore;
+import com.parkit.parkingsystem.model.Ticket;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+//tickets of every lot, each on the database of its lot: writes go to the lot of the ticket's spot, and lookups by
+//plate ask the gate's own lot first, then every other lot, since a vehicle may leave through any lot's gate
+public class ShardedTicketStore implements TicketStore {
+
+    private static final Logger logger = LogManager.getLogger("ShardedTicketStore");
+
+    private final Map<Integer, TicketDAO> ticketDAOs = new LinkedHashMap<>();
+    private final TicketDAO home;
+
+    public ShardedTicketStore(ShardRouter shardRouter, int lotId) {
+        for (int shardLotId : shardRouter.getLotIds()) {
+            TicketDAO ticketDAO = new TicketDAO();
+            ticketDAO.dataBaseConfig = shardRouter.getDataBaseConfig(shardLotId);
+            ticketDAO.lotId = shardLotId;
+            ticketDAOs.put(shardLotId, ticketDAO);
+        }
+        this.home = ticketDAOs.get(lotId);
+        if (home == null) {
+            throw new IllegalArgumentException("No shard for lot " + lotId);
+        }
+    }
+
+    public TicketDAO getTicketDAO(int lotId) {
+        return ticketDAOs.get(lotId);
+    }
+
+    private TicketDAO ticketDAOOf(Ticket ticket) {
+        TicketDAO ticketDAO = ticketDAOs.get(ticket.getParkingSpot().getLotId());
+        if (ticketDAO == null) {
+            logger.error("No shard for lot " + ticket.getParkingSpot().getLotId() + " of ticket " + ticket.getId());
+        }
+        return ticketDAO;
+    }
+
+    @Override
+    public boolean saveTicket(Ticket ticket) {
+        TicketDAO ticketDAO = ticketDAOOf(ticket);
+        return ticketDAO != null && ticketDAO.saveTicket(ticket);
+    }
+
+    @Override
+    public Ticket getTicket(String vehicleRegNumber) {
+        Ticket latest = home.getTicket(vehicleRegNumber);
+        if (latest != null && latest.getOutTime() == null) {
+            //parked in this lot: the common case needs a single shard
+            return latest;
+        }
+        for (TicketDAO ticketDAO : ticketDAOs.values()) {
+            if (ticketDAO == home) {
+                continue;
+            }
+            Ticket ticket = ticketDAO.getTicket(vehicleRegNumber);
+            if (ticket != null && (latest == null || ticket.getInTime().after(latest.getInTime()))) {
+                latest = ticket;
+            }
+        }
+        return latest;
+    }
+
+    @Override
+    public List<Ticket> getTickets(String vehicleRegNumber, boolean includeHistory) {
+        List<Ticket> tickets = new ArrayList<>();
+        for (TicketDAO ticketDAO : ticketDAOs.values()) {
+            List<Ticket> shardTickets = ticketDAO.getTickets(vehicleRegNumber, includeHistory);
+            if (shardTickets == null) {
+                return null;
+            }
+            tickets.addAll(shardTickets);
+        }
+        tickets.sort((t1, t2) -> t2.getInTime().compareTo(t1.getInTime()));
+        return tickets;
+    }
+
+    @Override
+    public boolean updateTicket(Ticket ticket) {
+        TicketDAO ticketDAO = ticketDAOOf(ticket);
+        return ticketDAO != null && ticketDAO.updateTicket(ticket);
+    }
+
+    @Override
+    public Map<String, Ticket> getOpenTickets(Collection<String> vehicleRegNumbers) {
+        Map<String, Ticket> openTickets = new HashMap<>();
+        for (TicketDAO ticketDAO : ticketDAOs.values()) {
+            Map<String, Ticket> shardTickets = ticketDAO.getOpenTickets(vehicleRegNumbers);
+            if (shardTickets == null) {
+                return null;
+            }
+            //a plate open in two lots keeps its latest ticket, as within one lot
+            shardTickets.forEach((plate, ticket) -> openTickets.merge(plate, ticket,
+                    (t1, t2) -> t2.getInTime().after(t1.getInTime()) ? t2 : t1));
+        }
+        return openTickets;
+    }
+
+    //all or nothing within each lot only: the lots are committed one after the other, and a failing lot leaves
+    //the ones before it closed
+    @Override
+    public boolean closeTickets(List<Ticket> tickets) {
+        Map<TicketDAO, List<Ticket>> ticketsByShard = new LinkedHashMap<>();
+        for (Ticket ticket : tickets) {
+            TicketDAO ticketDAO = ticketDAOOf(ticket);
+            if (ticketDAO == null) {
+                return false;
+            }
+            ticketsByShard.computeIfAbsent(ticketDAO, dao -> new ArrayList<>()).add(ticket);
+        }
+        for (Map.Entry<TicketDAO, List<Ticket>> shard : ticketsByShard.entrySet()) {
+            if (!shard.getKey().closeTickets(shard.getValue())) {
+                logger.error("Unable to close " + shard.getValue().size() + " tickets of lot " + shard.getKey().lotId);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public <T> CompletableFuture<T> supplyAsync(Supplier<T> task) {
+        return home.supplyAsync(task);
+    }
+}
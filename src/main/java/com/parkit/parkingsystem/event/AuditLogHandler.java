@@ -0,0 +1,55 @@
+package com.parkit.parkingsystem.event;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+//appends one CSV line per gate event to the audit file:
+//time,type,vehicle,parking type,lot,spot,ticket,in time,out time,price; flushed once per batch
+public class AuditLogHandler implements GateEventHandler {
+
+    private static final Logger logger = LogManager.getLogger("AuditLogHandler");
+
+    private final Writer writer;
+    private final StringBuilder line = new StringBuilder(128);
+
+    public AuditLogHandler(File file) throws IOException {
+        this.writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, true), StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void onEvent(GateEvent event, long sequence, boolean endOfBatch) throws IOException {
+        line.setLength(0);
+        line.append(Instant.ofEpochMilli(event.getTimeMillis())).append(',')
+                .append(event.getType()).append(',')
+                .append(event.getVehicleRegNumber()).append(',')
+                .append(event.getParkingType() == null ? "" : event.getParkingType().name()).append(',')
+                .append(event.getLotId()).append(',')
+                .append(event.getParkingNumber()).append(',')
+                .append(event.getTicketId()).append(',')
+                .append(event.getInTimeMillis() < 0 ? "" : Instant.ofEpochMilli(event.getInTimeMillis()).toString()).append(',')
+                .append(event.getOutTimeMillis() < 0 ? "" : Instant.ofEpochMilli(event.getOutTimeMillis()).toString()).append(',')
+                .append(event.getPrice()).append('\n');
+        writer.append(line);
+        if (endOfBatch) {
+            writer.flush();
+        }
+    }
+
+    @Override
+    public void onShutdown() {
+        try {
+            writer.close();
+        } catch (IOException e) {
+            logger.error("Error closing audit file", e);
+        }
+    }
+}
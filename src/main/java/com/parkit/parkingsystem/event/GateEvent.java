@@ -0,0 +1,92 @@
+package com.parkit.parkingsystem.event;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+
+//one entry or exit at a gate; the events are allocated once with the ring and overwritten as it wraps, so a handler
+//must copy what it needs to keep before it returns. Times are epoch millis and prices in PRICE_SCALE units,
+//-1 or 0 when the gate got no ticket
+public final class GateEvent {
+
+    public enum Type {
+        PARKED,
+        LOT_FULL,
+        ALREADY_PARKED,
+        ENTRY_ERROR,
+        EXITED,
+        UNKNOWN_VEHICLE,
+        EXIT_ERROR
+    }
+
+    private Type type;
+    private String vehicleRegNumber;
+    private ParkingType parkingType;
+    private int lotId;
+    private int parkingNumber;
+    private int ticketId;
+    private long inTimeMillis;
+    private long outTimeMillis;
+    private long price;
+    private long timeMillis;
+    //System.nanoTime() when the gate published the event
+    private long publishNanos;
+
+    void set(Type type, String vehicleRegNumber, ParkingType parkingType, int lotId, int parkingNumber, int ticketId,
+             long inTimeMillis, long outTimeMillis, long price, long timeMillis, long publishNanos) {
+        this.type = type;
+        this.vehicleRegNumber = vehicleRegNumber;
+        this.parkingType = parkingType;
+        this.lotId = lotId;
+        this.parkingNumber = parkingNumber;
+        this.ticketId = ticketId;
+        this.inTimeMillis = inTimeMillis;
+        this.outTimeMillis = outTimeMillis;
+        this.price = price;
+        this.timeMillis = timeMillis;
+        this.publishNanos = publishNanos;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getVehicleRegNumber() {
+        return vehicleRegNumber;
+    }
+
+    //null for an exit of an unknown vehicle
+    public ParkingType getParkingType() {
+        return parkingType;
+    }
+
+    public int getLotId() {
+        return lotId;
+    }
+
+    public int getParkingNumber() {
+        return parkingNumber;
+    }
+
+    public int getTicketId() {
+        return ticketId;
+    }
+
+    public long getInTimeMillis() {
+        return inTimeMillis;
+    }
+
+    public long getOutTimeMillis() {
+        return outTimeMillis;
+    }
+
+    public long getPrice() {
+        return price;
+    }
+
+    public long getTimeMillis() {
+        return timeMillis;
+    }
+
+    public long getPublishNanos() {
+        return publishNanos;
+    }
+}
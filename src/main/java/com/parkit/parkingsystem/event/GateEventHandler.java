@@ -0,0 +1,12 @@
+package com.parkit.parkingsystem.event;
+
+//consumer of the gate events, called on its own thread of the ring with every event in publishing order;
+//endOfBatch is true for the last event available when the batch was taken, e.g. to flush a file once per batch
+public interface GateEventHandler {
+
+    void onEvent(GateEvent event, long sequence, boolean endOfBatch) throws Exception;
+
+    //called on the handler thread once the ring is closed and drained
+    default void onShutdown() {
+    }
+}
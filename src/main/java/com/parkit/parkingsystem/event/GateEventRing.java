@@ -0,0 +1,290 @@
+package com.parkit.parkingsystem.event;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.metrics.Counter;
+import com.parkit.parkingsystem.metrics.LatencyHistogram;
+import com.parkit.parkingsystem.metrics.Metrics;
+import com.parkit.parkingsystem.model.EntryResult;
+import com.parkit.parkingsystem.model.ExitResult;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.FareCalculatorService;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+//ring of preallocated gate events between the gates and the handlers doing the side effects (audit file, metrics,
+//receipts...). A gate claims a slot, fills the event in place and publishes it, which costs no allocation and no
+//lock; every handler runs on its own thread, sees every event in order and takes all the published ones as one
+//batch. A gate only waits when the slowest handler is a whole ring behind, and drops the event after the offer timeout.
+//Events are dropped as well before the ring is started and once it is closed
+public class GateEventRing implements Closeable {
+
+    private static final Logger logger = LogManager.getLogger("GateEventRing");
+
+    private static final LatencyHistogram PUBLISH_LATENCY = Metrics.histogram("gateEvents.publish");
+    private static final Counter DROPPED_EVENTS = Metrics.counter("gateEvents.dropped");
+
+    public enum ProducerType {
+        //one gate thread publishes, slots are claimed without a CAS
+        SINGLE,
+        MULTI
+    }
+
+    private final GateEvent[] events;
+    private final int mask;
+    //sequence last published in each slot, so that slots published out of order by several gates are only handed
+    //to the handlers once all the slots before them are published
+    private final AtomicLongArray published;
+    private final ProducerType producerType;
+    private final WaitStrategy waitStrategy;
+    private final long offerTimeoutNanos;
+    private final AtomicLong claimed = new AtomicLong(-1);
+    //lowest handler sequence seen by a gate; only ever behind the real one
+    private volatile long gatingSequence = -1;
+    private final List<HandlerThread> handlers = new ArrayList<>();
+    //the handlers the gates wait for, set when the ring starts
+    private volatile HandlerThread[] gatingHandlers = new HandlerThread[0];
+
+    //set once started, cleared on close: slots are only claimed while it is set
+    private volatile boolean running;
+    private volatile boolean closed;
+    private boolean started;
+
+    public GateEventRing(int size, ProducerType producerType, WaitStrategy waitStrategy, long offerTimeoutMillis) {
+        if (size <= 0 || Integer.bitCount(size) != 1) {
+            throw new IllegalArgumentException("Ring size must be a power of two: " + size);
+        }
+        this.events = new GateEvent[size];
+        for (int i = 0; i < size; i++) {
+            events[i] = new GateEvent();
+        }
+        this.mask = size - 1;
+        this.published = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            published.set(i, -1);
+        }
+        this.producerType = producerType;
+        this.waitStrategy = waitStrategy;
+        this.offerTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(offerTimeoutMillis);
+    }
+
+    public synchronized void addHandler(String name, GateEventHandler handler) {
+        if (started) {
+            throw new IllegalStateException("Handlers must be added before the ring is started");
+        }
+        handlers.add(new HandlerThread(name, handler));
+    }
+
+    public synchronized void start() {
+        if (started) {
+            return;
+        }
+        started = true;
+        running = true;
+        gatingHandlers = handlers.toArray(new HandlerThread[0]);
+        for (HandlerThread handler : handlers) {
+            handler.thread.start();
+        }
+    }
+
+    //stops the handlers once they have handled every event published so far
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            running = false;
+        }
+        waitStrategy.signalAll();
+        for (HandlerThread handler : handlers) {
+            try {
+                handler.thread.join(TimeUnit.SECONDS.toMillis(30));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    public boolean publishEntry(String vehicleRegNumber, ParkingType parkingType, EntryResult entryResult, long timeMillis) {
+        long start = System.nanoTime();
+        long sequence = next();
+        if (sequence < 0) {
+            return false;
+        }
+        GateEvent.Type type;
+        switch (entryResult.getStatus()) {
+            case PARKED: type = GateEvent.Type.PARKED; break;
+            case LOT_FULL: type = GateEvent.Type.LOT_FULL; break;
+            case ALREADY_PARKED: type = GateEvent.Type.ALREADY_PARKED; break;
+            default: type = GateEvent.Type.ENTRY_ERROR;
+        }
+        fill(get(sequence), type, vehicleRegNumber, parkingType, entryResult.getTicket(), timeMillis, start);
+        boolean published = publish(sequence);
+        PUBLISH_LATENCY.recordSince(start);
+        return published;
+    }
+
+    public boolean publishExit(String vehicleRegNumber, ExitResult exitResult, long timeMillis) {
+        long start = System.nanoTime();
+        long sequence = next();
+        if (sequence < 0) {
+            return false;
+        }
+        GateEvent.Type type;
+        switch (exitResult.getStatus()) {
+            case EXITED: type = GateEvent.Type.EXITED; break;
+            case UNKNOWN_VEHICLE: type = GateEvent.Type.UNKNOWN_VEHICLE; break;
+            default: type = GateEvent.Type.EXIT_ERROR;
+        }
+        Ticket ticket = exitResult.getTicket();
+        ParkingType parkingType = ticket == null || ticket.getParkingSpot() == null ? null : ticket.getParkingSpot().getParkingType();
+        fill(get(sequence), type, vehicleRegNumber, parkingType, ticket, timeMillis, start);
+        boolean published = publish(sequence);
+        PUBLISH_LATENCY.recordSince(start);
+        return published;
+    }
+
+    private static void fill(GateEvent event, GateEvent.Type type, String vehicleRegNumber, ParkingType parkingType,
+                             Ticket ticket, long timeMillis, long publishNanos) {
+        if (ticket == null) {
+            event.set(type, vehicleRegNumber, parkingType, 0, 0, 0, -1, -1, 0, timeMillis, publishNanos);
+            return;
+        }
+        ParkingSpot parkingSpot = ticket.getParkingSpot();
+        event.set(type, vehicleRegNumber, parkingType,
+                parkingSpot == null ? 0 : parkingSpot.getLotId(), parkingSpot == null ? 0 : parkingSpot.getId(),
+                ticket.getId(),
+                ticket.getInTime() == null ? -1 : ticket.getInTime().getTime(),
+                ticket.getOutTime() == null ? -1 : ticket.getOutTime().getTime(),
+                Math.round(ticket.getPrice() * FareCalculatorService.PRICE_SCALE), timeMillis, publishNanos);
+    }
+
+    //claims the next slot, or returns -1 when the ring stayed full for the offer timeout, is not started or is closed.
+    //A claimed slot must always be published, or the handlers stop at it
+    public long next() {
+        //before the start no handler gates the ring: the gates would wrap it and overwrite slots never handled
+        if (!running) {
+            DROPPED_EVENTS.increment();
+            return -1;
+        }
+        long deadline = 0;
+        while (true) {
+            long current = claimed.get();
+            long next = current + 1;
+            long wrapPoint = next - events.length;
+            if (wrapPoint > gatingSequence && wrapPoint > (gatingSequence = minimumHandlerSequence(current))) {
+                long now = System.nanoTime();
+                if (deadline == 0) {
+                    deadline = now + offerTimeoutNanos;
+                } else if (now - deadline >= 0) {
+                    DROPPED_EVENTS.increment();
+                    return -1;
+                }
+                LockSupport.parkNanos(1000);
+                continue;
+            }
+            if (producerType == ProducerType.SINGLE) {
+                claimed.lazySet(next);
+                return next;
+            }
+            if (claimed.compareAndSet(current, next)) {
+                return next;
+            }
+        }
+    }
+
+    public GateEvent get(long sequence) {
+        return events[(int) sequence & mask];
+    }
+
+    //false when the ring was closed meanwhile: the handlers may have stopped before the event
+    public boolean publish(long sequence) {
+        published.set((int) sequence & mask, sequence);
+        waitStrategy.signalAll();
+        //read after the event is published: if the ring is not closed yet, the handlers poll it before stopping
+        if (closed) {
+            DROPPED_EVENTS.increment();
+            return false;
+        }
+        return true;
+    }
+
+    private long minimumHandlerSequence(long claimedSequence) {
+        long minimum = claimedSequence;
+        for (HandlerThread handler : gatingHandlers) {
+            minimum = Math.min(minimum, handler.sequence.get());
+        }
+        return minimum;
+    }
+
+    //highest sequence from which every slot up to next is published, next - 1 when next itself is not
+    private long highestPublished(long next) {
+        long sequence = next;
+        while (published.get((int) sequence & mask) == sequence) {
+            sequence++;
+        }
+        return sequence - 1;
+    }
+
+    private final class HandlerThread implements Runnable {
+        private final String name;
+        private final GateEventHandler handler;
+        //last sequence handled; the slots up to it can be reused by the gates
+        private final AtomicLong sequence = new AtomicLong(-1);
+        private final Thread thread;
+
+        private HandlerThread(String name, GateEventHandler handler) {
+            this.name = name;
+            this.handler = handler;
+            this.thread = new Thread(this, "gate-events-" + name);
+            this.thread.setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            long next = 0;
+            int idleCount = 0;
+            try {
+                while (true) {
+                    //read before polling, so that the events published before close() are all handled
+                    boolean stopping = !running;
+                    long available = highestPublished(next);
+                    if (available >= next) {
+                        for (long s = next; s <= available; s++) {
+                            try {
+                                handler.onEvent(get(s), s, s == available);
+                            } catch (Exception e) {
+                                logger.error("Gate event handler " + name + " failed on event " + s, e);
+                            }
+                        }
+                        sequence.set(available);
+                        next = available + 1;
+                        idleCount = 0;
+                    } else if (stopping && next > claimed.get()) {
+                        //every slot claimed before the close is handled: a gate told its event was published
+                        //may have claimed a slot that was published after the one the handler stopped at
+                        break;
+                    } else {
+                        waitStrategy.idle(idleCount);
+                        idleCount = Math.min(idleCount + 1, Integer.MAX_VALUE - 1);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                handler.onShutdown();
+            }
+        }
+    }
+}
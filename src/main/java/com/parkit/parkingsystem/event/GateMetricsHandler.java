@@ -0,0 +1,28 @@
+package com.parkit.parkingsystem.event;
+
+import com.parkit.parkingsystem.metrics.Counter;
+import com.parkit.parkingsystem.metrics.LatencyHistogram;
+import com.parkit.parkingsystem.metrics.Metrics;
+
+//counts the gate events per type and the revenue of the exits, and records how long events wait in the ring
+public class GateMetricsHandler implements GateEventHandler {
+
+    private static final LatencyHistogram LAG = Metrics.histogram("gateEvents.lag");
+    private static final Counter REVENUE = Metrics.counter("gateEvents.revenue");
+    private static final Counter[] EVENTS = new Counter[GateEvent.Type.values().length];
+
+    static {
+        for (GateEvent.Type type : GateEvent.Type.values()) {
+            EVENTS[type.ordinal()] = Metrics.counter("gateEvents." + type);
+        }
+    }
+
+    @Override
+    public void onEvent(GateEvent event, long sequence, boolean endOfBatch) {
+        LAG.recordSince(event.getPublishNanos());
+        EVENTS[event.getType().ordinal()].increment();
+        if (event.getType() == GateEvent.Type.EXITED) {
+            REVENUE.add(event.getPrice());
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.parkit.parkingsystem.event;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+//the wait strategies, from the lowest latency and the most CPU to the least CPU and the highest latency
+public final class WaitStrategies {
+
+    private static final int SPIN_TRIES = 100;
+    private static final int YIELD_TRIES = 200;
+
+    private WaitStrategies() {
+    }
+
+    //BUSY_SPIN, YIELDING, SLEEPING or BLOCKING
+    public static WaitStrategy named(String name) {
+        switch (name.trim().toUpperCase(Locale.ROOT)) {
+            case "BUSY_SPIN": return busySpin();
+            case "YIELDING": return yielding();
+            case "SLEEPING": return sleeping(TimeUnit.MICROSECONDS.toNanos(100));
+            case "BLOCKING": return blocking();
+            default: throw new IllegalArgumentException("Unknown wait strategy: " + name);
+        }
+    }
+
+    //keeps a core busy per handler
+    public static WaitStrategy busySpin() {
+        return new WaitStrategy() {
+            @Override
+            public void idle(int idleCount) {
+            }
+
+            @Override
+            public void signalAll() {
+            }
+        };
+    }
+
+    public static WaitStrategy yielding() {
+        return new WaitStrategy() {
+            @Override
+            public void idle(int idleCount) {
+                if (idleCount >= SPIN_TRIES) {
+                    Thread.yield();
+                }
+            }
+
+            @Override
+            public void signalAll() {
+            }
+        };
+    }
+
+    //spins, yields, then parks for sleepNanos at a time; the gate never has to wake anyone
+    public static WaitStrategy sleeping(long sleepNanos) {
+        return new WaitStrategy() {
+            @Override
+            public void idle(int idleCount) throws InterruptedException {
+                if (idleCount >= SPIN_TRIES + YIELD_TRIES) {
+                    LockSupport.parkNanos(sleepNanos);
+                    if (Thread.interrupted()) {
+                        throw new InterruptedException();
+                    }
+                } else if (idleCount >= SPIN_TRIES) {
+                    Thread.yield();
+                }
+            }
+
+            @Override
+            public void signalAll() {
+            }
+        };
+    }
+
+    //waits on a condition; the gate only takes the lock when a handler is actually waiting
+    public static WaitStrategy blocking() {
+        return new BlockingWaitStrategy();
+    }
+
+    private static final class BlockingWaitStrategy implements WaitStrategy {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition published = lock.newCondition();
+        private final AtomicInteger waiters = new AtomicInteger();
+
+        @Override
+        public void idle(int idleCount) throws InterruptedException {
+            if (idleCount < SPIN_TRIES) {
+                return;
+            }
+            lock.lock();
+            try {
+                waiters.incrementAndGet();
+                //a signal sent between the handler's last poll and this wait is only lost for a millisecond
+                published.await(1, TimeUnit.MILLISECONDS);
+            } finally {
+                waiters.decrementAndGet();
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void signalAll() {
+            if (waiters.get() > 0) {
+                lock.lock();
+                try {
+                    published.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+    }
+}
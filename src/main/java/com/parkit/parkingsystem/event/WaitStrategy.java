@@ -0,0 +1,11 @@
+package com.parkit.parkingsystem.event;
+
+//how an event handler thread waits for the next event
+public interface WaitStrategy {
+
+    //called while no event is available, idleCount being the number of calls since the last event
+    void idle(int idleCount) throws InterruptedException;
+
+    //called by the gate after each publish
+    void signalAll();
+}
@@ -0,0 +1,375 @@
+package com.parkit.parkingsystem.journal;
+
+import com.parkit.parkingsystem.metrics.Counter;
+import com.parkit.parkingsystem.metrics.LatencyHistogram;
+import com.parkit.parkingsystem.metrics.Metrics;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+//append-only log of records in memory-mapped segment files of fixed size, each record framed as
+//[int length][int crc32][payload]; a zero length marks the end of the written part of a segment.
+//A snapshot file, framed the same way, stands for every segment before its sequence
+public class Journal implements Closeable {
+
+    private static final Logger logger = LogManager.getLogger("Journal");
+
+    private static final LatencyHistogram APPEND_LATENCY = Metrics.histogram("journal.append");
+    private static final LatencyHistogram FORCE_LATENCY = Metrics.histogram("journal.force");
+    private static final Counter APPENDED_RECORDS = Metrics.counter("journal.appendedRecords");
+
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_TEMP_SUFFIX = ".tmp";
+    private static final int HEADER_BYTES = 8;
+
+    public enum FsyncPolicy {
+        //every append is forced to disk before it returns
+        ALWAYS,
+        //appends survive a crash of the process at once, a crash of the machine after the next periodic force
+        INTERVAL,
+        //the OS writes the mapped pages back when it wants
+        NEVER
+    }
+
+    public interface RecordHandler {
+        void onRecord(ByteBuffer payload);
+    }
+
+    private final File directory;
+    private final int segmentBytes;
+    private final FsyncPolicy fsyncPolicy;
+    private final ScheduledExecutorService forcer;
+    private final CRC32 crc = new CRC32();
+
+    private long lastSegment;
+    private MappedByteBuffer segment;
+    private byte[] scratch = new byte[256];
+    private boolean closed;
+
+    public Journal(File directory, int segmentBytes, FsyncPolicy fsyncPolicy, long fsyncIntervalMillis) throws IOException {
+        if (segmentBytes <= HEADER_BYTES) {
+            throw new IllegalArgumentException("Segment size too small: " + segmentBytes);
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Unable to create journal directory " + directory);
+        }
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.fsyncPolicy = fsyncPolicy;
+        long[] segments = listSegments();
+        this.lastSegment = segments.length == 0 ? 0 : segments[segments.length - 1];
+        if (fsyncPolicy == FsyncPolicy.INTERVAL) {
+            forcer = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "journal-fsync");
+                thread.setDaemon(true);
+                return thread;
+            });
+            forcer.scheduleWithFixedDelay(this::forceQuietly, fsyncIntervalMillis, fsyncIntervalMillis, TimeUnit.MILLISECONDS);
+        } else {
+            forcer = null;
+        }
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    public FsyncPolicy getFsyncPolicy() {
+        return fsyncPolicy;
+    }
+
+    //hands every intact record to the handler, oldest first: those of the latest snapshot, then those of the segments
+    //it does not stand for; stops at the first torn or corrupt one
+    public synchronized int replay(RecordHandler handler) throws IOException {
+        int[] count = new int[1];
+        long[] snapshots = listSequences(SNAPSHOT_PREFIX);
+        long firstSegment = 0;
+        if (snapshots.length > 0) {
+            firstSegment = snapshots[snapshots.length - 1];
+            if (!replayFile(snapshotFile(firstSegment), handler, count)) {
+                return count[0];
+            }
+        }
+        for (long sequence : listSegments()) {
+            if (sequence >= firstSegment && !replayFile(segmentFile(sequence), handler, count)) {
+                return count[0];
+            }
+        }
+        return count[0];
+    }
+
+    //false when the file ends with a torn or corrupt record
+    private boolean replayFile(File file, RecordHandler handler, int[] count) throws IOException {
+        try (FileChannel readChannel = new RandomAccessFile(file, "r").getChannel()) {
+            MappedByteBuffer buffer = readChannel.map(FileChannel.MapMode.READ_ONLY, 0, readChannel.size());
+            while (buffer.remaining() >= HEADER_BYTES) {
+                int length = buffer.getInt();
+                int checksum = buffer.getInt();
+                if (length == 0) {
+                    break;
+                }
+                if (length < 0 || length > buffer.remaining()) {
+                    logger.warn("Torn record at " + (buffer.position() - HEADER_BYTES) + " of " + file + ", replay stops there");
+                    return false;
+                }
+                byte[] bytes = new byte[length];
+                buffer.get(bytes);
+                ByteBuffer payload = ByteBuffer.wrap(bytes);
+                if (checksum(payload) != checksum) {
+                    logger.warn("Corrupt record at " + (buffer.position() - length - HEADER_BYTES) + " of " + file + ", replay stops there");
+                    return false;
+                }
+                handler.onRecord(payload);
+                count[0]++;
+            }
+        }
+        return true;
+    }
+
+    public synchronized void append(ByteBuffer payload) throws IOException {
+        long start = System.nanoTime();
+        if (closed) {
+            throw new IOException("Journal " + directory + " is closed");
+        }
+        int length = payload.remaining();
+        if (length == 0 || length + HEADER_BYTES > segmentBytes) {
+            throw new IllegalArgumentException("Invalid journal record size: " + length);
+        }
+        //a zero length must stay behind the record, or be the end of the segment
+        if (segment == null || segment.remaining() < length + HEADER_BYTES) {
+            startSegment();
+        }
+        int checksum = checksum(payload);
+        int recordStart = segment.position();
+        segment.position(recordStart + HEADER_BYTES);
+        segment.put(payload);
+        segment.putInt(recordStart + 4, checksum);
+        //the length goes last: a crash before it leaves the record invisible, not half read
+        segment.putInt(recordStart, length);
+        APPENDED_RECORDS.increment();
+        if (fsyncPolicy == FsyncPolicy.ALWAYS) {
+            force(segment);
+        }
+        APPEND_LATENCY.recordSince(start);
+    }
+
+    //later appends go to a new segment; returns its sequence, to delete the older ones once a checkpoint is written
+    public synchronized long startSegment() throws IOException {
+        finishSegment();
+        lastSegment++;
+        File file = segmentFile(lastSegment);
+        //the mapping stays valid once the file is closed
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(segmentBytes);
+            segment = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        }
+        logger.debug("Started journal segment " + file);
+        return lastSegment;
+    }
+
+    //also deletes the snapshots standing for fewer segments
+    public synchronized void deleteSegmentsBefore(long sequence) {
+        for (long old : listSegments()) {
+            if (old < sequence && !segmentFile(old).delete()) {
+                logger.warn("Unable to delete journal segment " + segmentFile(old));
+            }
+        }
+        for (long old : listSequences(SNAPSHOT_PREFIX)) {
+            if (old < sequence && !snapshotFile(old).delete()) {
+                logger.warn("Unable to delete journal snapshot " + snapshotFile(old));
+            }
+        }
+    }
+
+    //a snapshot standing for every segment before the given one, once committed. It is written without holding the
+    //journal, so appends go on meanwhile
+    public Snapshot startSnapshot(long sequence) throws IOException {
+        return new Snapshot(sequence);
+    }
+
+    public synchronized int getSegmentCount() {
+        return listSegments().length;
+    }
+
+    public void force() {
+        MappedByteBuffer current;
+        synchronized (this) {
+            current = segment;
+        }
+        if (current != null) {
+            force(current);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (forcer != null) {
+            forcer.shutdownNow();
+        }
+        finishSegment();
+    }
+
+    private void finishSegment() {
+        if (segment != null && fsyncPolicy != FsyncPolicy.NEVER) {
+            force(segment);
+        }
+        segment = null;
+    }
+
+    private void forceQuietly() {
+        try {
+            force();
+        } catch (RuntimeException e) {
+            logger.error("Error forcing journal to disk", e);
+        }
+    }
+
+    private static void force(MappedByteBuffer buffer) {
+        long start = System.nanoTime();
+        buffer.force();
+        FORCE_LATENCY.recordSince(start);
+    }
+
+    private int checksum(ByteBuffer payload) {
+        crc.reset();
+        if (payload.hasArray()) {
+            crc.update(payload.array(), payload.arrayOffset() + payload.position(), payload.remaining());
+        } else {
+            if (scratch.length < payload.remaining()) {
+                scratch = new byte[payload.remaining()];
+            }
+            int length = payload.remaining();
+            payload.duplicate().get(scratch, 0, length);
+            crc.update(scratch, 0, length);
+        }
+        return (int) crc.getValue();
+    }
+
+    private File segmentFile(long sequence) {
+        return new File(directory, SEGMENT_PREFIX + String.format(Locale.ROOT, "%020d", sequence) + SEGMENT_SUFFIX);
+    }
+
+    private File snapshotFile(long sequence) {
+        return new File(directory, SNAPSHOT_PREFIX + String.format(Locale.ROOT, "%020d", sequence) + SEGMENT_SUFFIX);
+    }
+
+    private long[] listSegments() {
+        return listSequences(SEGMENT_PREFIX);
+    }
+
+    private long[] listSequences(String prefix) {
+        String[] names = directory.list((dir, name) -> name.startsWith(prefix) && name.endsWith(SEGMENT_SUFFIX));
+        List<Long> sequences = new ArrayList<>();
+        if (names != null) {
+            for (String name : names) {
+                try {
+                    sequences.add(Long.parseLong(name.substring(prefix.length(), name.length() - SEGMENT_SUFFIX.length())));
+                } catch (NumberFormatException e) {
+                    logger.warn("Ignoring unexpected file " + name + " in journal directory");
+                }
+            }
+        }
+        long[] sorted = new long[sequences.size()];
+        for (int i = 0; i < sorted.length; i++) {
+            sorted[i] = sequences.get(i);
+        }
+        Arrays.sort(sorted);
+        return sorted;
+    }
+
+    //written to a temporary file, which only takes the snapshot's name once complete and on disk
+    public final class Snapshot implements Closeable {
+        private final long sequence;
+        private final File tempFile;
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+        private final CRC32 snapshotCrc = new CRC32();
+        private boolean committed;
+
+        private Snapshot(long sequence) throws IOException {
+            this.sequence = sequence;
+            this.tempFile = new File(directory, SNAPSHOT_PREFIX + String.format(Locale.ROOT, "%020d", sequence) + SNAPSHOT_TEMP_SUFFIX);
+            this.channel = FileChannel.open(tempFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+        }
+
+        public void append(ByteBuffer payload) throws IOException {
+            int length = payload.remaining();
+            if (length == 0) {
+                throw new IllegalArgumentException("Invalid journal record size: " + length);
+            }
+            if (buffer.remaining() < length + HEADER_BYTES) {
+                flush();
+            }
+            snapshotCrc.reset();
+            byte[] bytes = new byte[length];
+            payload.duplicate().get(bytes);
+            snapshotCrc.update(bytes, 0, length);
+            if (length + HEADER_BYTES > buffer.capacity()) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+                header.putInt(length).putInt((int) snapshotCrc.getValue()).flip();
+                write(header);
+                write(ByteBuffer.wrap(bytes));
+                return;
+            }
+            buffer.putInt(length);
+            buffer.putInt((int) snapshotCrc.getValue());
+            buffer.put(bytes);
+        }
+
+        //forces the snapshot to disk and gives it its name; the segments it stands for can be deleted after that
+        public void commit() throws IOException {
+            flush();
+            channel.force(true);
+            channel.close();
+            Files.move(tempFile.toPath(), snapshotFile(sequence).toPath(), StandardCopyOption.ATOMIC_MOVE);
+            committed = true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!committed) {
+                channel.close();
+                if (!tempFile.delete()) {
+                    logger.warn("Unable to delete unfinished journal snapshot " + tempFile);
+                }
+            }
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            write(buffer);
+            buffer.clear();
+        }
+
+        private void write(ByteBuffer source) throws IOException {
+            while (source.hasRemaining()) {
+                channel.write(source);
+            }
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.parkit.parkingsystem.journal;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotStore;
+import com.parkit.parkingsystem.dao.SpotInventory;
+import com.parkit.parkingsystem.dao.memory.InMemoryParkingSpotStore;
+import com.parkit.parkingsystem.model.ParkingSpot;
+
+//journals every availability change of the in-memory spots before making it
+public class JournaledParkingSpotStore implements ParkingSpotStore {
+
+    private final ParkingJournal parkingJournal;
+    private final InMemoryParkingSpotStore delegate;
+
+    JournaledParkingSpotStore(ParkingJournal parkingJournal, InMemoryParkingSpotStore delegate) {
+        this.parkingJournal = parkingJournal;
+        this.delegate = delegate;
+    }
+
+    @Override
+    public int getNextAvailableSlot(ParkingType parkingType) {
+        return delegate.getNextAvailableSlot(parkingType);
+    }
+
+    @Override
+    public int claimNextSlot(ParkingType parkingType) {
+        synchronized (parkingJournal.getWriteLock()) {
+            //every write goes through this lock, so the spot found is still free when it is claimed
+            int parkingNumber = delegate.getNextAvailableSlot(parkingType);
+            if (parkingNumber <= 0) {
+                return parkingNumber;
+            }
+            if (!parkingJournal.append(ParkingJournal.spotUpdated(parkingNumber, false))) {
+                return -1;
+            }
+            delegate.getSpotInventory().setAvailable(parkingNumber, false);
+            return parkingNumber;
+        }
+    }
+
+    @Override
+    public boolean updateParking(ParkingSpot parkingSpot) {
+        SpotInventory spotInventory = delegate.getSpotInventory();
+        synchronized (parkingJournal.getWriteLock()) {
+            if (spotInventory.getParkingType(parkingSpot.getId()) == null) {
+                return delegate.updateParking(parkingSpot);
+            }
+            if (!parkingJournal.append(ParkingJournal.spotUpdated(parkingSpot.getId(), parkingSpot.isAvailable()))) {
+                return false;
+            }
+            return delegate.updateParking(parkingSpot);
+        }
+    }
+}
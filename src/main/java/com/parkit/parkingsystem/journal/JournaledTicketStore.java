@@ -0,0 +1,84 @@
+package com.parkit.parkingsystem.journal;
+
+import com.parkit.parkingsystem.dao.TicketStore;
+import com.parkit.parkingsystem.dao.memory.InMemoryTicketStore;
+import com.parkit.parkingsystem.model.Ticket;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+//journals every ticket write of the in-memory store before making it; reads go straight to the store
+public class JournaledTicketStore implements TicketStore {
+
+    private static final Logger logger = LogManager.getLogger("JournaledTicketStore");
+
+    private final ParkingJournal parkingJournal;
+    private final InMemoryTicketStore delegate;
+
+    JournaledTicketStore(ParkingJournal parkingJournal, InMemoryTicketStore delegate) {
+        this.parkingJournal = parkingJournal;
+        this.delegate = delegate;
+    }
+
+    @Override
+    public boolean saveTicket(Ticket ticket) {
+        if (ticket.getVehicleRegNumber() == null || ticket.getParkingSpot() == null || ticket.getInTime() == null) {
+            logger.error("Incomplete ticket for vehicle " + ticket.getVehicleRegNumber());
+            return false;
+        }
+        synchronized (parkingJournal.getWriteLock()) {
+            //the ID is chosen here so that the journal and the store agree on it
+            ticket.setId(delegate.getTicketCount() + 1);
+            if (!parkingJournal.append(ParkingJournal.ticketSaved(ticket))) {
+                ticket.setId(0);
+                return false;
+            }
+            delegate.restoreTicket(ticket);
+            return true;
+        }
+    }
+
+    @Override
+    public Ticket getTicket(String vehicleRegNumber) {
+        return delegate.getTicket(vehicleRegNumber);
+    }
+
+    @Override
+    public List<Ticket> getTickets(String vehicleRegNumber, boolean includeHistory) {
+        return delegate.getTickets(vehicleRegNumber, includeHistory);
+    }
+
+    @Override
+    public boolean updateTicket(Ticket ticket) {
+        synchronized (parkingJournal.getWriteLock()) {
+            if (!delegate.containsTicket(ticket.getId()) || ticket.getOutTime() == null) {
+                return delegate.updateTicket(ticket);
+            }
+            return parkingJournal.append(ParkingJournal.ticketUpdated(ticket)) && delegate.updateTicket(ticket);
+        }
+    }
+
+    @Override
+    public Map<String, Ticket> getOpenTickets(Collection<String> vehicleRegNumbers) {
+        return delegate.getOpenTickets(vehicleRegNumbers);
+    }
+
+    @Override
+    public boolean closeTickets(List<Ticket> tickets) {
+        if (tickets.isEmpty()) {
+            return true;
+        }
+        synchronized (parkingJournal.getWriteLock()) {
+            for (Ticket ticket : tickets) {
+                if (!delegate.containsTicket(ticket.getId()) || ticket.getOutTime() == null) {
+                    //refused by the store as a whole, nothing to journal
+                    return delegate.closeTickets(tickets);
+                }
+            }
+            return parkingJournal.append(ParkingJournal.ticketsClosed(tickets)) && delegate.closeTickets(tickets);
+        }
+    }
+}
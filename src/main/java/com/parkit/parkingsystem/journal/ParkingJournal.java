@@ -0,0 +1,270 @@
+package com.parkit.parkingsystem.journal;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotStore;
+import com.parkit.parkingsystem.dao.SpotInventory;
+import com.parkit.parkingsystem.dao.TicketStore;
+import com.parkit.parkingsystem.dao.memory.InMemoryParkingSpotStore;
+import com.parkit.parkingsystem.dao.memory.InMemoryTicketStore;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+//makes the in-memory engine durable: every change is appended to the journal before it is applied,
+//and the journal is replayed into the empty stores at startup
+public class ParkingJournal implements Closeable {
+
+    private static final Logger logger = LogManager.getLogger("ParkingJournal");
+
+    private static final byte TICKET_SAVED = 1;
+    private static final byte TICKET_UPDATED = 2;
+    private static final byte TICKETS_CLOSED = 3;
+    private static final byte SPOT_UPDATED = 4;
+
+    private static final long OPEN = -1;
+
+    private final Journal journal;
+    private final InMemoryParkingSpotStore parkingSpotStore;
+    private final InMemoryTicketStore ticketStore;
+    //held from the append to the apply, so that the journal order is the order of the changes
+    private final Object writeLock = new Object();
+    //one checkpoint at a time
+    private final Object checkpointLock = new Object();
+    private final JournaledParkingSpotStore journaledParkingSpotStore;
+    private final JournaledTicketStore journaledTicketStore;
+    private ScheduledExecutorService scheduler;
+
+    public ParkingJournal(Journal journal, InMemoryParkingSpotStore parkingSpotStore, InMemoryTicketStore ticketStore) {
+        this.journal = journal;
+        this.parkingSpotStore = parkingSpotStore;
+        this.ticketStore = ticketStore;
+        this.journaledParkingSpotStore = new JournaledParkingSpotStore(this, parkingSpotStore);
+        this.journaledTicketStore = new JournaledTicketStore(this, ticketStore);
+    }
+
+    //the stores to hand to ParkingService; the wrapped ones must not be written directly any more
+    public ParkingSpotStore getParkingSpotStore() {
+        return journaledParkingSpotStore;
+    }
+
+    public TicketStore getTicketStore() {
+        return journaledTicketStore;
+    }
+
+    public Journal getJournal() {
+        return journal;
+    }
+
+    //replays the journal into the empty stores, then checkpoints so that the next start replays a snapshot
+    public int recover() throws IOException {
+        int records;
+        synchronized (writeLock) {
+            records = journal.replay(this::apply);
+        }
+        checkpoint();
+        logger.info("Recovered " + records + " journal records: " + ticketStore.getTicketCount() + " tickets");
+        return records;
+    }
+
+    //writes the state of the stores to a snapshot and deletes the segments it replaces. Only the switch to a new
+    //segment holds the write lock: the gates go on while the snapshot is written
+    public void checkpoint() throws IOException {
+        synchronized (checkpointLock) {
+            long segment;
+            synchronized (writeLock) {
+                segment = journal.startSegment();
+            }
+            //fuzzy: a change made while the snapshot is written may or may not be in it, but its record is in the new
+            //segment, replayed after the snapshot, and every record sets a state rather than changing it
+            try (Journal.Snapshot snapshot = journal.startSnapshot(segment)) {
+                SpotInventory spotInventory = parkingSpotStore.getSpotInventory();
+                for (int number : parkingSpotStore.getSpotNumbers()) {
+                    snapshot.append(spotUpdated(number, spotInventory.isAvailable(number)));
+                }
+                List<IOException> failures = new ArrayList<>(1);
+                ticketStore.forEachTicket(ticket -> {
+                    if (failures.isEmpty()) {
+                        try {
+                            snapshot.append(ticketSaved(ticket));
+                        } catch (IOException e) {
+                            failures.add(e);
+                        }
+                    }
+                });
+                if (!failures.isEmpty()) {
+                    throw failures.get(0);
+                }
+                //the snapshot must be on disk before the records it replaces are gone
+                snapshot.commit();
+            }
+            journal.deleteSegmentsBefore(segment);
+        }
+    }
+
+    public synchronized void start(long checkpointIntervalMillis) {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "journal-checkpoint");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                checkpoint();
+            } catch (IOException | RuntimeException e) {
+                logger.error("Error writing journal checkpoint", e);
+            }
+        }, checkpointIntervalMillis, checkpointIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            try {
+                scheduler.awaitTermination(30, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            scheduler = null;
+        }
+        synchronized (writeLock) {
+            journal.close();
+        }
+    }
+
+    Object getWriteLock() {
+        return writeLock;
+    }
+
+    //false when the change could not be made durable: it must then not be applied
+    boolean append(ByteBuffer record) {
+        try {
+            journal.append(record);
+            return true;
+        } catch (IOException | RuntimeException e) {
+            logger.error("Error appending to journal " + journal.getDirectory(), e);
+            return false;
+        }
+    }
+
+    static ByteBuffer ticketSaved(Ticket ticket) {
+        byte[] plate = ticket.getVehicleRegNumber().getBytes(StandardCharsets.UTF_8);
+        ByteBuffer record = ByteBuffer.allocate(1 + 4 + 4 + 1 + 8 + 8 + 8 + 2 + plate.length);
+        record.put(TICKET_SAVED);
+        record.putInt(ticket.getId());
+        record.putInt(ticket.getParkingSpot().getId());
+        record.put((byte) ticket.getParkingSpot().getParkingType().ordinal());
+        record.putLong(ticket.getInTime().getTime());
+        record.putDouble(ticket.getPrice());
+        record.putLong(ticket.getOutTime() == null ? OPEN : ticket.getOutTime().getTime());
+        record.putShort((short) plate.length);
+        record.put(plate);
+        record.flip();
+        return record;
+    }
+
+    static ByteBuffer ticketUpdated(Ticket ticket) {
+        ByteBuffer record = ByteBuffer.allocate(1 + 4 + 8 + 8);
+        record.put(TICKET_UPDATED);
+        record.putInt(ticket.getId());
+        record.putDouble(ticket.getPrice());
+        record.putLong(ticket.getOutTime().getTime());
+        record.flip();
+        return record;
+    }
+
+    static ByteBuffer ticketsClosed(List<Ticket> tickets) {
+        ByteBuffer record = ByteBuffer.allocate(1 + 4 + tickets.size() * (4 + 8 + 8 + 4));
+        record.put(TICKETS_CLOSED);
+        record.putInt(tickets.size());
+        for (Ticket ticket : tickets) {
+            record.putInt(ticket.getId());
+            record.putDouble(ticket.getPrice());
+            record.putLong(ticket.getOutTime().getTime());
+            record.putInt(ticket.getParkingSpot().getId());
+        }
+        record.flip();
+        return record;
+    }
+
+    static ByteBuffer spotUpdated(int parkingNumber, boolean available) {
+        ByteBuffer record = ByteBuffer.allocate(1 + 4 + 1);
+        record.put(SPOT_UPDATED);
+        record.putInt(parkingNumber);
+        record.put((byte) (available ? 1 : 0));
+        record.flip();
+        return record;
+    }
+
+    //every record sets a state rather than changing it, so replaying a record twice is harmless
+    private void apply(ByteBuffer record) {
+        byte type = record.get();
+        switch (type) {
+            case TICKET_SAVED: {
+                Ticket ticket = new Ticket();
+                ticket.setId(record.getInt());
+                int parkingNumber = record.getInt();
+                ParkingType parkingType = ParkingType.values()[record.get()];
+                ticket.setParkingSpot(new ParkingSpot(parkingNumber, parkingType, false));
+                ticket.setInTime(new Date(record.getLong()));
+                ticket.setPrice(record.getDouble());
+                long outTime = record.getLong();
+                ticket.setOutTime(outTime == OPEN ? null : new Date(outTime));
+                byte[] plate = new byte[record.getShort()];
+                record.get(plate);
+                ticket.setVehicleRegNumber(new String(plate, StandardCharsets.UTF_8));
+                ticketStore.restoreTicket(ticket);
+                break;
+            }
+            case TICKET_UPDATED: {
+                ticketStore.updateTicket(closedTicket(record.getInt(), record.getDouble(), record.getLong(), 0));
+                break;
+            }
+            case TICKETS_CLOSED: {
+                int count = record.getInt();
+                List<Ticket> tickets = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    tickets.add(closedTicket(record.getInt(), record.getDouble(), record.getLong(), record.getInt()));
+                }
+                if (!ticketStore.closeTickets(tickets)) {
+                    logger.warn("Journal closes " + count + " tickets that are not all in the store");
+                }
+                break;
+            }
+            case SPOT_UPDATED: {
+                parkingSpotStore.getSpotInventory().setAvailable(record.getInt(), record.get() == 1);
+                break;
+            }
+            default:
+                throw new IllegalStateException("Unknown journal record type " + type);
+        }
+    }
+
+    private ParkingSpot spot(int parkingNumber) {
+        return new ParkingSpot(parkingNumber, parkingSpotStore.getSpotInventory().getParkingType(parkingNumber), false);
+    }
+
+    private Ticket closedTicket(int id, double price, long outTime, int parkingNumber) {
+        Ticket ticket = new Ticket();
+        ticket.setId(id);
+        ticket.setPrice(price);
+        ticket.setOutTime(new Date(outTime));
+        ticket.setParkingSpot(spot(parkingNumber));
+        return ticket;
+    }
+}
@@ -0,0 +1,70 @@
+package com.parkit.parkingsystem.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+//a consistent-enough copy of a histogram: recording goes on while it is taken
+public class HistogramSnapshot {
+
+    private final String name;
+    private final long[] buckets;
+    private final long count;
+    private final long sumNanos;
+    private final long maxNanos;
+
+    HistogramSnapshot(String name, long[] buckets, long count, long sumNanos, long maxNanos) {
+        this.name = name;
+        this.buckets = buckets;
+        this.count = count;
+        this.sumNanos = sumNanos;
+        this.maxNanos = maxNanos;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getMaxNanos() {
+        return maxNanos;
+    }
+
+    public double getMeanNanos() {
+        return count == 0 ? 0 : (double) sumNanos / count;
+    }
+
+    public long getPercentileNanos(double percentile) {
+        long total = 0;
+        for (long bucket : buckets) {
+            total += bucket;
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+        long seen = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            seen += buckets[i];
+            if (seen >= rank) {
+                return Math.min(LatencyHistogram.bucketUpperBound(i), maxNanos);
+            }
+        }
+        return maxNanos;
+    }
+
+    @Override
+    public String toString() {
+        return name + " count=" + count
+                + " mean=" + micros(Math.round(getMeanNanos()))
+                + " p50=" + micros(getPercentileNanos(50))
+                + " p99=" + micros(getPercentileNanos(99))
+                + " p999=" + micros(getPercentileNanos(99.9))
+                + " max=" + micros(maxNanos) + " us";
+    }
+
+    private static String micros(long nanos) {
+        return String.valueOf(TimeUnit.NANOSECONDS.toMicros(nanos));
+    }
+}
@@ -0,0 +1,91 @@
+package com.parkit.parkingsystem.metrics;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+//process-wide registry; instruments are looked up once and kept in static fields by the hot paths
+public class Metrics {
+
+    private static final Logger logger = LogManager.getLogger("Metrics");
+
+    private static final ConcurrentHashMap<String, Counter> counters = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+
+    private static ScheduledExecutorService reporter;
+
+    private Metrics() {
+    }
+
+    public static Counter counter(String name) {
+        return counters.computeIfAbsent(name, Counter::new);
+    }
+
+    public static LatencyHistogram histogram(String name) {
+        return histograms.computeIfAbsent(name, LatencyHistogram::new);
+    }
+
+    public static Map<String, Long> getCounters() {
+        Map<String, Long> values = new TreeMap<>();
+        for (Counter counter : counters.values()) {
+            values.put(counter.getName(), counter.getCount());
+        }
+        return values;
+    }
+
+    public static Map<String, HistogramSnapshot> getHistograms() {
+        Map<String, HistogramSnapshot> snapshots = new TreeMap<>();
+        for (LatencyHistogram histogram : histograms.values()) {
+            snapshots.put(histogram.getName(), histogram.snapshot());
+        }
+        return snapshots;
+    }
+
+    public static String dump() {
+        StringBuilder sb = new StringBuilder("Metrics snapshot");
+        for (Map.Entry<String, Long> counter : getCounters().entrySet()) {
+            sb.append(System.lineSeparator()).append(counter.getKey()).append(" = ").append(counter.getValue());
+        }
+        for (HistogramSnapshot snapshot : getHistograms().values()) {
+            if (snapshot.getCount() > 0) {
+                sb.append(System.lineSeparator()).append(snapshot);
+            }
+        }
+        return sb.toString();
+    }
+
+    public static synchronized void startReporter(long periodSeconds) {
+        if (reporter != null) {
+            return;
+        }
+        reporter = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "metrics-reporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        reporter.scheduleAtFixedRate(() -> logger.info(dump()), periodSeconds, periodSeconds, TimeUnit.SECONDS);
+    }
+
+    public static synchronized void stopReporter() {
+        if (reporter != null) {
+            reporter.shutdownNow();
+            reporter = null;
+            logger.info(dump());
+        }
+    }
+
+    public static void reset() {
+        for (Counter counter : counters.values()) {
+            counter.reset();
+        }
+        for (LatencyHistogram histogram : histograms.values()) {
+            histogram.reset();
+        }
+    }
+}
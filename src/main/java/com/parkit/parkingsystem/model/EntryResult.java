@@ -0,0 +1,32 @@
+package com.parkit.parkingsystem.model;
+
+public class EntryResult {
+
+    public enum Status {
+        PARKED,
+        LOT_FULL,
+        //the vehicle has an open ticket already, which is the one returned
+        ALREADY_PARKED,
+        ERROR
+    }
+
+    private final Status status;
+    private final Ticket ticket;
+
+    public EntryResult(Status status, Ticket ticket) {
+        this.status = status;
+        this.ticket = ticket;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public Ticket getTicket() {
+        return ticket;
+    }
+
+    public boolean isParked() {
+        return status == Status.PARKED;
+    }
+}
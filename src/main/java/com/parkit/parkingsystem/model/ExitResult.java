@@ -0,0 +1,36 @@
+package com.parkit.parkingsystem.model;
+
+public class ExitResult {
+
+    public enum Status {
+        EXITED,
+        UNKNOWN_VEHICLE,
+        ERROR
+    }
+
+    private final Status status;
+    private final String vehicleRegNumber;
+    private final Ticket ticket;
+
+    public ExitResult(Status status, String vehicleRegNumber, Ticket ticket) {
+        this.status = status;
+        this.vehicleRegNumber = vehicleRegNumber;
+        this.ticket = ticket;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public String getVehicleRegNumber() {
+        return vehicleRegNumber;
+    }
+
+    public Ticket getTicket() {
+        return ticket;
+    }
+
+    public boolean isExited() {
+        return status == Status.EXITED;
+    }
+}
@@ -3,14 +3,24 @@ package com.parkit.parkingsystem.model;
 import com.parkit.parkingsystem.constants.ParkingType;
 
 public class ParkingSpot {
+
+    //lot of a single-database deployment; spot numbers are only unique within a lot
+    public static final int DEFAULT_LOT_ID = 1;
+
     private int number;
     private ParkingType parkingType;
     private boolean isAvailable;
+    private int lotId;
 
     public ParkingSpot(int number, ParkingType parkingType, boolean isAvailable) {
+        this(number, parkingType, isAvailable, DEFAULT_LOT_ID);
+    }
+
+    public ParkingSpot(int number, ParkingType parkingType, boolean isAvailable, int lotId) {
         this.number = number;
         this.parkingType = parkingType;
         this.isAvailable = isAvailable;
+        this.lotId = lotId;
     }
 
     public int getId() {
@@ -29,6 +39,14 @@ public class ParkingSpot {
         this.parkingType = parkingType;
     }
 
+    public int getLotId() {
+        return lotId;
+    }
+
+    public void setLotId(int lotId) {
+        this.lotId = lotId;
+    }
+
     public boolean isAvailable() {
         return isAvailable;
     }
@@ -42,11 +60,11 @@ public class ParkingSpot {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         ParkingSpot that = (ParkingSpot) o;
-        return number == that.number;
+        return number == that.number && lotId == that.lotId;
     }
 
     @Override
     public int hashCode() {
-        return number;
+        return 31 * lotId + number;
     }
 }
@@ -0,0 +1,353 @@
+package com.parkit.parkingsystem.report;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.SpotInventory;
+import com.parkit.parkingsystem.service.FareCalculatorService;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+
+//tickets kept for dashboards as off-heap columns, one row per ticket: in and out times in epoch seconds, the price in
+//FareCalculatorService.PRICE_SCALE units, the spot number, the parking type and the plate as a code of an on-heap
+//dictionary, about 33 bytes per ticket and nothing for the GC to trace. Rows are read by index and scanned with
+//primitive predicates, no Ticket is ever built. One thread writes at a time; readers see the rows appended before
+//they read size(), a ticket closed during a scan may show its price before its out time
+public class ColumnarTicketStore {
+
+    private static final Logger logger = LogManager.getLogger("ColumnarTicketStore");
+
+    private static final long OPEN = -1;
+    private static final int NO_ROW = -1;
+
+    private static final String[] COLUMN_NAMES = {"in", "out", "price", "spot", "type", "plate"};
+    private static final int[] COLUMN_WIDTHS = {8, 8, 8, 4, 1, 4};
+    private static final int IN = 0;
+    private static final int OUT = 1;
+    private static final int PRICE = 2;
+    private static final int SPOT = 3;
+    private static final int TYPE = 4;
+    private static final int PLATE = 5;
+
+    private static final ParkingType[] PARKING_TYPES = ParkingType.values();
+
+    //null for direct buffers, else the directory of one memory-mapped file per column
+    private final File directory;
+    private volatile ByteBuffer[] columns;
+    private int capacity;
+    private volatile int size;
+
+    private final Map<String, Integer> plateCodes = new HashMap<>();
+    private volatile String[] plates = new String[64];
+    //open row of each plate code, or NO_ROW
+    private int[] openRows = new int[64];
+
+    private ColumnarTicketStore(File directory, int capacity) {
+        this.directory = directory;
+        this.capacity = Math.max(1, capacity);
+        this.columns = allocate(new ByteBuffer[COLUMN_NAMES.length], this.capacity);
+        Arrays.fill(openRows, NO_ROW);
+    }
+
+    //columns in direct buffers, copied to buffers twice as large when full
+    public static ColumnarTicketStore allocateDirect(int initialCapacity) {
+        return new ColumnarTicketStore(null, initialCapacity);
+    }
+
+    //columns in memory-mapped files of the directory, which the OS may page out; the files are scratch space, their
+    //content is not reloaded by a new store. A full store maps its files again twice as large, without copying
+    public static ColumnarTicketStore map(File directory, int initialCapacity) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Unable to create column directory " + directory);
+        }
+        try {
+            return new ColumnarTicketStore(directory, initialCapacity);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    //streams the tickets entered in [fromMillis, toMillis) from ticket_history then ticket; returns the number of
+    //rows appended, or -1 on a DB error
+    public int load(DataBaseConfig dataBaseConfig, long fromMillis, long toMillis) {
+        Connection con = null;
+        try {
+            SpotInventory spotInventory = SpotInventory.of(dataBaseConfig);
+            con = dataBaseConfig.getConnection();
+            int loaded = load(dataBaseConfig, con, DBConstants.GET_COLUMNAR_HISTORY_TICKETS, fromMillis, toMillis, spotInventory);
+            return loaded + load(dataBaseConfig, con, DBConstants.GET_COLUMNAR_TICKETS, fromMillis, toMillis, spotInventory);
+        } catch (ClassNotFoundException | SQLException e) {
+            logger.error("Error loading tickets into columns", e);
+            return -1;
+        } finally {
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
+    private int load(DataBaseConfig dataBaseConfig, Connection con, String sql, long fromMillis, long toMillis,
+                     SpotInventory spotInventory) throws SQLException {
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+        int loaded = 0;
+        try {
+            ps = con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(dataBaseConfig.getStreamingFetchSize());
+            ps.setTimestamp(1, new Timestamp(fromMillis));
+            ps.setTimestamp(2, new Timestamp(toMillis));
+            rs = ps.executeQuery();
+            while (rs.next()) {
+                int spotNumber = rs.getInt(4);
+                ParkingType parkingType = spotInventory.getParkingType(spotNumber);
+                if (parkingType == null) {
+                    continue;
+                }
+                Timestamp outTime = rs.getTimestamp(2);
+                append(spotNumber, parkingType, rs.getString(5), rs.getTimestamp(1).getTime(),
+                        outTime == null ? OPEN : outTime.getTime(), Math.round(rs.getDouble(3) * FareCalculatorService.PRICE_SCALE));
+                loaded++;
+            }
+        } finally {
+            dataBaseConfig.closeResultSet(rs);
+            dataBaseConfig.closePreparedStatement(ps);
+        }
+        return loaded;
+    }
+
+    //outMillis is negative for a ticket still open; returns the row of the ticket
+    public synchronized int append(int spotNumber, ParkingType parkingType, String vehicleRegNumber,
+                                   long inMillis, long outMillis, long price) {
+        int row = size;
+        if (row == capacity) {
+            grow();
+        }
+        int plateCode = encode(vehicleRegNumber);
+        ByteBuffer[] current = columns;
+        current[IN].putLong(row << 3, Math.floorDiv(inMillis, 1000));
+        current[OUT].putLong(row << 3, outMillis < 0 ? OPEN : Math.floorDiv(outMillis, 1000));
+        current[PRICE].putLong(row << 3, price);
+        current[SPOT].putInt(row << 2, spotNumber);
+        current[TYPE].put(row, (byte) parkingType.ordinal());
+        current[PLATE].putInt(row << 2, plateCode);
+        if (outMillis < 0) {
+            openRows[plateCode] = row;
+        }
+        size = row + 1;
+        return row;
+    }
+
+    //closes the open ticket of the vehicle; false when it has none
+    public synchronized boolean close(String vehicleRegNumber, long outMillis, long price) {
+        Integer plateCode = plateCodes.get(vehicleRegNumber);
+        if (plateCode == null || openRows[plateCode] == NO_ROW) {
+            return false;
+        }
+        int row = openRows[plateCode];
+        ByteBuffer[] current = columns;
+        current[PRICE].putLong(row << 3, price);
+        current[OUT].putLong(row << 3, Math.floorDiv(outMillis, 1000));
+        openRows[plateCode] = NO_ROW;
+        return true;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long getInSeconds(int row) {
+        return columns[IN].getLong(row << 3);
+    }
+
+    //-1 while the ticket is open
+    public long getOutSeconds(int row) {
+        return columns[OUT].getLong(row << 3);
+    }
+
+    public long getPrice(int row) {
+        return columns[PRICE].getLong(row << 3);
+    }
+
+    public int getSpotNumber(int row) {
+        return columns[SPOT].getInt(row << 2);
+    }
+
+    public ParkingType getParkingType(int row) {
+        return PARKING_TYPES[columns[TYPE].get(row)];
+    }
+
+    public int getPlateCode(int row) {
+        return columns[PLATE].getInt(row << 2);
+    }
+
+    public String getVehicleRegNumber(int row) {
+        return plates[getPlateCode(row)];
+    }
+
+    //-1 for a plate that has no row
+    public synchronized int plateCodeOf(String vehicleRegNumber) {
+        Integer plateCode = plateCodes.get(vehicleRegNumber);
+        return plateCode == null ? -1 : plateCode;
+    }
+
+    public void scan(IntPredicate filter, IntConsumer visitor) {
+        int rows = size;
+        for (int row = 0; row < rows; row++) {
+            if (filter.test(row)) {
+                visitor.accept(row);
+            }
+        }
+    }
+
+    public int count(IntPredicate filter) {
+        int rows = size;
+        int count = 0;
+        for (int row = 0; row < rows; row++) {
+            if (filter.test(row)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public long sumPrice(IntPredicate filter) {
+        int rows = size;
+        ByteBuffer prices = columns[PRICE];
+        long sum = 0;
+        for (int row = 0; row < rows; row++) {
+            if (filter.test(row)) {
+                sum += prices.getLong(row << 3);
+            }
+        }
+        return sum;
+    }
+
+    //revenue of the tickets closed in [fromMillis, toMillis), indexed by ParkingType ordinal
+    public long[] revenueByType(long fromMillis, long toMillis) {
+        long fromSeconds = Math.floorDiv(fromMillis, 1000);
+        long toSeconds = Math.floorDiv(toMillis, 1000);
+        int rows = size;
+        ByteBuffer[] current = columns;
+        long[] revenue = new long[PARKING_TYPES.length];
+        for (int row = 0; row < rows; row++) {
+            long outSeconds = current[OUT].getLong(row << 3);
+            if (outSeconds >= fromSeconds && outSeconds < toSeconds) {
+                revenue[current[TYPE].get(row)] += current[PRICE].getLong(row << 3);
+            }
+        }
+        return revenue;
+    }
+
+    //tickets open right now, indexed by ParkingType ordinal
+    public int[] openByType() {
+        int rows = size;
+        ByteBuffer[] current = columns;
+        int[] open = new int[PARKING_TYPES.length];
+        for (int row = 0; row < rows; row++) {
+            if (current[OUT].getLong(row << 3) == OPEN) {
+                open[current[TYPE].get(row)]++;
+            }
+        }
+        return open;
+    }
+
+    public IntPredicate closedBetween(long fromMillis, long toMillis) {
+        long fromSeconds = Math.floorDiv(fromMillis, 1000);
+        long toSeconds = Math.floorDiv(toMillis, 1000);
+        return row -> {
+            long outSeconds = getOutSeconds(row);
+            return outSeconds >= fromSeconds && outSeconds < toSeconds;
+        };
+    }
+
+    public IntPredicate enteredBetween(long fromMillis, long toMillis) {
+        long fromSeconds = Math.floorDiv(fromMillis, 1000);
+        long toSeconds = Math.floorDiv(toMillis, 1000);
+        return row -> {
+            long inSeconds = getInSeconds(row);
+            return inSeconds >= fromSeconds && inSeconds < toSeconds;
+        };
+    }
+
+    public IntPredicate ofType(ParkingType parkingType) {
+        byte ordinal = (byte) parkingType.ordinal();
+        return row -> columns[TYPE].get(row) == ordinal;
+    }
+
+    //compares plate codes, so the plate is looked up once and not per row
+    public IntPredicate ofVehicle(String vehicleRegNumber) {
+        int plateCode = plateCodeOf(vehicleRegNumber);
+        return row -> plateCode >= 0 && getPlateCode(row) == plateCode;
+    }
+
+    private int encode(String vehicleRegNumber) {
+        Integer plateCode = plateCodes.get(vehicleRegNumber);
+        if (plateCode != null) {
+            return plateCode;
+        }
+        int code = plateCodes.size();
+        String[] current = plates;
+        if (code == current.length) {
+            current = Arrays.copyOf(current, code * 2);
+            int previousLength = openRows.length;
+            openRows = Arrays.copyOf(openRows, code * 2);
+            Arrays.fill(openRows, previousLength, openRows.length, NO_ROW);
+        }
+        current[code] = vehicleRegNumber;
+        plates = current;
+        plateCodes.put(vehicleRegNumber, code);
+        return code;
+    }
+
+    private void grow() {
+        int newCapacity = capacity * 2;
+        if (newCapacity < 0) {
+            throw new IllegalStateException("Column store is full: " + capacity + " rows");
+        }
+        columns = allocate(columns, newCapacity);
+        capacity = newCapacity;
+    }
+
+    //new column buffers holding the rows of the previous ones
+    private ByteBuffer[] allocate(ByteBuffer[] previous, int rows) {
+        ByteBuffer[] allocated = new ByteBuffer[COLUMN_NAMES.length];
+        for (int column = 0; column < allocated.length; column++) {
+            long bytes = (long) rows * COLUMN_WIDTHS[column];
+            if (bytes > Integer.MAX_VALUE) {
+                throw new IllegalStateException("Column store is full: " + capacity + " rows");
+            }
+            if (directory == null) {
+                allocated[column] = ByteBuffer.allocateDirect((int) bytes);
+                if (previous[column] != null) {
+                    ByteBuffer rowsSoFar = previous[column].duplicate();
+                    rowsSoFar.clear();
+                    allocated[column].put(rowsSoFar);
+                    allocated[column].clear();
+                }
+            } else {
+                //mapping the same file larger keeps what was written; the mapping stays valid once the file is closed
+                try (RandomAccessFile raf = new RandomAccessFile(new File(directory, COLUMN_NAMES[column] + ".col"), "rw")) {
+                    allocated[column] = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+        return allocated;
+    }
+}
@@ -0,0 +1,102 @@
+package com.parkit.parkingsystem.report;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.service.FareCalculatorService;
+
+import java.time.Instant;
+
+//revenue and occupancy per parking type and time bucket; revenue is in FareCalculatorService.PRICE_SCALE units
+public class ParkingReport {
+
+    private final long[] bucketStarts;
+    private final int bucketCount;
+    //indexed by parking type ordinal * bucket count + bucket
+    private final long[] entries;
+    private final long[] exits;
+    private final long[] revenue;
+    private final long[] occupiedMillis;
+    private final long rowCount;
+
+    ParkingReport(long[] bucketStarts, long[] entries, long[] exits, long[] revenue, long[] occupiedMillis, long rowCount) {
+        this.bucketStarts = bucketStarts;
+        this.bucketCount = bucketStarts.length - 1;
+        this.entries = entries;
+        this.exits = exits;
+        this.revenue = revenue;
+        this.occupiedMillis = occupiedMillis;
+        this.rowCount = rowCount;
+    }
+
+    public int getBucketCount() {
+        return bucketCount;
+    }
+
+    public long getBucketStart(int bucket) {
+        return bucketStarts[bucket];
+    }
+
+    public long getBucketEnd(int bucket) {
+        return bucketStarts[bucket + 1];
+    }
+
+    public long getEntries(ParkingType parkingType, int bucket) {
+        return entries[index(parkingType, bucket)];
+    }
+
+    public long getExits(ParkingType parkingType, int bucket) {
+        return exits[index(parkingType, bucket)];
+    }
+
+    public long getRevenue(ParkingType parkingType, int bucket) {
+        return revenue[index(parkingType, bucket)];
+    }
+
+    public long getOccupiedMillis(ParkingType parkingType, int bucket) {
+        return occupiedMillis[index(parkingType, bucket)];
+    }
+
+    //average number of spots of the type in use over the bucket
+    public double getOccupancy(ParkingType parkingType, int bucket) {
+        return (double) getOccupiedMillis(parkingType, bucket) / (getBucketEnd(bucket) - getBucketStart(bucket));
+    }
+
+    public long getTotalRevenue(ParkingType parkingType) {
+        long total = 0;
+        for (int bucket = 0; bucket < bucketCount; bucket++) {
+            total += getRevenue(parkingType, bucket);
+        }
+        return total;
+    }
+
+    //tickets read to build the report
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    private int index(ParkingType parkingType, int bucket) {
+        if (bucket < 0 || bucket >= bucketCount) {
+            throw new IndexOutOfBoundsException("Bucket out of range: " + bucket);
+        }
+        return parkingType.ordinal() * bucketCount + bucket;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder();
+        for (int bucket = 0; bucket < bucketCount; bucket++) {
+            for (ParkingType parkingType : ParkingType.values()) {
+                int i = index(parkingType, bucket);
+                if (entries[i] == 0 && exits[i] == 0 && occupiedMillis[i] == 0) {
+                    continue;
+                }
+                text.append(Instant.ofEpochMilli(bucketStarts[bucket])).append(' ').append(parkingType)
+                        .append(": entries=").append(entries[i])
+                        .append(", exits=").append(exits[i])
+                        .append(", revenue=").append((double) revenue[i] / FareCalculatorService.PRICE_SCALE)
+                        .append(", occupancy=").append(String.format("%.2f", getOccupancy(parkingType, bucket)))
+                        .append('\n');
+            }
+        }
+        return text.toString();
+    }
+}
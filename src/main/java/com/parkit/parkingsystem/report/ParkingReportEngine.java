@@ -0,0 +1,175 @@
+package com.parkit.parkingsystem.report;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.SpotInventory;
+import com.parkit.parkingsystem.metrics.Counter;
+import com.parkit.parkingsystem.metrics.LatencyHistogram;
+import com.parkit.parkingsystem.metrics.Metrics;
+import com.parkit.parkingsystem.service.FareCalculatorService;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.ZoneId;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+
+//revenue and occupancy reports over ticket and ticket_history; the tickets are streamed and folded into
+//per-bucket totals as they are read, so memory use depends on the number of buckets, not on the number of tickets
+public class ParkingReportEngine implements Closeable {
+
+    private static final Logger logger = LogManager.getLogger("ParkingReportEngine");
+
+    private static final LatencyHistogram REPORT_LATENCY = Metrics.histogram("parkingReport.report");
+    private static final Counter ROWS = Metrics.counter("parkingReport.rows");
+
+    private final DataBaseConfig dataBaseConfig;
+    private final ZoneId zone;
+    private final Clock clock;
+    //IN_TIME ranges longer than this are split in two, down to one query per leaf
+    private final long leafMillis;
+    //each running leaf holds a pooled connection, so keep this below the pool size
+    private final ForkJoinPool forkJoinPool;
+
+    public ParkingReportEngine(DataBaseConfig dataBaseConfig) {
+        this(dataBaseConfig, ZoneId.systemDefault(), Clock.systemDefaultZone(),
+                Integer.getInteger("parkit.report.parallelism", 4),
+                TimeUnit.DAYS.toMillis(Long.getLong("parkit.report.leafDays", 7L)));
+    }
+
+    public ParkingReportEngine(DataBaseConfig dataBaseConfig, ZoneId zone, Clock clock, int parallelism, long leafMillis) {
+        this.dataBaseConfig = dataBaseConfig;
+        this.zone = zone;
+        this.clock = clock;
+        this.leafMillis = leafMillis;
+        this.forkJoinPool = new ForkJoinPool(parallelism);
+    }
+
+    //report of [fromMillis, toMillis); tickets still open count as parked until now
+    public ParkingReport report(long fromMillis, long toMillis, ReportGranularity granularity) {
+        if (fromMillis >= toMillis) {
+            throw new IllegalArgumentException("Empty report range");
+        }
+        long start = System.nanoTime();
+        try {
+            long[] bucketStarts = granularity.bucketStarts(fromMillis, toMillis, zone);
+            Range range = new Range(SpotInventory.of(dataBaseConfig), bucketStarts, Math.min(toMillis, clock.millis()));
+            ParkingReport report = forkJoinPool.invoke(new RecursiveTask<ReportAccumulator>() {
+                @Override
+                protected ReportAccumulator compute() {
+                    ReadTask carried = new ReadTask(range, fromMillis, toMillis, true);
+                    carried.fork();
+                    return new ReadTask(range, fromMillis, toMillis, false).compute().merge(carried.join());
+                }
+            }).toReport();
+            ROWS.add(report.getRowCount());
+            return report;
+        } catch (ReportQueryException | ClassNotFoundException | SQLException e) {
+            logger.error("Error building parking report", e);
+            return null;
+        } finally {
+            REPORT_LATENCY.recordSince(start);
+        }
+    }
+
+    @Override
+    public void close() {
+        forkJoinPool.shutdown();
+    }
+
+    //what every task of one report shares
+    private static final class Range {
+        private final SpotInventory spotInventory;
+        private final long[] bucketStarts;
+        private final long openUntilMillis;
+
+        private Range(SpotInventory spotInventory, long[] bucketStarts, long openUntilMillis) {
+            this.spotInventory = spotInventory;
+            this.bucketStarts = bucketStarts;
+            this.openUntilMillis = openUntilMillis;
+        }
+    }
+
+    private final class ReadTask extends RecursiveTask<ReportAccumulator> {
+        private final Range range;
+        private final long fromMillis;
+        private final long toMillis;
+        //tickets entered before the range and still parked at its start, instead of those entered within it
+        private final boolean carried;
+
+        private ReadTask(Range range, long fromMillis, long toMillis, boolean carried) {
+            this.range = range;
+            this.fromMillis = fromMillis;
+            this.toMillis = toMillis;
+            this.carried = carried;
+        }
+
+        @Override
+        protected ReportAccumulator compute() {
+            if (!carried && toMillis - fromMillis > leafMillis) {
+                long middle = fromMillis + (toMillis - fromMillis) / 2;
+                ReadTask left = new ReadTask(range, fromMillis, middle, false);
+                left.fork();
+                return new ReadTask(range, middle, toMillis, false).compute().merge(left.join());
+            }
+            ReportAccumulator accumulator = new ReportAccumulator(range.bucketStarts, range.openUntilMillis);
+            Connection con = null;
+            try {
+                con = dataBaseConfig.getConnection();
+                if (carried) {
+                    read(con, DBConstants.GET_REPORT_CARRIED_TICKETS, accumulator);
+                    read(con, DBConstants.GET_REPORT_CARRIED_HISTORY_TICKETS, accumulator);
+                } else {
+                    read(con, DBConstants.GET_REPORT_TICKETS, accumulator);
+                    read(con, DBConstants.GET_REPORT_HISTORY_TICKETS, accumulator);
+                }
+            } catch (ClassNotFoundException | SQLException e) {
+                throw new ReportQueryException(e);
+            } finally {
+                dataBaseConfig.closeConnection(con);
+            }
+            return accumulator;
+        }
+
+        //both queries take (from, to) for a range and (start, start) for the carried tickets
+        private void read(Connection con, String sql, ReportAccumulator accumulator) throws SQLException {
+            PreparedStatement ps = null;
+            ResultSet rs = null;
+            try {
+                ps = con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                ps.setFetchSize(dataBaseConfig.getStreamingFetchSize());
+                ps.setTimestamp(1, new Timestamp(fromMillis));
+                ps.setTimestamp(2, new Timestamp(carried ? fromMillis : toMillis));
+                rs = ps.executeQuery();
+                while (rs.next()) {
+                    ParkingType parkingType = range.spotInventory.getParkingType(rs.getInt(4));
+                    if (parkingType == null) {
+                        continue;
+                    }
+                    Timestamp outTime = rs.getTimestamp(2);
+                    accumulator.add(rs.getTimestamp(1).getTime(), outTime == null ? -1 : outTime.getTime(),
+                            Math.round(rs.getDouble(3) * FareCalculatorService.PRICE_SCALE), parkingType.ordinal());
+                }
+            } finally {
+                dataBaseConfig.closeResultSet(rs);
+                dataBaseConfig.closePreparedStatement(ps);
+            }
+        }
+    }
+
+    //carries a DB error out of a fork/join task
+    private static final class ReportQueryException extends RuntimeException {
+        private ReportQueryException(Exception cause) {
+            super(cause);
+        }
+    }
+}
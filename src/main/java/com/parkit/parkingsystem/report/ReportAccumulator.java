@@ -0,0 +1,78 @@
+package com.parkit.parkingsystem.report;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+
+import java.util.Arrays;
+
+//running totals of one part of a report; its size depends on the number of buckets only, never on the rows
+class ReportAccumulator {
+
+    private final long[] bucketStarts;
+    private final int bucketCount;
+    private final long fromMillis;
+    private final long toMillis;
+    //open tickets count as parked until then
+    private final long openUntilMillis;
+    private final long[] entries;
+    private final long[] exits;
+    private final long[] revenue;
+    private final long[] occupiedMillis;
+    private long rowCount;
+
+    ReportAccumulator(long[] bucketStarts, long openUntilMillis) {
+        this.bucketStarts = bucketStarts;
+        this.bucketCount = bucketStarts.length - 1;
+        this.fromMillis = bucketStarts[0];
+        this.toMillis = bucketStarts[bucketCount];
+        this.openUntilMillis = openUntilMillis;
+        int size = ParkingType.values().length * bucketCount;
+        this.entries = new long[size];
+        this.exits = new long[size];
+        this.revenue = new long[size];
+        this.occupiedMillis = new long[size];
+    }
+
+    //outMillis is negative for a ticket still open
+    void add(long inMillis, long outMillis, long price, int parkingTypeOrdinal) {
+        rowCount++;
+        int offset = parkingTypeOrdinal * bucketCount;
+        if (inMillis >= fromMillis && inMillis < toMillis) {
+            entries[offset + bucketOf(inMillis)]++;
+        }
+        if (outMillis >= fromMillis && outMillis < toMillis) {
+            int bucket = bucketOf(outMillis);
+            exits[offset + bucket]++;
+            revenue[offset + bucket] += price;
+        }
+        long start = Math.max(inMillis, fromMillis);
+        long end = Math.min(outMillis < 0 ? openUntilMillis : outMillis, toMillis);
+        if (start >= end) {
+            return;
+        }
+        for (int bucket = bucketOf(start); start < end; bucket++) {
+            long bucketEnd = Math.min(bucketStarts[bucket + 1], end);
+            occupiedMillis[offset + bucket] += bucketEnd - start;
+            start = bucketEnd;
+        }
+    }
+
+    ReportAccumulator merge(ReportAccumulator other) {
+        for (int i = 0; i < entries.length; i++) {
+            entries[i] += other.entries[i];
+            exits[i] += other.exits[i];
+            revenue[i] += other.revenue[i];
+            occupiedMillis[i] += other.occupiedMillis[i];
+        }
+        rowCount += other.rowCount;
+        return this;
+    }
+
+    ParkingReport toReport() {
+        return new ParkingReport(bucketStarts, entries, exits, revenue, occupiedMillis, rowCount);
+    }
+
+    private int bucketOf(long millis) {
+        int i = Arrays.binarySearch(bucketStarts, 0, bucketCount, millis);
+        return i >= 0 ? i : -i - 2;
+    }
+}
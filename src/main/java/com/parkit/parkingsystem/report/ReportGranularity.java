@@ -0,0 +1,37 @@
+package com.parkit.parkingsystem.report;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+
+public enum ReportGranularity {
+    HOUR(ChronoUnit.HOURS),
+    DAY(ChronoUnit.DAYS);
+
+    private final ChronoUnit unit;
+
+    ReportGranularity(ChronoUnit unit) {
+        this.unit = unit;
+    }
+
+    //bucket boundaries in epoch millis, from included to to excluded; the first and last bucket may be partial.
+    //boundaries follow the local time of the zone, so a day is 23 or 25 hours long across a DST change
+    long[] bucketStarts(long fromMillis, long toMillis, ZoneId zone) {
+        long[] starts = new long[16];
+        int count = 0;
+        starts[count++] = fromMillis;
+        ZonedDateTime boundary = Instant.ofEpochMilli(fromMillis).atZone(zone).truncatedTo(unit).plus(1, unit);
+        while (boundary.toInstant().toEpochMilli() < toMillis) {
+            if (count == starts.length) {
+                starts = Arrays.copyOf(starts, count * 2);
+            }
+            starts[count++] = boundary.toInstant().toEpochMilli();
+            boundary = boundary.plus(1, unit);
+        }
+        starts = Arrays.copyOf(starts, count + 1);
+        starts[count] = toMillis;
+        return starts;
+    }
+}
@@ -0,0 +1,288 @@
+package com.parkit.parkingsystem.rerate;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.SpotInventory;
+import com.parkit.parkingsystem.metrics.Counter;
+import com.parkit.parkingsystem.metrics.LatencyHistogram;
+import com.parkit.parkingsystem.metrics.Metrics;
+import com.parkit.parkingsystem.service.FareCalculatorService;
+import com.parkit.parkingsystem.tariff.Tariff;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RejectedExecutionException;
+
+//re-prices closed tickets of ticket and ticket_history with the current tariff, e.g. after a tariff change or a
+//pricing fix. Tickets are read in ID order, one chunk of primitive arrays at a time, priced in parallel, and the
+//changed prices are written in one batch per chunk, committed together with the job's checkpoint so that an
+//interrupted job resumes after the last chunk written
+public class TicketRerater implements Closeable {
+
+    private static final Logger logger = LogManager.getLogger("TicketRerater");
+
+    private static final LatencyHistogram CHUNK_LATENCY = Metrics.histogram("ticketRerater.chunk");
+    private static final Counter RERATED_TICKETS = Metrics.counter("ticketRerater.reratedTickets");
+
+    //chunks smaller than this are priced on the calling thread
+    private static final int PRICE_TASK_THRESHOLD = 512;
+
+    //ticket first: a ticket archived while the job runs is then still found in ticket_history
+    private static final Source[] SOURCES = {
+            new Source("ticket", DBConstants.GET_RERATE_TICKETS, DBConstants.UPDATE_TICKET_PRICE),
+            new Source("ticket_history", DBConstants.GET_RERATE_HISTORY_TICKETS, DBConstants.UPDATE_TICKET_HISTORY_PRICE)
+    };
+
+    private final DataBaseConfig dataBaseConfig;
+    private final int chunkSize;
+    private final ForkJoinPool forkJoinPool;
+
+    private volatile boolean closed;
+
+    public TicketRerater(DataBaseConfig dataBaseConfig) {
+        this(dataBaseConfig, Integer.getInteger("parkit.rerate.chunkSize", 1000),
+                Integer.getInteger("parkit.rerate.parallelism", Runtime.getRuntime().availableProcessors()));
+    }
+
+    public TicketRerater(DataBaseConfig dataBaseConfig, int chunkSize, int parallelism) {
+        this.dataBaseConfig = dataBaseConfig;
+        this.chunkSize = chunkSize;
+        this.forkJoinPool = new ForkJoinPool(parallelism);
+    }
+
+    //re-prices the tickets closed in [fromMillis, toMillis), starting after the checkpoint of the job if it ran before.
+    //Returns the number of prices this call changed, or -1 on a DB error; the chunks already committed stay done, and
+    //a job stopped by close resumes after them when run again
+    public long rerate(String jobName, long fromMillis, long toMillis) {
+        if (fromMillis >= toMillis) {
+            throw new IllegalArgumentException("Empty re-rating range");
+        }
+        //every chunk of a job is priced with the tariff it started with, even if another one is swapped in
+        Tariff tariff = FareCalculatorService.getTariff();
+        Chunk chunk = new Chunk(chunkSize);
+        long rerated = 0;
+        try {
+            SpotInventory spotInventory = SpotInventory.of(dataBaseConfig);
+            for (Source source : SOURCES) {
+                int lastId = readCheckpoint(jobName, source, fromMillis, toMillis);
+                do {
+                    if (closed) {
+                        return stopped(jobName, rerated);
+                    }
+                    long start = System.nanoTime();
+                    readChunk(source, lastId, fromMillis, toMillis, spotInventory, chunk);
+                    if (chunk.size == 0) {
+                        break;
+                    }
+                    try {
+                        forkJoinPool.invoke(new PriceTask(tariff, chunk, 0, chunk.size));
+                    } catch (RejectedExecutionException e) {
+                        //closed since the check above, the chunk is left for the next run
+                        return stopped(jobName, rerated);
+                    }
+                    int changed = writeChunk(jobName, source, fromMillis, toMillis, lastId, chunk);
+                    lastId = chunk.ids[chunk.size - 1];
+                    rerated += changed;
+                    RERATED_TICKETS.add(changed);
+                    CHUNK_LATENCY.recordSince(start);
+                } while (chunk.size == chunkSize);
+            }
+        } catch (ClassNotFoundException | SQLException e) {
+            logger.error("Error re-rating tickets of job " + jobName, e);
+            return -1;
+        }
+        logger.info("Re-rating job " + jobName + " changed " + rerated + " ticket prices");
+        return rerated;
+    }
+
+    //stops a running job before its next chunk
+    @Override
+    public void close() {
+        closed = true;
+        forkJoinPool.shutdown();
+    }
+
+    private long stopped(String jobName, long rerated) {
+        logger.info("Re-rating job " + jobName + " stopped by close after changing " + rerated
+                + " ticket prices, it resumes from its checkpoint");
+        return rerated;
+    }
+
+    //the last ID done, 0 for a new job; a job name can only be resumed over the range it started with
+    private int readCheckpoint(String jobName, Source source, long fromMillis, long toMillis)
+            throws ClassNotFoundException, SQLException {
+        Connection con = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            PreparedStatement ps = dataBaseConfig.prepareStatement(con, DBConstants.GET_RERATE_CHECKPOINT);
+            ps.setString(1, jobName);
+            ps.setString(2, source.table);
+            ResultSet rs = ps.executeQuery();
+            try {
+                if (!rs.next()) {
+                    return 0;
+                }
+                if (rs.getTimestamp(2).getTime() != fromMillis || rs.getTimestamp(3).getTime() != toMillis) {
+                    throw new IllegalArgumentException("Re-rating job " + jobName + " was started over another range");
+                }
+                return rs.getInt(1);
+            } finally {
+                dataBaseConfig.closeResultSet(rs);
+                dataBaseConfig.closePreparedStatement(ps);
+            }
+        } finally {
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
+    private void readChunk(Source source, int lastId, long fromMillis, long toMillis, SpotInventory spotInventory,
+                           Chunk chunk) throws ClassNotFoundException, SQLException {
+        chunk.size = 0;
+        Connection con = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            PreparedStatement ps = dataBaseConfig.prepareStatement(con, source.selectSql);
+            ps.setInt(1, lastId);
+            ps.setTimestamp(2, new Timestamp(fromMillis));
+            ps.setTimestamp(3, new Timestamp(toMillis));
+            ps.setInt(4, chunkSize);
+            ResultSet rs = ps.executeQuery();
+            while (rs.next()) {
+                int i = chunk.size++;
+                chunk.ids[i] = rs.getInt(1);
+                ParkingType parkingType = spotInventory.getParkingType(rs.getInt(2));
+                chunk.types[i] = parkingType == null ? -1 : parkingType.ordinal();
+                chunk.inMillis[i] = rs.getTimestamp(3).getTime();
+                chunk.outMillis[i] = rs.getTimestamp(4).getTime();
+                double price = rs.getDouble(5);
+                chunk.oldPrices[i] = rs.wasNull() ? -1 : Math.round(price * FareCalculatorService.PRICE_SCALE);
+            }
+            dataBaseConfig.closeResultSet(rs);
+            dataBaseConfig.closePreparedStatement(ps);
+        } finally {
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
+    //writes the changed prices and moves the checkpoint in one transaction; returns the number of prices changed
+    private int writeChunk(String jobName, Source source, long fromMillis, long toMillis, int lastId, Chunk chunk)
+            throws ClassNotFoundException, SQLException {
+        Connection con = null;
+        try {
+            con = dataBaseConfig.getConnection();
+            con.setAutoCommit(false);
+            int changed = 0;
+            PreparedStatement ps = dataBaseConfig.prepareStatement(con, source.updateSql);
+            try {
+                for (int i = 0; i < chunk.size; i++) {
+                    if (chunk.newPrices[i] != chunk.oldPrices[i]) {
+                        ps.setDouble(1, (double) chunk.newPrices[i] / FareCalculatorService.PRICE_SCALE);
+                        ps.setInt(2, chunk.ids[i]);
+                        ps.addBatch();
+                        changed++;
+                    }
+                }
+                if (changed > 0) {
+                    ps.executeBatch();
+                }
+            } finally {
+                dataBaseConfig.closePreparedStatement(ps);
+            }
+            int checkpointId = chunk.ids[chunk.size - 1];
+            Timestamp now = new Timestamp(System.currentTimeMillis());
+            ps = dataBaseConfig.prepareStatement(con, lastId == 0 ? DBConstants.SAVE_RERATE_CHECKPOINT
+                    : DBConstants.UPDATE_RERATE_CHECKPOINT);
+            ps.setInt(1, checkpointId);
+            ps.setInt(2, changed);
+            ps.setTimestamp(3, now);
+            ps.setString(4, jobName);
+            ps.setString(5, source.table);
+            if (lastId == 0) {
+                ps.setTimestamp(6, new Timestamp(fromMillis));
+                ps.setTimestamp(7, new Timestamp(toMillis));
+            }
+            ps.executeUpdate();
+            dataBaseConfig.closePreparedStatement(ps);
+            con.commit();
+            return changed;
+        } finally {
+            //an uncommitted chunk is rolled back by the pool
+            dataBaseConfig.closeConnection(con);
+        }
+    }
+
+    private static final class Source {
+        private final String table;
+        private final String selectSql;
+        private final String updateSql;
+
+        private Source(String table, String selectSql, String updateSql) {
+            this.table = table;
+            this.selectSql = selectSql;
+            this.updateSql = updateSql;
+        }
+    }
+
+    //one chunk of tickets, column by column; allocated once per job and refilled for every chunk
+    private static final class Chunk {
+        private final int[] ids;
+        //ParkingType ordinal, -1 for a spot unknown to the inventory
+        private final int[] types;
+        private final long[] inMillis;
+        private final long[] outMillis;
+        //in PRICE_SCALE units, -1 when the price is null
+        private final long[] oldPrices;
+        private final long[] newPrices;
+        private int size;
+
+        private Chunk(int capacity) {
+            ids = new int[capacity];
+            types = new int[capacity];
+            inMillis = new long[capacity];
+            outMillis = new long[capacity];
+            oldPrices = new long[capacity];
+            newPrices = new long[capacity];
+        }
+    }
+
+    private static final class PriceTask extends RecursiveAction {
+        private static final ParkingType[] PARKING_TYPES = ParkingType.values();
+
+        private final Tariff tariff;
+        private final Chunk chunk;
+        private final int from;
+        private final int to;
+
+        private PriceTask(Tariff tariff, Chunk chunk, int from, int to) {
+            this.tariff = tariff;
+            this.chunk = chunk;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > PRICE_TASK_THRESHOLD) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new PriceTask(tariff, chunk, from, middle), new PriceTask(tariff, chunk, middle, to));
+                return;
+            }
+            for (int i = from; i < to; i++) {
+                int type = chunk.types[i];
+                //tickets of unknown spots or with bad times keep their price
+                chunk.newPrices[i] = type < 0 || chunk.outMillis[i] < chunk.inMillis[i]
+                        ? chunk.oldPrices[i]
+                        : tariff.price(chunk.inMillis[i], chunk.outMillis[i], PARKING_TYPES[type], false);
+            }
+        }
+    }
+}
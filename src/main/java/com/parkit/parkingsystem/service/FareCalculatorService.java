@@ -1,47 +1,57 @@
 package com.parkit.parkingsystem.service;
 
-import com.parkit.parkingsystem.constants.Fare;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.metrics.LatencyHistogram;
+import com.parkit.parkingsystem.metrics.Metrics;
 import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.tariff.Tariff;
 
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
-import java.util.Date;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class FareCalculatorService {
 
+    //prices are integers in thousandths of a currency unit, so that e.g. 45 minutes at 1.5/hour stays exact
+    public static final long PRICE_SCALE = 1000;
+
+    private static final LatencyHistogram CALCULATE_FARE_LATENCY = Metrics.histogram("fareCalculator.calculateFare");
+
+    //shared by every calculator; a fare is priced against a single tariff even if it is swapped meanwhile
+    private static final AtomicReference<Tariff> TARIFF = new AtomicReference<>(Tariff.defaultTariff());
+
+    public static Tariff getTariff() {
+        return TARIFF.get();
+    }
+
+    //returns the tariff replaced
+    public static Tariff setTariff(Tariff tariff) {
+        if (tariff == null) {
+            throw new IllegalArgumentException("No tariff");
+        }
+        return TARIFF.getAndSet(tariff);
+    }
+
     public void calculateFare(Ticket ticket){
+        calculateFare(ticket, false);
+    }
+
+    public void calculateFare(Ticket ticket, boolean loyalCustomer){
         if( (ticket.getOutTime() == null) || (ticket.getOutTime().before(ticket.getInTime())) ){
             throw new IllegalArgumentException("Out time provided is incorrect: " + ticket.getOutTime());
         }
+        long price = calculateFare(ticket.getInTime().getTime(), ticket.getOutTime().getTime(),
+                ticket.getParkingSpot().getParkingType(), loyalCustomer);
+        ticket.setPrice((double) price / PRICE_SCALE);
+    }
 
-        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-        try {
-            Date inTime = dateFormat.parse(dateFormat.format(ticket.getInTime()));
-            Date outTime = dateFormat.parse(dateFormat.format(ticket.getOutTime()));
-
-            long durationMillis = outTime.getTime() - inTime.getTime();
-            int durationMinutes = (int) TimeUnit.MILLISECONDS.toMinutes(durationMillis);
-
-            if (durationMinutes <= 30) {
-                ticket.setPrice(0); // Set fare to 0 if duration is less than or equal to 30 minutes
-            } else {
-                long durationHours = TimeUnit.MILLISECONDS.toHours(durationMillis);
-
-            switch (ticket.getParkingSpot().getParkingType()){
-                case CAR: {
-                    ticket.setPrice(durationHours * Fare.CAR_RATE_PER_HOUR);
-                    break;
-                }
-                case BIKE: {
-                    ticket.setPrice(durationHours * Fare.BIKE_RATE_PER_HOUR);
-                    break;
-                }
-                default: throw new IllegalArgumentException("Unknown Parking Type");
-                }
-            }
-        } catch (ParseException e) {
-            throw new IllegalArgumentException("Error parsing date: " + e.getMessage());
-        }
+    public long calculateFare(long inEpochMillis, long outEpochMillis, ParkingType parkingType){
+        return calculateFare(inEpochMillis, outEpochMillis, parkingType, false);
+    }
+
+    //every overload ends here, so the bulk exits pricing without a Ticket are timed too
+    public long calculateFare(long inEpochMillis, long outEpochMillis, ParkingType parkingType, boolean loyalCustomer){
+        long start = System.nanoTime();
+        long price = TARIFF.get().price(inEpochMillis, outEpochMillis, parkingType, loyalCustomer);
+        CALCULATE_FARE_LATENCY.recordSince(start);
+        return price;
     }
 }
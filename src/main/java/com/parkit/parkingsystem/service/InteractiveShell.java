@@ -1,11 +1,39 @@
 package com.parkit.parkingsystem.service;
 
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.config.SchemaMigrator;
+import com.parkit.parkingsystem.config.ShardRouter;
+import com.parkit.parkingsystem.dao.OccupancyReconciler;
 import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.SpotInventory;
+import com.parkit.parkingsystem.dao.TicketArchiver;
 import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.dao.VisitCountIndex;
+import com.parkit.parkingsystem.dao.WriteBehindQueue;
+import com.parkit.parkingsystem.dao.memory.InMemoryParkingSpotStore;
+import com.parkit.parkingsystem.dao.memory.InMemoryTicketStore;
+import com.parkit.parkingsystem.dao.shard.ShardedParkingSpotStore;
+import com.parkit.parkingsystem.dao.shard.ShardedTicketStore;
+import com.parkit.parkingsystem.event.AuditLogHandler;
+import com.parkit.parkingsystem.event.GateEventRing;
+import com.parkit.parkingsystem.event.GateMetricsHandler;
+import com.parkit.parkingsystem.event.WaitStrategies;
+import com.parkit.parkingsystem.journal.Journal;
+import com.parkit.parkingsystem.journal.ParkingJournal;
+import com.parkit.parkingsystem.metrics.Metrics;
+import com.parkit.parkingsystem.tariff.TariffWatcher;
 import com.parkit.parkingsystem.util.InputReaderUtil;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
 public class InteractiveShell {
 
     private static final Logger logger = LogManager.getLogger("InteractiveShell");
@@ -16,9 +44,121 @@ public class InteractiveShell {
 
         boolean continueApp = true;
         InputReaderUtil inputReaderUtil = new InputReaderUtil();
-        ParkingSpotDAO parkingSpotDAO = new ParkingSpotDAO();
-        TicketDAO ticketDAO = new TicketDAO();
-        ParkingService parkingService = new ParkingService(inputReaderUtil, parkingSpotDAO, ticketDAO);
+        ParkingService parkingService;
+        WriteBehindQueue writeBehindQueue = null;
+        List<TicketArchiver> ticketArchivers = new ArrayList<>();
+        List<OccupancyReconciler> occupancyReconcilers = new ArrayList<>();
+        ParkingJournal parkingJournal = null;
+        TariffWatcher tariffWatcher = null;
+        GateEventRing gateEvents = null;
+        if ("memory".equals(System.getProperty("parkit.storage", "jdbc"))) {
+            //no database server: the lot only lives in this process, and in the journal when there is one
+            InMemoryParkingSpotStore parkingSpotStore = InMemoryParkingSpotStore.withCapacity(
+                    Integer.getInteger("parkit.memory.carSpots", 3), Integer.getInteger("parkit.memory.bikeSpots", 2));
+            InMemoryTicketStore ticketStore = new InMemoryTicketStore(parkingSpotStore);
+            String journalDirectory = System.getProperty("parkit.journal.dir");
+            if (journalDirectory != null) {
+                try {
+                    parkingJournal = new ParkingJournal(new Journal(new File(journalDirectory),
+                            Integer.getInteger("parkit.journal.segmentBytes", 16 * 1024 * 1024),
+                            Journal.FsyncPolicy.valueOf(System.getProperty("parkit.journal.fsync", "INTERVAL")),
+                            Long.getLong("parkit.journal.fsyncIntervalMillis", 10L)),
+                            parkingSpotStore, ticketStore);
+                    parkingJournal.recover();
+                    parkingJournal.start(TimeUnit.MINUTES.toMillis(Long.getLong("parkit.journal.checkpointMinutes", 60L)));
+                } catch (IOException e) {
+                    //running without the journal would silently lose every change at the next restart
+                    throw new IllegalStateException("Unable to recover journal " + journalDirectory, e);
+                }
+                parkingService = new ParkingService(inputReaderUtil, parkingJournal.getParkingSpotStore(),
+                        parkingJournal.getTicketStore());
+            } else {
+                parkingService = new ParkingService(inputReaderUtil, parkingSpotStore, ticketStore);
+            }
+        } else {
+            List<DataBaseConfig> dataBaseConfigs = new ArrayList<>();
+            String shards = System.getProperty("parkit.shards");
+            if (shards != null) {
+                //one database per lot; this console is a gate of parkit.lotId, the first lot by default
+                ShardRouter shardRouter = ShardRouter.parse(shards);
+                int lotId = Integer.getInteger("parkit.lotId", shardRouter.getLotIds().iterator().next());
+                if (Boolean.getBoolean("parkit.writeBehind")) {
+                    logger.warn("Write-behind mode is not available with shards, writes go straight to each lot's database");
+                }
+                parkingService = new ParkingService(inputReaderUtil, new ShardedParkingSpotStore(shardRouter, lotId),
+                        new ShardedTicketStore(shardRouter, lotId));
+                for (int shardLotId : shardRouter.getLotIds()) {
+                    dataBaseConfigs.add(shardRouter.getDataBaseConfig(shardLotId));
+                }
+            } else {
+                ParkingSpotDAO parkingSpotDAO = new ParkingSpotDAO();
+                TicketDAO ticketDAO = new TicketDAO();
+                if (Boolean.getBoolean("parkit.writeBehind")) {
+                    writeBehindQueue = new WriteBehindQueue(ticketDAO.dataBaseConfig,
+                            Integer.getInteger("parkit.writeBehind.capacity", 10000),
+                            Integer.getInteger("parkit.writeBehind.maxBatchSize", 500),
+                            Long.getLong("parkit.writeBehind.flushIntervalMillis", 20L),
+                            Long.getLong("parkit.writeBehind.offerTimeoutMillis", 1000L));
+                    ticketDAO.writeBehindQueue = writeBehindQueue;
+                    parkingSpotDAO.writeBehindQueue = writeBehindQueue;
+                }
+                parkingService = new ParkingService(inputReaderUtil, parkingSpotDAO, ticketDAO);
+                dataBaseConfigs.add(parkingSpotDAO.dataBaseConfig);
+            }
+            for (DataBaseConfig dataBaseConfig : dataBaseConfigs) {
+                try {
+                    if (Boolean.parseBoolean(System.getProperty("parkit.db.migrate", "true"))) {
+                        new SchemaMigrator(dataBaseConfig).migrate();
+                    }
+                    dataBaseConfig.warmUp();
+                    SpotInventory.of(dataBaseConfig);
+                    VisitCountIndex.of(dataBaseConfig);
+                } catch (Exception e) {
+                    logger.error("Unable to migrate schema and pre-warm DB connection pool, spot inventory and visit counts", e);
+                }
+                if (Boolean.parseBoolean(System.getProperty("parkit.archive.enabled", "true"))) {
+                    TicketArchiver ticketArchiver = new TicketArchiver(dataBaseConfig, Clock.systemDefaultZone(),
+                            TimeUnit.HOURS.toMillis(Long.getLong("parkit.archive.afterHours", 168L)),
+                            Integer.getInteger("parkit.archive.batchSize", 500),
+                            Long.getLong("parkit.archive.pauseMillis", 200L));
+                    ticketArchiver.start(TimeUnit.MINUTES.toMillis(Long.getLong("parkit.archive.intervalMinutes", 15L)));
+                    ticketArchivers.add(ticketArchiver);
+                }
+                long reconcileSeconds = Long.getLong("parkit.occupancy.reconcileSeconds", 60L);
+                if (reconcileSeconds > 0) {
+                    OccupancyReconciler occupancyReconciler = new OccupancyReconciler(dataBaseConfig);
+                    occupancyReconciler.start(TimeUnit.SECONDS.toMillis(reconcileSeconds));
+                    occupancyReconcilers.add(occupancyReconciler);
+                }
+            }
+        }
+        String tariffFile = System.getProperty("parkit.tariff.file");
+        if (tariffFile != null) {
+            tariffWatcher = new TariffWatcher(Paths.get(tariffFile));
+            tariffWatcher.reload();
+            tariffWatcher.start(TimeUnit.SECONDS.toMillis(Long.getLong("parkit.tariff.reloadSeconds", 30L)));
+        }
+        if (Boolean.getBoolean("parkit.events.enabled")) {
+            gateEvents = new GateEventRing(Integer.getInteger("parkit.events.ringSize", 4096),
+                    GateEventRing.ProducerType.valueOf(System.getProperty("parkit.events.producers", "MULTI")),
+                    WaitStrategies.named(System.getProperty("parkit.events.waitStrategy", "SLEEPING")),
+                    Long.getLong("parkit.events.offerTimeoutMillis", 10L));
+            gateEvents.addHandler("metrics", new GateMetricsHandler());
+            String auditFile = System.getProperty("parkit.events.auditFile");
+            if (auditFile != null) {
+                try {
+                    gateEvents.addHandler("audit", new AuditLogHandler(new File(auditFile)));
+                } catch (IOException e) {
+                    logger.error("Unable to open audit file " + auditFile + ", entries and exits are not audited", e);
+                }
+            }
+            gateEvents.start();
+            parkingService.setGateEvents(gateEvents);
+        }
+        long metricsReportSeconds = Long.getLong("parkit.metrics.reportIntervalSeconds", 60L);
+        if (metricsReportSeconds > 0) {
+            Metrics.startReporter(metricsReportSeconds);
+        }
 
         while(continueApp){
             loadMenu();
@@ -35,6 +175,28 @@ public class InteractiveShell {
                 case 3: {
                     System.out.println("Exiting from the system!");
                     continueApp = false;
+                    for (TicketArchiver ticketArchiver : ticketArchivers) {
+                        ticketArchiver.close();
+                    }
+                    for (OccupancyReconciler occupancyReconciler : occupancyReconcilers) {
+                        occupancyReconciler.close();
+                    }
+                    if (tariffWatcher != null) {
+                        tariffWatcher.close();
+                    }
+                    if (gateEvents != null) {
+                        //the handlers drain every published event first
+                        gateEvents.close();
+                    }
+                    if (parkingJournal != null) {
+                        parkingJournal.close();
+                    }
+                    if (writeBehindQueue != null) {
+                        //flush every queued ticket and spot write before the pools go away
+                        writeBehindQueue.close();
+                    }
+                    DataBaseConfig.shutdown();
+                    Metrics.stopReporter();
                     break;
                 }
                 default: System.out.println("Unsupported option. Please enter a number corresponding to the provided menu");
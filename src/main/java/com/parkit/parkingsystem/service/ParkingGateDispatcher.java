@@ -0,0 +1,56 @@
+package com.parkit.parkingsystem.service;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.EntryResult;
+import com.parkit.parkingsystem.model.ExitResult;
+import com.parkit.parkingsystem.util.GateExecutors;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+//serves many gates from one JVM: every entry/exit runs as its own task on the gate executor
+public class ParkingGateDispatcher {
+
+    private static final Logger logger = LogManager.getLogger("ParkingGateDispatcher");
+
+    private final ParkingService parkingService;
+    private final ExecutorService executorService;
+
+    public ParkingGateDispatcher(ParkingService parkingService, int platformThreads) {
+        this(parkingService, GateExecutors.newGateExecutor(platformThreads));
+    }
+
+    public ParkingGateDispatcher(ParkingService parkingService, ExecutorService executorService) {
+        this.parkingService = parkingService;
+        this.executorService = executorService;
+    }
+
+    public Future<EntryResult> enter(String vehicleRegNumber, ParkingType parkingType) {
+        return executorService.submit(() -> parkingService.enter(vehicleRegNumber, parkingType));
+    }
+
+    public Future<ExitResult> exit(String vehicleRegNumber) {
+        return executorService.submit(() -> parkingService.exit(vehicleRegNumber));
+    }
+
+    public void shutdown() throws InterruptedException {
+        shutdown(30, TimeUnit.SECONDS);
+    }
+
+    //waits for the gate tasks submitted so far; after the timeout the running ones are interrupted and the queued
+    //ones dropped, and false is returned
+    public boolean shutdown(long timeout, TimeUnit unit) throws InterruptedException {
+        executorService.shutdown();
+        if (executorService.awaitTermination(timeout, unit)) {
+            return true;
+        }
+        List<Runnable> neverStarted = executorService.shutdownNow();
+        logger.warn("Gate tasks still running after " + timeout + " " + unit + " were interrupted, "
+                + neverStarted.size() + " queued gate tasks abandoned");
+        return false;
+    }
+}
@@ -1,15 +1,29 @@
 package com.parkit.parkingsystem.service;
 
 import com.parkit.parkingsystem.constants.ParkingType;
-import com.parkit.parkingsystem.dao.ParkingSpotDAO;
-import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.dao.ParkingSpotStore;
+import com.parkit.parkingsystem.dao.TicketStore;
+import com.parkit.parkingsystem.event.GateEventRing;
+import com.parkit.parkingsystem.metrics.Counter;
+import com.parkit.parkingsystem.metrics.LatencyHistogram;
+import com.parkit.parkingsystem.metrics.Metrics;
+import com.parkit.parkingsystem.model.EntryResult;
+import com.parkit.parkingsystem.model.ExitResult;
 import com.parkit.parkingsystem.model.ParkingSpot;
 import com.parkit.parkingsystem.model.Ticket;
 import com.parkit.parkingsystem.util.InputReaderUtil;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.ReentrantLock;
 
 public class ParkingService {
 
@@ -17,38 +31,293 @@ public class ParkingService {
 
     private static FareCalculatorService fareCalculatorService = new FareCalculatorService();
 
+    //entries and exits of the same vehicle are serialized, different vehicles proceed in parallel
+    private static final int LOCK_STRIPES = 64;
+
+    private static final LatencyHistogram ENTER_LATENCY = Metrics.histogram("parkingService.enter");
+    private static final LatencyHistogram EXIT_LATENCY = Metrics.histogram("parkingService.exit");
+    private static final LatencyHistogram EXIT_VEHICLES_LATENCY = Metrics.histogram("parkingService.exitVehicles");
+    private static final Counter[] ENTRY_RESULTS = new Counter[EntryResult.Status.values().length];
+    private static final Counter[] EXIT_RESULTS = new Counter[ExitResult.Status.values().length];
+
+    static {
+        for (EntryResult.Status status : EntryResult.Status.values()) {
+            ENTRY_RESULTS[status.ordinal()] = Metrics.counter("parkingService.enter." + status);
+        }
+        for (ExitResult.Status status : ExitResult.Status.values()) {
+            EXIT_RESULTS[status.ordinal()] = Metrics.counter("parkingService.exit." + status);
+        }
+    }
+
     private InputReaderUtil inputReaderUtil;
-    private ParkingSpotDAO parkingSpotDAO;
-    private  TicketDAO ticketDAO;
+    private ParkingSpotStore parkingSpotDAO;
+    private  TicketStore ticketDAO;
+    private final Clock clock;
+    private final ReentrantLock[] vehicleLocks = new ReentrantLock[LOCK_STRIPES];
+    //side effects of the entries and exits, handled off the gate thread; none when null
+    private volatile GateEventRing gateEvents;
+
+    public ParkingService(InputReaderUtil inputReaderUtil, ParkingSpotStore parkingSpotDAO, TicketStore ticketDAO){
+        this(inputReaderUtil, parkingSpotDAO, ticketDAO, Clock.systemDefaultZone());
+    }
 
-    public ParkingService(InputReaderUtil inputReaderUtil, ParkingSpotDAO parkingSpotDAO, TicketDAO ticketDAO){
+    public ParkingService(InputReaderUtil inputReaderUtil, ParkingSpotStore parkingSpotDAO, TicketStore ticketDAO, Clock clock){
         this.inputReaderUtil = inputReaderUtil;
         this.parkingSpotDAO = parkingSpotDAO;
         this.ticketDAO = ticketDAO;
+        this.clock = clock;
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            vehicleLocks[i] = new ReentrantLock();
+        }
+    }
+
+    public ParkingService(ParkingSpotStore parkingSpotDAO, TicketStore ticketDAO){
+        this(null, parkingSpotDAO, ticketDAO);
+    }
+
+    public ParkingService(ParkingSpotStore parkingSpotDAO, TicketStore ticketDAO, Clock clock){
+        this(null, parkingSpotDAO, ticketDAO, clock);
+    }
+
+    public void setGateEvents(GateEventRing gateEvents) {
+        this.gateEvents = gateEvents;
+    }
+
+    public EntryResult enter(String vehicleRegNumber, ParkingType parkingType) {
+        long start = System.nanoTime();
+        EntryResult entryResult = doEnter(vehicleRegNumber, parkingType);
+        ENTER_LATENCY.recordSince(start);
+        ENTRY_RESULTS[entryResult.getStatus().ordinal()].increment();
+        GateEventRing events = gateEvents;
+        if (events != null) {
+            events.publishEntry(vehicleRegNumber, parkingType, entryResult, clock.millis());
+        }
+        return entryResult;
+    }
+
+    private EntryResult doEnter(String vehicleRegNumber, ParkingType parkingType) {
+        if (vehicleRegNumber == null || vehicleRegNumber.trim().length() == 0 || parkingType == null) {
+            throw new IllegalArgumentException("Invalid vehicle provided: " + vehicleRegNumber + ", " + parkingType);
+        }
+        ReentrantLock lock = vehicleLocks[lockStripe(vehicleRegNumber)];
+        lock.lock();
+        try {
+            //a second ticket would orphan the spot of the first one
+            Ticket openTicket = ticketDAO.getTicket(vehicleRegNumber);
+            if (openTicket != null && openTicket.getOutTime() == null) {
+                return new EntryResult(EntryResult.Status.ALREADY_PARKED, openTicket);
+            }
+            return park(vehicleRegNumber, parkingType);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private EntryResult park(String vehicleRegNumber, ParkingType parkingType) {
+        //claims the spot atomically: it is already marked unavailable when returned
+        int parkingNumber = parkingSpotDAO.claimNextSlot(parkingType);
+        if (parkingNumber == 0) {
+            return new EntryResult(EntryResult.Status.LOT_FULL, null);
+        }
+        if (parkingNumber < 0) {
+            return new EntryResult(EntryResult.Status.ERROR, null);
+        }
+        ParkingSpot parkingSpot = new ParkingSpot(parkingNumber, parkingType, false, parkingSpotDAO.getLotId());
+        Ticket ticket = new Ticket();
+        //ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME)
+        ticket.setParkingSpot(parkingSpot);
+        ticket.setVehicleRegNumber(vehicleRegNumber);
+        ticket.setPrice(0);
+        ticket.setInTime(new Date(clock.millis()));
+        ticket.setOutTime(null);
+        if (!ticketDAO.saveTicket(ticket)) {
+            //give the claimed spot back
+            parkingSpot.setAvailable(true);
+            parkingSpotDAO.updateParking(parkingSpot);
+            return new EntryResult(EntryResult.Status.ERROR, null);
+        }
+        return new EntryResult(EntryResult.Status.PARKED, ticket);
+    }
+
+    public ExitResult exit(String vehicleRegNumber) {
+        long start = System.nanoTime();
+        ExitResult exitResult = doExit(vehicleRegNumber);
+        EXIT_LATENCY.recordSince(start);
+        EXIT_RESULTS[exitResult.getStatus().ordinal()].increment();
+        GateEventRing events = gateEvents;
+        if (events != null) {
+            events.publishExit(vehicleRegNumber, exitResult, clock.millis());
+        }
+        return exitResult;
+    }
+
+    private ExitResult doExit(String vehicleRegNumber) {
+        ReentrantLock lock = vehicleLocks[lockStripe(vehicleRegNumber)];
+        lock.lock();
+        try {
+            Ticket ticket = ticketDAO.getTicket(vehicleRegNumber);
+            if (ticket == null || ticket.getOutTime() != null) {
+                return new ExitResult(ExitResult.Status.UNKNOWN_VEHICLE, vehicleRegNumber, null);
+            }
+            ticket.setOutTime(new Date(clock.millis()));
+            try {
+                fareCalculatorService.calculateFare(ticket);
+            } catch (IllegalArgumentException e) {
+                logger.error("Unable to price the exit of " + vehicleRegNumber, e);
+                reopen(ticket);
+                return new ExitResult(ExitResult.Status.ERROR, vehicleRegNumber, ticket);
+            }
+            if (!ticketDAO.updateTicket(ticket)) {
+                //the ticket may be the instance cached by the store: leave it open, as it was
+                reopen(ticket);
+                return new ExitResult(ExitResult.Status.ERROR, vehicleRegNumber, ticket);
+            }
+            ParkingSpot parkingSpot = ticket.getParkingSpot();
+            parkingSpot.setAvailable(true);
+            parkingSpotDAO.updateParking(parkingSpot);
+            return new ExitResult(ExitResult.Status.EXITED, vehicleRegNumber, ticket);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    //exits a whole group of vehicles with one ticket lookup and one write transaction;
+    //results are in the order of the given plates, a plate listed twice only exits once
+    public List<ExitResult> processExitingVehicles(Collection<String> vehicleRegNumbers) {
+        long start = System.nanoTime();
+        List<ExitResult> exitResults = doExitVehicles(vehicleRegNumbers);
+        EXIT_VEHICLES_LATENCY.recordSince(start);
+        GateEventRing events = gateEvents;
+        long timeMillis = clock.millis();
+        for (ExitResult exitResult : exitResults) {
+            EXIT_RESULTS[exitResult.getStatus().ordinal()].increment();
+            if (events != null) {
+                events.publishExit(exitResult.getVehicleRegNumber(), exitResult, timeMillis);
+            }
+        }
+        return exitResults;
+    }
+
+    private List<ExitResult> doExitVehicles(Collection<String> vehicleRegNumbers) {
+        //stripes are always locked in ascending order so that concurrent groups cannot deadlock
+        TreeSet<Integer> stripes = new TreeSet<>();
+        for (String vehicleRegNumber : vehicleRegNumbers) {
+            stripes.add(lockStripe(vehicleRegNumber));
+        }
+        for (int stripe : stripes) {
+            vehicleLocks[stripe].lock();
+        }
+        try {
+            List<ExitResult> exitResults = new ArrayList<>(vehicleRegNumbers.size());
+            Map<String, Ticket> openTickets = ticketDAO.getOpenTickets(vehicleRegNumbers);
+            if (openTickets == null) {
+                for (String vehicleRegNumber : vehicleRegNumbers) {
+                    exitResults.add(new ExitResult(ExitResult.Status.ERROR, vehicleRegNumber, null));
+                }
+                return exitResults;
+            }
+            long outTime = clock.millis();
+            List<Ticket> exitingTickets = new ArrayList<>(openTickets.size());
+            long[] prices = new long[openTickets.size()];
+            for (String vehicleRegNumber : vehicleRegNumbers) {
+                Ticket ticket = openTickets.remove(vehicleRegNumber);
+                if (ticket == null || ticket.getOutTime() != null) {
+                    exitResults.add(new ExitResult(ExitResult.Status.UNKNOWN_VEHICLE, vehicleRegNumber, null));
+                    continue;
+                }
+                exitingTickets.add(ticket);
+                exitResults.add(new ExitResult(ExitResult.Status.EXITED, vehicleRegNumber, ticket));
+            }
+            //every ticket is priced before any is changed: the tickets may be the instances cached by the store,
+            //and the group exits all or nothing
+            try {
+                for (int i = 0; i < exitingTickets.size(); i++) {
+                    Ticket ticket = exitingTickets.get(i);
+                    prices[i] = fareCalculatorService.calculateFare(ticket.getInTime().getTime(), outTime,
+                            ticket.getParkingSpot().getParkingType());
+                }
+            } catch (IllegalArgumentException e) {
+                logger.error("Unable to price the exit of " + exitingTickets.size() + " vehicles", e);
+                failExits(exitResults);
+                return exitResults;
+            }
+            for (int i = 0; i < exitingTickets.size(); i++) {
+                Ticket ticket = exitingTickets.get(i);
+                ticket.setOutTime(new Date(outTime));
+                ticket.setPrice((double) prices[i] / FareCalculatorService.PRICE_SCALE);
+            }
+            if (!ticketDAO.closeTickets(exitingTickets)) {
+                failExits(exitResults);
+            }
+            return exitResults;
+        } finally {
+            for (int stripe : stripes) {
+                vehicleLocks[stripe].unlock();
+            }
+        }
+    }
+
+    //turns every exit of the group into an error, leaving its ticket open
+    private static void failExits(List<ExitResult> exitResults) {
+        for (int i = 0; i < exitResults.size(); i++) {
+            Ticket ticket = exitResults.get(i).getTicket();
+            if (ticket != null) {
+                reopen(ticket);
+                exitResults.set(i, new ExitResult(ExitResult.Status.ERROR, ticket.getVehicleRegNumber(), ticket));
+            }
+        }
+    }
+
+    //open tickets have no out time and are priced 0 until the vehicle exits
+    private static void reopen(Ticket ticket) {
+        ticket.setOutTime(null);
+        ticket.setPrice(0);
+    }
+
+    private static int lockStripe(String vehicleRegNumber) {
+        return (vehicleRegNumber.hashCode() & 0x7fffffff) % LOCK_STRIPES;
+    }
+
+    //the async variants run the whole operation through the ticket store, on the JDBC executor for TicketDAO,
+    //the gate only waits on the future; they fail with RejectedExecutionException when the executor queue is full
+    public CompletableFuture<EntryResult> enterAsync(String vehicleRegNumber, ParkingType parkingType) {
+        return ticketDAO.supplyAsync(() -> enter(vehicleRegNumber, parkingType));
+    }
+
+    public CompletableFuture<ExitResult> exitAsync(String vehicleRegNumber) {
+        return ticketDAO.supplyAsync(() -> exit(vehicleRegNumber));
+    }
+
+    public CompletableFuture<List<ExitResult>> processExitingVehiclesAsync(Collection<String> vehicleRegNumbers) {
+        return ticketDAO.supplyAsync(() -> processExitingVehicles(vehicleRegNumbers));
     }
 
     public void processIncomingVehicle() {
         try{
-            ParkingSpot parkingSpot = getNextParkingNumberIfAvailable();
-            if(parkingSpot !=null && parkingSpot.getId() > 0){
-                String vehicleRegNumber = getVehichleRegNumber();
-                parkingSpot.setAvailable(false);
-                parkingSpotDAO.updateParking(parkingSpot);//allot this parking space and mark it's availability as false
-
-                Date inTime = new Date();
-                Ticket ticket = new Ticket();
-                //ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME)
-                //ticket.setId(ticketID);
-                ticket.setParkingSpot(parkingSpot);
-                ticket.setVehicleRegNumber(vehicleRegNumber);
-                ticket.setPrice(0);
-                ticket.setInTime(inTime);
-                ticket.setOutTime(null);
-                ticketDAO.saveTicket(ticket);
-                System.out.println("Generated Ticket and saved in DB");
-                System.out.println("Please park your vehicle in spot number:"+parkingSpot.getId());
-                System.out.println("Recorded in-time for vehicle number:"+vehicleRegNumber+" is:"+inTime);
+            ParkingType parkingType = getVehichleType();
+            String vehicleRegNumber = getVehichleRegNumber();
+            EntryResult entryResult = enter(vehicleRegNumber, parkingType);
+            switch (entryResult.getStatus()) {
+                case PARKED: {
+                    Ticket ticket = entryResult.getTicket();
+                    System.out.println("Generated Ticket and saved in DB");
+                    System.out.println("Please park your vehicle in spot number:"+ticket.getParkingSpot().getId());
+                    System.out.println("Recorded in-time for vehicle number:"+vehicleRegNumber+" is:"+ticket.getInTime());
+                    break;
+                }
+                case LOT_FULL: {
+                    System.out.println("No parking spot available for " + parkingType + ". Please come back later");
+                    break;
+                }
+                case ALREADY_PARKED: {
+                    System.out.println("Vehicle number " + vehicleRegNumber + " is already parked in spot number:"
+                            + entryResult.getTicket().getParkingSpot().getId());
+                    break;
+                }
+                default: System.out.println("Unable to allocate a parking spot. Error occurred");
             }
+        }catch(IllegalArgumentException ie){
+            logger.error("Error parsing user input for incoming vehicle", ie);
         }catch(Exception e){
             logger.error("Unable to process incoming vehicle",e);
         }
@@ -66,7 +335,7 @@ public class ParkingService {
             ParkingType parkingType = getVehichleType();
             parkingNumber = parkingSpotDAO.getNextAvailableSlot(parkingType);
             if(parkingNumber > 0){
-                parkingSpot = new ParkingSpot(parkingNumber,parkingType, true);
+                parkingSpot = new ParkingSpot(parkingNumber,parkingType, true, parkingSpotDAO.getLotId());
             }else{
                 throw new Exception("Error fetching parking number from DB. Parking slots might be full");
             }
@@ -100,18 +369,19 @@ public class ParkingService {
     public void processExitingVehicle() {
         try{
             String vehicleRegNumber = getVehichleRegNumber();
-            Ticket ticket = ticketDAO.getTicket(vehicleRegNumber);
-            Date outTime = new Date();
-            ticket.setOutTime(outTime);
-            fareCalculatorService.calculateFare(ticket);
-            if(ticketDAO.updateTicket(ticket)) {
-                ParkingSpot parkingSpot = ticket.getParkingSpot();
-                parkingSpot.setAvailable(true);
-                parkingSpotDAO.updateParking(parkingSpot);
-                System.out.println("Please pay the parking fare:" + ticket.getPrice());
-                System.out.println("Recorded out-time for vehicle number:" + ticket.getVehicleRegNumber() + " is:" + outTime);
-            }else{
-                System.out.println("Unable to update ticket information. Error occurred");
+            ExitResult exitResult = exit(vehicleRegNumber);
+            switch (exitResult.getStatus()) {
+                case EXITED: {
+                    Ticket ticket = exitResult.getTicket();
+                    System.out.println("Please pay the parking fare:" + ticket.getPrice());
+                    System.out.println("Recorded out-time for vehicle number:" + ticket.getVehicleRegNumber() + " is:" + ticket.getOutTime());
+                    break;
+                }
+                case UNKNOWN_VEHICLE: {
+                    System.out.println("No parked vehicle found with registration number:" + vehicleRegNumber);
+                    break;
+                }
+                default: System.out.println("Unable to update ticket information. Error occurred");
             }
         }catch(Exception e){
             logger.error("Unable to process exiting vehicle",e);
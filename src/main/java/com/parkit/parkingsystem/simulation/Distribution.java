@@ -0,0 +1,28 @@
+package com.parkit.parkingsystem.simulation;
+
+import java.util.Random;
+
+//samples a duration in milliseconds, used for both inter-arrival and dwell times
+public interface Distribution {
+
+    long sampleMillis(Random random);
+
+    static Distribution fixed(long millis) {
+        return random -> millis;
+    }
+
+    //inter-arrival times of a Poisson arrival process
+    static Distribution exponential(double meanMillis) {
+        return random -> Math.round(-meanMillis * Math.log(1 - random.nextDouble()));
+    }
+
+    static Distribution uniform(long minMillis, long maxMillis) {
+        return random -> minMillis + (long) (random.nextDouble() * (maxMillis - minMillis));
+    }
+
+    //dwell times are skewed: most stays are short, a few last all day
+    static Distribution logNormal(double medianMillis, double sigma) {
+        double mu = Math.log(medianMillis);
+        return random -> Math.round(Math.exp(mu + sigma * random.nextGaussian()));
+    }
+}
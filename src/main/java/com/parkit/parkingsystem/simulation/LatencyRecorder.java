@@ -0,0 +1,34 @@
+package com.parkit.parkingsystem.simulation;
+
+import java.util.Arrays;
+
+//keeps every sample so that percentiles are exact, the simulator runs single-threaded
+public class LatencyRecorder {
+
+    private long[] samples = new long[1024];
+    private int count;
+
+    public void record(long nanos) {
+        if (count == samples.length) {
+            samples = Arrays.copyOf(samples, count * 2);
+        }
+        samples[count++] = nanos;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public long[] percentiles(double... quantiles) {
+        long[] sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+        long[] values = new long[quantiles.length];
+        for (int i = 0; i < quantiles.length; i++) {
+            if (count > 0) {
+                int rank = (int) Math.ceil(quantiles[i] * count) - 1;
+                values[i] = sorted[Math.max(0, Math.min(count - 1, rank))];
+            }
+        }
+        return values;
+    }
+}
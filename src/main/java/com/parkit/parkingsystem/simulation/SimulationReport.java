@@ -0,0 +1,101 @@
+package com.parkit.parkingsystem.simulation;
+
+import java.util.concurrent.TimeUnit;
+
+public class SimulationReport {
+
+    private static final double[] QUANTILES = {0.5, 0.99, 0.999};
+
+    private final long simulatedMillis;
+    private final long wallNanos;
+    private final long entries;
+    private final long rejectedEntries;
+    private final long exits;
+    private final long errors;
+    private final long[] entryLatencyNanos;
+    private final long[] exitLatencyNanos;
+
+    SimulationReport(long simulatedMillis, long wallNanos, long entries, long rejectedEntries, long exits,
+                     long errors, LatencyRecorder entryLatency, LatencyRecorder exitLatency) {
+        this.simulatedMillis = simulatedMillis;
+        this.wallNanos = wallNanos;
+        this.entries = entries;
+        this.rejectedEntries = rejectedEntries;
+        this.exits = exits;
+        this.errors = errors;
+        this.entryLatencyNanos = entryLatency.percentiles(QUANTILES);
+        this.exitLatencyNanos = exitLatency.percentiles(QUANTILES);
+    }
+
+    public long getSimulatedMillis() {
+        return simulatedMillis;
+    }
+
+    public long getWallNanos() {
+        return wallNanos;
+    }
+
+    public long getEntries() {
+        return entries;
+    }
+
+    public long getRejectedEntries() {
+        return rejectedEntries;
+    }
+
+    public long getExits() {
+        return exits;
+    }
+
+    public long getErrors() {
+        return errors;
+    }
+
+    //operations per wall-clock second
+    public double getThroughput() {
+        return (entries + rejectedEntries + exits + errors) * 1e9 / Math.max(1, wallNanos);
+    }
+
+    public double getSpeedup() {
+        return TimeUnit.MILLISECONDS.toNanos(simulatedMillis) / (double) Math.max(1, wallNanos);
+    }
+
+    public long getEntryLatencyP50Nanos() {
+        return entryLatencyNanos[0];
+    }
+
+    public long getEntryLatencyP99Nanos() {
+        return entryLatencyNanos[1];
+    }
+
+    public long getEntryLatencyP999Nanos() {
+        return entryLatencyNanos[2];
+    }
+
+    public long getExitLatencyP50Nanos() {
+        return exitLatencyNanos[0];
+    }
+
+    public long getExitLatencyP99Nanos() {
+        return exitLatencyNanos[1];
+    }
+
+    public long getExitLatencyP999Nanos() {
+        return exitLatencyNanos[2];
+    }
+
+    @Override
+    public String toString() {
+        return "Simulated " + TimeUnit.MILLISECONDS.toMinutes(simulatedMillis) + " min in "
+                + TimeUnit.NANOSECONDS.toMillis(wallNanos) + " ms (x" + Math.round(getSpeedup()) + ")"
+                + ", entries=" + entries + ", rejected=" + rejectedEntries + ", exits=" + exits + ", errors=" + errors
+                + ", throughput=" + Math.round(getThroughput()) + " ops/s"
+                + ", entry p50/p99/p999=" + format(entryLatencyNanos)
+                + ", exit p50/p99/p999=" + format(exitLatencyNanos);
+    }
+
+    private static String format(long[] nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos[0]) + "/" + TimeUnit.NANOSECONDS.toMicros(nanos[1]) + "/"
+                + TimeUnit.NANOSECONDS.toMicros(nanos[2]) + " us";
+    }
+}
@@ -0,0 +1,138 @@
+package com.parkit.parkingsystem.simulation;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.model.EntryResult;
+import com.parkit.parkingsystem.model.ExitResult;
+import com.parkit.parkingsystem.service.ParkingService;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+//replays arrivals and departures as discrete events: virtual time jumps from one event to the next,
+//so a whole day runs as fast as the service can process it
+public class TrafficSimulator {
+
+    private static final Logger logger = LogManager.getLogger("TrafficSimulator");
+
+    private static final class Traffic {
+        private final ParkingType parkingType;
+        private final Distribution interArrival;
+        private final Distribution dwell;
+
+        private Traffic(ParkingType parkingType, Distribution interArrival, Distribution dwell) {
+            this.parkingType = parkingType;
+            this.interArrival = interArrival;
+            this.dwell = dwell;
+        }
+    }
+
+    private static final class Event {
+        private final long time;
+        private final long sequence;
+        private final Traffic arrival;
+        private final String departingVehicle;
+
+        private Event(long time, long sequence, Traffic arrival, String departingVehicle) {
+            this.time = time;
+            this.sequence = sequence;
+            this.arrival = arrival;
+            this.departingVehicle = departingVehicle;
+        }
+    }
+
+    private final ParkingService parkingService;
+    private final VirtualClock clock;
+    private final Random random;
+    private final List<Traffic> traffic = new ArrayList<>();
+
+    //the sequence keeps simultaneous events in scheduling order
+    private final PriorityQueue<Event> events = new PriorityQueue<>(
+            Comparator.comparingLong((Event e) -> e.time).thenComparingLong(e -> e.sequence));
+    private long sequence;
+
+    //the service must have been created with the same clock
+    public TrafficSimulator(ParkingService parkingService, VirtualClock clock, long seed) {
+        this.parkingService = parkingService;
+        this.clock = clock;
+        this.random = new Random(seed);
+    }
+
+    public TrafficSimulator addTraffic(ParkingType parkingType, Distribution interArrival, Distribution dwell) {
+        traffic.add(new Traffic(parkingType, interArrival, dwell));
+        return this;
+    }
+
+    public SimulationReport run(long durationMillis) {
+        long start = clock.millis();
+        long end = start + durationMillis;
+        long entries = 0;
+        long rejectedEntries = 0;
+        long exits = 0;
+        long errors = 0;
+        LatencyRecorder entryLatency = new LatencyRecorder();
+        LatencyRecorder exitLatency = new LatencyRecorder();
+
+        events.clear();
+        for (Traffic t : traffic) {
+            schedule(start + t.interArrival.sampleMillis(random), t, null);
+        }
+        long wallStart = System.nanoTime();
+        while (!events.isEmpty() && events.peek().time <= end) {
+            Event event = events.poll();
+            clock.advanceTo(event.time);
+            if (event.arrival != null) {
+                Traffic t = event.arrival;
+                String vehicleRegNumber = t.parkingType.name().charAt(0) + "-" + event.sequence;
+                long begin = System.nanoTime();
+                EntryResult entryResult = parkingService.enter(vehicleRegNumber, t.parkingType);
+                entryLatency.record(System.nanoTime() - begin);
+                switch (entryResult.getStatus()) {
+                    case PARKED:
+                        entries++;
+                        schedule(event.time + Math.max(0, t.dwell.sampleMillis(random)), null, vehicleRegNumber);
+                        break;
+                    case LOT_FULL:
+                        rejectedEntries++;
+                        break;
+                    default:
+                        errors++;
+                }
+                schedule(event.time + Math.max(1, t.interArrival.sampleMillis(random)), t, null);
+            } else {
+                long begin = System.nanoTime();
+                ExitResult exitResult = parkingService.exit(event.departingVehicle);
+                exitLatency.record(System.nanoTime() - begin);
+                if (exitResult.isExited()) {
+                    exits++;
+                } else {
+                    errors++;
+                }
+            }
+        }
+        clock.advanceTo(Math.max(clock.millis(), end));
+        SimulationReport report = new SimulationReport(durationMillis, System.nanoTime() - wallStart,
+                entries, rejectedEntries, exits, errors, entryLatency, exitLatency);
+        logger.info("Simulation finished: " + report);
+        return report;
+    }
+
+    //vehicles still parked at the end of a run
+    public int getPendingDepartures() {
+        int pending = 0;
+        for (Event event : events) {
+            if (event.departingVehicle != null) {
+                pending++;
+            }
+        }
+        return pending;
+    }
+
+    private void schedule(long time, Traffic arrival, String departingVehicle) {
+        events.add(new Event(time, sequence++, arrival, departingVehicle));
+    }
+}
@@ -0,0 +1,49 @@
+package com.parkit.parkingsystem.simulation;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.concurrent.atomic.AtomicLong;
+
+//a clock that only moves when the simulator advances it
+public class VirtualClock extends Clock {
+
+    private final AtomicLong currentMillis;
+    private final ZoneId zone;
+
+    public VirtualClock(long startEpochMillis) {
+        this(new AtomicLong(startEpochMillis), ZoneId.systemDefault());
+    }
+
+    private VirtualClock(AtomicLong currentMillis, ZoneId zone) {
+        this.currentMillis = currentMillis;
+        this.zone = zone;
+    }
+
+    public void advanceTo(long epochMillis) {
+        if (epochMillis < currentMillis.get()) {
+            throw new IllegalArgumentException("Virtual time cannot go backwards: " + epochMillis);
+        }
+        currentMillis.set(epochMillis);
+    }
+
+    @Override
+    public long millis() {
+        return currentMillis.get();
+    }
+
+    @Override
+    public Instant instant() {
+        return Instant.ofEpochMilli(currentMillis.get());
+    }
+
+    @Override
+    public ZoneId getZone() {
+        return zone;
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone) {
+        return new VirtualClock(currentMillis, zone);
+    }
+}
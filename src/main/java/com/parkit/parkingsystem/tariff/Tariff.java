@@ -0,0 +1,239 @@
+package com.parkit.parkingsystem.tariff;
+
+import com.parkit.parkingsystem.constants.Fare;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.service.FareCalculatorService;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.time.Instant;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+//prices of every parking type, compiled from a definition into per-minute tables so that a stay of any length is
+//priced with a handful of array reads. Definition keys, per parking type:
+//  CAR.ratePerHour=1.5                      rate outside of any band
+//  CAR.freeMinutes=30                       stays of at most that many whole minutes are free
+//  CAR.bands=07:00-10:00@2.5,22:00-06:00@1  rate per hour by time of day, a band may wrap around midnight
+//  CAR.tiers=180@80,1440@50                 percent of the rate paid from that many minutes of stay on
+//  CAR.dailyCap=20                          most paid per 24 hours of stay
+//  CAR.loyaltyDiscountPercent=5             taken off the price of returning customers
+//and zone=Europe/Paris for the time of day of the bands, the system zone by default. Every parking type must have a
+//rate. Prices are in FareCalculatorService.PRICE_SCALE units, like the rates once parsed
+public final class Tariff {
+
+    private static final int MINUTES_PER_DAY = 24 * 60;
+    private static final long SECONDS_PER_DAY = MINUTES_PER_DAY * 60L;
+    //rate-seconds to price units: rates are per hour, the tier multipliers are percents
+    private static final long RATE_SECONDS_PER_UNIT = 3600L * 100;
+
+    private final ZoneId zone;
+    private final TypeTariff[] typeTariffs;
+
+    private Tariff(ZoneId zone, TypeTariff[] typeTariffs) {
+        this.zone = zone;
+        this.typeTariffs = typeTariffs;
+    }
+
+    //the historical pricing: a flat hourly rate per type and the first half hour free
+    public static Tariff defaultTariff() {
+        Properties definition = new Properties();
+        definition.setProperty("CAR.ratePerHour", Double.toString(Fare.CAR_RATE_PER_HOUR));
+        definition.setProperty("CAR.freeMinutes", "30");
+        definition.setProperty("BIKE.ratePerHour", Double.toString(Fare.BIKE_RATE_PER_HOUR));
+        definition.setProperty("BIKE.freeMinutes", "30");
+        return compile(definition);
+    }
+
+    public static Tariff load(Reader reader) throws IOException {
+        Properties definition = new Properties();
+        definition.load(reader);
+        return compile(definition);
+    }
+
+    public static Tariff compile(Properties definition) {
+        String zoneId = definition.getProperty("zone");
+        ZoneId zone = zoneId == null ? ZoneId.systemDefault() : ZoneId.of(zoneId.trim());
+        TypeTariff[] typeTariffs = new TypeTariff[ParkingType.values().length];
+        for (ParkingType parkingType : ParkingType.values()) {
+            //a type without a rate would fail every exit of its vehicles
+            if (definition.getProperty(parkingType + ".ratePerHour") == null) {
+                throw new IllegalArgumentException("No rate for parking type " + parkingType + ": " + parkingType + ".ratePerHour is missing");
+            }
+            typeTariffs[parkingType.ordinal()] = new TypeTariff(parkingType.name(), definition);
+        }
+        return new Tariff(zone, typeTariffs);
+    }
+
+    public ZoneId getZone() {
+        return zone;
+    }
+
+    //both times are truncated to the second, as they are when stored in the DB
+    public long price(long inEpochMillis, long outEpochMillis, ParkingType parkingType, boolean loyalCustomer) {
+        if (outEpochMillis < inEpochMillis) {
+            throw new IllegalArgumentException("Out time provided is incorrect: " + outEpochMillis);
+        }
+        TypeTariff typeTariff = typeTariffs[parkingType.ordinal()];
+        long inSecond = Math.floorDiv(inEpochMillis, 1000);
+        long durationSeconds = Math.floorDiv(outEpochMillis, 1000) - inSecond;
+        int offsetSeconds = zone.getRules().getOffset(Instant.ofEpochSecond(inSecond)).getTotalSeconds();
+        long price = typeTariff.price(Math.floorMod(inSecond + offsetSeconds, SECONDS_PER_DAY), durationSeconds);
+        return loyalCustomer ? price * (100 - typeTariff.loyaltyDiscountPercent) / 100 : price;
+    }
+
+    private static final class TypeTariff {
+        //ratePerMinute[m] is the hourly rate during minute m of the day; cumulative[m] the rate-seconds before it
+        private final long[] ratePerMinute = new long[MINUTES_PER_DAY];
+        private final long[] cumulative = new long[MINUTES_PER_DAY + 1];
+        private final long freeMinutes;
+        //ascending, the first tier starts at 0
+        private final long[] tierStartSeconds;
+        private final int[] tierPercents;
+        //negative when uncapped
+        private final long dailyCap;
+        private final int loyaltyDiscountPercent;
+        //full days of stay from which the tier no longer changes, and the price of each of them
+        private final long stableDays;
+        private final long stableDayPrice;
+
+        private TypeTariff(String type, Properties definition) {
+            Arrays.fill(ratePerMinute, parsePrice(type + ".ratePerHour", definition.getProperty(type + ".ratePerHour")));
+            String bands = definition.getProperty(type + ".bands");
+            if (bands != null && !bands.trim().isEmpty()) {
+                for (String band : bands.split(",")) {
+                    applyBand(type, band.trim());
+                }
+            }
+            for (int minute = 0; minute < MINUTES_PER_DAY; minute++) {
+                cumulative[minute + 1] = cumulative[minute] + ratePerMinute[minute] * 60;
+            }
+            freeMinutes = Long.parseLong(definition.getProperty(type + ".freeMinutes", "0").trim());
+
+            List<long[]> tiers = new ArrayList<>();
+            tiers.add(new long[]{0, 100});
+            String tierDefinition = definition.getProperty(type + ".tiers");
+            if (tierDefinition != null && !tierDefinition.trim().isEmpty()) {
+                for (String tier : tierDefinition.split(",")) {
+                    String[] parts = split(type + ".tiers", tier.trim());
+                    long startMinute = Long.parseLong(parts[0]);
+                    if (startMinute <= tiers.get(tiers.size() - 1)[0] / 60) {
+                        throw new IllegalArgumentException("Tiers of " + type + " must start at increasing minutes: " + tier);
+                    }
+                    tiers.add(new long[]{startMinute * 60, Integer.parseInt(parts[1])});
+                }
+            }
+            tierStartSeconds = new long[tiers.size()];
+            tierPercents = new int[tiers.size()];
+            for (int i = 0; i < tiers.size(); i++) {
+                tierStartSeconds[i] = tiers.get(i)[0];
+                tierPercents[i] = (int) tiers.get(i)[1];
+            }
+
+            String cap = definition.getProperty(type + ".dailyCap");
+            dailyCap = cap == null ? -1 : parsePrice(type + ".dailyCap", cap);
+            loyaltyDiscountPercent = Integer.parseInt(definition.getProperty(type + ".loyaltyDiscountPercent", "0").trim());
+            if (loyaltyDiscountPercent < 0 || loyaltyDiscountPercent > 100) {
+                throw new IllegalArgumentException("Invalid loyalty discount of " + type + ": " + loyaltyDiscountPercent);
+            }
+            stableDays = (tierStartSeconds[tierStartSeconds.length - 1] + SECONDS_PER_DAY - 1) / SECONDS_PER_DAY;
+            //a whole day covers every minute of the day once, wherever it starts
+            long dayPrice = cumulative[MINUTES_PER_DAY] * tierPercents[tierPercents.length - 1] / RATE_SECONDS_PER_UNIT;
+            stableDayPrice = dailyCap < 0 ? dayPrice : Math.min(dailyCap, dayPrice);
+        }
+
+        private void applyBand(String type, String band) {
+            String[] parts = split(type + ".bands", band);
+            int dash = parts[0].indexOf('-');
+            if (dash < 0) {
+                throw new IllegalArgumentException("Invalid band of " + type + ", expected HH:mm-HH:mm@rate: " + band);
+            }
+            int from;
+            int to;
+            try {
+                from = LocalTime.parse(parts[0].substring(0, dash).trim()).toSecondOfDay() / 60;
+                to = LocalTime.parse(parts[0].substring(dash + 1).trim()).toSecondOfDay() / 60;
+            } catch (DateTimeParseException e) {
+                throw new IllegalArgumentException("Invalid band of " + type + ", expected HH:mm-HH:mm@rate: " + band, e);
+            }
+            long rate = parsePrice(type + ".bands", parts[1]);
+            //a band ending at 00:00 runs until midnight, one starting and ending at the same time covers the whole day
+            int minute = from;
+            do {
+                ratePerMinute[minute] = rate;
+                minute = (minute + 1) % MINUTES_PER_DAY;
+            } while (minute != to);
+        }
+
+        private static String[] split(String key, String value) {
+            String[] parts = value.split("@");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Invalid " + key + " entry, expected value@value: " + value);
+            }
+            parts[0] = parts[0].trim();
+            parts[1] = parts[1].trim();
+            return parts;
+        }
+
+        private static long parsePrice(String key, String value) {
+            try {
+                long price = Math.round(Double.parseDouble(value.trim()) * FareCalculatorService.PRICE_SCALE);
+                if (price < 0) {
+                    throw new IllegalArgumentException("Negative " + key + ": " + value);
+                }
+                return price;
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid " + key + ": " + value, e);
+            }
+        }
+
+        private long price(long inSecondOfDay, long durationSeconds) {
+            if (durationSeconds / 60 <= freeMinutes) {
+                return 0;
+            }
+            if (dailyCap < 0 && tierStartSeconds.length == 1) {
+                return rateSeconds(inSecondOfDay, 0, durationSeconds) / RATE_SECONDS_PER_UNIT;
+            }
+            long fullDays = durationSeconds / SECONDS_PER_DAY;
+            long price = 0;
+            //the days still inside the tiers are priced one by one, the following ones all cost the same
+            long day = 0;
+            for (; day < Math.min(fullDays, stableDays); day++) {
+                price += capped(rateSeconds(inSecondOfDay, day * SECONDS_PER_DAY, (day + 1) * SECONDS_PER_DAY));
+            }
+            price += (fullDays - day) * stableDayPrice;
+            return price + capped(rateSeconds(inSecondOfDay, fullDays * SECONDS_PER_DAY, durationSeconds));
+        }
+
+        private long capped(long rateSeconds) {
+            long price = rateSeconds / RATE_SECONDS_PER_UNIT;
+            return dailyCap < 0 ? price : Math.min(dailyCap, price);
+        }
+
+        //rate-seconds, in percents of the rate, between two offsets of the stay
+        private long rateSeconds(long inSecondOfDay, long fromOffset, long toOffset) {
+            long total = 0;
+            for (int tier = 0; tier < tierStartSeconds.length; tier++) {
+                long start = Math.max(fromOffset, tierStartSeconds[tier]);
+                long end = tier + 1 < tierStartSeconds.length ? Math.min(toOffset, tierStartSeconds[tier + 1]) : toOffset;
+                if (start < end) {
+                    total += tierPercents[tier] * (dayCumulative(inSecondOfDay + end) - dayCumulative(inSecondOfDay + start));
+                }
+            }
+            return total;
+        }
+
+        //rate-seconds from the midnight before the stay up to the given second after it
+        private long dayCumulative(long second) {
+            long days = second / SECONDS_PER_DAY;
+            int secondOfDay = (int) (second % SECONDS_PER_DAY);
+            int minute = secondOfDay / 60;
+            return days * cumulative[MINUTES_PER_DAY] + cumulative[minute] + (secondOfDay % 60) * ratePerMinute[minute];
+        }
+    }
+}
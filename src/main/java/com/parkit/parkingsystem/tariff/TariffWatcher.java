@@ -0,0 +1,80 @@
+package com.parkit.parkingsystem.tariff;
+
+import com.parkit.parkingsystem.metrics.Counter;
+import com.parkit.parkingsystem.metrics.Metrics;
+import com.parkit.parkingsystem.service.FareCalculatorService;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+//loads the tariff definition file and swaps the compiled tariff in whenever the file changes; a definition that
+//does not compile is logged and the tariff in use is kept
+public class TariffWatcher {
+
+    private static final Logger logger = LogManager.getLogger("TariffWatcher");
+
+    private static final Counter RELOADS = Metrics.counter("tariffWatcher.reloads");
+
+    private final Path definitionFile;
+    private long lastModifiedMillis = Long.MIN_VALUE;
+
+    private ScheduledExecutorService scheduler;
+
+    public TariffWatcher(Path definitionFile) {
+        this.definitionFile = definitionFile;
+    }
+
+    public synchronized void start(long intervalMillis) {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "tariff-watcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::reload, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            try {
+                scheduler.awaitTermination(30, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            scheduler = null;
+        }
+    }
+
+    //true when a new tariff was swapped in
+    public synchronized boolean reload() {
+        try {
+            long modifiedMillis = Files.getLastModifiedTime(definitionFile).toMillis();
+            if (modifiedMillis == lastModifiedMillis) {
+                return false;
+            }
+            Tariff tariff;
+            try (Reader reader = Files.newBufferedReader(definitionFile, StandardCharsets.UTF_8)) {
+                tariff = Tariff.load(reader);
+            }
+            lastModifiedMillis = modifiedMillis;
+            FareCalculatorService.setTariff(tariff);
+            RELOADS.increment();
+            logger.info("Loaded tariff from " + definitionFile);
+            return true;
+        } catch (IOException | RuntimeException e) {
+            logger.error("Error loading tariff from " + definitionFile + ", keeping the current one", e);
+            return false;
+        }
+    }
+}
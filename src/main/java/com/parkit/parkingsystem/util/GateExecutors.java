@@ -0,0 +1,29 @@
+package com.parkit.parkingsystem.util;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class GateExecutors {
+
+    private static final Logger logger = LogManager.getLogger("GateExecutors");
+
+    private GateExecutors() {
+    }
+
+    //virtual threads when the JVM has them (Java 21+), a fixed pool of platform threads otherwise
+    public static ExecutorService newGateExecutor(int platformThreads) {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            ExecutorService executor = (ExecutorService) factory.invoke(null);
+            logger.info("Serving gates on virtual threads");
+            return executor;
+        } catch (ReflectiveOperationException e) {
+            logger.info("Virtual threads not available, serving gates on " + platformThreads + " platform threads");
+            return Executors.newFixedThreadPool(platformThreads);
+        }
+    }
+}
@@ -0,0 +1,6 @@
+-- GET_TICKET (plate, latest IN_TIME first), GET_OPEN_TICKETS (plate in (...) and OUT_TIME is null),
+-- COUNT_VEHICLE_TICKETS and GET_VISIT_COUNTS are all answered from this index alone
+create index IDX_TICKET_VEHICLE_IN_OUT on ticket(VEHICLE_REG_NUMBER, IN_TIME, OUT_TIME);
+
+-- open tickets (OUT_TIME is null) without scanning the history
+create index IDX_TICKET_OUT_TIME on ticket(OUT_TIME);
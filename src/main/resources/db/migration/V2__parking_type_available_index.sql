@@ -0,0 +1,2 @@
+-- GET_NEXT_PARKING_SPOT: min(PARKING_NUMBER) is the first entry under (TYPE, AVAILABLE)
+create index IDX_PARKING_TYPE_AVAILABLE on parking(TYPE, AVAILABLE, PARKING_NUMBER);
@@ -0,0 +1,15 @@
+-- closed tickets moved out of ticket by TicketArchiver, one partition per month of OUT_TIME;
+-- the partition clause is a MySQL versioned comment so that other databases create a plain table
+create table ticket_history(
+ ID int NOT NULL,
+ PARKING_NUMBER int NOT NULL,
+ VEHICLE_REG_NUMBER varchar(10) NOT NULL,
+ PRICE double,
+ IN_TIME DATETIME NOT NULL,
+ OUT_TIME DATETIME NOT NULL,
+ PRIMARY KEY (ID, OUT_TIME))
+ /*!50100 PARTITION BY RANGE (TO_DAYS(OUT_TIME))
+ (PARTITION p_past VALUES LESS THAN (TO_DAYS('2020-01-01')),
+ PARTITION p_future VALUES LESS THAN MAXVALUE) */;
+
+create index IDX_TICKET_HISTORY_VEHICLE_IN on ticket_history(VEHICLE_REG_NUMBER, IN_TIME);
@@ -0,0 +1,3 @@
+-- ParkingReportEngine reads the tickets of a time range by IN_TIME
+create index IDX_TICKET_IN_TIME on ticket(IN_TIME);
+create index IDX_TICKET_HISTORY_IN_TIME on ticket_history(IN_TIME);
@@ -0,0 +1,5 @@
+-- lot of the spots and tickets: every lot has its own database, picked by ShardRouter, and spot numbers are only
+-- unique within a lot; the column keeps rows traceable to their lot once exported or merged
+alter table parking add column LOT_ID int NOT NULL default 1;
+alter table ticket add column LOT_ID int NOT NULL default 1;
+alter table ticket_history add column LOT_ID int NOT NULL default 1;
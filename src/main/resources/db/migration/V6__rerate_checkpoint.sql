@@ -0,0 +1,10 @@
+-- progress of the TicketRerater jobs: the last ticket ID re-priced per job and table, committed with the prices
+create table rerate_checkpoint(
+ JOB_NAME varchar(100) NOT NULL,
+ SOURCE_TABLE varchar(30) NOT NULL,
+ FROM_TIME DATETIME NOT NULL,
+ TO_TIME DATETIME NOT NULL,
+ LAST_ID int NOT NULL,
+ RERATED int NOT NULL,
+ UPDATED_ON DATETIME NOT NULL,
+ PRIMARY KEY (JOB_NAME, SOURCE_TABLE));
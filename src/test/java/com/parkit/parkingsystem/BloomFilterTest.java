@@ -0,0 +1,35 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.util.BloomFilter;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BloomFilterTest {
+
+    @Test
+    public void addedKeysAreAlwaysFound() {
+        BloomFilter bloomFilter = new BloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            bloomFilter.put("AB-" + i);
+        }
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(bloomFilter.mightContain("AB-" + i));
+        }
+    }
+
+    @Test
+    public void falsePositiveRateStaysNearTarget() {
+        BloomFilter bloomFilter = new BloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            bloomFilter.put("AB-" + i);
+        }
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (bloomFilter.mightContain("CD-" + i)) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 2_000, "false positives: " + falsePositives);
+    }
+}
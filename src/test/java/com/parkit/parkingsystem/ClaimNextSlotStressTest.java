@@ -0,0 +1,188 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.config.ConnectionPool;
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ClaimNextSlotStressTest {
+
+    private static final int SPOTS = 20000;
+    private static final int CLAIMERS = 16;
+
+    private ParkingTable parkingTable;
+    private ParkingSpotDAO parkingSpotDAO;
+
+    @BeforeEach
+    private void setUpPerTest() {
+        parkingTable = new ParkingTable(SPOTS);
+        parkingSpotDAO = new ParkingSpotDAO();
+        parkingSpotDAO.dataBaseConfig = new StressDataBaseConfig(parkingTable);
+    }
+
+    @Test
+    public void concurrentClaimersNeverShareASpot() throws Exception {
+        //every 10th spot was taken by another process after our inventory was loaded
+        parkingSpotDAO.getSpotInventory();
+        int takenElsewhere = 0;
+        for (int number = 10; number <= SPOTS; number += 10) {
+            parkingTable.available.set(number, 0);
+            takenElsewhere++;
+        }
+
+        Set<Integer> claimed = ConcurrentHashMap.newKeySet();
+        AtomicLong duplicates = new AtomicLong();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(CLAIMERS);
+        for (int i = 0; i < CLAIMERS; i++) {
+            executor.submit(() -> {
+                start.await();
+                int number;
+                while ((number = parkingSpotDAO.claimNextSlot(ParkingType.CAR)) != 0) {
+                    if (number > 0 && !claimed.add(number)) {
+                        duplicates.incrementAndGet();
+                    }
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(60, TimeUnit.SECONDS));
+
+        assertEquals(0, duplicates.get());
+        assertEquals(SPOTS - takenElsewhere, claimed.size());
+        assertEquals(SPOTS - takenElsewhere, parkingTable.successfulClaims.get());
+        for (int number = 1; number <= SPOTS; number++) {
+            assertEquals(0, parkingTable.available.get(number));
+        }
+    }
+
+    @Test
+    public void claimReturnsZeroWhenLotIsFull() {
+        for (int number = 1; number <= SPOTS; number++) {
+            parkingTable.available.set(number, 0);
+        }
+        assertEquals(0, parkingSpotDAO.claimNextSlot(ParkingType.CAR));
+    }
+
+    private static class StressDataBaseConfig extends DataBaseConfig {
+        private final ConnectionPool pool;
+
+        private StressDataBaseConfig(ParkingTable parkingTable) {
+            this.pool = new ConnectionPool("stress-" + System.identityHashCode(parkingTable),
+                    parkingTable::connect, 0, CLAIMERS, 5000, 1);
+        }
+
+        @Override
+        public ConnectionPool getPool() {
+            return pool;
+        }
+    }
+
+    //the parking table as seen through the three statements the claim path uses
+    private static class ParkingTable {
+        private final AtomicIntegerArray available;
+        private final AtomicLong successfulClaims = new AtomicLong();
+
+        private ParkingTable(int spots) {
+            available = new AtomicIntegerArray(spots + 1);
+            for (int number = 1; number <= spots; number++) {
+                available.set(number, 1);
+            }
+        }
+
+        private Connection connect() {
+            return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{Connection.class},
+                    (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "prepareStatement":
+                                return statement((String) args[0]);
+                            case "isValid":
+                            case "getAutoCommit":
+                                return true;
+                            case "isClosed":
+                                return false;
+                            case "hashCode":
+                                return System.identityHashCode(proxy);
+                            case "equals":
+                                return proxy == args[0];
+                            default:
+                                return null;
+                        }
+                    });
+        }
+
+        private PreparedStatement statement(String sql) {
+            int[] parameters = new int[3];
+            return (PreparedStatement) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{PreparedStatement.class},
+                    (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "setInt":
+                                parameters[(Integer) args[0]] = (Integer) args[1];
+                                return null;
+                            case "setBoolean":
+                                parameters[(Integer) args[0]] = ((Boolean) args[1]) ? 1 : 0;
+                                return null;
+                            case "executeQuery":
+                                return spots();
+                            case "executeUpdate":
+                                if (DBConstants.CLAIM_PARKING_SPOT.equals(sql)) {
+                                    boolean claimedNow = available.compareAndSet(parameters[1], 1, 0);
+                                    if (claimedNow) {
+                                        successfulClaims.incrementAndGet();
+                                    }
+                                    return claimedNow ? 1 : 0;
+                                }
+                                available.set(parameters[2], parameters[1]);
+                                return 1;
+                            case "isClosed":
+                                return false;
+                            case "hashCode":
+                                return System.identityHashCode(proxy);
+                            case "equals":
+                                return proxy == args[0];
+                            default:
+                                return null;
+                        }
+                    });
+        }
+
+        private ResultSet spots() {
+            int[] row = {0};
+            return (ResultSet) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{ResultSet.class},
+                    (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "next":
+                                return ++row[0] < available.length();
+                            case "getInt":
+                                return row[0];
+                            case "getBoolean":
+                                return available.get(row[0]) == 1;
+                            case "getString":
+                                return ParkingType.CAR.name();
+                            default:
+                                return null;
+                        }
+                    });
+        }
+    }
+}
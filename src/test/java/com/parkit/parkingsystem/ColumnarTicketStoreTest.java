@@ -0,0 +1,152 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.report.ColumnarTicketStore;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class ColumnarTicketStoreTest {
+
+    private static final long DAY = 1_600_041_600_000L;
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+
+    //the registry of spot inventories keeps the first connection of the test URL
+    private static final Connection connection = mock(Connection.class);
+
+    //three tickets of ABC, one of XYZ still open, one bike ticket of XYZ
+    private static void fill(ColumnarTicketStore store) {
+        store.append(1, ParkingType.CAR, "ABC", DAY, DAY + HOUR, 1500);
+        store.append(2, ParkingType.CAR, "XYZ", DAY + HOUR, -1, 0);
+        store.append(1, ParkingType.CAR, "ABC", DAY + 2 * HOUR, DAY + 4 * HOUR, 3000);
+        store.append(4, ParkingType.BIKE, "XYZ", DAY, DAY + 3 * HOUR + 999, 3000);
+        store.append(1, ParkingType.CAR, "ABC", DAY + 5 * HOUR, DAY + 30 * HOUR, 20000);
+    }
+
+    private static void checkColumns(ColumnarTicketStore store) {
+        assertEquals(5, store.size());
+        assertEquals(TimeUnit.MILLISECONDS.toSeconds(DAY + 2 * HOUR), store.getInSeconds(2));
+        assertEquals(TimeUnit.MILLISECONDS.toSeconds(DAY + 3 * HOUR), store.getOutSeconds(3));
+        assertEquals(-1, store.getOutSeconds(1));
+        assertEquals(3000, store.getPrice(2));
+        assertEquals(4, store.getSpotNumber(3));
+        assertEquals(ParkingType.BIKE, store.getParkingType(3));
+        assertEquals("XYZ", store.getVehicleRegNumber(3));
+        assertEquals(store.getPlateCode(1), store.getPlateCode(3));
+
+        assertEquals(3, store.count(store.ofVehicle("ABC")));
+        assertEquals(0, store.count(store.ofVehicle("NOPE")));
+        assertEquals(4500, store.sumPrice(store.closedBetween(DAY, DAY + 24 * HOUR).and(store.ofType(ParkingType.CAR))));
+        assertEquals(2, store.count(store.enteredBetween(DAY, DAY + HOUR)));
+        long[] revenue = store.revenueByType(DAY, DAY + 24 * HOUR);
+        assertEquals(4500, revenue[ParkingType.CAR.ordinal()]);
+        assertEquals(3000, revenue[ParkingType.BIKE.ordinal()]);
+        assertEquals(1, store.openByType()[ParkingType.CAR.ordinal()]);
+    }
+
+    @Test
+    public void directColumnsGrowAndAnswerScans() {
+        ColumnarTicketStore store = ColumnarTicketStore.allocateDirect(2);
+        fill(store);
+
+        checkColumns(store);
+    }
+
+    @Test
+    public void mappedColumnsGrowAndAnswerScans() throws Exception {
+        File directory = Files.createTempDirectory("columns").toFile();
+        try {
+            ColumnarTicketStore store = ColumnarTicketStore.map(directory, 2);
+            fill(store);
+
+            checkColumns(store);
+            assertTrue(new File(directory, "price.col").length() >= 8 * 5);
+        } finally {
+            for (File file : directory.listFiles()) {
+                file.delete();
+            }
+            directory.delete();
+        }
+    }
+
+    @Test
+    public void closeUpdatesTheOpenTicketOfTheVehicle() {
+        ColumnarTicketStore store = ColumnarTicketStore.allocateDirect(8);
+        fill(store);
+
+        assertTrue(store.close("XYZ", DAY + 3 * HOUR, 3000));
+        assertFalse(store.close("XYZ", DAY + 4 * HOUR, 4500));
+        assertFalse(store.close("ABC", DAY + 4 * HOUR, 4500));
+
+        assertEquals(TimeUnit.MILLISECONDS.toSeconds(DAY + 3 * HOUR), store.getOutSeconds(1));
+        assertEquals(3000, store.getPrice(1));
+        assertEquals(0, store.openByType()[ParkingType.CAR.ordinal()]);
+    }
+
+    @Test
+    public void loadStreamsHistoryAndHotTickets() throws Exception {
+        //spot 1 is a car spot, spot 4 a bike spot
+        PreparedStatement spotStatement = mock(PreparedStatement.class);
+        ResultSet spots = mock(ResultSet.class);
+        when(connection.prepareStatement(DBConstants.GET_PARKING_SPOTS)).thenReturn(spotStatement);
+        when(spotStatement.executeQuery()).thenReturn(spots);
+        when(spots.next()).thenReturn(true, true, false);
+        when(spots.getInt(1)).thenReturn(1, 4);
+        when(spots.getBoolean(2)).thenReturn(true);
+        when(spots.getString(3)).thenReturn("CAR", "BIKE");
+        PreparedStatement history = stubRows(DBConstants.GET_COLUMNAR_HISTORY_TICKETS, "ABC", 1, DAY, DAY + HOUR, 1.5);
+        stubRows(DBConstants.GET_COLUMNAR_TICKETS, "XYZ", 4, DAY + HOUR, -1, 0);
+        DataBaseConfig dataBaseConfig = new DataBaseConfig() {
+            @Override
+            protected String getUrl() {
+                return "jdbc:mysql://localhost:3306/columnarTest";
+            }
+
+            @Override
+            public Connection getConnection() {
+                return connection;
+            }
+
+            @Override
+            public void closeConnection(Connection con) {
+            }
+        };
+        ColumnarTicketStore store = ColumnarTicketStore.allocateDirect(16);
+
+        assertEquals(2, store.load(dataBaseConfig, DAY, DAY + 24 * HOUR));
+
+        verify(history, times(1)).setFetchSize(Integer.MIN_VALUE);
+        assertEquals("ABC", store.getVehicleRegNumber(0));
+        assertEquals(1500, store.getPrice(0));
+        assertEquals(ParkingType.BIKE, store.getParkingType(1));
+        assertEquals(-1, store.getOutSeconds(1));
+        assertTrue(store.close("XYZ", DAY + 2 * HOUR, 2000));
+    }
+
+    private static PreparedStatement stubRows(String sql, String plate, int spot, long inMillis, long outMillis, double price)
+            throws SQLException {
+        PreparedStatement ps = mock(PreparedStatement.class);
+        ResultSet rs = mock(ResultSet.class);
+        when(connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)).thenReturn(ps);
+        when(ps.executeQuery()).thenReturn(rs);
+        when(rs.next()).thenReturn(true, false);
+        when(rs.getTimestamp(1)).thenReturn(new Timestamp(inMillis));
+        when(rs.getTimestamp(2)).thenReturn(outMillis < 0 ? null : new Timestamp(outMillis));
+        when(rs.getDouble(3)).thenReturn(price);
+        when(rs.getInt(4)).thenReturn(spot);
+        when(rs.getString(5)).thenReturn(plate);
+        return ps;
+    }
+}
@@ -0,0 +1,166 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.config.ConnectionPool;
+import com.parkit.parkingsystem.config.PoolStats;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class ConnectionPoolTest {
+
+    private List<Connection> createdConnections;
+    private ConnectionPool connectionPool;
+
+    @BeforeEach
+    private void setUpPerTest() {
+        createdConnections = new ArrayList<>();
+        connectionPool = new ConnectionPool("test", this::newConnection, 2, 3, 50, 1);
+    }
+
+    private Connection newConnection() throws SQLException {
+        Connection con = mock(Connection.class);
+        when(con.isValid(anyInt())).thenReturn(true);
+        when(con.getAutoCommit()).thenReturn(true);
+        when(con.prepareStatement(anyString())).thenAnswer(invocation -> mock(PreparedStatement.class));
+        createdConnections.add(con);
+        return con;
+    }
+
+    @Test
+    public void warmUpOpensMinimumConnections() throws SQLException {
+        connectionPool.warmUp();
+        PoolStats stats = connectionPool.getStats();
+        assertEquals(2, createdConnections.size());
+        assertEquals(2, stats.getIdle());
+        assertEquals(0, stats.getActive());
+    }
+
+    @Test
+    public void releasedConnectionIsReused() throws SQLException {
+        Connection first = connectionPool.acquire();
+        connectionPool.release(first);
+        Connection second = connectionPool.acquire();
+
+        assertSame(first, second);
+        assertEquals(1, createdConnections.size());
+        assertEquals(1, connectionPool.getStats().getActive());
+    }
+
+    @Test
+    public void secondReleaseOfAConnectionIsIgnored() throws SQLException {
+        Connection first = connectionPool.acquire();
+        connectionPool.release(first);
+        connectionPool.release(first);
+
+        PoolStats stats = connectionPool.getStats();
+        assertEquals(0, stats.getActive());
+        assertEquals(1, stats.getIdle());
+        //a second release handing back its permit again would let a fourth connection out
+        Connection second = connectionPool.acquire();
+        connectionPool.acquire();
+        connectionPool.acquire();
+        assertSame(first, second);
+        assertThrows(SQLTimeoutException.class, () -> connectionPool.acquire());
+    }
+
+    @Test
+    public void invalidConnectionIsDiscardedOnBorrow() throws SQLException {
+        Connection first = connectionPool.acquire();
+        connectionPool.release(first);
+        when(first.isValid(anyInt())).thenReturn(false);
+
+        Connection second = connectionPool.acquire();
+
+        assertNotSame(first, second);
+        verify(first, times(1)).close();
+        assertEquals(1, connectionPool.getStats().getDiscardedCount());
+    }
+
+    @Test
+    public void acquireTimesOutWhenPoolIsExhausted() throws SQLException {
+        for (int i = 0; i < 3; i++) {
+            connectionPool.acquire();
+        }
+        assertThrows(SQLTimeoutException.class, () -> connectionPool.acquire());
+        assertEquals(1, connectionPool.getStats().getTimeoutCount());
+        assertEquals(3, connectionPool.getStats().getActive());
+    }
+
+    @Test
+    public void releaseRollsBackOpenTransaction() throws SQLException {
+        Connection con = connectionPool.acquire();
+        when(con.getAutoCommit()).thenReturn(false);
+        connectionPool.release(con);
+
+        verify(con, times(1)).rollback();
+        verify(con, times(1)).setAutoCommit(true);
+        assertEquals(1, connectionPool.getStats().getIdle());
+    }
+
+    @Test
+    public void preparedStatementIsCachedPerConnection() throws SQLException {
+        Connection con = connectionPool.acquire();
+        PreparedStatement first = connectionPool.prepareStatement(con, "select 1", Statement.NO_GENERATED_KEYS);
+        assertTrue(connectionPool.releaseStatement(first));
+        PreparedStatement second = connectionPool.prepareStatement(con, "select 1", Statement.NO_GENERATED_KEYS);
+
+        assertSame(first, second);
+        verify(con, times(1)).prepareStatement("select 1");
+        verify(first, times(1)).clearParameters();
+        verify(first, never()).close();
+        PoolStats stats = connectionPool.getStats();
+        assertEquals(1, stats.getStatementCacheHits());
+        assertEquals(1, stats.getStatementCacheMisses());
+        assertEquals(0.5, stats.getStatementCacheHitRatio());
+    }
+
+    @Test
+    public void unreleasedStatementIsClearedBeforeItsNextUse() throws SQLException {
+        Connection con = connectionPool.acquire();
+        PreparedStatement first = connectionPool.prepareStatement(con, "update a", Statement.NO_GENERATED_KEYS);
+        first.addBatch();
+        //e.g. executeBatch threw and the statement was never released
+        PreparedStatement second = connectionPool.prepareStatement(con, "update a", Statement.NO_GENERATED_KEYS);
+
+        assertSame(first, second);
+        verify(first, times(1)).clearBatch();
+        verify(first, times(1)).clearParameters();
+    }
+
+    @Test
+    public void leastRecentlyUsedStatementIsClosedOnOverflow() throws SQLException {
+        connectionPool = new ConnectionPool("test", this::newConnection, 0, 1, 50, 1, 2);
+        Connection con = connectionPool.acquire();
+        PreparedStatement a = connectionPool.prepareStatement(con, "select a", Statement.NO_GENERATED_KEYS);
+        PreparedStatement b = connectionPool.prepareStatement(con, "select b", Statement.NO_GENERATED_KEYS);
+        connectionPool.prepareStatement(con, "select a", Statement.NO_GENERATED_KEYS);
+        connectionPool.prepareStatement(con, "select c", Statement.NO_GENERATED_KEYS);
+
+        verify(b, times(1)).close();
+        verify(a, never()).close();
+        assertFalse(connectionPool.releaseStatement(b));
+    }
+
+    @Test
+    public void cachedStatementsAreClosedWithTheirConnection() throws SQLException {
+        Connection con = connectionPool.acquire();
+        PreparedStatement ps = connectionPool.prepareStatement(con, "select 1", Statement.NO_GENERATED_KEYS);
+        connectionPool.releaseStatement(ps);
+        connectionPool.release(con);
+        connectionPool.close();
+
+        verify(ps, times(1)).close();
+        verify(con, times(1)).close();
+        assertFalse(connectionPool.releaseStatement(ps));
+    }
+}
@@ -2,6 +2,7 @@ package com.parkit.parkingsystem;
 
 import com.parkit.parkingsystem.constants.Fare;
 import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.metrics.Metrics;
 import com.parkit.parkingsystem.model.ParkingSpot;
 import com.parkit.parkingsystem.model.Ticket;
 import com.parkit.parkingsystem.service.FareCalculatorService;
@@ -124,4 +125,51 @@ public class FareCalculatorServiceTest {
         assertEquals( (24 * Fare.CAR_RATE_PER_HOUR) , ticket.getPrice());
     }
 
+    @Test
+    public void calculateFareWithThirtyMinutesOrLessIsFree(){
+        long inTime = System.currentTimeMillis() - (  30 * 60 * 1000);
+        long outTime = inTime + (  30 * 60 * 1000) + 59 * 1000;
+        assertEquals(0, fareCalculatorService.calculateFare(inTime, outTime, ParkingType.CAR));
+        assertEquals(775, fareCalculatorService.calculateFare(inTime, outTime + 1000, ParkingType.CAR));
+    }
+
+    @Test
+    public void calculateFareFromEpochMillisMatchesTicketFare(){
+        long inTime = System.currentTimeMillis() - (  45 * 60 * 1000);
+        long outTime = System.currentTimeMillis();
+        long price = fareCalculatorService.calculateFare(inTime, outTime, ParkingType.CAR);
+        assertEquals( (0.75 * Fare.CAR_RATE_PER_HOUR) , (double) price / FareCalculatorService.PRICE_SCALE);
+
+        ParkingSpot parkingSpot = new ParkingSpot(1, ParkingType.CAR,false);
+        ticket.setInTime(new Date(inTime));
+        ticket.setOutTime(new Date(outTime));
+        ticket.setParkingSpot(parkingSpot);
+        fareCalculatorService.calculateFare(ticket);
+        assertEquals( (double) price / FareCalculatorService.PRICE_SCALE, ticket.getPrice());
+    }
+
+    @Test
+    public void calculateFareFromEpochMillisWithOutTimeBeforeInTime(){
+        long inTime = System.currentTimeMillis();
+        assertThrows(IllegalArgumentException.class, () -> fareCalculatorService.calculateFare(inTime, inTime - 1, ParkingType.BIKE));
+    }
+
+    @Test
+    public void everyFareIsTimedOnce(){
+        long inTime = System.currentTimeMillis() - (  60 * 60 * 1000);
+        long outTime = System.currentTimeMillis();
+        long before = fareLatencyCount();
+        fareCalculatorService.calculateFare(inTime, outTime, ParkingType.CAR);
+        assertEquals(before + 1, fareLatencyCount());
+
+        ticket.setInTime(new Date(inTime));
+        ticket.setOutTime(new Date(outTime));
+        ticket.setParkingSpot(new ParkingSpot(1, ParkingType.CAR,false));
+        fareCalculatorService.calculateFare(ticket);
+        assertEquals(before + 2, fareLatencyCount());
+    }
+
+    private static long fareLatencyCount(){
+        return Metrics.getHistograms().get("fareCalculator.calculateFare").getCount();
+    }
 }
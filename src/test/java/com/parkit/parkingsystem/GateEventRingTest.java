@@ -0,0 +1,227 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.memory.InMemoryParkingSpotStore;
+import com.parkit.parkingsystem.dao.memory.InMemoryTicketStore;
+import com.parkit.parkingsystem.event.AuditLogHandler;
+import com.parkit.parkingsystem.event.GateEvent;
+import com.parkit.parkingsystem.event.GateEventHandler;
+import com.parkit.parkingsystem.event.GateEventRing;
+import com.parkit.parkingsystem.event.WaitStrategies;
+import com.parkit.parkingsystem.event.WaitStrategy;
+import com.parkit.parkingsystem.model.EntryResult;
+import com.parkit.parkingsystem.model.ExitResult;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.ParkingService;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GateEventRingTest {
+
+    private static final EntryResult PARKED;
+
+    static {
+        Ticket ticket = new Ticket();
+        ticket.setId(7);
+        ticket.setParkingSpot(new ParkingSpot(2, ParkingType.CAR, false));
+        ticket.setVehicleRegNumber("ABCDEF");
+        ticket.setInTime(new Date(1_600_041_600_000L));
+        PARKED = new EntryResult(EntryResult.Status.PARKED, ticket);
+    }
+
+    //copies what it needs, the events are reused
+    private static final class RecordingHandler implements GateEventHandler {
+        private final List<GateEvent.Type> types = Collections.synchronizedList(new ArrayList<>());
+        private volatile long lastSequence = -1;
+        private volatile boolean inOrder = true;
+        private volatile int batches;
+        private volatile boolean shutdown;
+
+        @Override
+        public void onEvent(GateEvent event, long sequence, boolean endOfBatch) {
+            inOrder &= sequence == lastSequence + 1;
+            lastSequence = sequence;
+            types.add(event.getType());
+            if (endOfBatch) {
+                batches++;
+            }
+        }
+
+        @Override
+        public void onShutdown() {
+            shutdown = true;
+        }
+    }
+
+    @Test
+    public void everyHandlerSeesEveryEventOfSeveralGatesInOrder() throws Exception {
+        GateEventRing ring = new GateEventRing(64, GateEventRing.ProducerType.MULTI, WaitStrategies.yielding(), 1000);
+        RecordingHandler first = new RecordingHandler();
+        RecordingHandler second = new RecordingHandler();
+        ring.addHandler("first", first);
+        ring.addHandler("second", second);
+        ring.start();
+        Thread[] gates = new Thread[4];
+        for (int g = 0; g < gates.length; g++) {
+            gates[g] = new Thread(() -> {
+                for (int i = 0; i < 5000; i++) {
+                    assertTrue(ring.publishEntry("ABCDEF", ParkingType.CAR, PARKED, i));
+                }
+            });
+            gates[g].start();
+        }
+        for (Thread gate : gates) {
+            gate.join();
+        }
+        ring.close();
+
+        for (RecordingHandler handler : Arrays.asList(first, second)) {
+            assertEquals(20000, handler.types.size());
+            assertEquals(19999, handler.lastSequence);
+            assertTrue(handler.inOrder);
+            assertTrue(handler.batches <= 20000);
+            assertTrue(handler.shutdown);
+        }
+    }
+
+    @Test
+    public void everyWaitStrategyDeliversEveryEvent() throws Exception {
+        for (WaitStrategy waitStrategy : Arrays.asList(WaitStrategies.busySpin(), WaitStrategies.yielding(),
+                WaitStrategies.named("sleeping"), WaitStrategies.blocking())) {
+            GateEventRing ring = new GateEventRing(16, GateEventRing.ProducerType.SINGLE, waitStrategy, 1000);
+            RecordingHandler handler = new RecordingHandler();
+            ring.addHandler("recording", handler);
+            ring.start();
+            for (int i = 0; i < 1000; i++) {
+                ring.publishExit("ABCDEF", new ExitResult(ExitResult.Status.UNKNOWN_VEHICLE, "ABCDEF", null), i);
+                if (i % 100 == 0) {
+                    //lets the handler go idle
+                    Thread.sleep(2);
+                }
+            }
+            ring.close();
+
+            assertEquals(1000, handler.types.size());
+            assertEquals(GateEvent.Type.UNKNOWN_VEHICLE, handler.types.get(999));
+        }
+        assertThrows(IllegalArgumentException.class, () -> WaitStrategies.named("napping"));
+    }
+
+    @Test
+    public void gateDropsEventsWhenTheSlowestHandlerIsAWholeRingBehind() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        GateEventRing ring = new GateEventRing(4, GateEventRing.ProducerType.SINGLE, WaitStrategies.blocking(), 20);
+        ring.addHandler("stuck", (event, sequence, endOfBatch) -> release.await());
+        RecordingHandler handler = new RecordingHandler();
+        ring.addHandler("recording", handler);
+        ring.start();
+
+        for (int i = 0; i < 4; i++) {
+            assertTrue(ring.publishEntry("ABCDEF", ParkingType.CAR, PARKED, i));
+        }
+        long start = System.nanoTime();
+        assertFalse(ring.publishEntry("ABCDEF", ParkingType.CAR, PARKED, 4));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(20));
+
+        release.countDown();
+        assertTrue(ring.publishEntry("ABCDEF", ParkingType.CAR, PARKED, 5));
+        ring.close();
+        assertEquals(5, handler.types.size());
+        assertFalse(ring.publishEntry("ABCDEF", ParkingType.CAR, PARKED, 6));
+    }
+
+    @Test
+    public void gateDropsEventsBeforeTheRingIsStarted() throws Exception {
+        GateEventRing ring = new GateEventRing(4, GateEventRing.ProducerType.SINGLE, WaitStrategies.blocking(), 20);
+        RecordingHandler handler = new RecordingHandler();
+        ring.addHandler("recording", handler);
+        //more than a ring: with no handler gating it yet, it would wrap
+        for (int i = 0; i < 8; i++) {
+            assertFalse(ring.publishEntry("ABCDEF", ParkingType.CAR, PARKED, i));
+        }
+        ring.start();
+        for (int i = 0; i < 8; i++) {
+            assertTrue(ring.publishEntry("ABCDEF", ParkingType.CAR, PARKED, i));
+        }
+        ring.close();
+
+        assertEquals(8, handler.types.size());
+        assertEquals(7, handler.lastSequence);
+        assertTrue(handler.inOrder);
+    }
+
+    @Test
+    public void slotClaimedBeforeCloseIsHandledButReportedDropped() throws Exception {
+        GateEventRing ring = new GateEventRing(4, GateEventRing.ProducerType.MULTI, WaitStrategies.blocking(), 20);
+        RecordingHandler handler = new RecordingHandler();
+        ring.addHandler("recording", handler);
+        ring.start();
+        assertTrue(ring.publishEntry("ABCDEF", ParkingType.CAR, PARKED, 0));
+        //a gate claims a slot, then the ring is closed before it publishes
+        long sequence = ring.next();
+        Thread closing = new Thread(ring::close);
+        closing.start();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (closing.getState() != Thread.State.TIMED_WAITING && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+
+        //the handlers wait for the slot, but the gate cannot be sure it was seen
+        assertFalse(ring.publish(sequence));
+        closing.join(TimeUnit.SECONDS.toMillis(5));
+
+        assertFalse(closing.isAlive());
+        assertEquals(1, sequence);
+        assertEquals(1, handler.lastSequence);
+        assertTrue(handler.shutdown);
+        assertEquals(-1, ring.next());
+    }
+
+    @Test
+    public void parkingServicePublishesEntriesAndExits() throws Exception {
+        File auditFile = File.createTempFile("audit", ".csv");
+        try {
+            GateEventRing ring = new GateEventRing(16, GateEventRing.ProducerType.MULTI, WaitStrategies.blocking(), 1000);
+            RecordingHandler handler = new RecordingHandler();
+            ring.addHandler("recording", handler);
+            ring.addHandler("audit", new AuditLogHandler(auditFile));
+            ring.start();
+            InMemoryParkingSpotStore parkingSpotStore = InMemoryParkingSpotStore.withCapacity(1, 0);
+            ParkingService parkingService = new ParkingService(parkingSpotStore, new InMemoryTicketStore(parkingSpotStore));
+            parkingService.setGateEvents(ring);
+
+            parkingService.enter("ABCDEF", ParkingType.CAR);
+            parkingService.enter("GHIJKL", ParkingType.CAR);
+            parkingService.exit("ABCDEF");
+            parkingService.processExitingVehicles(Arrays.asList("GHIJKL"));
+            ring.close();
+
+            assertEquals(Arrays.asList(GateEvent.Type.PARKED, GateEvent.Type.LOT_FULL, GateEvent.Type.EXITED,
+                    GateEvent.Type.UNKNOWN_VEHICLE), handler.types);
+            List<String> lines = Files.readAllLines(auditFile.toPath(), StandardCharsets.UTF_8);
+            assertEquals(4, lines.size());
+            String[] exited = lines.get(2).split(",", -1);
+            assertEquals("EXITED", exited[1]);
+            assertEquals("ABCDEF", exited[2]);
+            assertEquals("CAR", exited[3]);
+            assertEquals("1", exited[5]);
+            assertEquals("1", exited[6]);
+            assertFalse(exited[8].isEmpty());
+        } finally {
+            auditFile.delete();
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotStore;
+import com.parkit.parkingsystem.dao.TicketStore;
+import com.parkit.parkingsystem.dao.memory.InMemoryParkingSpotStore;
+import com.parkit.parkingsystem.dao.memory.InMemoryTicketStore;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InMemoryStoreTest extends StoreContract {
+
+    @Override
+    protected ParkingSpotStore newParkingSpotStore() {
+        return InMemoryParkingSpotStore.withCapacity(3, 2);
+    }
+
+    @Override
+    protected TicketStore newTicketStore(ParkingSpotStore parkingSpotStore) {
+        return new InMemoryTicketStore(parkingSpotStore);
+    }
+
+    @Test
+    public void returnedTicketsAreCopies() {
+        Ticket ticket = new Ticket();
+        ticket.setVehicleRegNumber("ABCDEF");
+        ticket.setParkingSpot(new ParkingSpot(1, ParkingType.CAR, false));
+        ticket.setInTime(new Date(1_600_000_000_000L));
+        ticketStore.saveTicket(ticket);
+
+        ticketStore.getTicket("ABCDEF").setOutTime(new Date());
+
+        assertNull(ticketStore.getTicket("ABCDEF").getOutTime());
+    }
+
+    @Test
+    public void concurrentSavesGetDistinctIds() throws Exception {
+        InMemoryTicketStore store = new InMemoryTicketStore(parkingSpotStore);
+        int threads = 8;
+        int ticketsPerThread = 2000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            executor.execute(() -> {
+                for (int i = 0; i < ticketsPerThread; i++) {
+                    Ticket ticket = new Ticket();
+                    ticket.setVehicleRegNumber("T" + thread + "-" + i);
+                    ticket.setParkingSpot(new ParkingSpot(1, ParkingType.CAR, false));
+                    ticket.setInTime(new Date(i * 1000L));
+                    store.saveTicket(ticket);
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(threads * ticketsPerThread, store.getTicketCount());
+        for (int t = 0; t < threads; t++) {
+            assertEquals(1, store.getTickets("T" + t + "-" + (ticketsPerThread - 1), false).size());
+        }
+    }
+}
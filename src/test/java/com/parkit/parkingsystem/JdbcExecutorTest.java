@@ -0,0 +1,97 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.config.JdbcExecutor;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.model.EntryResult;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.ParkingService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JdbcExecutorTest {
+
+    private JdbcExecutor jdbcExecutor;
+
+    @BeforeEach
+    private void setUpPerTest() {
+        jdbcExecutor = new JdbcExecutor("test", 1, 1);
+    }
+
+    @AfterEach
+    private void tearDownPerTest() {
+        jdbcExecutor.shutdown();
+    }
+
+    @Test
+    public void saturatedExecutorRejectsInsteadOfQueueing() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch running = new CountDownLatch(1);
+        CompletableFuture<Integer> busy = jdbcExecutor.supplyAsync(() -> {
+            running.countDown();
+            await(release);
+            return 1;
+        });
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+        CompletableFuture<Integer> queued = jdbcExecutor.supplyAsync(() -> 2);
+
+        CompletableFuture<Integer> rejected = jdbcExecutor.supplyAsync(() -> 3);
+
+        assertTrue(rejected.isCompletedExceptionally());
+        ExecutionException e = assertThrows(ExecutionException.class, rejected::get);
+        assertTrue(e.getCause() instanceof RejectedExecutionException);
+        assertEquals(1, jdbcExecutor.getRejectedCount());
+        release.countDown();
+        assertEquals(1, (int) busy.get(5, TimeUnit.SECONDS));
+        assertEquals(2, (int) queued.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void serviceRunsEntryOnTheJdbcExecutor() throws Exception {
+        DataBaseConfig dataBaseConfig = new DataBaseConfig() {
+            @Override
+            public JdbcExecutor getJdbcExecutor() {
+                return jdbcExecutor;
+            }
+        };
+        ParkingSpotDAO parkingSpotDAO = new ParkingSpotDAO() {
+            @Override
+            public int claimNextSlot(ParkingType parkingType) {
+                return 4;
+            }
+        };
+        TicketDAO ticketDAO = new TicketDAO() {
+            @Override
+            public boolean saveTicket(Ticket ticket) {
+                assertTrue(Thread.currentThread().getName().startsWith("jdbc-executor-"));
+                return true;
+            }
+        };
+        ticketDAO.dataBaseConfig = dataBaseConfig;
+        ParkingService parkingService = new ParkingService(parkingSpotDAO, ticketDAO);
+
+        EntryResult entryResult = parkingService.enterAsync("ABCDEF", ParkingType.BIKE).get(5, TimeUnit.SECONDS);
+
+        assertEquals(EntryResult.Status.PARKED, entryResult.getStatus());
+        assertEquals(4, entryResult.getTicket().getParkingSpot().getId());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.journal.Journal;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JournalTest {
+
+    private File directory;
+
+    @BeforeEach
+    private void setUpPerTest() throws IOException {
+        directory = Files.createTempDirectory("journal-test").toFile();
+    }
+
+    @AfterEach
+    private void tearDownPerTest() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void recordsAreReplayedInOrderAcrossSegments() throws IOException {
+        Journal journal = new Journal(directory, 64, Journal.FsyncPolicy.ALWAYS, 0);
+        for (int i = 0; i < 20; i++) {
+            journal.append(record(i));
+        }
+        journal.close();
+
+        List<Integer> replayed = new ArrayList<>();
+        int count = new Journal(directory, 64, Journal.FsyncPolicy.NEVER, 0).replay(payload -> replayed.add(payload.getInt()));
+
+        assertEquals(20, count);
+        for (int i = 0; i < 20; i++) {
+            assertEquals(i, (int) replayed.get(i));
+        }
+        assertTrue(directory.list().length > 1);
+    }
+
+    @Test
+    public void replayStopsAtACorruptRecord() throws IOException {
+        Journal journal = new Journal(directory, 4096, Journal.FsyncPolicy.NEVER, 0);
+        for (int i = 0; i < 3; i++) {
+            journal.append(record(i));
+        }
+        journal.close();
+        //flip a byte in the payload of the second record: header 8 bytes, payload 4 bytes
+        try (RandomAccessFile segment = new RandomAccessFile(directory.listFiles()[0], "rw")) {
+            segment.seek(12 + 8);
+            segment.write(0x7f);
+        }
+
+        List<Integer> replayed = new ArrayList<>();
+        int count = new Journal(directory, 4096, Journal.FsyncPolicy.NEVER, 0).replay(payload -> replayed.add(payload.getInt()));
+
+        assertEquals(1, count);
+        assertEquals(0, (int) replayed.get(0));
+    }
+
+    @Test
+    public void segmentsBeforeACheckpointAreDeleted() throws IOException {
+        Journal journal = new Journal(directory, 64, Journal.FsyncPolicy.NEVER, 0);
+        for (int i = 0; i < 10; i++) {
+            journal.append(record(i));
+        }
+        long checkpoint = journal.startSegment();
+        journal.append(record(42));
+        journal.deleteSegmentsBefore(checkpoint);
+
+        List<Integer> replayed = new ArrayList<>();
+        journal.replay(payload -> replayed.add(payload.getInt()));
+        journal.close();
+
+        assertEquals(1, journal.getSegmentCount());
+        assertEquals(1, replayed.size());
+        assertEquals(42, (int) replayed.get(0));
+    }
+
+    @Test
+    public void snapshotIsReplayedBeforeTheSegmentsAppendedWhileItWasWritten() throws IOException {
+        Journal journal = new Journal(directory, 64, Journal.FsyncPolicy.NEVER, 0);
+        for (int i = 0; i < 10; i++) {
+            journal.append(record(i));
+        }
+        long checkpoint = journal.startSegment();
+        try (Journal.Snapshot snapshot = journal.startSnapshot(checkpoint)) {
+            snapshot.append(record(100));
+            //appends go on while the snapshot is written
+            journal.append(record(42));
+            snapshot.append(record(101));
+            snapshot.commit();
+        }
+        journal.deleteSegmentsBefore(checkpoint);
+        journal.close();
+
+        List<Integer> replayed = new ArrayList<>();
+        new Journal(directory, 64, Journal.FsyncPolicy.NEVER, 0).replay(payload -> replayed.add(payload.getInt()));
+
+        assertEquals(3, replayed.size());
+        assertEquals(100, (int) replayed.get(0));
+        assertEquals(101, (int) replayed.get(1));
+        assertEquals(42, (int) replayed.get(2));
+        assertEquals(1, journal.getSegmentCount());
+    }
+
+    @Test
+    public void unfinishedSnapshotIsIgnored() throws IOException {
+        Journal journal = new Journal(directory, 64, Journal.FsyncPolicy.NEVER, 0);
+        journal.append(record(1));
+        long checkpoint = journal.startSegment();
+        try (Journal.Snapshot snapshot = journal.startSnapshot(checkpoint)) {
+            snapshot.append(record(100));
+        }
+        journal.close();
+
+        List<Integer> replayed = new ArrayList<>();
+        new Journal(directory, 64, Journal.FsyncPolicy.NEVER, 0).replay(payload -> replayed.add(payload.getInt()));
+
+        assertEquals(1, replayed.size());
+        assertEquals(1, (int) replayed.get(0));
+    }
+
+    private static ByteBuffer record(int value) {
+        ByteBuffer record = ByteBuffer.allocate(4);
+        record.putInt(value);
+        record.flip();
+        return record;
+    }
+}
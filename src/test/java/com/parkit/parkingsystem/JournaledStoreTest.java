@@ -0,0 +1,108 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotStore;
+import com.parkit.parkingsystem.dao.TicketStore;
+import com.parkit.parkingsystem.dao.memory.InMemoryParkingSpotStore;
+import com.parkit.parkingsystem.dao.memory.InMemoryTicketStore;
+import com.parkit.parkingsystem.journal.Journal;
+import com.parkit.parkingsystem.journal.ParkingJournal;
+import com.parkit.parkingsystem.model.EntryResult;
+import com.parkit.parkingsystem.model.ExitResult;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.ParkingService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JournaledStoreTest extends StoreContract {
+
+    private File directory;
+    private ParkingJournal parkingJournal;
+
+    @Override
+    protected ParkingSpotStore newParkingSpotStore() throws IOException {
+        directory = Files.createTempDirectory("journaled-store-test").toFile();
+        parkingJournal = open();
+        parkingJournal.recover();
+        return parkingJournal.getParkingSpotStore();
+    }
+
+    @Override
+    protected TicketStore newTicketStore(ParkingSpotStore parkingSpotStore) {
+        return parkingJournal.getTicketStore();
+    }
+
+    @AfterEach
+    private void tearDownPerTest() {
+        parkingJournal.close();
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    private ParkingJournal open() throws IOException {
+        InMemoryParkingSpotStore parkingSpotStore = InMemoryParkingSpotStore.withCapacity(3, 2);
+        Journal journal = new Journal(directory, 4096, Journal.FsyncPolicy.NEVER, 0);
+        return new ParkingJournal(journal, parkingSpotStore, new InMemoryTicketStore(parkingSpotStore));
+    }
+
+    @Test
+    public void parkedAndExitedVehiclesSurviveARestart() throws IOException {
+        Clock clock = Clock.fixed(Instant.ofEpochSecond(1_600_000_000L), ZoneOffset.UTC);
+        ParkingService parkingService = new ParkingService(parkingJournal.getParkingSpotStore(), parkingJournal.getTicketStore(), clock);
+        EntryResult parked = parkingService.enter("ABCDEF", ParkingType.CAR);
+        parkingService.enter("GHIJKL", ParkingType.CAR);
+        parkingService.enter("MNOPQR", ParkingType.BIKE);
+        parkingService.processExitingVehicles(Collections.singletonList("GHIJKL"));
+        //the journal of the crashed process is not closed
+        ParkingJournal restarted = open();
+
+        //5 spots of the startup snapshot, 3 claims, 3 tickets and one group exit
+        assertEquals(12, restarted.recover());
+
+        TicketStore tickets = restarted.getTicketStore();
+        ParkingSpotStore spots = restarted.getParkingSpotStore();
+        Ticket ticket = tickets.getTicket("ABCDEF");
+        assertEquals(parked.getTicket().getId(), ticket.getId());
+        assertNull(ticket.getOutTime());
+        assertNotNull(tickets.getTicket("GHIJKL").getOutTime());
+        assertEquals(2, spots.getNextAvailableSlot(ParkingType.CAR));
+        assertEquals(5, spots.getNextAvailableSlot(ParkingType.BIKE));
+        //recovery checkpointed: a snapshot and one segment for the changes after it
+        assertEquals(1, restarted.getJournal().getSegmentCount());
+        restarted.close();
+    }
+
+    @Test
+    public void changesAfterACheckpointAreReplayedOnTopOfIt() throws IOException {
+        ParkingService parkingService = new ParkingService(parkingJournal.getParkingSpotStore(), parkingJournal.getTicketStore());
+        parkingService.enter("ABCDEF", ParkingType.CAR);
+        parkingJournal.checkpoint();
+        parkingService.enter("GHIJKL", ParkingType.CAR);
+        ExitResult exit = parkingService.exit("ABCDEF");
+        assertEquals(ExitResult.Status.EXITED, exit.getStatus());
+        parkingJournal.close();
+
+        ParkingJournal restarted = open();
+        restarted.recover();
+
+        assertNotNull(restarted.getTicketStore().getTicket("ABCDEF").getOutTime());
+        assertEquals(2, restarted.getTicketStore().getTicket("GHIJKL").getId());
+        assertEquals(1, restarted.getParkingSpotStore().getNextAvailableSlot(ParkingType.CAR));
+        restarted.close();
+    }
+}
@@ -0,0 +1,101 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.metrics.Counter;
+import com.parkit.parkingsystem.metrics.HistogramSnapshot;
+import com.parkit.parkingsystem.metrics.LatencyHistogram;
+import com.parkit.parkingsystem.metrics.Metrics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MetricsTest {
+
+    @BeforeEach
+    private void setUpPerTest() {
+        Metrics.reset();
+    }
+
+    @Test
+    public void percentilesAreWithinBucketPrecision() {
+        LatencyHistogram histogram = Metrics.histogram("test.percentiles");
+        for (long nanos = 1; nanos <= 100_000; nanos++) {
+            histogram.record(nanos * 1000);
+        }
+
+        HistogramSnapshot snapshot = histogram.snapshot();
+
+        assertEquals(100_000, snapshot.getCount());
+        assertEquals(100_000_000, snapshot.getMaxNanos());
+        assertEquals(50_000_500, snapshot.getMeanNanos(), 1);
+        assertWithinPrecision(50_000_000, snapshot.getPercentileNanos(50));
+        assertWithinPrecision(99_000_000, snapshot.getPercentileNanos(99));
+        assertWithinPrecision(99_900_000, snapshot.getPercentileNanos(99.9));
+        assertEquals(100_000_000, snapshot.getPercentileNanos(100));
+    }
+
+    @Test
+    public void smallAndHugeValuesAreRecorded() {
+        LatencyHistogram histogram = Metrics.histogram("test.range");
+        histogram.record(0);
+        histogram.record(7);
+        histogram.record(Long.MAX_VALUE);
+
+        HistogramSnapshot snapshot = histogram.snapshot();
+
+        assertEquals(3, snapshot.getCount());
+        assertEquals(7, snapshot.getPercentileNanos(50));
+        assertEquals(Long.MAX_VALUE, snapshot.getPercentileNanos(100));
+    }
+
+    @Test
+    public void concurrentRecordingLosesNothing() throws Exception {
+        LatencyHistogram histogram = Metrics.histogram("test.concurrent");
+        Counter counter = Metrics.counter("test.concurrent");
+        int threads = 8;
+        int recordsPerThread = 100_000;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        for (int i = 0; i < threads; i++) {
+            executor.submit(() -> {
+                start.await();
+                for (int j = 0; j < recordsPerThread; j++) {
+                    histogram.record(j);
+                    counter.increment();
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        assertEquals(threads * recordsPerThread, histogram.snapshot().getCount());
+        assertEquals(threads * recordsPerThread, (long) Metrics.getCounters().get("test.concurrent"));
+    }
+
+    @Test
+    public void registryReturnsTheSameInstrumentsAndDumpsThem() {
+        assertSame(Metrics.histogram("test.dump"), Metrics.histogram("test.dump"));
+        assertSame(Metrics.counter("test.dump"), Metrics.counter("test.dump"));
+        Metrics.histogram("test.dump").record(2_000);
+        Metrics.counter("test.dump").add(3);
+
+        assertTrue(Metrics.getHistograms().containsKey("test.dump"));
+        assertTrue(Metrics.dump().contains("test.dump = 3"));
+        assertTrue(Metrics.dump().contains("test.dump count=1"));
+
+        Metrics.reset();
+        assertEquals(0, Metrics.getHistograms().get("test.dump").getCount());
+        assertEquals(0, (long) Metrics.getCounters().get("test.dump"));
+    }
+
+    private static void assertWithinPrecision(long expected, long actual) {
+        assertTrue(Math.abs(actual - expected) <= expected / 16, "expected ~" + expected + " but was " + actual);
+    }
+}
@@ -0,0 +1,109 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.OccupancyCounters;
+import com.parkit.parkingsystem.dao.OccupancyReconciler;
+import com.parkit.parkingsystem.dao.SpotInventory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class OccupancyReconcilerTest {
+
+    //static: the spot inventory of the test URL is shared, and keeps the config of the first test
+    private static Connection connection;
+    //parking table: spots 1 and 2 are car spots, 3 is a bike spot
+    private static boolean[] available;
+    private DataBaseConfig dataBaseConfig;
+    private OccupancyReconciler occupancyReconciler;
+
+    @BeforeEach
+    private void setUpPerTest() throws Exception {
+        available = new boolean[]{true, true, true};
+        connection = mock(Connection.class);
+        PreparedStatement getSpots = mock(PreparedStatement.class);
+        when(connection.prepareStatement(DBConstants.GET_PARKING_SPOTS)).thenReturn(getSpots);
+        when(getSpots.executeQuery()).thenAnswer(invocation -> spotRows());
+        PreparedStatement countSpots = mock(PreparedStatement.class);
+        when(connection.prepareStatement(DBConstants.COUNT_PARKING_SPOTS)).thenReturn(countSpots);
+        when(countSpots.executeQuery()).thenAnswer(invocation -> countRows());
+        dataBaseConfig = new DataBaseConfig() {
+            @Override
+            protected String getUrl() {
+                return "jdbc:mysql://localhost:3306/occupancyTest";
+            }
+
+            @Override
+            public Connection getConnection() {
+                return connection;
+            }
+
+            @Override
+            public void closeConnection(Connection con) {
+            }
+        };
+        SpotInventory.of(dataBaseConfig).reload();
+        occupancyReconciler = new OccupancyReconciler(dataBaseConfig);
+    }
+
+    private ResultSet spotRows() throws Exception {
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.next()).thenReturn(true, true, true, false);
+        when(rs.getInt(1)).thenReturn(1, 2, 3);
+        when(rs.getBoolean(2)).thenReturn(available[0], available[1], available[2]);
+        when(rs.getString(3)).thenReturn("CAR", "CAR", "BIKE");
+        return rs;
+    }
+
+    private ResultSet countRows() throws Exception {
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.next()).thenReturn(true, true, false);
+        when(rs.getString(1)).thenReturn("CAR", "BIKE");
+        when(rs.getInt(2)).thenReturn(2, 1);
+        when(rs.getInt(3)).thenReturn((available[0] ? 1 : 0) + (available[1] ? 1 : 0), available[2] ? 1 : 0);
+        return rs;
+    }
+
+    @Test
+    public void countersInLineWithTheTableAreLeftAlone() throws Exception {
+        assertEquals(0, occupancyReconciler.reconcile());
+        assertEquals(0, occupancyReconciler.reconcile());
+
+        verify(connection, times(1)).prepareStatement(DBConstants.GET_PARKING_SPOTS);
+    }
+
+    @Test
+    public void persistentDriftIsCorrectedOnTheSecondRun() throws Exception {
+        OccupancyCounters counters = SpotInventory.of(dataBaseConfig).getOccupancyCounters();
+        //taken by another process
+        available[1] = false;
+
+        assertEquals(0, occupancyReconciler.reconcile());
+        assertEquals(2, counters.getAvailable(ParkingType.CAR));
+
+        assertEquals(1, occupancyReconciler.reconcile());
+        assertEquals(1, counters.getAvailable(ParkingType.CAR));
+        assertFalse(SpotInventory.of(dataBaseConfig).isAvailable(2));
+        assertEquals(0, occupancyReconciler.reconcile());
+    }
+
+    @Test
+    public void transientDriftIsNotCorrected() throws Exception {
+        OccupancyCounters counters = SpotInventory.of(dataBaseConfig).getOccupancyCounters();
+        //a gate claimed the spot in memory and has not updated the table yet
+        SpotInventory.of(dataBaseConfig).claimNextAvailableSlot(ParkingType.BIKE);
+
+        assertEquals(0, occupancyReconciler.reconcile());
+        available[2] = false;
+        assertEquals(0, occupancyReconciler.reconcile());
+        assertEquals(0, counters.getAvailable(ParkingType.BIKE));
+    }
+}
@@ -0,0 +1,75 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.OpenTicketCache;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OpenTicketCacheTest {
+
+    private OpenTicketCache openTicketCache;
+
+    @BeforeEach
+    private void setUpPerTest() {
+        openTicketCache = new OpenTicketCache(3);
+    }
+
+    private Ticket ticket(String vehicleRegNumber) {
+        Ticket ticket = new Ticket();
+        ticket.setParkingSpot(new ParkingSpot(1, ParkingType.CAR, false));
+        ticket.setVehicleRegNumber(vehicleRegNumber);
+        ticket.setInTime(new Date());
+        return ticket;
+    }
+
+    @Test
+    public void countsHitsAndMisses() {
+        Ticket ticket = ticket("ABCDEF");
+        openTicketCache.put(ticket);
+
+        assertSame(ticket, openTicketCache.get("ABCDEF"));
+        assertNull(openTicketCache.get("GHIJKL"));
+        assertEquals(1, openTicketCache.getHitCount());
+        assertEquals(1, openTicketCache.getMissCount());
+    }
+
+    @Test
+    public void removedTicketIsNoLongerCached() {
+        openTicketCache.put(ticket("ABCDEF"));
+        openTicketCache.remove("ABCDEF");
+
+        assertNull(openTicketCache.get("ABCDEF"));
+        assertEquals(0, openTicketCache.size());
+    }
+
+    @Test
+    public void oldestTicketIsEvictedWhenFull() {
+        openTicketCache.put(ticket("AAA"));
+        openTicketCache.put(ticket("BBB"));
+        openTicketCache.put(ticket("CCC"));
+        openTicketCache.put(ticket("DDD"));
+
+        assertEquals(3, openTicketCache.size());
+        assertNull(openTicketCache.get("AAA"));
+        assertNotNull(openTicketCache.get("DDD"));
+        assertEquals(1, openTicketCache.getEvictionCount());
+    }
+
+    @Test
+    public void sizeStaysBoundedUnderChurn() {
+        for (int i = 0; i < 1000; i++) {
+            openTicketCache.put(ticket("REG" + i));
+            if (i % 2 == 0) {
+                openTicketCache.remove("REG" + i);
+            }
+        }
+        assertTrue(openTicketCache.size() <= 3);
+        assertNotNull(openTicketCache.get("REG999"));
+    }
+}
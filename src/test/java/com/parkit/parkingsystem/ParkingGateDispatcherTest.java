@@ -0,0 +1,61 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.memory.InMemoryParkingSpotStore;
+import com.parkit.parkingsystem.dao.memory.InMemoryTicketStore;
+import com.parkit.parkingsystem.model.EntryResult;
+import com.parkit.parkingsystem.service.ParkingGateDispatcher;
+import com.parkit.parkingsystem.service.ParkingService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ParkingGateDispatcherTest {
+
+    private ParkingService parkingService;
+
+    @BeforeEach
+    private void setUpPerTest() {
+        InMemoryParkingSpotStore parkingSpotStore = InMemoryParkingSpotStore.withCapacity(3, 2);
+        parkingService = new ParkingService(parkingSpotStore, new InMemoryTicketStore(parkingSpotStore));
+    }
+
+    @Test
+    public void shutdownWaitsForTheGateTasks() throws Exception {
+        ParkingGateDispatcher dispatcher = new ParkingGateDispatcher(parkingService, 2);
+        Future<EntryResult> entry = dispatcher.enter("ABCDEF", ParkingType.CAR);
+
+        assertTrue(dispatcher.shutdown(5, TimeUnit.SECONDS));
+        assertTrue(entry.get().isParked());
+    }
+
+    @Test
+    public void shutdownAbandonsTheTasksLeftAfterTheTimeout() throws Exception {
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+        ParkingGateDispatcher dispatcher = new ParkingGateDispatcher(parkingService, executorService);
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        executorService.submit(() -> {
+            running.countDown();
+            try {
+                Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+        });
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+        Future<EntryResult> queued = dispatcher.enter("ABCDEF", ParkingType.CAR);
+
+        assertFalse(dispatcher.shutdown(50, TimeUnit.MILLISECONDS));
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+        assertFalse(queued.isDone());
+        assertTrue(executorService.awaitTermination(5, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,159 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.report.ParkingReport;
+import com.parkit.parkingsystem.report.ParkingReportEngine;
+import com.parkit.parkingsystem.report.ReportGranularity;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class ParkingReportTest {
+
+    private static final long DAY = 1_600_041_600_000L;
+    private static final long MINUTE = TimeUnit.MINUTES.toMillis(1);
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+
+    private Connection connection;
+    private DataBaseConfig dataBaseConfig;
+    private ParkingReportEngine engine;
+
+    @BeforeEach
+    private void setUpPerTest() throws Exception {
+        connection = mock(Connection.class);
+        //spot 1 is a car spot, spot 4 a bike spot
+        PreparedStatement spotStatement = mock(PreparedStatement.class);
+        ResultSet spots = mock(ResultSet.class);
+        when(connection.prepareStatement(DBConstants.GET_PARKING_SPOTS)).thenReturn(spotStatement);
+        when(spotStatement.executeQuery()).thenReturn(spots);
+        when(spots.next()).thenReturn(true, true, false);
+        when(spots.getInt(1)).thenReturn(1, 4);
+        when(spots.getBoolean(2)).thenReturn(true);
+        when(spots.getString(3)).thenReturn("CAR", "BIKE");
+        for (String sql : new String[]{DBConstants.GET_REPORT_TICKETS, DBConstants.GET_REPORT_HISTORY_TICKETS,
+                DBConstants.GET_REPORT_CARRIED_TICKETS, DBConstants.GET_REPORT_CARRIED_HISTORY_TICKETS}) {
+            stubRows(sql);
+        }
+        dataBaseConfig = new DataBaseConfig() {
+            @Override
+            protected String getUrl() {
+                return "jdbc:mysql://localhost:3306/reportTest";
+            }
+
+            @Override
+            public Connection getConnection() {
+                return connection;
+            }
+
+            @Override
+            public void closeConnection(Connection con) {
+            }
+        };
+        engine = new ParkingReportEngine(dataBaseConfig, ZoneOffset.UTC,
+                Clock.fixed(Instant.ofEpochMilli(DAY + 3 * HOUR), ZoneOffset.UTC), 2, TimeUnit.DAYS.toMillis(1));
+    }
+
+    @AfterEach
+    private void tearDownPerTest() {
+        engine.close();
+    }
+
+    //rows of {parking number, in time, out time or -1, price}
+    private void stubRows(String sql, long[]... rows) throws SQLException {
+        PreparedStatement ps = mock(PreparedStatement.class);
+        ResultSet rs = mock(ResultSet.class);
+        when(connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)).thenReturn(ps);
+        when(ps.executeQuery()).thenReturn(rs);
+        int[] row = {-1};
+        when(rs.next()).thenAnswer(invocation -> ++row[0] < rows.length);
+        when(rs.getInt(4)).thenAnswer(invocation -> (int) rows[row[0]][0]);
+        when(rs.getTimestamp(1)).thenAnswer(invocation -> new Timestamp(rows[row[0]][1]));
+        when(rs.getTimestamp(2)).thenAnswer(invocation -> rows[row[0]][2] < 0 ? null : new Timestamp(rows[row[0]][2]));
+        when(rs.getDouble(3)).thenAnswer(invocation -> rows[row[0]][3] / 1000.0);
+    }
+
+    @Test
+    public void hourlyReportFoldsEntriesExitsRevenueAndOccupancy() throws Exception {
+        stubRows(DBConstants.GET_REPORT_TICKETS,
+                new long[]{1, DAY + 30 * MINUTE, DAY + 150 * MINUTE, 3000},
+                new long[]{4, DAY + HOUR, -1, 0});
+        //parked before the report starts, leaves within its first hour
+        stubRows(DBConstants.GET_REPORT_CARRIED_TICKETS,
+                new long[]{1, DAY - HOUR, DAY + 15 * MINUTE, 1500});
+
+        ParkingReport report = engine.report(DAY, DAY + 4 * HOUR, ReportGranularity.HOUR);
+
+        assertEquals(4, report.getBucketCount());
+        assertEquals(3, report.getRowCount());
+        assertEquals(1, report.getEntries(ParkingType.CAR, 0));
+        assertEquals(0, report.getEntries(ParkingType.CAR, 1));
+        assertEquals(1, report.getEntries(ParkingType.BIKE, 1));
+        assertEquals(1, report.getExits(ParkingType.CAR, 0));
+        assertEquals(1, report.getExits(ParkingType.CAR, 2));
+        assertEquals(1500, report.getRevenue(ParkingType.CAR, 0));
+        assertEquals(3000, report.getRevenue(ParkingType.CAR, 2));
+        assertEquals(4500, report.getTotalRevenue(ParkingType.CAR));
+        assertEquals(0, report.getTotalRevenue(ParkingType.BIKE));
+        assertEquals(0.75, report.getOccupancy(ParkingType.CAR, 0), 1e-9);
+        assertEquals(1.0, report.getOccupancy(ParkingType.CAR, 1), 1e-9);
+        assertEquals(0.5, report.getOccupancy(ParkingType.CAR, 2), 1e-9);
+        //the open bike ticket counts until now, the start of the last bucket
+        assertEquals(1.0, report.getOccupancy(ParkingType.BIKE, 2), 1e-9);
+        assertEquals(0.0, report.getOccupancy(ParkingType.BIKE, 3), 1e-9);
+    }
+
+    @Test
+    public void rowsAreStreamedWithTheStreamingFetchSize() throws Exception {
+        PreparedStatement ps = mock(PreparedStatement.class);
+        when(ps.executeQuery()).thenReturn(mock(ResultSet.class));
+        when(connection.prepareStatement(DBConstants.GET_REPORT_HISTORY_TICKETS, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY))
+                .thenReturn(ps);
+
+        assertNotNull(engine.report(DAY, DAY + HOUR, ReportGranularity.HOUR));
+
+        verify(ps, times(1)).setFetchSize(Integer.MIN_VALUE);
+        verify(ps, times(1)).setTimestamp(1, new Timestamp(DAY));
+        verify(ps, times(1)).setTimestamp(2, new Timestamp(DAY + HOUR));
+    }
+
+    @Test
+    public void dailyBucketsFollowTheLocalCalendar() {
+        ZoneId paris = ZoneId.of("Europe/Paris");
+        ParkingReportEngine parisEngine = new ParkingReportEngine(dataBaseConfig, paris, Clock.systemUTC(), 1, Long.MAX_VALUE);
+        long from = LocalDate.of(2020, 10, 24).atStartOfDay(paris).toInstant().toEpochMilli();
+        long to = LocalDate.of(2020, 10, 26).atStartOfDay(paris).toInstant().toEpochMilli();
+
+        ParkingReport report = parisEngine.report(from, to, ReportGranularity.DAY);
+        parisEngine.close();
+
+        assertEquals(2, report.getBucketCount());
+        assertEquals(24 * HOUR, report.getBucketEnd(0) - report.getBucketStart(0));
+        //summer time ends on the 25th
+        assertEquals(25 * HOUR, report.getBucketEnd(1) - report.getBucketStart(1));
+    }
+
+    @Test
+    public void databaseErrorGivesNoReport() throws Exception {
+        when(connection.prepareStatement(DBConstants.GET_REPORT_TICKETS, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY))
+                .thenThrow(new SQLException("connection lost"));
+
+        assertNull(engine.report(DAY, DAY + HOUR, ReportGranularity.HOUR));
+    }
+}
@@ -0,0 +1,198 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.Fare;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.model.EntryResult;
+import com.parkit.parkingsystem.model.ExitResult;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.ParkingService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ParkingServiceApiTest {
+
+    private ParkingService parkingService;
+
+    @Mock
+    private ParkingSpotDAO parkingSpotDAO;
+    @Mock
+    private TicketDAO ticketDAO;
+
+    @BeforeEach
+    private void setUpPerTest() {
+        parkingService = new ParkingService(parkingSpotDAO, ticketDAO);
+    }
+
+    @Test
+    public void enterClaimsSpotAndSavesTicket() {
+        when(parkingSpotDAO.claimNextSlot(ParkingType.CAR)).thenReturn(3);
+        when(ticketDAO.saveTicket(any(Ticket.class))).thenReturn(true);
+
+        EntryResult entryResult = parkingService.enter("ABCDEF", ParkingType.CAR);
+
+        assertEquals(EntryResult.Status.PARKED, entryResult.getStatus());
+        assertEquals(3, entryResult.getTicket().getParkingSpot().getId());
+        assertEquals("ABCDEF", entryResult.getTicket().getVehicleRegNumber());
+        verify(parkingSpotDAO, never()).updateParking(any(ParkingSpot.class));
+    }
+
+    @Test
+    public void enterReportsFullLot() {
+        when(parkingSpotDAO.claimNextSlot(ParkingType.BIKE)).thenReturn(0);
+
+        EntryResult entryResult = parkingService.enter("ABCDEF", ParkingType.BIKE);
+
+        assertEquals(EntryResult.Status.LOT_FULL, entryResult.getStatus());
+        verify(ticketDAO, never()).saveTicket(any(Ticket.class));
+    }
+
+    @Test
+    public void enterReleasesSpotWhenTicketCannotBeSaved() {
+        when(parkingSpotDAO.claimNextSlot(ParkingType.CAR)).thenReturn(2);
+        when(ticketDAO.saveTicket(any(Ticket.class))).thenReturn(false);
+
+        EntryResult entryResult = parkingService.enter("ABCDEF", ParkingType.CAR);
+
+        assertEquals(EntryResult.Status.ERROR, entryResult.getStatus());
+        verify(parkingSpotDAO, times(1)).updateParking(any(ParkingSpot.class));
+    }
+
+    @Test
+    public void exitPricesTicketAndReleasesSpot() {
+        Ticket ticket = new Ticket();
+        ticket.setParkingSpot(new ParkingSpot(1, ParkingType.CAR, false));
+        ticket.setVehicleRegNumber("ABCDEF");
+        ticket.setInTime(new Date(System.currentTimeMillis() - (60 * 60 * 1000)));
+        when(ticketDAO.getTicket("ABCDEF")).thenReturn(ticket);
+        when(ticketDAO.updateTicket(ticket)).thenReturn(true);
+        when(parkingSpotDAO.updateParking(any(ParkingSpot.class))).thenReturn(true);
+
+        ExitResult exitResult = parkingService.exit("ABCDEF");
+
+        assertEquals(ExitResult.Status.EXITED, exitResult.getStatus());
+        assertNotNull(exitResult.getTicket().getOutTime());
+        assertTrue(exitResult.getTicket().getParkingSpot().isAvailable());
+    }
+
+    @Test
+    public void exitLeavesTicketOpenWhenUpdateFails() {
+        Ticket ticket = new Ticket();
+        ticket.setParkingSpot(new ParkingSpot(1, ParkingType.CAR, false));
+        ticket.setVehicleRegNumber("ABCDEF");
+        ticket.setInTime(new Date(System.currentTimeMillis() - (60 * 60 * 1000)));
+        when(ticketDAO.getTicket("ABCDEF")).thenReturn(ticket);
+        when(ticketDAO.updateTicket(ticket)).thenReturn(false);
+
+        ExitResult exitResult = parkingService.exit("ABCDEF");
+
+        assertEquals(ExitResult.Status.ERROR, exitResult.getStatus());
+        assertNull(ticket.getOutTime());
+        assertEquals(0, ticket.getPrice());
+        verify(parkingSpotDAO, never()).updateParking(any(ParkingSpot.class));
+    }
+
+    @Test
+    public void exitLeavesTicketOpenWhenItCannotBePriced() {
+        Ticket ticket = new Ticket();
+        ticket.setParkingSpot(new ParkingSpot(1, ParkingType.CAR, false));
+        ticket.setVehicleRegNumber("ABCDEF");
+        //entered after it exits, e.g. a clock set back
+        ticket.setInTime(new Date(System.currentTimeMillis() + (60 * 60 * 1000)));
+        when(ticketDAO.getTicket("ABCDEF")).thenReturn(ticket);
+
+        ExitResult exitResult = parkingService.exit("ABCDEF");
+
+        assertEquals(ExitResult.Status.ERROR, exitResult.getStatus());
+        assertNull(ticket.getOutTime());
+        assertEquals(0, ticket.getPrice());
+        verify(ticketDAO, never()).updateTicket(any(Ticket.class));
+        verify(parkingSpotDAO, never()).updateParking(any(ParkingSpot.class));
+    }
+
+    @Test
+    public void exitOfUnknownVehicle() {
+        when(ticketDAO.getTicket("GHIJKL")).thenReturn(null);
+
+        ExitResult exitResult = parkingService.exit("GHIJKL");
+
+        assertEquals(ExitResult.Status.UNKNOWN_VEHICLE, exitResult.getStatus());
+        verify(parkingSpotDAO, never()).updateParking(any(ParkingSpot.class));
+    }
+
+    @Test
+    public void exitVehiclesPricesKnownTicketsInOneWrite() {
+        Ticket ticket = new Ticket();
+        ticket.setParkingSpot(new ParkingSpot(1, ParkingType.CAR, false));
+        ticket.setVehicleRegNumber("ABCDEF");
+        ticket.setInTime(new Date(System.currentTimeMillis() - (2 * 60 * 60 * 1000)));
+        when(ticketDAO.getOpenTickets(anyCollection())).thenReturn(new HashMap<>(Collections.singletonMap("ABCDEF", ticket)));
+        when(ticketDAO.closeTickets(anyList())).thenReturn(true);
+
+        List<ExitResult> exitResults = parkingService.processExitingVehicles(Arrays.asList("ABCDEF", "GHIJKL"));
+
+        assertEquals(2, exitResults.size());
+        assertEquals(ExitResult.Status.EXITED, exitResults.get(0).getStatus());
+        assertEquals(2 * Fare.CAR_RATE_PER_HOUR, exitResults.get(0).getTicket().getPrice(), 0.01);
+        assertEquals(ExitResult.Status.UNKNOWN_VEHICLE, exitResults.get(1).getStatus());
+        assertEquals("GHIJKL", exitResults.get(1).getVehicleRegNumber());
+        verify(ticketDAO, times(1)).closeTickets(Collections.singletonList(ticket));
+        verify(ticketDAO, never()).updateTicket(any(Ticket.class));
+    }
+
+    @Test
+    public void exitVehiclesReportsErrorWhenWriteFails() {
+        Ticket ticket = new Ticket();
+        ticket.setParkingSpot(new ParkingSpot(1, ParkingType.BIKE, false));
+        ticket.setVehicleRegNumber("ABCDEF");
+        ticket.setInTime(new Date(System.currentTimeMillis() - (60 * 60 * 1000)));
+        when(ticketDAO.getOpenTickets(anyCollection())).thenReturn(new HashMap<>(Collections.singletonMap("ABCDEF", ticket)));
+        when(ticketDAO.closeTickets(anyList())).thenReturn(false);
+
+        List<ExitResult> exitResults = parkingService.processExitingVehicles(Collections.singletonList("ABCDEF"));
+
+        assertEquals(ExitResult.Status.ERROR, exitResults.get(0).getStatus());
+        assertNull(ticket.getOutTime());
+        assertEquals(0, ticket.getPrice());
+    }
+
+    @Test
+    public void exitVehiclesLeavesEveryTicketOpenWhenOneCannotBePriced() {
+        Ticket priced = new Ticket();
+        priced.setParkingSpot(new ParkingSpot(1, ParkingType.CAR, false));
+        priced.setVehicleRegNumber("ABCDEF");
+        priced.setInTime(new Date(System.currentTimeMillis() - (60 * 60 * 1000)));
+        Ticket unpriced = new Ticket();
+        unpriced.setParkingSpot(new ParkingSpot(2, ParkingType.CAR, false));
+        unpriced.setVehicleRegNumber("GHIJKL");
+        unpriced.setInTime(new Date(System.currentTimeMillis() + (60 * 60 * 1000)));
+        HashMap<String, Ticket> openTickets = new HashMap<>();
+        openTickets.put("ABCDEF", priced);
+        openTickets.put("GHIJKL", unpriced);
+        when(ticketDAO.getOpenTickets(anyCollection())).thenReturn(openTickets);
+
+        List<ExitResult> exitResults = parkingService.processExitingVehicles(Arrays.asList("ABCDEF", "GHIJKL"));
+
+        assertEquals(ExitResult.Status.ERROR, exitResults.get(0).getStatus());
+        assertEquals(ExitResult.Status.ERROR, exitResults.get(1).getStatus());
+        assertNull(priced.getOutTime());
+        assertEquals(0, priced.getPrice());
+        assertNull(unpriced.getOutTime());
+        verify(ticketDAO, never()).closeTickets(anyList());
+    }
+}
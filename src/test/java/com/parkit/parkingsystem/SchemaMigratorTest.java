@@ -0,0 +1,121 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.config.SchemaMigrator;
+import com.parkit.parkingsystem.constants.DBConstants;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class SchemaMigratorTest {
+
+    private Connection connection;
+    private Statement statement;
+    private ResultSet appliedVersions;
+    private PreparedStatement saveVersion;
+    private SchemaMigrator schemaMigrator;
+
+    @BeforeEach
+    private void setUpPerTest() throws SQLException {
+        connection = mock(Connection.class);
+        statement = mock(Statement.class);
+        appliedVersions = mock(ResultSet.class);
+        saveVersion = mock(PreparedStatement.class);
+        PreparedStatement getVersions = mock(PreparedStatement.class);
+        when(connection.createStatement()).thenReturn(statement);
+        when(connection.prepareStatement(DBConstants.GET_SCHEMA_VERSIONS)).thenReturn(getVersions);
+        when(connection.prepareStatement(DBConstants.SAVE_SCHEMA_VERSION)).thenReturn(saveVersion);
+        when(getVersions.executeQuery()).thenReturn(appliedVersions);
+        DataBaseConfig dataBaseConfig = new DataBaseConfig() {
+            @Override
+            public Connection getConnection() {
+                return connection;
+            }
+
+            @Override
+            public void closeConnection(Connection con) {
+            }
+        };
+        schemaMigrator = new SchemaMigrator(dataBaseConfig, "db/test-migration/");
+    }
+
+    @Test
+    public void migrationsAreReadInVersionOrder() throws Exception {
+        List<SchemaMigrator.Migration> migrations = schemaMigrator.getMigrations();
+
+        assertEquals(2, migrations.size());
+        assertEquals(1, migrations.get(0).getVersion());
+        assertEquals("first", migrations.get(0).getDescription());
+        assertEquals(2, migrations.get(0).getStatements().size());
+        assertEquals("create index IDX_FIRST on first(ID)", migrations.get(0).getStatements().get(1));
+        assertEquals(2, migrations.get(1).getVersion());
+    }
+
+    @Test
+    public void pendingMigrationsAreAppliedAndRecorded() throws Exception {
+        when(appliedVersions.next()).thenReturn(false);
+
+        assertEquals(2, schemaMigrator.migrate());
+
+        verify(statement, times(1)).execute(DBConstants.CREATE_SCHEMA_VERSION);
+        verify(statement, times(1)).execute("create table first(ID int)");
+        verify(statement, times(1)).execute("create index IDX_FIRST on first(ID)");
+        verify(statement, times(1)).execute("create table second(ID int)");
+        verify(saveVersion, times(2)).executeUpdate();
+    }
+
+    @Test
+    public void appliedMigrationsAreSkipped() throws Exception {
+        List<SchemaMigrator.Migration> migrations = schemaMigrator.getMigrations();
+        when(appliedVersions.next()).thenReturn(true, false);
+        when(appliedVersions.getInt(1)).thenReturn(1);
+        when(appliedVersions.getLong(2)).thenReturn(migrations.get(0).getChecksum());
+
+        assertEquals(1, schemaMigrator.migrate());
+
+        verify(statement, never()).execute("create table first(ID int)");
+        verify(statement, times(1)).execute("create table second(ID int)");
+        verify(saveVersion, times(1)).executeUpdate();
+    }
+
+    @Test
+    public void changedMigrationIsRefused() throws Exception {
+        when(appliedVersions.next()).thenReturn(true, false);
+        when(appliedVersions.getInt(1)).thenReturn(1);
+        when(appliedVersions.getLong(2)).thenReturn(42L);
+
+        assertThrows(IllegalStateException.class, () -> schemaMigrator.migrate());
+        verify(saveVersion, never()).executeUpdate();
+    }
+
+    @Test
+    public void semicolonsInQuotedTextAndCommentsDoNotSplitStatements() {
+        List<String> statements = SchemaMigrator.splitStatements("-- first; and second\n"
+                + "insert into note(TEXT) values ('a;b', \"it\\\"s;\", 'don''t;');\n"
+                + "# skipped; entirely\n"
+                + "create table `odd;name`(ID int) /*!50100 PARTITION BY HASH(ID); */;\n"
+                + "select 5--3;");
+
+        assertEquals(3, statements.size());
+        assertEquals("insert into note(TEXT) values ('a;b', \"it\\\"s;\", 'don''t;')", statements.get(0));
+        assertEquals("create table `odd;name`(ID int) /*!50100 PARTITION BY HASH(ID); */", statements.get(1));
+        assertEquals("select 5--3", statements.get(2));
+    }
+
+    @Test
+    public void checksumChangesWithWhitespaceInsideALine() {
+        assertNotEquals(SchemaMigrator.checksum("create table first(ID int);\n"),
+                SchemaMigrator.checksum("create table first(ID  int);\n"));
+        assertNotEquals(SchemaMigrator.checksum("-- comment\ncreate table first(ID int);\n"),
+                SchemaMigrator.checksum("-- comment edited\ncreate table first(ID int);\n"));
+    }
+}
@@ -0,0 +1,106 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.config.ShardRouter;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotStore;
+import com.parkit.parkingsystem.dao.SpotInventory;
+import com.parkit.parkingsystem.dao.TicketStore;
+import com.parkit.parkingsystem.dao.VisitCountIndex;
+import com.parkit.parkingsystem.dao.shard.ShardedParkingSpotStore;
+import com.parkit.parkingsystem.dao.shard.ShardedTicketStore;
+import com.parkit.parkingsystem.integration.config.EmbeddedDataBaseConfig;
+import com.parkit.parkingsystem.model.EntryResult;
+import com.parkit.parkingsystem.model.ExitResult;
+import com.parkit.parkingsystem.service.ParkingService;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+//the storage contract through the shard router, with one embedded database per lot; lot 1 is the lot of Data.sql
+public class ShardedStoreTest extends StoreContract {
+
+    private static final EmbeddedDataBaseConfig LOT_1 = new EmbeddedDataBaseConfig("shard_lot1");
+    private static final EmbeddedDataBaseConfig LOT_2 = new EmbeddedDataBaseConfig("shard_lot2");
+    private static final ShardRouter SHARD_ROUTER;
+
+    static {
+        Map<Integer, DataBaseConfig> shards = new HashMap<>();
+        shards.put(1, LOT_1);
+        shards.put(2, LOT_2);
+        SHARD_ROUTER = new ShardRouter(shards);
+    }
+
+    @Override
+    protected ParkingSpotStore newParkingSpotStore() throws Exception {
+        LOT_1.createSchema(3, 2);
+        LOT_2.createSchema(2, 1);
+        for (EmbeddedDataBaseConfig lot : new EmbeddedDataBaseConfig[]{LOT_1, LOT_2}) {
+            SpotInventory.of(lot).reload();
+            VisitCountIndex.of(lot).reload();
+        }
+        return new ShardedParkingSpotStore(SHARD_ROUTER, 1);
+    }
+
+    @Override
+    protected TicketStore newTicketStore(ParkingSpotStore parkingSpotStore) {
+        return new ShardedTicketStore(SHARD_ROUTER, 1);
+    }
+
+    @Test
+    public void spotNumbersAreIndependentPerLot() {
+        ParkingSpotStore lot2 = new ShardedParkingSpotStore(SHARD_ROUTER, 2);
+
+        assertEquals(1, parkingSpotStore.claimNextSlot(ParkingType.CAR));
+        assertEquals(1, lot2.claimNextSlot(ParkingType.CAR));
+        assertEquals(2, lot2.claimNextSlot(ParkingType.CAR));
+        assertEquals(0, lot2.claimNextSlot(ParkingType.CAR));
+        assertEquals(2, parkingSpotStore.getNextAvailableSlot(ParkingType.CAR));
+    }
+
+    @Test
+    public void vehicleParkedInAnotherLotLeavesThroughThisLot() throws Exception {
+        ParkingSpotStore lot2Spots = new ShardedParkingSpotStore(SHARD_ROUTER, 2);
+        ParkingService lot2Gate = new ParkingService(lot2Spots, new ShardedTicketStore(SHARD_ROUTER, 2));
+        ParkingService lot1Gate = new ParkingService(parkingSpotStore, ticketStore);
+
+        EntryResult entryResult = lot2Gate.enter("ABCDEF", ParkingType.BIKE);
+        assertEquals(EntryResult.Status.PARKED, entryResult.getStatus());
+        assertEquals(2, entryResult.getTicket().getParkingSpot().getLotId());
+        assertEquals(3, entryResult.getTicket().getParkingSpot().getId());
+        assertEquals(0, lot2Spots.getNextAvailableSlot(ParkingType.BIKE));
+
+        ExitResult exitResult = lot1Gate.exit("ABCDEF");
+
+        assertEquals(ExitResult.Status.EXITED, exitResult.getStatus());
+        assertEquals(3, lot2Spots.getNextAvailableSlot(ParkingType.BIKE));
+        assertEquals(4, parkingSpotStore.getNextAvailableSlot(ParkingType.BIKE));
+        assertNull(new ShardedTicketStore(SHARD_ROUTER, 1).getTicketDAO(1).getTicket("ABCDEF"));
+        Connection con = LOT_2.getConnection();
+        try {
+            ResultSet rs = con.createStatement().executeQuery("select LOT_ID, OUT_TIME from ticket where VEHICLE_REG_NUMBER = 'ABCDEF'");
+            assertTrue(rs.next());
+            assertEquals(2, rs.getInt(1));
+            assertNotNull(rs.getTimestamp(2));
+        } finally {
+            LOT_2.closeConnection(con);
+        }
+    }
+
+    @Test
+    public void shardsAreParsedFromLotUrlPairs() {
+        ShardRouter shardRouter = ShardRouter.parse("1=jdbc:mysql://db1:3306/prod, 3=jdbc:mysql://db3:3306/prod");
+
+        assertEquals(Arrays.asList(1, 3), new ArrayList<>(shardRouter.getLotIds()));
+        assertThrows(IllegalArgumentException.class, () -> shardRouter.getDataBaseConfig(2));
+        assertThrows(IllegalArgumentException.class, () -> ShardRouter.parse("1=jdbc:a,1=jdbc:b"));
+        assertThrows(IllegalArgumentException.class, () -> ShardRouter.parse("jdbc:mysql://db1:3306/prod"));
+    }
+}
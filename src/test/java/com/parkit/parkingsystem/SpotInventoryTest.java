@@ -0,0 +1,160 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.OccupancyCounters;
+import com.parkit.parkingsystem.dao.SpotInventory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class SpotInventoryTest {
+
+    private SpotInventory spotInventory;
+
+    @BeforeEach
+    private void setUpPerTest() {
+        spotInventory = new SpotInventory(new DataBaseConfig());
+        spotInventory.load(new int[]{1, 2, 3, 4, 5},
+                new ParkingType[]{ParkingType.CAR, ParkingType.CAR, ParkingType.CAR, ParkingType.BIKE, ParkingType.BIKE},
+                new boolean[]{true, true, true, true, true});
+    }
+
+    @Test
+    public void nextAvailableSlotIsLowestFreeSpotOfType() {
+        assertEquals(1, spotInventory.getNextAvailableSlot(ParkingType.CAR));
+        assertEquals(4, spotInventory.getNextAvailableSlot(ParkingType.BIKE));
+
+        spotInventory.setAvailable(1, false);
+        assertEquals(2, spotInventory.getNextAvailableSlot(ParkingType.CAR));
+
+        spotInventory.setAvailable(1, true);
+        assertEquals(1, spotInventory.getNextAvailableSlot(ParkingType.CAR));
+    }
+
+    @Test
+    public void nextAvailableSlotIsZeroWhenTypeIsFull() {
+        spotInventory.setAvailable(4, false);
+        spotInventory.setAvailable(5, false);
+        assertEquals(0, spotInventory.getNextAvailableSlot(ParkingType.BIKE));
+        assertEquals(0, spotInventory.countAvailable(ParkingType.BIKE));
+    }
+
+    @Test
+    public void parkingTypeIsResolvedFromSpotNumber() {
+        assertEquals(ParkingType.CAR, spotInventory.getParkingType(3));
+        assertEquals(ParkingType.BIKE, spotInventory.getParkingType(4));
+        assertNull(spotInventory.getParkingType(42));
+    }
+
+    @Test
+    public void spotMissingFromTheInventoryIsReadAloneAndOnce() throws Exception {
+        Connection connection = mock(Connection.class);
+        PreparedStatement preparedStatement = mock(PreparedStatement.class);
+        ResultSet found = mock(ResultSet.class);
+        ResultSet missing = mock(ResultSet.class);
+        when(connection.prepareStatement(anyString())).thenReturn(preparedStatement);
+        when(preparedStatement.executeQuery()).thenReturn(found, missing);
+        when(found.next()).thenReturn(true);
+        when(found.getString(1)).thenReturn("BIKE");
+        when(missing.next()).thenReturn(false);
+        SpotInventory inventory = new SpotInventory(new DataBaseConfig() {
+            @Override
+            public Connection getConnection() {
+                return connection;
+            }
+
+            @Override
+            public void closeConnection(Connection con) {
+            }
+
+            @Override
+            public PreparedStatement prepareStatement(Connection con, String sql) throws SQLException {
+                return con.prepareStatement(sql);
+            }
+
+            @Override
+            public void closePreparedStatement(PreparedStatement ps) {
+            }
+        });
+        inventory.load(new int[]{1, 2}, new ParkingType[]{ParkingType.CAR, ParkingType.CAR}, new boolean[]{true, false});
+
+        assertEquals(ParkingType.CAR, inventory.lookUpParkingType(1));
+        //added to the parking table after the load
+        assertEquals(ParkingType.BIKE, inventory.lookUpParkingType(6));
+        assertEquals(ParkingType.BIKE, inventory.lookUpParkingType(6));
+        assertNull(inventory.lookUpParkingType(7));
+        assertNull(inventory.lookUpParkingType(7));
+
+        verify(connection, times(2)).prepareStatement(DBConstants.GET_PARKING_TYPE);
+        verify(connection, never()).prepareStatement(DBConstants.GET_PARKING_SPOTS);
+        //the inventory was not rebuilt under the spots in use
+        assertFalse(inventory.isAvailable(2));
+        assertEquals(1, inventory.getNextAvailableSlot(ParkingType.CAR));
+    }
+
+    @Test
+    public void largeLotFindsSpotsAcrossWords() {
+        int spots = 50000;
+        int[] numbers = new int[spots];
+        ParkingType[] types = new ParkingType[spots];
+        boolean[] available = new boolean[spots];
+        for (int i = 0; i < spots; i++) {
+            numbers[i] = i + 1;
+            types[i] = ParkingType.CAR;
+        }
+        available[spots - 1] = true;
+        spotInventory.load(numbers, types, available);
+
+        assertEquals(spots, spotInventory.getNextAvailableSlot(ParkingType.CAR));
+        spotInventory.setAvailable(20000, true);
+        assertEquals(20000, spotInventory.getNextAvailableSlot(ParkingType.CAR));
+        assertEquals(2, spotInventory.countAvailable(ParkingType.CAR));
+    }
+
+    @Test
+    public void occupancyCountersFollowStateChangesOnly() {
+        OccupancyCounters counters = spotInventory.getOccupancyCounters();
+        List<String> notifications = new ArrayList<>();
+        counters.addListener((parkingType, available, capacity) -> notifications.add(parkingType + " " + available + "/" + capacity));
+
+        assertEquals(1, spotInventory.claimNextAvailableSlot(ParkingType.CAR));
+        spotInventory.setAvailable(4, false);
+        //already taken: no change, no notification
+        spotInventory.setAvailable(4, false);
+        spotInventory.setAvailable(1, true);
+
+        assertEquals(3, counters.getAvailable(ParkingType.CAR));
+        assertEquals(1, counters.getAvailable(ParkingType.BIKE));
+        assertEquals(1, counters.getOccupied(ParkingType.BIKE));
+        assertEquals(2, counters.getCapacity(ParkingType.BIKE));
+        assertEquals(3, notifications.size());
+        assertEquals("CAR 2/3", notifications.get(0));
+        assertEquals("BIKE 1/2", notifications.get(1));
+        assertEquals("CAR 3/3", notifications.get(2));
+    }
+
+    @Test
+    public void occupancyCountersAreResetByLoad() {
+        OccupancyCounters counters = spotInventory.getOccupancyCounters();
+        spotInventory.setAvailable(2, false);
+
+        spotInventory.load(new int[]{1, 2, 4}, new ParkingType[]{ParkingType.CAR, ParkingType.CAR, ParkingType.BIKE},
+                new boolean[]{true, false, false});
+
+        assertEquals(2, counters.getCapacity(ParkingType.CAR));
+        assertEquals(1, counters.getAvailable(ParkingType.CAR));
+        assertEquals(0, counters.getAvailable(ParkingType.BIKE));
+        assertEquals(spotInventory.countAvailable(ParkingType.CAR), counters.getAvailable(ParkingType.CAR));
+    }
+}
@@ -0,0 +1,191 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotStore;
+import com.parkit.parkingsystem.dao.TicketStore;
+import com.parkit.parkingsystem.model.EntryResult;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.ParkingService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+//behaviour every storage engine must share, run against the lot of Data.sql: spots 1-3 for cars, 4-5 for bikes
+public abstract class StoreContract {
+
+    //whole seconds, as the DB keeps them
+    private static final long IN_TIME = 1_600_000_000_000L;
+    private static final long HOUR = 60 * 60 * 1000;
+
+    protected ParkingSpotStore parkingSpotStore;
+    protected TicketStore ticketStore;
+
+    //an empty lot with every spot available and no tickets
+    protected abstract ParkingSpotStore newParkingSpotStore() throws Exception;
+
+    protected abstract TicketStore newTicketStore(ParkingSpotStore parkingSpotStore) throws Exception;
+
+    @BeforeEach
+    private void setUpStores() throws Exception {
+        parkingSpotStore = newParkingSpotStore();
+        ticketStore = newTicketStore(parkingSpotStore);
+    }
+
+    @Test
+    public void spotsAreClaimedLowestFirstUntilTheLotIsFull() {
+        assertEquals(4, parkingSpotStore.claimNextSlot(ParkingType.BIKE));
+        assertEquals(5, parkingSpotStore.claimNextSlot(ParkingType.BIKE));
+        assertEquals(0, parkingSpotStore.claimNextSlot(ParkingType.BIKE));
+        assertEquals(1, parkingSpotStore.getNextAvailableSlot(ParkingType.CAR));
+    }
+
+    @Test
+    public void lookingUpTheNextSpotDoesNotClaimIt() {
+        assertEquals(1, parkingSpotStore.getNextAvailableSlot(ParkingType.CAR));
+        assertEquals(1, parkingSpotStore.getNextAvailableSlot(ParkingType.CAR));
+        assertEquals(1, parkingSpotStore.claimNextSlot(ParkingType.CAR));
+        assertEquals(2, parkingSpotStore.getNextAvailableSlot(ParkingType.CAR));
+    }
+
+    @Test
+    public void freedSpotCanBeClaimedAgain() {
+        int parkingNumber = parkingSpotStore.claimNextSlot(ParkingType.CAR);
+        assertTrue(parkingSpotStore.updateParking(new ParkingSpot(parkingNumber, ParkingType.CAR, true)));
+        assertEquals(parkingNumber, parkingSpotStore.claimNextSlot(ParkingType.CAR));
+    }
+
+    @Test
+    public void savedTicketIsReadBack() {
+        Ticket ticket = newTicket("ABCDEF", 1, IN_TIME);
+        assertTrue(ticketStore.saveTicket(ticket));
+
+        Ticket saved = ticketStore.getTicket("ABCDEF");
+        assertTrue(ticket.getId() > 0);
+        assertEquals(ticket.getId(), saved.getId());
+        assertEquals(1, saved.getParkingSpot().getId());
+        assertEquals(IN_TIME, saved.getInTime().getTime());
+        assertNull(saved.getOutTime());
+        assertNull(ticketStore.getTicket("UNKNOWN"));
+    }
+
+    @Test
+    public void updatedTicketIsNoLongerOpen() {
+        Ticket ticket = newTicket("ABCDEF", 1, IN_TIME);
+        ticketStore.saveTicket(ticket);
+        ticket.setOutTime(new Date(IN_TIME + 2 * HOUR));
+        ticket.setPrice(3);
+
+        assertTrue(ticketStore.updateTicket(ticket));
+
+        Ticket updated = ticketStore.getTicket("ABCDEF");
+        assertEquals(IN_TIME + 2 * HOUR, updated.getOutTime().getTime());
+        assertEquals(3, updated.getPrice());
+        assertTrue(ticketStore.getOpenTickets(Collections.singletonList("ABCDEF")).isEmpty());
+    }
+
+    @Test
+    public void openTicketsAreFoundByPlate() {
+        ticketStore.saveTicket(newTicket("ABCDEF", 1, IN_TIME));
+        ticketStore.saveTicket(newTicket("GHIJKL", 2, IN_TIME + HOUR));
+
+        Map<String, Ticket> openTickets = ticketStore.getOpenTickets(Arrays.asList("ABCDEF", "GHIJKL", "UNKNOWN"));
+
+        assertEquals(2, openTickets.size());
+        assertEquals(1, openTickets.get("ABCDEF").getParkingSpot().getId());
+        assertEquals(2, openTickets.get("GHIJKL").getParkingSpot().getId());
+    }
+
+    @Test
+    public void closedTicketsFreeTheirSpots() {
+        int first = parkingSpotStore.claimNextSlot(ParkingType.CAR);
+        int second = parkingSpotStore.claimNextSlot(ParkingType.CAR);
+        Ticket a = newTicket("ABCDEF", first, IN_TIME);
+        Ticket b = newTicket("GHIJKL", second, IN_TIME);
+        ticketStore.saveTicket(a);
+        ticketStore.saveTicket(b);
+        a.setOutTime(new Date(IN_TIME + HOUR));
+        b.setOutTime(new Date(IN_TIME + HOUR));
+
+        assertTrue(ticketStore.closeTickets(Arrays.asList(a, b)));
+
+        assertTrue(ticketStore.getOpenTickets(Arrays.asList("ABCDEF", "GHIJKL")).isEmpty());
+        assertEquals(IN_TIME + HOUR, ticketStore.getTicket("GHIJKL").getOutTime().getTime());
+        assertEquals(first, parkingSpotStore.claimNextSlot(ParkingType.CAR));
+        assertEquals(second, parkingSpotStore.claimNextSlot(ParkingType.CAR));
+    }
+
+    @Test
+    public void ticketsOfAVehicleAreListedLatestFirst() {
+        Ticket first = newTicket("ABCDEF", 1, IN_TIME);
+        ticketStore.saveTicket(first);
+        first.setOutTime(new Date(IN_TIME + HOUR));
+        ticketStore.updateTicket(first);
+        ticketStore.saveTicket(newTicket("ABCDEF", 2, IN_TIME + 2 * HOUR));
+
+        List<Ticket> tickets = ticketStore.getTickets("ABCDEF", true);
+
+        assertEquals(2, tickets.size());
+        assertEquals(2, tickets.get(0).getParkingSpot().getId());
+        assertNull(tickets.get(0).getOutTime());
+        assertEquals(1, tickets.get(1).getParkingSpot().getId());
+        assertEquals(2, ticketStore.getTicket("ABCDEF").getParkingSpot().getId());
+        assertTrue(ticketStore.getTickets("UNKNOWN", true).isEmpty());
+    }
+
+    @Test
+    public void concurrentEntriesOfOnePlateParkItOnce() throws Exception {
+        ParkingService parkingService = new ParkingService(parkingSpotStore, ticketStore);
+        int gates = 8;
+        CountDownLatch go = new CountDownLatch(1);
+        List<Future<EntryResult>> entries = new ArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(gates);
+        try {
+            for (int i = 0; i < gates; i++) {
+                entries.add(executor.submit(() -> {
+                    go.await();
+                    return parkingService.enter("ABCDEF", ParkingType.CAR);
+                }));
+            }
+            go.countDown();
+            int parked = 0;
+            for (Future<EntryResult> entry : entries) {
+                EntryResult entryResult = entry.get(10, TimeUnit.SECONDS);
+                if (entryResult.isParked()) {
+                    parked++;
+                } else {
+                    assertEquals(EntryResult.Status.ALREADY_PARKED, entryResult.getStatus());
+                    assertEquals(1, entryResult.getTicket().getParkingSpot().getId());
+                }
+            }
+            assertEquals(1, parked);
+        } finally {
+            executor.shutdownNow();
+        }
+        //one spot claimed, and the vehicle can leave and come back
+        assertEquals(2, parkingSpotStore.getNextAvailableSlot(ParkingType.CAR));
+        assertTrue(parkingService.exit("ABCDEF").isExited());
+        assertEquals(EntryResult.Status.PARKED, parkingService.enter("ABCDEF", ParkingType.CAR).getStatus());
+    }
+
+    private static Ticket newTicket(String vehicleRegNumber, int parkingNumber, long inTime) {
+        Ticket ticket = new Ticket();
+        ticket.setVehicleRegNumber(vehicleRegNumber);
+        ticket.setParkingSpot(new ParkingSpot(parkingNumber, parkingNumber <= 3 ? ParkingType.CAR : ParkingType.BIKE, false));
+        ticket.setInTime(new Date(inTime));
+        return ticket;
+    }
+}
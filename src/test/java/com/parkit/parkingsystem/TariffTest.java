@@ -0,0 +1,130 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.constants.Fare;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.service.FareCalculatorService;
+import com.parkit.parkingsystem.tariff.Tariff;
+import com.parkit.parkingsystem.tariff.TariffWatcher;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TariffTest {
+
+    //2020-09-14T00:00Z
+    private static final long MIDNIGHT = 1_600_041_600_000L;
+    private static final long MINUTE = TimeUnit.MINUTES.toMillis(1);
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+
+    @AfterEach
+    private void tearDownPerTest() {
+        FareCalculatorService.setTariff(Tariff.defaultTariff());
+    }
+
+    private static Tariff tariff(String definition) throws Exception {
+        return Tariff.load(new StringReader("zone=UTC\n" + definition));
+    }
+
+    @Test
+    public void timeOfDayBandsArePricedMinuteByMinute() throws Exception {
+        Tariff tariff = tariff("CAR.ratePerHour=1\nCAR.bands=08:00-10:00@3\nBIKE.ratePerHour=1\n");
+
+        //half an hour at 1 then an hour and a half at 3
+        assertEquals(5000, tariff.price(MIDNIGHT + 7 * HOUR + 30 * MINUTE, MIDNIGHT + 9 * HOUR + 30 * MINUTE, ParkingType.CAR, false));
+        assertEquals(50, tariff.price(MIDNIGHT + 8 * HOUR, MIDNIGHT + 8 * HOUR + MINUTE, ParkingType.CAR, false));
+    }
+
+    @Test
+    public void bandMayWrapAroundMidnight() throws Exception {
+        Tariff tariff = tariff("CAR.ratePerHour=1\nCAR.bands=22:00-02:00@2\nBIKE.ratePerHour=1\n");
+
+        assertEquals(10000, tariff.price(MIDNIGHT + 21 * HOUR, MIDNIGHT + 27 * HOUR, ParkingType.CAR, false));
+        //two weeks are priced like two weeks of days, whatever the length of the stay
+        assertEquals(14 * 28000, tariff.price(MIDNIGHT, MIDNIGHT + TimeUnit.DAYS.toMillis(14), ParkingType.CAR, false));
+    }
+
+    @Test
+    public void durationTiersLowerTheRateOfLongStays() throws Exception {
+        Tariff tariff = tariff("CAR.ratePerHour=2\nCAR.tiers=60@50\nBIKE.ratePerHour=1\n");
+
+        assertEquals(4000, tariff.price(MIDNIGHT, MIDNIGHT + 3 * HOUR, ParkingType.CAR, false));
+    }
+
+    @Test
+    public void dailyCapAppliesToEachDayOfStay() throws Exception {
+        Tariff capped = tariff("CAR.ratePerHour=1\nCAR.dailyCap=10\nBIKE.ratePerHour=1\n");
+        assertEquals(22000, capped.price(MIDNIGHT, MIDNIGHT + 50 * HOUR, ParkingType.CAR, false));
+
+        //day 1 is capped at 20, day 2 pays 1 + 23 * 0.5, day 3 24 * 0.5, then one hour at 0.5
+        Tariff tieredAndCapped = tariff("CAR.ratePerHour=1\nCAR.tiers=1500@50\nCAR.dailyCap=20\nBIKE.ratePerHour=1\n");
+        assertEquals(45000, tieredAndCapped.price(MIDNIGHT + 5 * HOUR, MIDNIGHT + 78 * HOUR, ParkingType.CAR, false));
+    }
+
+    @Test
+    public void freeMinutesAndLoyaltyDiscount() throws Exception {
+        Tariff tariff = tariff("CAR.ratePerHour=1\nBIKE.ratePerHour=1\nBIKE.freeMinutes=15\nBIKE.loyaltyDiscountPercent=10\n");
+
+        assertEquals(0, tariff.price(MIDNIGHT, MIDNIGHT + 15 * MINUTE + 59_000, ParkingType.BIKE, false));
+        assertEquals(2000, tariff.price(MIDNIGHT, MIDNIGHT + 2 * HOUR, ParkingType.BIKE, false));
+        assertEquals(1800, tariff.price(MIDNIGHT, MIDNIGHT + 2 * HOUR, ParkingType.BIKE, true));
+    }
+
+    @Test
+    public void invalidDefinitionsAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> tariff("CAR.ratePerHour=abc\nBIKE.ratePerHour=1\n"));
+        assertThrows(IllegalArgumentException.class, () -> tariff("CAR.ratePerHour=1\nCAR.bands=8-10@2\nBIKE.ratePerHour=1\n"));
+        assertThrows(IllegalArgumentException.class, () -> tariff("CAR.ratePerHour=1\nCAR.tiers=120@50,60@25\nBIKE.ratePerHour=1\n"));
+        assertThrows(IllegalArgumentException.class, () -> tariff("CAR.ratePerHour=1\nCAR.loyaltyDiscountPercent=120\nBIKE.ratePerHour=1\n"));
+        //every type must be priced
+        assertThrows(IllegalArgumentException.class, () -> tariff("CAR.ratePerHour=1\n"));
+    }
+
+    @Test
+    public void setTariffSwapsThePricingOfEveryCalculator() throws Exception {
+        FareCalculatorService fareCalculatorService = new FareCalculatorService();
+        assertEquals(Math.round(Fare.CAR_RATE_PER_HOUR * FareCalculatorService.PRICE_SCALE),
+                fareCalculatorService.calculateFare(MIDNIGHT, MIDNIGHT + HOUR, ParkingType.CAR));
+
+        FareCalculatorService.setTariff(tariff("CAR.ratePerHour=4\nBIKE.ratePerHour=1\n"));
+
+        assertEquals(4000, fareCalculatorService.calculateFare(MIDNIGHT, MIDNIGHT + HOUR, ParkingType.CAR));
+    }
+
+    @Test
+    public void watcherLoadsChangedFilesAndKeepsTheTariffOnErrors() throws Exception {
+        Path file = Files.createTempFile("tariff", ".properties");
+        try {
+            TariffWatcher tariffWatcher = new TariffWatcher(file);
+            Files.write(file, "zone=UTC\nCAR.ratePerHour=3\nBIKE.ratePerHour=1\n".getBytes(StandardCharsets.UTF_8));
+            Files.setLastModifiedTime(file, FileTime.fromMillis(MIDNIGHT));
+
+            assertTrue(tariffWatcher.reload());
+            assertFalse(tariffWatcher.reload());
+            assertEquals(3000, FareCalculatorService.getTariff().price(MIDNIGHT, MIDNIGHT + HOUR, ParkingType.CAR, false));
+
+            Files.write(file, "CAR.ratePerHour=oops\nBIKE.ratePerHour=1\n".getBytes(StandardCharsets.UTF_8));
+            Files.setLastModifiedTime(file, FileTime.fromMillis(MIDNIGHT + HOUR));
+
+            assertFalse(tariffWatcher.reload());
+            assertEquals(3000, FareCalculatorService.getTariff().price(MIDNIGHT, MIDNIGHT + HOUR, ParkingType.CAR, false));
+
+            //a definition that leaves a type unpriced is not swapped in either
+            Files.write(file, "zone=UTC\nCAR.ratePerHour=5\n".getBytes(StandardCharsets.UTF_8));
+            Files.setLastModifiedTime(file, FileTime.fromMillis(MIDNIGHT + 2 * HOUR));
+
+            assertFalse(tariffWatcher.reload());
+            assertEquals(3000, FareCalculatorService.getTariff().price(MIDNIGHT, MIDNIGHT + HOUR, ParkingType.CAR, false));
+            assertEquals(1000, FareCalculatorService.getTariff().price(MIDNIGHT, MIDNIGHT + HOUR, ParkingType.BIKE, false));
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
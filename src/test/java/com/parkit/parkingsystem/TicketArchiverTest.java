@@ -0,0 +1,121 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.dao.TicketArchiver;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class TicketArchiverTest {
+
+    private static final Clock NOW = Clock.fixed(Instant.parse("2026-10-18T10:00:00Z"), ZoneOffset.UTC);
+
+    private Connection connection;
+    private Statement statement;
+    private PreparedStatement getPartitions;
+    private ResultSet archivableTickets;
+    private TicketArchiver ticketArchiver;
+
+    @BeforeEach
+    private void setUpPerTest() throws SQLException {
+        connection = mock(Connection.class);
+        statement = mock(Statement.class);
+        getPartitions = mock(PreparedStatement.class);
+        PreparedStatement getArchivable = mock(PreparedStatement.class);
+        archivableTickets = mock(ResultSet.class);
+        when(connection.createStatement()).thenReturn(statement);
+        when(connection.prepareStatement(DBConstants.GET_TICKET_HISTORY_PARTITIONS)).thenReturn(getPartitions);
+        when(connection.prepareStatement(DBConstants.GET_ARCHIVABLE_TICKETS)).thenReturn(getArchivable);
+        when(getArchivable.executeQuery()).thenReturn(archivableTickets);
+        DataBaseConfig dataBaseConfig = new DataBaseConfig() {
+            @Override
+            public Connection getConnection() {
+                return connection;
+            }
+
+            @Override
+            public void closeConnection(Connection con) {
+            }
+        };
+        ticketArchiver = new TicketArchiver(dataBaseConfig, NOW, 24 * 60 * 60 * 1000L, 2, 0);
+    }
+
+    @Test
+    public void batchCopiesThenDeletesSelectedTicketsInOneTransaction() throws Exception {
+        when(archivableTickets.next()).thenReturn(true, true, false);
+        when(archivableTickets.getInt(1)).thenReturn(7, 9);
+        PreparedStatement copy = mock(PreparedStatement.class);
+        PreparedStatement delete = mock(PreparedStatement.class);
+        when(connection.prepareStatement(DBConstants.ARCHIVE_TICKETS_PREFIX + "?,?)")).thenReturn(copy);
+        when(connection.prepareStatement(DBConstants.DELETE_TICKETS_PREFIX + "?,?)")).thenReturn(delete);
+
+        assertEquals(2, ticketArchiver.archiveBatch());
+
+        verify(copy, times(1)).setInt(1, 7);
+        verify(copy, times(1)).setInt(2, 9);
+        verify(copy, times(1)).executeUpdate();
+        verify(delete, times(1)).executeUpdate();
+        verify(connection, times(1)).commit();
+    }
+
+    @Test
+    public void archiveRunsBatchesUntilNothingIsLeftAndAddsMonthlyPartitions() throws Exception {
+        ResultSet partitions = mock(ResultSet.class);
+        when(getPartitions.executeQuery()).thenReturn(partitions);
+        when(partitions.next()).thenReturn(true, true, true, false);
+        when(partitions.getString(1)).thenReturn("p_past", "p_future", "p202609");
+        when(archivableTickets.next()).thenReturn(true, true, false, true, false);
+        when(archivableTickets.getInt(1)).thenReturn(1, 2, 3);
+        when(connection.prepareStatement(DBConstants.ARCHIVE_TICKETS_PREFIX + "?,?)")).thenReturn(mock(PreparedStatement.class));
+        when(connection.prepareStatement(DBConstants.DELETE_TICKETS_PREFIX + "?,?)")).thenReturn(mock(PreparedStatement.class));
+        when(connection.prepareStatement(DBConstants.ARCHIVE_TICKETS_PREFIX + "?)")).thenReturn(mock(PreparedStatement.class));
+        when(connection.prepareStatement(DBConstants.DELETE_TICKETS_PREFIX + "?)")).thenReturn(mock(PreparedStatement.class));
+
+        assertEquals(3, ticketArchiver.archive());
+
+        verify(statement, times(1)).execute(String.format(DBConstants.ADD_TICKET_HISTORY_PARTITION, "p202610", "2026-11-01"));
+        verify(statement, times(1)).execute(String.format(DBConstants.ADD_TICKET_HISTORY_PARTITION, "p202611", "2026-12-01"));
+        verify(statement, never()).execute(String.format(DBConstants.ADD_TICKET_HISTORY_PARTITION, "p202612", "2027-01-01"));
+        verify(connection, times(2)).commit();
+    }
+
+    @Test
+    public void firstSplitAddsOnePartitionPerMonthFromTheEndOfPastPartition() throws Exception {
+        ResultSet partitions = mock(ResultSet.class);
+        when(getPartitions.executeQuery()).thenReturn(partitions);
+        when(partitions.next()).thenReturn(true, true, false);
+        when(partitions.getString(1)).thenReturn("p_past", "p_future");
+        when(archivableTickets.next()).thenReturn(false);
+
+        assertEquals(0, ticketArchiver.archive());
+
+        //2020-01 to 2026-11, one month each
+        verify(statement, times(83)).execute(anyString());
+        verify(statement, times(1)).execute(String.format(DBConstants.ADD_TICKET_HISTORY_PARTITION, "p202001", "2020-02-01"));
+        verify(statement, times(1)).execute(String.format(DBConstants.ADD_TICKET_HISTORY_PARTITION, "p202002", "2020-03-01"));
+        verify(statement, times(1)).execute(String.format(DBConstants.ADD_TICKET_HISTORY_PARTITION, "p202611", "2026-12-01"));
+    }
+
+    @Test
+    public void plainHistoryTableIsArchivedWithoutPartitions() throws Exception {
+        when(getPartitions.executeQuery()).thenThrow(new SQLException("no information_schema.PARTITIONS"));
+        when(archivableTickets.next()).thenReturn(false);
+
+        assertEquals(0, ticketArchiver.archive());
+
+        verify(statement, never()).execute(anyString());
+        verify(connection, times(1)).commit();
+    }
+}
@@ -0,0 +1,155 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.dao.SpotInventory;
+import com.parkit.parkingsystem.integration.config.EmbeddedDataBaseConfig;
+import com.parkit.parkingsystem.rerate.TicketRerater;
+import com.parkit.parkingsystem.service.FareCalculatorService;
+import com.parkit.parkingsystem.tariff.Tariff;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+//re-rating against an embedded database holding car spots 1 and 2 and bike spot 3
+public class TicketRerateTest {
+
+    private static final long FROM = 1_600_041_600_000L;
+    private static final long TO = FROM + TimeUnit.DAYS.toMillis(30);
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+
+    private static final EmbeddedDataBaseConfig DATA_BASE = new EmbeddedDataBaseConfig("rerate");
+
+    private TicketRerater ticketRerater;
+
+    @BeforeEach
+    private void setUpPerTest() throws Exception {
+        DATA_BASE.createSchema(2, 1);
+        SpotInventory.of(DATA_BASE).reload();
+        FareCalculatorService.setTariff(Tariff.load(new StringReader("CAR.ratePerHour=2\nBIKE.ratePerHour=1\n")));
+        //closed in range with a wrong price: IDs 1 to 4 in ticket, 100 to 102 in ticket_history
+        for (int i = 0; i < 4; i++) {
+            insert("ticket", 0, i % 2 == 0 ? 1 : 3, FROM + i * HOUR, FROM + (i + 2) * HOUR, 99.0);
+        }
+        for (int i = 0; i < 3; i++) {
+            insert("ticket_history", 100 + i, 2, FROM + i * HOUR, FROM + (i + 3) * HOUR, 99.0);
+        }
+        //already right, open, and closed after the range
+        insert("ticket", 0, 1, FROM, FROM + HOUR, 2.0);
+        insert("ticket", 0, 2, FROM, -1, 0);
+        insert("ticket", 0, 2, TO, TO + HOUR, 99.0);
+        ticketRerater = new TicketRerater(DATA_BASE, 2, 2);
+    }
+
+    @AfterEach
+    private void tearDownPerTest() {
+        ticketRerater.close();
+        FareCalculatorService.setTariff(Tariff.defaultTariff());
+    }
+
+    //an ID of 0 lets ticket generate one
+    private void insert(String table, int id, int parkingNumber, long inMillis, long outMillis, double price) throws Exception {
+        Connection con = DATA_BASE.getConnection();
+        try {
+            PreparedStatement ps = con.prepareStatement(id == 0
+                    ? "insert into " + table + "(PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME) values(?,?,?,?,?)"
+                    : "insert into " + table + "(PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME, ID) values(?,?,?,?,?,?)");
+            ps.setInt(1, parkingNumber);
+            ps.setString(2, "R" + parkingNumber);
+            ps.setDouble(3, price);
+            ps.setTimestamp(4, new Timestamp(inMillis));
+            ps.setTimestamp(5, outMillis < 0 ? null : new Timestamp(outMillis));
+            if (id != 0) {
+                ps.setInt(6, id);
+            }
+            ps.executeUpdate();
+            ps.close();
+        } finally {
+            DATA_BASE.closeConnection(con);
+        }
+    }
+
+    private double price(String table, int id) throws Exception {
+        Connection con = DATA_BASE.getConnection();
+        try {
+            ResultSet rs = con.createStatement().executeQuery("select PRICE from " + table + " where ID = " + id);
+            assertTrue(rs.next());
+            return rs.getDouble(1);
+        } finally {
+            DATA_BASE.closeConnection(con);
+        }
+    }
+
+    private void setPrice(String table, int id, double price) throws Exception {
+        Connection con = DATA_BASE.getConnection();
+        try {
+            con.createStatement().executeUpdate("update " + table + " set PRICE = " + price + " where ID = " + id);
+        } finally {
+            DATA_BASE.closeConnection(con);
+        }
+    }
+
+    @Test
+    public void closedTicketsOfBothTablesAreRepriced() throws Exception {
+        assertEquals(7, ticketRerater.rerate("fix", FROM, TO));
+
+        assertEquals(4.0, price("ticket", 1));
+        assertEquals(2.0, price("ticket", 2));
+        assertEquals(6.0, price("ticket_history", 102));
+        assertEquals(2.0, price("ticket", 5));
+        assertEquals(0.0, price("ticket", 6));
+        assertEquals(99.0, price("ticket", 7));
+        Connection con = DATA_BASE.getConnection();
+        try {
+            ResultSet rs = con.createStatement().executeQuery(
+                    "select SOURCE_TABLE, LAST_ID, RERATED from rerate_checkpoint where JOB_NAME = 'fix' order by SOURCE_TABLE");
+            assertTrue(rs.next());
+            assertEquals("ticket", rs.getString(1));
+            assertEquals(5, rs.getInt(2));
+            assertEquals(4, rs.getInt(3));
+            assertTrue(rs.next());
+            assertEquals(102, rs.getInt(2));
+            assertEquals(3, rs.getInt(3));
+        } finally {
+            DATA_BASE.closeConnection(con);
+        }
+    }
+
+    @Test
+    public void jobResumesAfterItsCheckpoint() throws Exception {
+        assertEquals(7, ticketRerater.rerate("fix", FROM, TO));
+        setPrice("ticket", 1, 99.0);
+        insert("ticket", 0, 3, FROM, FROM + 2 * HOUR, 99.0);
+
+        //only the ticket added after the checkpoint is new to the job
+        assertEquals(1, ticketRerater.rerate("fix", FROM, TO));
+        assertEquals(99.0, price("ticket", 1));
+        assertEquals(2.0, price("ticket", 8));
+        assertEquals(1, ticketRerater.rerate("fix again", FROM, TO));
+        assertEquals(4.0, price("ticket", 1));
+    }
+
+    @Test
+    public void jobCannotResumeOverAnotherRange() {
+        assertEquals(7, ticketRerater.rerate("fix", FROM, TO));
+
+        assertThrows(IllegalArgumentException.class, () -> ticketRerater.rerate("fix", FROM, TO + HOUR));
+    }
+
+    @Test
+    public void closedReraterStopsAndTheJobResumesLater() throws Exception {
+        ticketRerater.close();
+
+        assertEquals(0, ticketRerater.rerate("fix", FROM, TO));
+        assertEquals(99.0, price("ticket", 1));
+        ticketRerater = new TicketRerater(DATA_BASE, 2, 2);
+        assertEquals(7, ticketRerater.rerate("fix", FROM, TO));
+    }
+}
@@ -0,0 +1,127 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.SpotInventory;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import com.parkit.parkingsystem.service.ParkingService;
+import com.parkit.parkingsystem.simulation.Distribution;
+import com.parkit.parkingsystem.simulation.SimulationReport;
+import com.parkit.parkingsystem.simulation.TrafficSimulator;
+import com.parkit.parkingsystem.simulation.VirtualClock;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TrafficSimulatorTest {
+
+    private static final long MINUTE = 60 * 1000L;
+    private static final long HOUR = 60 * MINUTE;
+
+    @Test
+    public void fullLotRejectsArrivalsUntilSpotsAreFreed() {
+        StubParkingSpotDAO parkingSpotDAO = new StubParkingSpotDAO(10, 0);
+        StubTicketDAO ticketDAO = new StubTicketDAO();
+        VirtualClock clock = new VirtualClock(0);
+        TrafficSimulator simulator = new TrafficSimulator(new ParkingService(parkingSpotDAO, ticketDAO, clock), clock, 1)
+                .addTraffic(ParkingType.CAR, Distribution.fixed(MINUTE), Distribution.fixed(30 * MINUTE));
+
+        SimulationReport report = simulator.run(HOUR);
+
+        //cars arriving at minutes 1-10 and 31-40 find a spot, the others find the lot full
+        assertEquals(20, report.getEntries());
+        assertEquals(40, report.getRejectedEntries());
+        assertEquals(10, report.getExits());
+        assertEquals(0, report.getErrors());
+        assertEquals(10, simulator.getPendingDepartures());
+        assertEquals(HOUR, clock.millis());
+        for (Ticket ticket : ticketDAO.closedTickets) {
+            assertEquals(30 * MINUTE, ticket.getOutTime().getTime() - ticket.getInTime().getTime());
+            assertEquals(0, ticket.getPrice());
+        }
+    }
+
+    @Test
+    public void sameSeedReplaysTheSameDay() {
+        SimulationReport first = simulateDay(42);
+        SimulationReport second = simulateDay(42);
+
+        assertEquals(first.getEntries(), second.getEntries());
+        assertEquals(first.getRejectedEntries(), second.getRejectedEntries());
+        assertEquals(first.getExits(), second.getExits());
+        assertTrue(first.getEntries() > 0);
+        assertTrue(first.getRejectedEntries() > 0);
+        assertTrue(first.getEntryLatencyP50Nanos() <= first.getEntryLatencyP99Nanos());
+        assertTrue(first.getEntryLatencyP99Nanos() <= first.getEntryLatencyP999Nanos());
+        assertTrue(first.getExitLatencyP50Nanos() <= first.getExitLatencyP999Nanos());
+        assertTrue(first.getSpeedup() > 1);
+    }
+
+    private SimulationReport simulateDay(long seed) {
+        VirtualClock clock = new VirtualClock(0);
+        ParkingService parkingService = new ParkingService(new StubParkingSpotDAO(100, 20), new StubTicketDAO(), clock);
+        return new TrafficSimulator(parkingService, clock, seed)
+                .addTraffic(ParkingType.CAR, Distribution.exponential(MINUTE / 4.0), Distribution.logNormal(45 * MINUTE, 0.8))
+                .addTraffic(ParkingType.BIKE, Distribution.exponential(2 * MINUTE), Distribution.uniform(10 * MINUTE, 3 * HOUR))
+                .run(24 * HOUR);
+    }
+
+    private static class StubParkingSpotDAO extends ParkingSpotDAO {
+        private final SpotInventory spotInventory = new SpotInventory(new DataBaseConfig());
+
+        private StubParkingSpotDAO(int carSpots, int bikeSpots) {
+            int spots = carSpots + bikeSpots;
+            int[] numbers = new int[spots];
+            ParkingType[] types = new ParkingType[spots];
+            boolean[] available = new boolean[spots];
+            for (int i = 0; i < spots; i++) {
+                numbers[i] = i + 1;
+                types[i] = i < carSpots ? ParkingType.CAR : ParkingType.BIKE;
+                available[i] = true;
+            }
+            spotInventory.load(numbers, types, available);
+        }
+
+        @Override
+        public int claimNextSlot(ParkingType parkingType) {
+            return spotInventory.claimNextAvailableSlot(parkingType);
+        }
+
+        @Override
+        public boolean updateParking(ParkingSpot parkingSpot) {
+            spotInventory.setAvailable(parkingSpot.getId(), parkingSpot.isAvailable());
+            return true;
+        }
+    }
+
+    private static class StubTicketDAO extends TicketDAO {
+        private final Map<String, Ticket> openTickets = new HashMap<>();
+        private final List<Ticket> closedTickets = new ArrayList<>();
+
+        @Override
+        public boolean saveTicket(Ticket ticket) {
+            openTickets.put(ticket.getVehicleRegNumber(), ticket);
+            return true;
+        }
+
+        @Override
+        public Ticket getTicket(String vehicleRegNumber) {
+            return openTickets.get(vehicleRegNumber);
+        }
+
+        @Override
+        public boolean updateTicket(Ticket ticket) {
+            openTickets.remove(ticket.getVehicleRegNumber());
+            closedTickets.add(ticket);
+            return true;
+        }
+    }
+}
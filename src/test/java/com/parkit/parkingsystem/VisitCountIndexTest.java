@@ -0,0 +1,98 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.dao.VisitCountIndex;
+import com.parkit.parkingsystem.metrics.Metrics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class VisitCountIndexTest {
+
+    private VisitCountIndex visitCountIndex;
+
+    @BeforeEach
+    private void setUpPerTest() {
+        visitCountIndex = new VisitCountIndex(new DataBaseConfig(), 1000);
+        Map<String, Integer> visitCounts = new HashMap<>();
+        visitCounts.put("ABCDEF", 3);
+        visitCounts.put("GHIJKL", 1);
+        visitCountIndex.load(visitCounts);
+    }
+
+    @Test
+    public void countsLoadedVisits() {
+        assertEquals(3, visitCountIndex.getVisitCount("ABCDEF"));
+        assertEquals(1, visitCountIndex.getVisitCount("GHIJKL"));
+        assertEquals(2, visitCountIndex.getVehicleCount());
+    }
+
+    @Test
+    public void firstTimeVisitorIsAnsweredByBloomFilter() {
+        Metrics.reset();
+        assertEquals(0, visitCountIndex.getVisitCount("MNOPQR"));
+        assertEquals(1, (long) Metrics.getCounters().get("visitCountIndex.bloomFilterNegatives"));
+    }
+
+    @Test
+    public void recordedVisitsAreCountedAndCanBeTakenBack() {
+        visitCountIndex.recordVisit("MNOPQR");
+        visitCountIndex.recordVisit("GHIJKL");
+        assertEquals(1, visitCountIndex.getVisitCount("MNOPQR"));
+        assertEquals(2, visitCountIndex.getVisitCount("GHIJKL"));
+
+        visitCountIndex.removeVisit("MNOPQR");
+        assertEquals(0, visitCountIndex.getVisitCount("MNOPQR"));
+        assertEquals(2, visitCountIndex.getVehicleCount());
+    }
+
+    @Test
+    public void reloadStreamsHotAndHistoryAggregates() throws Exception {
+        Connection connection = mock(Connection.class);
+        PreparedStatement preparedStatement = mock(PreparedStatement.class);
+        ResultSet resultSet = mock(ResultSet.class);
+        when(connection.prepareStatement(DBConstants.GET_VISIT_COUNTS, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY))
+                .thenReturn(preparedStatement);
+        when(preparedStatement.executeQuery()).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true, true, false);
+        when(resultSet.getString(1)).thenReturn("ABCDEF", "STUVWX");
+        when(resultSet.getInt(2)).thenReturn(2, 5);
+        PreparedStatement historyStatement = mock(PreparedStatement.class);
+        ResultSet historyResultSet = mock(ResultSet.class);
+        when(connection.prepareStatement(DBConstants.GET_HISTORY_VISIT_COUNTS, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY))
+                .thenReturn(historyStatement);
+        when(historyStatement.executeQuery()).thenReturn(historyResultSet);
+        when(historyResultSet.next()).thenReturn(true, false);
+        when(historyResultSet.getString(1)).thenReturn("ABCDEF");
+        when(historyResultSet.getInt(2)).thenReturn(4);
+        DataBaseConfig dataBaseConfig = new DataBaseConfig() {
+            @Override
+            public Connection getConnection() throws SQLException {
+                return connection;
+            }
+
+            @Override
+            public void closeConnection(Connection con) {
+            }
+        };
+        VisitCountIndex reloaded = new VisitCountIndex(dataBaseConfig, 1000);
+
+        reloaded.reload();
+
+        verify(preparedStatement, times(1)).setFetchSize(Integer.MIN_VALUE);
+        verify(historyStatement, times(1)).setFetchSize(Integer.MIN_VALUE);
+        assertEquals(6, reloaded.getVisitCount("ABCDEF"));
+        assertEquals(5, reloaded.getVisitCount("STUVWX"));
+        assertEquals(0, reloaded.getVisitCount("GHIJKL"));
+    }
+}
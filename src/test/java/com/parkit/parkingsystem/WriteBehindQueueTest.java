@@ -0,0 +1,231 @@
+package com.parkit.parkingsystem;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.dao.WriteBehindQueue;
+import com.parkit.parkingsystem.metrics.Metrics;
+import com.parkit.parkingsystem.model.ParkingSpot;
+import com.parkit.parkingsystem.model.Ticket;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class WriteBehindQueueTest {
+
+    private Connection connection;
+    private PreparedStatement preparedStatement;
+    private CountDownLatch connectionGate;
+
+    @BeforeEach
+    private void setUpPerTest() throws SQLException {
+        connection = mock(Connection.class);
+        preparedStatement = mock(PreparedStatement.class);
+        when(connection.prepareStatement(anyString())).thenReturn(preparedStatement);
+        when(connection.prepareStatement(anyString(), anyInt())).thenReturn(preparedStatement);
+        connectionGate = new CountDownLatch(0);
+    }
+
+    private WriteBehindQueue newQueue(int capacity, long flushIntervalMillis, long offerTimeoutMillis) {
+        DataBaseConfig dataBaseConfig = new DataBaseConfig() {
+            @Override
+            public Connection getConnection() throws SQLException {
+                try {
+                    connectionGate.await();
+                } catch (InterruptedException e) {
+                    throw new SQLException(e);
+                }
+                return connection;
+            }
+
+            @Override
+            public void closeConnection(Connection con) {
+            }
+        };
+        return new WriteBehindQueue(dataBaseConfig, capacity, 100, flushIntervalMillis, offerTimeoutMillis);
+    }
+
+    @Test
+    public void queuedWritesAreGroupCommittedOnClose() throws Exception {
+        WriteBehindQueue writeBehindQueue = newQueue(100, 1000, 100);
+        CompletableFuture<Void> first = writeBehindQueue.submit("update a", ps -> ps.setInt(1, 1));
+        writeBehindQueue.submit("update a", ps -> ps.setInt(1, 2));
+        writeBehindQueue.submit("update a", ps -> ps.setInt(1, 3));
+        CompletableFuture<Void> last = writeBehindQueue.submit("update b", ps -> ps.setInt(1, 4));
+
+        writeBehindQueue.close();
+
+        assertTrue(first.isDone() && !first.isCompletedExceptionally());
+        assertTrue(last.isDone() && !last.isCompletedExceptionally());
+        verify(preparedStatement, times(4)).addBatch();
+        verify(preparedStatement, times(2)).executeBatch();
+        verify(connection, times(1)).commit();
+        assertEquals(4, writeBehindQueue.getFlushedWriteCount());
+        assertEquals(0, writeBehindQueue.getPendingCount());
+    }
+
+    @Test
+    public void generatedKeysAreHandedBackAfterCommit() throws Exception {
+        ResultSet generatedKeys = mock(ResultSet.class);
+        when(generatedKeys.next()).thenReturn(true, true, false);
+        when(generatedKeys.getInt(1)).thenReturn(7, 8);
+        when(preparedStatement.getGeneratedKeys()).thenReturn(generatedKeys);
+        AtomicInteger firstKey = new AtomicInteger();
+        AtomicInteger secondKey = new AtomicInteger();
+
+        WriteBehindQueue writeBehindQueue = newQueue(100, 1000, 100);
+        writeBehindQueue.submit("insert", ps -> ps.setInt(1, 1), firstKey::set);
+        writeBehindQueue.submit("insert", ps -> ps.setInt(1, 2), secondKey::set);
+        writeBehindQueue.close();
+
+        assertEquals(7, firstKey.get());
+        assertEquals(8, secondKey.get());
+    }
+
+    @Test
+    public void generatedKeysOfARolledBackInsertAreNotHandedBack() throws Exception {
+        ResultSet generatedKeys = mock(ResultSet.class);
+        when(generatedKeys.next()).thenReturn(true, false);
+        when(generatedKeys.getInt(1)).thenReturn(7);
+        when(preparedStatement.getGeneratedKeys()).thenReturn(generatedKeys);
+        doThrow(new SQLException("connection lost")).when(connection).commit();
+        AtomicInteger key = new AtomicInteger();
+
+        WriteBehindQueue writeBehindQueue = newQueue(100, 1000, 100);
+        CompletableFuture<Void> write = writeBehindQueue.submit("insert", ps -> ps.setInt(1, 1), key::set);
+        writeBehindQueue.close();
+
+        assertTrue(write.isCompletedExceptionally());
+        assertEquals(0, key.get());
+    }
+
+    @Test
+    public void writesQueuedAfterAnInsertAreBoundOnceItsKeyIsCommitted() throws Exception {
+        ResultSet generatedKeys = mock(ResultSet.class);
+        when(generatedKeys.next()).thenReturn(true, false);
+        when(generatedKeys.getInt(1)).thenReturn(7);
+        when(preparedStatement.getGeneratedKeys()).thenReturn(generatedKeys);
+        AtomicInteger key = new AtomicInteger();
+        AtomicInteger boundKey = new AtomicInteger(-1);
+
+        WriteBehindQueue writeBehindQueue = newQueue(100, 1000, 100);
+        writeBehindQueue.submit("insert", ps -> ps.setInt(1, 1), key::set);
+        writeBehindQueue.submit("update", ps -> boundKey.set(key.get()));
+        writeBehindQueue.close();
+
+        assertEquals(7, boundKey.get());
+        verify(connection, times(2)).commit();
+    }
+
+    @Test
+    public void unitIsQueuedAsOneEntryAndCommittedTogether() throws Exception {
+        connectionGate = new CountDownLatch(1);
+        WriteBehindQueue writeBehindQueue = newQueue(1, 1000, 50);
+        CompletableFuture<Void> unit = writeBehindQueue.submitAll(Arrays.asList("update a", "update a", "update b"),
+                Arrays.asList(ps -> ps.setInt(1, 1), ps -> ps.setInt(1, 2), ps -> ps.setInt(1, 3)));
+        connectionGate.countDown();
+        writeBehindQueue.close();
+
+        assertTrue(unit.isDone() && !unit.isCompletedExceptionally());
+        verify(preparedStatement, times(3)).addBatch();
+        verify(preparedStatement, times(2)).executeBatch();
+        verify(connection, times(1)).commit();
+        assertEquals(3, writeBehindQueue.getFlushedWriteCount());
+    }
+
+    @Test
+    public void fullQueueRejectsAfterOfferTimeout() throws Exception {
+        connectionGate = new CountDownLatch(1);
+        WriteBehindQueue writeBehindQueue = newQueue(1, 10, 50);
+        writeBehindQueue.submit("update a", ps -> ps.setInt(1, 1));
+        //wait for the flusher to take the first write and block on the connection
+        long deadline = System.currentTimeMillis() + 5000;
+        while (writeBehindQueue.getPendingCount() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        Thread.sleep(50);
+        writeBehindQueue.submit("update a", ps -> ps.setInt(1, 2));
+
+        assertThrows(RejectedExecutionException.class,
+                () -> writeBehindQueue.submit("update a", ps -> ps.setInt(1, 3)));
+
+        connectionGate.countDown();
+        writeBehindQueue.close();
+        assertEquals(2, writeBehindQueue.getFlushedWriteCount());
+    }
+
+    @Test
+    public void failedFlushRollsBackAndFailsEveryWrite() throws Exception {
+        when(preparedStatement.executeBatch()).thenThrow(new SQLException("disk full"));
+        WriteBehindQueue writeBehindQueue = newQueue(100, 1000, 100);
+        CompletableFuture<Void> write = writeBehindQueue.submit("update a", ps -> ps.setInt(1, 1));
+        writeBehindQueue.close();
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> write.get(1, TimeUnit.SECONDS));
+        assertTrue(e.getCause() instanceof SQLException);
+        verify(connection, times(1)).rollback();
+        assertEquals(1, writeBehindQueue.getFailedWriteCount());
+    }
+
+    @Test
+    public void closedTicketStaysCachedUntilItsQueuedUpdateIsCommitted() throws Exception {
+        TicketDAO ticketDAO = new TicketDAO();
+        ticketDAO.writeBehindQueue = newQueue(100, 1000, 100);
+        Ticket ticket = openTicket();
+        ticketDAO.getOpenTicketCache().put(ticket);
+        ticket.setOutTime(new Date());
+
+        assertTrue(ticketDAO.updateTicket(ticket));
+        //not found open while the update is queued, nor read from the DB where it still is
+        assertSame(ticket, ticketDAO.getOpenTicketCache().get("ABCDEF"));
+        assertTrue(ticketDAO.getOpenTickets(Collections.singletonList("ABCDEF")).isEmpty());
+
+        ticketDAO.writeBehindQueue.close();
+        assertNull(ticketDAO.getOpenTicketCache().get("ABCDEF"));
+    }
+
+    @Test
+    public void closedTicketIsOpenAgainWhenItsQueuedUpdateFails() throws Exception {
+        when(preparedStatement.executeBatch()).thenThrow(new SQLException("disk full"));
+        Long failedBefore = Metrics.getCounters().get("ticketDAO.failedQueuedCloses");
+        TicketDAO ticketDAO = new TicketDAO();
+        ticketDAO.writeBehindQueue = newQueue(100, 1000, 100);
+        Ticket ticket = openTicket();
+        ticketDAO.getOpenTicketCache().put(ticket);
+        ticket.setOutTime(new Date());
+        ticket.setPrice(1.5);
+
+        assertTrue(ticketDAO.updateTicket(ticket));
+        ticketDAO.writeBehindQueue.close();
+
+        assertSame(ticket, ticketDAO.getOpenTicketCache().get("ABCDEF"));
+        assertNull(ticket.getOutTime());
+        assertEquals(0, ticket.getPrice());
+        assertEquals((failedBefore == null ? 0 : failedBefore) + 1, (long) Metrics.getCounters().get("ticketDAO.failedQueuedCloses"));
+    }
+
+    private static Ticket openTicket() {
+        Ticket ticket = new Ticket();
+        ticket.setId(7);
+        ticket.setVehicleRegNumber("ABCDEF");
+        ticket.setParkingSpot(new ParkingSpot(1, ParkingType.CAR, false));
+        ticket.setInTime(new Date(System.currentTimeMillis() - 60 * 60 * 1000));
+        return ticket;
+    }
+}
@@ -0,0 +1,31 @@
+package com.parkit.parkingsystem.integration;
+
+import com.parkit.parkingsystem.StoreContract;
+import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.ParkingSpotStore;
+import com.parkit.parkingsystem.dao.TicketDAO;
+import com.parkit.parkingsystem.dao.TicketStore;
+import com.parkit.parkingsystem.integration.config.DataBaseTestConfig;
+import com.parkit.parkingsystem.integration.service.DataBasePrepareService;
+
+//the storage contract run against the test DB through the JDBC DAOs
+public class JdbcStoreIT extends StoreContract {
+
+    private static DataBaseTestConfig dataBaseTestConfig = new DataBaseTestConfig();
+    private static DataBasePrepareService dataBasePrepareService = new DataBasePrepareService();
+
+    @Override
+    protected ParkingSpotStore newParkingSpotStore() {
+        dataBasePrepareService.clearDataBaseEntries();
+        ParkingSpotDAO parkingSpotDAO = new ParkingSpotDAO();
+        parkingSpotDAO.dataBaseConfig = dataBaseTestConfig;
+        return parkingSpotDAO;
+    }
+
+    @Override
+    protected TicketStore newTicketStore(ParkingSpotStore parkingSpotStore) {
+        TicketDAO ticketDAO = new TicketDAO();
+        ticketDAO.dataBaseConfig = dataBaseTestConfig;
+        return ticketDAO;
+    }
+}
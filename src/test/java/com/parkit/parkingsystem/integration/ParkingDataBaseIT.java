@@ -1,9 +1,12 @@
 package com.parkit.parkingsystem.integration;
 
 import com.parkit.parkingsystem.dao.ParkingSpotDAO;
+import com.parkit.parkingsystem.dao.TicketArchiver;
 import com.parkit.parkingsystem.dao.TicketDAO;
 import com.parkit.parkingsystem.integration.config.DataBaseTestConfig;
 import com.parkit.parkingsystem.integration.service.DataBasePrepareService;
+import com.parkit.parkingsystem.model.ExitResult;
+import com.parkit.parkingsystem.model.Ticket;
 import com.parkit.parkingsystem.service.ParkingService;
 import com.parkit.parkingsystem.util.InputReaderUtil;
 import org.junit.jupiter.api.AfterAll;
@@ -13,6 +16,12 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Clock;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -40,6 +49,7 @@ public class ParkingDataBaseIT {
         when(inputReaderUtil.readSelection()).thenReturn(1);
         when(inputReaderUtil.readVehicleRegistrationNumber()).thenReturn("ABCDEF");
         dataBasePrepareService.clearDataBaseEntries();
+        ticketDAO.getOpenTicketCache().clear();
     }
 
     @AfterAll
@@ -62,4 +72,35 @@ public class ParkingDataBaseIT {
         //TODO: check that the fare generated and out time are populated correctly in the database
     }
 
+    @Test
+    public void testParkingLotExitOfSeveralVehicles(){
+        testParkingACar();
+        ParkingService parkingService = new ParkingService(inputReaderUtil, parkingSpotDAO, ticketDAO);
+        List<ExitResult> exitResults = parkingService.processExitingVehicles(Arrays.asList("ABCDEF", "UNKNOWN"));
+
+        assertEquals(ExitResult.Status.EXITED, exitResults.get(0).getStatus());
+        assertEquals(ExitResult.Status.UNKNOWN_VEHICLE, exitResults.get(1).getStatus());
+        ticketDAO.getOpenTicketCache().clear();
+        Ticket ticket = ticketDAO.getTicket("ABCDEF");
+        assertNotNull(ticket.getOutTime());
+        assertEquals(0, ticket.getPrice());
+        assertEquals(ticket.getParkingSpot().getId(), parkingSpotDAO.getNextAvailableSlot(ticket.getParkingSpot().getParkingType()));
+    }
+
+    @Test
+    public void testClosedTicketIsArchived(){
+        testParkingLotExit();
+        //archive age below zero: the ticket closed a moment ago is already old enough
+        TicketArchiver ticketArchiver = new TicketArchiver(dataBaseTestConfig, Clock.systemDefaultZone(), -60_000, 100, 0);
+
+        assertEquals(1, ticketArchiver.archive());
+
+        ticketDAO.getOpenTicketCache().clear();
+        assertNull(ticketDAO.getTicket("ABCDEF"));
+        assertEquals(0, ticketDAO.getTickets("ABCDEF", false).size());
+        List<Ticket> tickets = ticketDAO.getTickets("ABCDEF", true);
+        assertEquals(1, tickets.size());
+        assertNotNull(tickets.get(0).getOutTime());
+    }
+
 }
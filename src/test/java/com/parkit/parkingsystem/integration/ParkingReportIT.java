@@ -0,0 +1,97 @@
+package com.parkit.parkingsystem.integration;
+
+import com.parkit.parkingsystem.constants.ParkingType;
+import com.parkit.parkingsystem.integration.config.DataBaseTestConfig;
+import com.parkit.parkingsystem.integration.service.DataBasePrepareService;
+import com.parkit.parkingsystem.report.ParkingReport;
+import com.parkit.parkingsystem.report.ParkingReportEngine;
+import com.parkit.parkingsystem.report.ReportGranularity;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ParkingReportIT {
+
+    private static final long FROM = 1_600_041_600_000L;
+    private static final long TO = FROM + TimeUnit.DAYS.toMillis(30);
+    private static final int TICKETS = 2000;
+
+    private static DataBaseTestConfig dataBaseTestConfig = new DataBaseTestConfig();
+    private static DataBasePrepareService dataBasePrepareService = new DataBasePrepareService();
+
+    private static int enteredInRange;
+
+    //random tickets around the report range on spots 1 (car) and 4 (bike), the older half archived
+    @BeforeAll
+    private static void setUp() throws Exception {
+        dataBasePrepareService.clearDataBaseEntries();
+        Random random = new Random(42);
+        Connection con = dataBaseTestConfig.getConnection();
+        try {
+            PreparedStatement hot = con.prepareStatement("insert into ticket(PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME) values(?,?,?,?,?)");
+            PreparedStatement history = con.prepareStatement("insert into ticket_history(ID, PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME) values(?,?,?,?,?,?)");
+            for (int i = 0; i < TICKETS; i++) {
+                long inTime = FROM - TimeUnit.DAYS.toMillis(1) + (long) (random.nextDouble() * TimeUnit.DAYS.toMillis(32));
+                long outTime = inTime + TimeUnit.MINUTES.toMillis(1 + random.nextInt(3000));
+                boolean open = outTime > TO && random.nextBoolean();
+                if (inTime >= FROM && inTime < TO) {
+                    enteredInRange++;
+                }
+                PreparedStatement ps = i % 2 == 0 && !open ? history : hot;
+                int column = 1;
+                if (ps == history) {
+                    ps.setInt(column++, 1_000_000 + i);
+                }
+                ps.setInt(column++, i % 3 == 0 ? 4 : 1);
+                ps.setString(column++, "R" + i);
+                ps.setDouble(column++, open ? 0 : random.nextInt(10_000) / 100.0);
+                ps.setTimestamp(column++, new Timestamp(inTime));
+                ps.setTimestamp(column, open ? null : new Timestamp(outTime));
+                ps.addBatch();
+            }
+            hot.executeBatch();
+            history.executeBatch();
+            dataBaseTestConfig.closePreparedStatement(hot);
+            dataBaseTestConfig.closePreparedStatement(history);
+        } finally {
+            dataBaseTestConfig.closeConnection(con);
+        }
+    }
+
+    private ParkingReport report(int parallelism, long leafMillis) {
+        Clock clock = Clock.fixed(Instant.ofEpochMilli(TO + TimeUnit.DAYS.toMillis(1)), ZoneOffset.UTC);
+        try (ParkingReportEngine engine = new ParkingReportEngine(dataBaseTestConfig, ZoneOffset.UTC, clock, parallelism, leafMillis)) {
+            return engine.report(FROM, TO, ReportGranularity.HOUR);
+        }
+    }
+
+    @Test
+    public void splitReportMatchesSingleQueryReport() {
+        ParkingReport single = report(1, Long.MAX_VALUE);
+        ParkingReport split = report(4, TimeUnit.DAYS.toMillis(1));
+
+        assertEquals(single.getRowCount(), split.getRowCount());
+        assertEquals(30 * 24, split.getBucketCount());
+        long entries = 0;
+        for (ParkingType parkingType : ParkingType.values()) {
+            for (int bucket = 0; bucket < split.getBucketCount(); bucket++) {
+                assertEquals(single.getEntries(parkingType, bucket), split.getEntries(parkingType, bucket));
+                assertEquals(single.getExits(parkingType, bucket), split.getExits(parkingType, bucket));
+                assertEquals(single.getRevenue(parkingType, bucket), split.getRevenue(parkingType, bucket));
+                assertEquals(single.getOccupiedMillis(parkingType, bucket), split.getOccupiedMillis(parkingType, bucket));
+                entries += split.getEntries(parkingType, bucket);
+            }
+        }
+        assertEquals(enteredInRange, entries);
+    }
+}
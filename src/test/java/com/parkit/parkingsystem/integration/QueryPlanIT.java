@@ -0,0 +1,148 @@
+package com.parkit.parkingsystem.integration;
+
+import com.parkit.parkingsystem.config.SchemaMigrator;
+import com.parkit.parkingsystem.constants.DBConstants;
+import com.parkit.parkingsystem.integration.config.DataBaseTestConfig;
+import com.parkit.parkingsystem.integration.service.DataBasePrepareService;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+//checks with EXPLAIN that the DBConstants queries keep using the migration indexes on a large ticket table
+public class QueryPlanIT {
+
+    private static final int TICKETS = Integer.getInteger("parkit.queryPlanIT.tickets", 2_000_000);
+    private static final int VEHICLES = TICKETS / 10;
+
+    private static DataBaseTestConfig dataBaseTestConfig = new DataBaseTestConfig();
+    private static DataBasePrepareService dataBasePrepareService = new DataBasePrepareService();
+
+    private static final class Plan {
+        private String sql;
+        private String type;
+        private String key;
+        private long rows;
+        private String extra;
+
+        //used as the assert message, so that a failure shows the whole plan
+        @Override
+        public String toString() {
+            return sql + " -> type=" + type + " key=" + key + " rows=" + rows + " extra=" + extra;
+        }
+    }
+
+    @BeforeAll
+    private static void setUp() throws Exception {
+        new SchemaMigrator(dataBaseTestConfig).migrate();
+        dataBasePrepareService.clearDataBaseEntries();
+        Connection con = dataBaseTestConfig.getConnection();
+        try {
+            Statement statement = con.createStatement();
+            //generated server side: ten visits per vehicle, one ticket in a hundred still open
+            statement.execute("set session cte_max_recursion_depth = " + (TICKETS + 1));
+            statement.execute("insert into ticket(PARKING_NUMBER, VEHICLE_REG_NUMBER, PRICE, IN_TIME, OUT_TIME)"
+                    + " with recursive seq(n) as (select 1 union all select n + 1 from seq where n < " + TICKETS + ")"
+                    + " select 1 + n % 3, concat('P', n % " + VEHICLES + "), 1.5, timestampadd(minute, -n, now()),"
+                    + " case when n % 100 = 0 then null else timestampadd(minute, 60 - n, now()) end from seq");
+            statement.execute("analyze table ticket, parking");
+            dataBaseTestConfig.closeStatement(statement);
+        } finally {
+            dataBaseTestConfig.closeConnection(con);
+        }
+    }
+
+    @AfterAll
+    private static void tearDown() {
+        dataBasePrepareService.clearDataBaseEntries();
+    }
+
+    @Test
+    public void latestTicketOfAVehicleIsAnIndexLookup() throws Exception {
+        Plan plan = explain(DBConstants.GET_TICKET, "P42");
+
+        assertEquals("IDX_TICKET_VEHICLE_IN_OUT", plan.key, plan.toString());
+        assertEquals("ref", plan.type, plan.toString());
+        assertTrue(plan.rows <= 100, plan.toString());
+        assertFalse(plan.extra.contains("filesort"), plan.toString());
+    }
+
+    @Test
+    public void visitCountIsCoveredByTheIndex() throws Exception {
+        Plan plan = explain(DBConstants.COUNT_VEHICLE_TICKETS, "P42");
+
+        assertEquals("IDX_TICKET_VEHICLE_IN_OUT", plan.key, plan.toString());
+        assertTrue(plan.rows <= 100, plan.toString());
+        assertTrue(plan.extra.contains("Using index"), plan.toString());
+    }
+
+    @Test
+    public void visitCountsAggregateScansOnlyTheIndex() throws Exception {
+        Plan plan = explain(DBConstants.GET_VISIT_COUNTS);
+
+        assertEquals("IDX_TICKET_VEHICLE_IN_OUT", plan.key, plan.toString());
+        assertNotEquals("ALL", plan.type, plan.toString());
+        assertTrue(plan.extra.contains("Using index"), plan.toString());
+    }
+
+    @Test
+    public void openTicketsOfSeveralVehiclesUseTheVehicleIndex() throws Exception {
+        Plan plan = explain(DBConstants.GET_OPEN_TICKETS_PREFIX + "?,?,?" + DBConstants.GET_OPEN_TICKETS_SUFFIX,
+                "P1", "P2", "P3");
+
+        assertNotNull(plan.key, plan.toString());
+        assertNotEquals("ALL", plan.type, plan.toString());
+        assertTrue(plan.rows <= 1000, plan.toString());
+    }
+
+    @Test
+    public void reportRangeUsesTheInTimeIndex() throws Exception {
+        long now = System.currentTimeMillis();
+        Plan plan = explain(DBConstants.GET_REPORT_TICKETS,
+                new Timestamp(now - TimeUnit.HOURS.toMillis(2)).toString(), new Timestamp(now - TimeUnit.HOURS.toMillis(1)).toString());
+
+        assertEquals("IDX_TICKET_IN_TIME", plan.key, plan.toString());
+        assertEquals("range", plan.type, plan.toString());
+        assertTrue(plan.rows <= 1000, plan.toString());
+    }
+
+    @Test
+    public void nextParkingSpotIsResolvedFromTheIndex() throws Exception {
+        Plan plan = explain(DBConstants.GET_NEXT_PARKING_SPOT, "CAR");
+
+        //min() over an index prefix is answered by the optimizer without reading the table
+        assertTrue("IDX_PARKING_TYPE_AVAILABLE".equals(plan.key) || plan.extra.contains("optimized away"),
+                plan.toString());
+    }
+
+    private Plan explain(String sql, String... parameters) throws Exception {
+        Connection con = dataBaseTestConfig.getConnection();
+        try {
+            PreparedStatement ps = con.prepareStatement("explain " + sql);
+            for (int i = 0; i < parameters.length; i++) {
+                ps.setString(i + 1, parameters[i]);
+            }
+            ResultSet rs = ps.executeQuery();
+            assertTrue(rs.next());
+            Plan plan = new Plan();
+            plan.sql = sql;
+            plan.type = rs.getString("type");
+            plan.key = rs.getString("key");
+            plan.rows = rs.getLong("rows");
+            plan.extra = String.valueOf(rs.getString("Extra"));
+            dataBaseTestConfig.closeResultSet(rs);
+            dataBaseTestConfig.closePreparedStatement(ps);
+            return plan;
+        } finally {
+            dataBaseTestConfig.closeConnection(con);
+        }
+    }
+}
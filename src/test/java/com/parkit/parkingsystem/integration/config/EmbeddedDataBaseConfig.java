@@ -0,0 +1,75 @@
+package com.parkit.parkingsystem.integration.config;
+
+import com.parkit.parkingsystem.config.DataBaseConfig;
+import com.parkit.parkingsystem.config.SchemaMigrator;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+//in-memory H2 database in MySQL mode, with the schema of resources/Data.sql and the migrations;
+//used by the benchmarks and by the tests that need several databases at once
+public class EmbeddedDataBaseConfig extends DataBaseConfig {
+
+    private final String name;
+
+    public EmbeddedDataBaseConfig(String name) {
+        this.name = name;
+    }
+
+    @Override
+    protected String getDriverClassName() {
+        return "org.h2.Driver";
+    }
+
+    @Override
+    protected String getUrl() {
+        return "jdbc:h2:mem:" + name + ";MODE=MySQL;DB_CLOSE_DELAY=-1";
+    }
+
+    @Override
+    protected String getUser() {
+        return "sa";
+    }
+
+    @Override
+    protected String getPassword() {
+        return "";
+    }
+
+    @Override
+    public int getStreamingFetchSize() {
+        return 1000;
+    }
+
+    public void createSchema(int carSpots, int bikeSpots) throws ClassNotFoundException, SQLException, IOException {
+        Connection con = getConnection();
+        try {
+            Statement statement = con.createStatement();
+            statement.execute("drop table if exists rerate_checkpoint");
+            statement.execute("drop table if exists ticket_history");
+            statement.execute("drop table if exists ticket");
+            statement.execute("drop table if exists parking");
+            statement.execute("drop table if exists schema_version");
+            statement.execute("create table parking(PARKING_NUMBER int PRIMARY KEY, AVAILABLE bool NOT NULL, TYPE varchar(10) NOT NULL)");
+            statement.execute("create table ticket(ID int PRIMARY KEY AUTO_INCREMENT, PARKING_NUMBER int NOT NULL,"
+                    + " VEHICLE_REG_NUMBER varchar(10) NOT NULL, PRICE double, IN_TIME DATETIME NOT NULL, OUT_TIME DATETIME,"
+                    + " FOREIGN KEY (PARKING_NUMBER) REFERENCES parking(PARKING_NUMBER))");
+            statement.close();
+            PreparedStatement ps = con.prepareStatement("insert into parking(PARKING_NUMBER,AVAILABLE,TYPE) values(?,true,?)");
+            for (int number = 1; number <= carSpots + bikeSpots; number++) {
+                ps.setInt(1, number);
+                ps.setString(2, number <= carSpots ? "CAR" : "BIKE");
+                ps.addBatch();
+            }
+            ps.executeBatch();
+            closePreparedStatement(ps);
+        } finally {
+            closeConnection(con);
+        }
+        //same indexes as production
+        new SchemaMigrator(this).migrate();
+    }
+}
@@ -1,8 +1,12 @@
 package com.parkit.parkingsystem.integration.service;
 
+import com.parkit.parkingsystem.config.SchemaMigrator;
+import com.parkit.parkingsystem.dao.SpotInventory;
+import com.parkit.parkingsystem.dao.VisitCountIndex;
 import com.parkit.parkingsystem.integration.config.DataBaseTestConfig;
 
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 
 public class DataBasePrepareService {
 
@@ -11,13 +15,25 @@ public class DataBasePrepareService {
     public void clearDataBaseEntries(){
         Connection connection = null;
         try{
+            new SchemaMigrator(dataBaseTestConfig).migrate();
             connection = dataBaseTestConfig.getConnection();
 
             //set parking entries to available
-            connection.prepareStatement("update parking set available = true").execute();
+            PreparedStatement ps = connection.prepareStatement("update parking set available = true");
+            ps.execute();
+            dataBaseTestConfig.closePreparedStatement(ps);
 
             //clear ticket entries;
-            connection.prepareStatement("truncate table ticket").execute();
+            ps = connection.prepareStatement("truncate table ticket");
+            ps.execute();
+            dataBaseTestConfig.closePreparedStatement(ps);
+            ps = connection.prepareStatement("truncate table ticket_history");
+            ps.execute();
+            dataBaseTestConfig.closePreparedStatement(ps);
+
+            //the in-memory spot inventory and visit counts must follow the reset tables
+            SpotInventory.of(dataBaseTestConfig).reload();
+            VisitCountIndex.of(dataBaseTestConfig).reload();
 
         }catch(Exception e){
             e.printStackTrace();
@@ -0,0 +1,3 @@
+-- two statements in one migration
+create table first(ID int);
+create index IDX_FIRST on first(ID);
@@ -0,0 +1 @@
+create table second(ID int);